@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics.internal.cloudwatch;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.metrics.ConcurrentHistogram;
+import com.amazonaws.metrics.InProcessMetricCollector;
+import com.amazonaws.metrics.InProcessRequestMetricCollector;
+import com.amazonaws.metrics.InProcessRequestMetricCollector.OperationSnapshot;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link InProcessMetricCollector} that periodically uploads the metrics
+ * aggregated since the previous upload to Amazon CloudWatch.
+ * <p>
+ * Every upload sends, per service operation, the request, error and retry
+ * counts and statistic sets of the latencies and body sizes, with the
+ * dimensions ServiceName and OperationName. Data points are sent
+ * {@value #MAX_DATUMS_PER_REQUEST} per PutMetricData request, from a single
+ * background thread, and the uploads themselves are not measured.
+ */
+public class CloudWatchMetricCollector extends InProcessMetricCollector {
+
+    private static final Log LOG = LogFactory.getLog(CloudWatchMetricCollector.class);
+
+    /** Max number of data points accepted by a PutMetricData request. */
+    static final int MAX_DATUMS_PER_REQUEST = 20;
+    /** Default time between two uploads. */
+    public static final long DEFAULT_PUBLISH_INTERVAL_MILLIS = 60 * 1000;
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final AmazonCloudWatch cloudWatch;
+    private final String namespace;
+    private final long publishIntervalMillis;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param cloudWatch the client to upload the metrics with.
+     * @param namespace the CloudWatch namespace of the metrics.
+     * @param publishIntervalMillis the time between two uploads.
+     */
+    public CloudWatchMetricCollector(AmazonCloudWatch cloudWatch, String namespace,
+            long publishIntervalMillis) {
+        super(new InProcessRequestMetricCollector());
+        if (cloudWatch == null) {
+            throw new IllegalArgumentException("cloudWatch cannot be null");
+        }
+        if (namespace == null || namespace.trim().length() == 0) {
+            throw new IllegalArgumentException("namespace cannot be blank");
+        }
+        if (publishIntervalMillis <= 0) {
+            throw new IllegalArgumentException("publishIntervalMillis must be positive");
+        }
+        this.cloudWatch = cloudWatch;
+        this.namespace = namespace;
+        this.publishIntervalMillis = publishIntervalMillis;
+    }
+
+    /**
+     * Starts uploading the metrics periodically.
+     *
+     * @return true if the uploads were started by this call; false if they
+     *         were already running.
+     */
+    @Override
+    public synchronized boolean start() {
+        super.start();
+        if (executor != null) {
+            return false;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "CloudWatchMetricCollector");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        }, publishIntervalMillis, publishIntervalMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Stops the periodic uploads. The metrics aggregated since the last upload
+     * are uploaded in the background before the upload thread ends.
+     *
+     * @return true if the uploads were stopped by this call; false if they
+     *         were not running.
+     */
+    @Override
+    public synchronized boolean stop() {
+        super.stop();
+        if (executor == null) {
+            return false;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        });
+        executor.shutdown();
+        executor = null;
+        return true;
+    }
+
+    /**
+     * Uploads the metrics aggregated since the previous upload. Failures are
+     * logged, and the metrics of the failed requests are dropped.
+     */
+    public void publish() {
+        final List<MetricDatum> datums =
+                toMetricData(getRequestMetricCollector().getSnapshotsAndReset(), new Date());
+        for (int start = 0; start < datums.size(); start += MAX_DATUMS_PER_REQUEST) {
+            final List<MetricDatum> batch = datums.subList(start,
+                    Math.min(start + MAX_DATUMS_PER_REQUEST, datums.size()));
+            final PutMetricDataRequest request = new PutMetricDataRequest()
+                    .withNamespace(namespace)
+                    .withMetricData(batch)
+                    .withRequestMetricCollector(RequestMetricCollector.NONE);
+            try {
+                cloudWatch.putMetricData(request);
+            } catch (final AmazonClientException e) {
+                LOG.warn("Failed to upload " + batch.size() + " metric data points", e);
+            }
+        }
+    }
+
+    static List<MetricDatum> toMetricData(List<OperationSnapshot> snapshots, Date timestamp) {
+        final List<MetricDatum> datums = new ArrayList<MetricDatum>();
+        for (final OperationSnapshot snapshot : snapshots) {
+            if (snapshot.getRequestCount() == 0) {
+                continue;
+            }
+            final Dimension[] dimensions = new Dimension[] {
+                    new Dimension().withName("ServiceName").withValue(snapshot.getServiceName()),
+                    new Dimension().withName("OperationName")
+                            .withValue(snapshot.getOperationName())
+            };
+            datums.add(count(Field.RequestCount.name(), snapshot.getRequestCount(),
+                    dimensions, timestamp));
+            datums.add(count(Field.Exception.name(), snapshot.getErrorCount(),
+                    dimensions, timestamp));
+            datums.add(count(Field.RetryCount.name(), snapshot.getRetryCount(),
+                    dimensions, timestamp));
+            for (final Field field : InProcessRequestMetricCollector.LATENCY_FIELDS) {
+                final ConcurrentHistogram.Snapshot latency = snapshot.getLatency(field);
+                if (latency.getCount() > 0) {
+                    datums.add(statistics(field.name(), latency, MICROS_PER_MILLI,
+                            StandardUnit.Milliseconds, dimensions, timestamp));
+                }
+            }
+            if (snapshot.getBytesSent().getCount() > 0) {
+                datums.add(statistics("BytesSent", snapshot.getBytesSent(), 1,
+                        StandardUnit.Bytes, dimensions, timestamp));
+            }
+            if (snapshot.getBytesReceived().getCount() > 0) {
+                datums.add(statistics("BytesReceived", snapshot.getBytesReceived(), 1,
+                        StandardUnit.Bytes, dimensions, timestamp));
+            }
+        }
+        return datums;
+    }
+
+    private static MetricDatum count(String name, long value, Dimension[] dimensions,
+            Date timestamp) {
+        return new MetricDatum()
+                .withMetricName(name)
+                .withDimensions(dimensions)
+                .withTimestamp(timestamp)
+                .withUnit(StandardUnit.Count)
+                .withValue((double) value);
+    }
+
+    private static MetricDatum statistics(String name, ConcurrentHistogram.Snapshot snapshot,
+            double divisor, StandardUnit unit, Dimension[] dimensions, Date timestamp) {
+        return new MetricDatum()
+                .withMetricName(name)
+                .withDimensions(dimensions)
+                .withTimestamp(timestamp)
+                .withUnit(unit)
+                .withStatisticValues(new StatisticSet()
+                        .withSampleCount((double) snapshot.getCount())
+                        .withSum(snapshot.getSum() / divisor)
+                        .withMinimum(snapshot.getMin() / divisor)
+                        .withMaximum(snapshot.getMax() / divisor));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics.internal.cloudwatch;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.MetricCollector;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+
+/**
+ * The factory {@link AwsSdkMetrics#enableDefaultMetrics()} looks up to create
+ * the default metric collector, a {@link CloudWatchMetricCollector}.
+ * <p>
+ * It uses the credential provider, region, metric namespace and queue poll
+ * timeout (as the upload interval) configured in {@link AwsSdkMetrics}, and
+ * defaults to the {@link DefaultAWSCredentialsProviderChain}, us-east-1 and
+ * one upload per minute.
+ */
+public class DefaultMetricCollectorFactory implements MetricCollector.Factory {
+
+    @Override
+    public MetricCollector getInstance() {
+        try {
+            AWSCredentialsProvider credentialsProvider = AwsSdkMetrics.getCredentialProvider();
+            if (credentialsProvider == null) {
+                credentialsProvider = new DefaultAWSCredentialsProviderChain();
+            }
+            final Regions region = AwsSdkMetrics.getRegion();
+            final Long interval = AwsSdkMetrics.getQueuePollTimeoutMilli();
+
+            final AmazonCloudWatchClient cloudWatch =
+                    new AmazonCloudWatchClient(credentialsProvider);
+            cloudWatch.setRegion(Region.getRegion(region == null ? Regions.US_EAST_1 : region));
+            final CloudWatchMetricCollector collector = new CloudWatchMetricCollector(
+                    cloudWatch, AwsSdkMetrics.getMetricNameSpace(),
+                    interval == null ? CloudWatchMetricCollector.DEFAULT_PUBLISH_INTERVAL_MILLIS
+                            : interval.longValue());
+            collector.start();
+            return collector;
+        } catch (final Exception e) {
+            LogFactory.getLog(DefaultMetricCollectorFactory.class)
+                    .warn("Failed to create the CloudWatch metric collector", e);
+            return null;
+        }
+    }
+}
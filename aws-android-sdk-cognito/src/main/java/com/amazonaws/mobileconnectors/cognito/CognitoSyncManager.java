@@ -84,6 +84,13 @@ public class CognitoSyncManager {
      */
     private static SQLiteLocalStorage local;
 
+    /**
+     * The sync scheduler is singleton, like the local storage it writes to,
+     * so datasets are synced one request at a time across managers. It tells
+     * the datasets of different identities apart.
+     */
+    private static SyncScheduler syncScheduler;
+
     private final Context context;
     private final CognitoSyncStorage remote;
     private final CognitoCachingCredentialsProvider provider;
@@ -125,6 +132,9 @@ public class CognitoSyncManager {
             if (local == null) {
                 local = new SQLiteLocalStorage(context, DATABASE_NAME);
             }
+            if (syncScheduler == null) {
+                syncScheduler = new SyncScheduler();
+            }
         }
 
         this.syncClient = syncClient;
@@ -218,7 +228,8 @@ public class CognitoSyncManager {
     public Dataset openOrCreateDataset(String datasetName) {
         DatasetUtils.validateDatasetName(datasetName);
         local.createDataset(getIdentityId(), datasetName);
-        Dataset dataset = new DefaultDataset(context, datasetName, provider, local, remote);
+        Dataset dataset = new DefaultDataset(context, datasetName, provider, local, remote,
+                syncScheduler);
         return dataset;
     }
 
@@ -85,6 +85,10 @@ class DefaultDataset implements Dataset {
      * Identity id
      */
     private final CognitoCachingCredentialsProvider provider;
+    /**
+     * Scheduler that runs the synchronizations
+     */
+    private final SyncScheduler syncScheduler;
 
     /**
      * Constructs a DefaultDataset object
@@ -94,15 +98,17 @@ class DefaultDataset implements Dataset {
      * @param provider the credentials provider
      * @param local an instance of LocalStorage
      * @param remote an instance of RemoteDataStorage
+     * @param syncScheduler the scheduler that runs the synchronizations
      */
     public DefaultDataset(Context context, String datasetName,
             CognitoCachingCredentialsProvider provider,
-            LocalStorage local, RemoteDataStorage remote) {
+            LocalStorage local, RemoteDataStorage remote, SyncScheduler syncScheduler) {
         this.context = context;
         this.datasetName = datasetName;
         this.provider = provider;
         this.local = local;
         this.remote = remote;
+        this.syncScheduler = syncScheduler;
     }
 
     @Override
@@ -136,33 +142,38 @@ class DefaultDataset implements Dataset {
 
         discardPendingSyncRequest();
 
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                LOGGER.debug("start to synchronize " + datasetName);
+        syncScheduler.schedule(this, callback);
+    }
 
-                boolean result = false;
-                try {
-                    List<String> mergedDatasets = getLocalMergedDatasets();
-                    boolean doSync = true;
-                    if (!mergedDatasets.isEmpty()) {
-                        LOGGER.info("detected merge datasets " + datasetName);
-                        doSync = callback.onDatasetsMerged(DefaultDataset.this, mergedDatasets);
-                    }
-                    if (doSync) {
-                        result = synchronizeInternal(callback, MAX_RETRY);
-                    }
-                } catch (Exception e) {
-                    callback.onFailure(new DataStorageException("Unknown exception", e));
-                }
+    /**
+     * Synchronizes the dataset on the calling thread. It's run by the
+     * {@link SyncScheduler}.
+     * 
+     * @param callback callback during synchronization
+     */
+    void synchronizeNow(final SyncCallback callback) {
+        LOGGER.debug("start to synchronize " + datasetName);
 
-                if (result) {
-                    LOGGER.debug("successfully synchronize " + datasetName);
-                } else {
-                    LOGGER.debug("failed to synchronize " + datasetName);
-                }
+        boolean result = false;
+        try {
+            List<String> mergedDatasets = getLocalMergedDatasets();
+            boolean doSync = true;
+            if (!mergedDatasets.isEmpty()) {
+                LOGGER.info("detected merge datasets " + datasetName);
+                doSync = callback.onDatasetsMerged(DefaultDataset.this, mergedDatasets);
+            }
+            if (doSync) {
+                result = synchronizeInternal(callback, MAX_RETRY);
             }
-        }).start();
+        } catch (Exception e) {
+            callback.onFailure(new DataStorageException("Unknown exception", e));
+        }
+
+        if (result) {
+            LOGGER.debug("successfully synchronize " + datasetName);
+        } else {
+            LOGGER.debug("failed to synchronize " + datasetName);
+        }
     }
 
     /**
@@ -251,14 +262,19 @@ class DefaultDataset implements Dataset {
 
         if (!remoteRecords.isEmpty()) {
 
+            // look the local records up in one query rather than one per
+            // remote record
+            Map<String, Record> localRecords = new HashMap<String, Record>();
+            for (Record record : local.getRecords(getIdentityId(), datasetName)) {
+                localRecords.put(record.getKey(), record);
+            }
+
             // if conflict, prompt developer/user with callback
             List<SyncConflict> conflicts = new ArrayList<SyncConflict>();
             Iterator<Record> iter = remoteRecords.iterator();
             while (iter.hasNext()) {
                 Record remoteRecord = iter.next();
-                Record localRecord = local.getRecord(getIdentityId(),
-                        datasetName,
-                        remoteRecord.getKey());
+                Record localRecord = localRecords.get(remoteRecord.getKey());
                 // only when local is changed and its value is different
                 if (localRecord != null && localRecord.isModified()
                         && localRecord.getSyncCount() != remoteRecord.getSyncCount()
@@ -280,14 +296,10 @@ class DefaultDataset implements Dataset {
             }
 
             // if there are non-conflicting records from the remote, update them
-            // in local
-            if (!remoteRecords.isEmpty()) {
-                LOGGER.info(String.format("save %d records to local", remoteRecords.size()));
-                local.putRecords(getIdentityId(), datasetName, remoteRecords);
-            }
-            // new last sync count
+            // in local, in the same transaction as the new last sync count
+            LOGGER.info(String.format("save %d records to local", remoteRecords.size()));
             LOGGER.info(String.format("updated sync count %d", datasetUpdates.getSyncCount()));
-            local.updateLastSyncCount(getIdentityId(), datasetName,
+            local.putRecordsAndUpdateLastSyncCount(getIdentityId(), datasetName, remoteRecords,
                     datasetUpdates.getSyncCount());
         }
 
@@ -478,6 +490,14 @@ class DefaultDataset implements Dataset {
         return DatasetUtils.getIdentityId(provider);
     }
 
+    String getDatasetName() {
+        return datasetName;
+    }
+
+    String getIdentityPoolId() {
+        return provider.getIdentityPoolId();
+    }
+
     /**
      * Gets a list of records that have been modified (marking as deleted
      * included).
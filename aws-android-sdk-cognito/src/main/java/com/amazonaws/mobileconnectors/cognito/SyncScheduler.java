@@ -0,0 +1,251 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+import com.amazonaws.mobileconnectors.cognito.Dataset.SyncCallback;
+import com.amazonaws.mobileconnectors.cognito.exceptions.DataStorageException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Runs the synchronizations of datasets on a bounded pool of threads.
+ * Different datasets sync concurrently; a dataset syncs one request at a
+ * time. Requests made while a dataset waits to sync join the waiting one, and
+ * requests made while it syncs are run once, after it, so local changes made
+ * during the sync are pushed.
+ * <p>
+ * A dataset is told apart by its identity pool, identity and name, so the
+ * datasets of different managers or identities never join, even when they
+ * have the same name.
+ * <p>
+ * When requests are joined, every callback is told the outcome through
+ * onSuccess or onFailure, and the callback of the latest request decides on
+ * conflicts, deleted datasets and merged datasets.
+ * @deprecated The Amazon Cognito Sync SDK for Android is deprecated as of release 2.9.0. Please use the AWS AppSync SDK for Android along with AWS AppSync service instead.
+ */
+@Deprecated
+class SyncScheduler {
+
+    private static final Log LOGGER = LogFactory.getLog(SyncScheduler.class);
+
+    /**
+     * Max number of datasets that sync at the same time.
+     */
+    static final int MAX_CONCURRENT_SYNCS = 4;
+
+    /**
+     * Seconds an idle thread is kept.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final Executor executor;
+
+    /**
+     * Syncs that are waiting or running, by {@link #keyOf(DefaultDataset)}.
+     * Guarded by this.
+     */
+    private final Map<String, DatasetSync> syncs = new HashMap<String, DatasetSync>();
+
+    SyncScheduler() {
+        this(MAX_CONCURRENT_SYNCS);
+    }
+
+    SyncScheduler(int maxConcurrentSyncs) {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConcurrentSyncs,
+                maxConcurrentSyncs, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "CognitoSync-" + count.incrementAndGet());
+                    }
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * @param executor runs the synchronizations
+     */
+    SyncScheduler(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules a synchronization of a dataset.
+     *
+     * @param dataset the dataset to sync
+     * @param callback the callback of the request
+     */
+    void schedule(DefaultDataset dataset, SyncCallback callback) {
+        final String key = keyOf(dataset);
+        final DatasetSync sync;
+        synchronized (this) {
+            DatasetSync existing = syncs.get(key);
+            if (existing == null) {
+                existing = new DatasetSync(key, dataset);
+                syncs.put(key, existing);
+            }
+            if (!existing.add(callback)) {
+                LOGGER.debug("coalesced synchronize request of " + dataset.getDatasetName());
+                return;
+            }
+            sync = existing;
+        }
+        executor.execute(sync);
+    }
+
+    /**
+     * @return the identity pool, identity and name of the dataset
+     */
+    private static String keyOf(DefaultDataset dataset) {
+        return dataset.getIdentityPoolId() + "/" + dataset.getIdentityId() + "/"
+                + dataset.getDatasetName();
+    }
+
+    /**
+     * The sync of one dataset: the request waiting to run, if any, and
+     * whether a request is running. Guarded by the scheduler.
+     * <p>
+     * The dataset that made the first request is the one synced, for every
+     * request joining it.
+     */
+    private final class DatasetSync implements Runnable {
+        private final String key;
+        private final DefaultDataset dataset;
+        private CoalescedSyncCallback pending;
+        private boolean running;
+
+        DatasetSync(String key, DefaultDataset dataset) {
+            this.key = key;
+            this.dataset = dataset;
+        }
+
+        /**
+         * Adds a request.
+         *
+         * @return true if the sync needs to be submitted, false if the
+         *         request joined a waiting one or will run after the running
+         *         one
+         */
+        boolean add(SyncCallback callback) {
+            if (pending != null) {
+                pending.add(callback);
+                return false;
+            }
+            pending = new CoalescedSyncCallback(callback);
+            return !running;
+        }
+
+        @Override
+        public void run() {
+            final CoalescedSyncCallback callback;
+            synchronized (SyncScheduler.this) {
+                callback = pending;
+                pending = null;
+                running = true;
+            }
+            try {
+                dataset.synchronizeNow(callback.get());
+            } finally {
+                final boolean again;
+                synchronized (SyncScheduler.this) {
+                    running = false;
+                    again = pending != null;
+                    if (!again) {
+                        syncs.remove(key);
+                    }
+                }
+                if (again) {
+                    executor.execute(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * The callbacks of joined requests. Built while the requests wait, and
+     * only read once the sync runs.
+     */
+    private static final class CoalescedSyncCallback implements SyncCallback {
+        private final List<SyncCallback> callbacks = new ArrayList<SyncCallback>();
+
+        CoalescedSyncCallback(SyncCallback callback) {
+            callbacks.add(callback);
+        }
+
+        void add(SyncCallback callback) {
+            // the same callback is usually passed again; tell it once
+            callbacks.remove(callback);
+            callbacks.add(callback);
+        }
+
+        /**
+         * @return the callback itself if there is only one
+         */
+        SyncCallback get() {
+            return callbacks.size() == 1 ? callbacks.get(0) : this;
+        }
+
+        private SyncCallback latest() {
+            return callbacks.get(callbacks.size() - 1);
+        }
+
+        @Override
+        public void onSuccess(Dataset dataset, List<Record> updatedRecords) {
+            for (SyncCallback callback : callbacks) {
+                callback.onSuccess(dataset, updatedRecords);
+            }
+        }
+
+        @Override
+        public boolean onConflict(Dataset dataset, List<SyncConflict> conflicts) {
+            return latest().onConflict(dataset, conflicts);
+        }
+
+        @Override
+        public boolean onDatasetDeleted(Dataset dataset, String datasetName) {
+            return latest().onDatasetDeleted(dataset, datasetName);
+        }
+
+        @Override
+        public boolean onDatasetsMerged(Dataset dataset, List<String> datasetNames) {
+            return latest().onDatasetsMerged(dataset, datasetNames);
+        }
+
+        @Override
+        public void onFailure(DataStorageException dse) {
+            for (SyncCallback callback : callbacks) {
+                callback.onFailure(dse);
+            }
+        }
+    }
+}
@@ -115,6 +115,18 @@ public interface LocalStorage {
      * @param records a list of records
      */
     public void putRecords(String identityId, String datasetName, List<Record> records);
+
+    /**
+     * Puts a list of records pulled from the remote data store into dataset
+     * and updates the last sync count, in one transaction.
+     * 
+     * @param identityId identity id
+     * @param datasetName dataset name
+     * @param records a list of records
+     * @param lastSyncCount new last sync count value
+     */
+    public void putRecordsAndUpdateLastSyncCount(String identityId, String datasetName,
+            List<Record> records, long lastSyncCount);
     
     /**
      * Puts a list of raw records into thet dataset if 
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito.internal.storage;
+
+import com.amazonaws.mobileconnectors.cognito.Record;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory copy of the records of recently read datasets, used by
+ * {@link SQLiteLocalStorage}. A dataset is cached whole, so a read of any key
+ * or of all records is a map lookup. Writes invalidate the dataset, and the
+ * next read loads it again with one query.
+ * <p>
+ * The cache holds up to a number of records; the least recently read
+ * datasets are evicted first. Loads are tagged with a generation, so a load
+ * that raced with a write is not cached.
+ * @deprecated The Amazon Cognito Sync SDK for Android is deprecated as of release 2.9.0. Please use the AWS AppSync SDK for Android along with AWS AppSync service instead.
+ */
+@Deprecated
+class RecordCache {
+
+    /**
+     * Records of the cached datasets by key, in the order of the database,
+     * least recently read dataset first.
+     */
+    private final LinkedHashMap<String, Map<String, Record>> datasets =
+            new LinkedHashMap<String, Map<String, Record>>(16, 0.75f, true);
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private int maxRecords;
+    private int cachedRecords;
+    private long generation;
+
+    /**
+     * @param maxRecords max number of records to cache, zero to disable the
+     *            cache
+     */
+    RecordCache(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * Gets the records of a dataset.
+     *
+     * @return an unmodifiable map of records by key, or null if the dataset
+     *         isn't cached
+     */
+    synchronized Map<String, Record> get(String identityId, String datasetName) {
+        final Map<String, Record> records = datasets.get(cacheKey(identityId, datasetName));
+        if (records == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return records;
+    }
+
+    /**
+     * Loads the records of a dataset from the database.
+     */
+    interface Loader {
+        List<Record> load(String identityId, String datasetName);
+    }
+
+    /**
+     * Gets the records of a dataset, loading and caching them if they aren't
+     * cached. The load runs outside the lock of the cache, and its records
+     * are cached only if no write invalidated the cache in the meantime.
+     *
+     * @return an unmodifiable map of records by key
+     */
+    Map<String, Record> get(String identityId, String datasetName, Loader loader) {
+        Map<String, Record> records = get(identityId, datasetName);
+        if (records == null) {
+            final long generation = getGeneration();
+            records = put(identityId, datasetName, loader.load(identityId, datasetName),
+                    generation);
+        }
+        return records;
+    }
+
+    /**
+     * @return the generation to pass to {@link #put} for a load that starts
+     *         now
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches the records of a dataset loaded from the database, unless the
+     * cache was invalidated since the load started or the dataset is larger
+     * than the cache.
+     *
+     * @param generation the generation from before the load
+     * @return an unmodifiable map of the records by key
+     */
+    synchronized Map<String, Record> put(String identityId, String datasetName,
+            List<Record> recordList, long generation) {
+        final Map<String, Record> map = new LinkedHashMap<String, Record>();
+        for (final Record record : recordList) {
+            map.put(record.getKey(), record);
+        }
+        final Map<String, Record> records = Collections.unmodifiableMap(map);
+        final int size = weight(records);
+        if (generation != this.generation || size > maxRecords) {
+            return records;
+        }
+
+        final Map<String, Record> previous = datasets.put(cacheKey(identityId, datasetName), records);
+        if (previous != null) {
+            cachedRecords -= weight(previous);
+        }
+        cachedRecords += size;
+        trim();
+        return records;
+    }
+
+    /**
+     * Drops a dataset after it's written.
+     */
+    synchronized void invalidate(String identityId, String datasetName) {
+        generation++;
+        final Map<String, Record> previous = datasets.remove(cacheKey(identityId, datasetName));
+        if (previous != null) {
+            cachedRecords -= weight(previous);
+        }
+    }
+
+    /**
+     * Drops all datasets.
+     */
+    synchronized void invalidateAll() {
+        generation++;
+        datasets.clear();
+        cachedRecords = 0;
+    }
+
+    synchronized void setMaxRecords(int maxRecords) {
+        this.maxRecords = maxRecords;
+        trim();
+    }
+
+    synchronized int getMaxRecords() {
+        return maxRecords;
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    private void trim() {
+        final Iterator<Map<String, Record>> iterator = datasets.values().iterator();
+        while (cachedRecords > maxRecords && iterator.hasNext()) {
+            cachedRecords -= weight(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * An empty dataset counts as one record so the number of cached datasets
+     * is bounded too.
+     */
+    private static int weight(Map<String, Record> records) {
+        return Math.max(records.size(), 1);
+    }
+
+    private static String cacheKey(String identityId, String datasetName) {
+        // '/' is valid in neither
+        return identityId + "/" + datasetName;
+    }
+}
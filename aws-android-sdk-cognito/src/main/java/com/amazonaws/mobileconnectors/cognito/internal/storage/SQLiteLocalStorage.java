@@ -173,6 +173,23 @@ public class SQLiteLocalStorage implements LocalStorage {
      */
     private final DatabaseHelper helper;
 
+    /**
+     * Default max number of records kept in memory.
+     */
+    static final int DEFAULT_MAX_CACHED_RECORDS = 4096;
+
+    /**
+     * In-memory copy of recently read datasets.
+     */
+    private final RecordCache cache = new RecordCache(DEFAULT_MAX_CACHED_RECORDS);
+
+    private final RecordCache.Loader recordLoader = new RecordCache.Loader() {
+        @Override
+        public List<Record> load(String identityId, String datasetName) {
+            return queryRecords(identityId, datasetName);
+        }
+    };
+
     /**
      * Creates a {@link SQLiteLocalStorage} object.
      * 
@@ -183,6 +200,38 @@ public class SQLiteLocalStorage implements LocalStorage {
         helper = new DatabaseHelper(context, databaseName);
     }
 
+    /**
+     * Sets the max number of records kept in memory. Reads of a dataset in
+     * memory don't go to the database. Datasets that were read least recently
+     * are dropped first; zero disables the cache.
+     * 
+     * @param maxCachedRecords max number of records
+     */
+    public void setMaxCachedRecords(int maxCachedRecords) {
+        cache.setMaxRecords(Math.max(maxCachedRecords, 0));
+    }
+
+    /**
+     * @return max number of records kept in memory
+     */
+    public int getMaxCachedRecords() {
+        return cache.getMaxRecords();
+    }
+
+    /**
+     * @return number of reads of a dataset that was in memory
+     */
+    public long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * @return number of reads of a dataset that was loaded from the database
+     */
+    public long getCacheMissCount() {
+        return cache.getMissCount();
+    }
+
     /**
      * Creates a new {@link Dataset}. Stores its information in datasets table.
      * Nothing will happen if a dataset with the same name exists. This should
@@ -234,7 +283,12 @@ public class SQLiteLocalStorage implements LocalStorage {
     @Override
     public void putValue(String identityId, String datasetName, String key, String value) {
         SQLiteDatabase db = helper.getWritableDatabase();
-        boolean result = putValueInternal(db, identityId, datasetName, key, value);
+        boolean result;
+        try {
+            result = putValueInternal(db, identityId, datasetName, key, value);
+        } finally {
+            cache.invalidate(identityId, datasetName);
+        }
         if (!result) {
             Log.e(TAG, String.format("failed to put record [%s: %s] into dataset %s",
                     key, value, datasetName));
@@ -267,6 +321,7 @@ public class SQLiteLocalStorage implements LocalStorage {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            cache.invalidate(identityId, datasetName);
         }
     }
 
@@ -282,7 +337,9 @@ public class SQLiteLocalStorage implements LocalStorage {
      */
     boolean putValueInternal(SQLiteDatabase db, String identityId, String datasetName,
             String key, String value) {
-        Record record = getRecord(identityId, datasetName, key);
+        // read the database rather than the cache, which is invalidated only
+        // after the write
+        Record record = queryRecord(identityId, datasetName, key);
         // compares value before putting it in database. If yes, return true.
         if (record != null && StringUtils.equals(record.getValue(), value)) {
             return true;
@@ -362,6 +419,25 @@ public class SQLiteLocalStorage implements LocalStorage {
 
     @Override
     public Record getRecord(String identityId, String datasetName, String key) {
+        return getCachedRecords(identityId, datasetName).get(key);
+    }
+
+    @Override
+    public List<Record> getRecords(String identityId, String datasetName) {
+        return new ArrayList<Record>(getCachedRecords(identityId, datasetName).values());
+    }
+
+    /**
+     * Gets the records of a dataset from the cache, loading them if they
+     * aren't cached.
+     * 
+     * @return an unmodifiable map of records by key
+     */
+    private Map<String, Record> getCachedRecords(String identityId, String datasetName) {
+        return cache.get(identityId, datasetName, recordLoader);
+    }
+
+    private Record queryRecord(String identityId, String datasetName, String key) {
         Record record = null;
 
         SQLiteDatabase db = helper.getWritableDatabase();
@@ -380,8 +456,7 @@ public class SQLiteLocalStorage implements LocalStorage {
         return record;
     }
 
-    @Override
-    public List<Record> getRecords(String identityId, String datasetName) {
+    private List<Record> queryRecords(String identityId, String datasetName) {
         List<Record> records = new ArrayList<Record>();
 
         SQLiteDatabase db = helper.getWritableDatabase();
@@ -433,6 +508,25 @@ public class SQLiteLocalStorage implements LocalStorage {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            cache.invalidate(identityId, datasetName);
+        }
+    }
+
+    @Override
+    public void putRecordsAndUpdateLastSyncCount(String identityId, String datasetName,
+            List<Record> records, long lastSyncCount) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Record record : records) {
+                updateOrInsertRecord(db, identityId, datasetName, record);
+            }
+            updateLastSyncCount(identityId, datasetName, lastSyncCount);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            cache.invalidate(identityId, datasetName);
         }
     }
     
@@ -447,6 +541,11 @@ public class SQLiteLocalStorage implements LocalStorage {
         SQLiteDatabase db = helper.getWritableDatabase();
         db.beginTransaction();
         try {
+            // one query for the current records instead of one per record
+            Map<String, Record> databaseRecordMap = new HashMap<String, Record>();
+            for (Record record : queryRecords(identityId, datasetName)) {
+                databaseRecordMap.put(record.getKey(), record);
+            }
             for (Record record : records) {
                 /*
                 * Grab an instance of the record from the local store with the remote change's 
@@ -458,7 +557,7 @@ public class SQLiteLocalStorage implements LocalStorage {
                 * 3) If both exist and the values have not changed, we should save the remote change.
                 * 4) If the current check exists but it wasn't in the snapshot, we should save.
                 */
-                Record databaseRecord = getRecord(identityId, datasetName, record.getKey());
+                Record databaseRecord = databaseRecordMap.get(record.getKey());
                 Record oldDatabaseRecord = localRecordMap.get(record.getKey());
 
                 if (databaseRecord != null && oldDatabaseRecord != null
@@ -473,6 +572,7 @@ public class SQLiteLocalStorage implements LocalStorage {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            cache.invalidate(identityId, datasetName);
         }
     }
 
@@ -507,6 +607,7 @@ public class SQLiteLocalStorage implements LocalStorage {
             }
         } finally {
             db.endTransaction();
+            cache.invalidate(identityId, datasetName);
         }
 
     }
@@ -549,20 +650,11 @@ public class SQLiteLocalStorage implements LocalStorage {
     @Override
     public List<Record> getModifiedRecords(String identityId, String datasetName) {
         List<Record> records = new ArrayList<Record>();
-
-        SQLiteDatabase db = helper.getWritableDatabase();
-        Cursor c = db.query(TABLE_RECORDS, RecordColumns.ALL,
-                RecordColumns.IDENTITY_ID + " = ? AND " + RecordColumns.DATASET_NAME + " = ? AND "
-                        + RecordColumns.MODIFIED + " = ?",
-                new String[] {
-                        identityId, datasetName,
-                        String.valueOf(1)
-                }, null, null, null);
-        while (c.moveToNext()) {
-            records.add(cursorToRecord(c));
+        for (Record record : getCachedRecords(identityId, datasetName).values()) {
+            if (record.isModified()) {
+                records.add(record);
+            }
         }
-        c.close();
-
         return records;
     }
 
@@ -601,6 +693,7 @@ public class SQLiteLocalStorage implements LocalStorage {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            cache.invalidateAll();
         }
     }
 
@@ -832,6 +925,7 @@ public class SQLiteLocalStorage implements LocalStorage {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            cache.invalidateAll();
         }
     }
 
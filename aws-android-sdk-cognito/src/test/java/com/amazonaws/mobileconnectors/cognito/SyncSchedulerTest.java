@@ -0,0 +1,240 @@
+/**
+ * Copyright 2019 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.mobileconnectors.cognito.Dataset.SyncCallback;
+import com.amazonaws.mobileconnectors.cognito.exceptions.DataStorageException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@SuppressWarnings("deprecation")
+public class SyncSchedulerTest {
+
+    private static final String POOL = "us-east-1:pool";
+    private static final String IDENTITY = "us-east-1:identity";
+    private static final String DATASET = "dataset";
+
+    private QueueExecutor executor;
+    private SyncScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        executor = new QueueExecutor();
+        scheduler = new SyncScheduler(executor);
+    }
+
+    @Test
+    public void testRequestJoinsWaitingSync() {
+        final FakeDataset dataset = new FakeDataset(POOL, IDENTITY, DATASET);
+        final CountingCallback first = new CountingCallback();
+        final CountingCallback second = new CountingCallback();
+
+        scheduler.schedule(dataset, first);
+        scheduler.schedule(dataset, second);
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(1, dataset.syncs);
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+    }
+
+    @Test
+    public void testRequestsWhileRunningGetOneFollowUp() {
+        final CountingCallback first = new CountingCallback();
+        final CountingCallback second = new CountingCallback();
+        final CountingCallback third = new CountingCallback();
+        final FakeDataset dataset = new FakeDataset(POOL, IDENTITY, DATASET) {
+            @Override
+            void synchronizeNow(SyncCallback callback) {
+                if (syncs == 0) {
+                    // requested while the first sync runs
+                    scheduler.schedule(this, second);
+                    scheduler.schedule(this, third);
+                }
+                super.synchronizeNow(callback);
+            }
+        };
+
+        scheduler.schedule(dataset, first);
+        assertEquals(2, executor.runAll());
+        assertEquals(2, dataset.syncs);
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+        assertEquals(1, third.successes);
+    }
+
+    @Test
+    public void testLatestRequestDecidesConflicts() {
+        final FakeDataset dataset = new FakeDataset(POOL, IDENTITY, DATASET);
+        final CountingCallback first = new CountingCallback();
+        final CountingCallback second = new CountingCallback();
+
+        scheduler.schedule(dataset, first);
+        scheduler.schedule(dataset, second);
+        executor.runAll();
+
+        dataset.callback.onConflict(dataset, Collections.<SyncConflict> emptyList());
+        assertEquals(0, first.conflicts);
+        assertEquals(1, second.conflicts);
+    }
+
+    @Test
+    public void testSingleRequestGetsItsOwnCallback() {
+        final FakeDataset dataset = new FakeDataset(POOL, IDENTITY, DATASET);
+        final CountingCallback callback = new CountingCallback();
+
+        scheduler.schedule(dataset, callback);
+        executor.runAll();
+        assertSame(callback, dataset.callback);
+    }
+
+    @Test
+    public void testDifferentIdentitiesAndDatasetsAreNotJoined() {
+        final FakeDataset[] datasets = new FakeDataset[] {
+                new FakeDataset(POOL, IDENTITY, DATASET),
+                new FakeDataset(POOL, "us-east-1:other", DATASET),
+                new FakeDataset(POOL, IDENTITY, "other"),
+                new FakeDataset("us-east-1:other", IDENTITY, DATASET)
+        };
+
+        for (final FakeDataset dataset : datasets) {
+            scheduler.schedule(dataset, new CountingCallback());
+        }
+        assertEquals(datasets.length, executor.tasks.size());
+
+        executor.runAll();
+        for (final FakeDataset dataset : datasets) {
+            assertEquals(1, dataset.syncs);
+        }
+    }
+
+    @Test
+    public void testRequestAfterSyncRunsAgain() {
+        final FakeDataset dataset = new FakeDataset(POOL, IDENTITY, DATASET);
+
+        scheduler.schedule(dataset, new CountingCallback());
+        executor.runAll();
+        scheduler.schedule(dataset, new CountingCallback());
+        executor.runAll();
+        assertEquals(2, dataset.syncs);
+    }
+
+    /**
+     * Runs the submitted tasks when asked, on the calling thread.
+     */
+    private static final class QueueExecutor implements Executor {
+        final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        /**
+         * @return the number of tasks run
+         */
+        int runAll() {
+            int count = 0;
+            while (!tasks.isEmpty()) {
+                tasks.removeFirst().run();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A dataset that counts its syncs instead of talking to the service.
+     */
+    private static class FakeDataset extends DefaultDataset {
+        private final String identityPoolId;
+        private final String identityId;
+        private final String datasetName;
+        int syncs;
+        SyncCallback callback;
+
+        FakeDataset(String identityPoolId, String identityId, String datasetName) {
+            super(null, datasetName, null, null, null, null);
+            this.identityPoolId = identityPoolId;
+            this.identityId = identityId;
+            this.datasetName = datasetName;
+        }
+
+        @Override
+        void synchronizeNow(SyncCallback callback) {
+            syncs++;
+            this.callback = callback;
+            callback.onSuccess(this, Collections.<Record> emptyList());
+        }
+
+        @Override
+        String getIdentityPoolId() {
+            return identityPoolId;
+        }
+
+        @Override
+        String getIdentityId() {
+            return identityId;
+        }
+
+        @Override
+        String getDatasetName() {
+            return datasetName;
+        }
+    }
+
+    private static final class CountingCallback implements SyncCallback {
+        int successes;
+        int conflicts;
+
+        @Override
+        public void onSuccess(Dataset dataset, List<Record> updatedRecords) {
+            successes++;
+        }
+
+        @Override
+        public boolean onConflict(Dataset dataset, List<SyncConflict> conflicts) {
+            this.conflicts++;
+            return false;
+        }
+
+        @Override
+        public boolean onDatasetDeleted(Dataset dataset, String datasetName) {
+            return false;
+        }
+
+        @Override
+        public boolean onDatasetsMerged(Dataset dataset, List<String> datasetNames) {
+            return false;
+        }
+
+        @Override
+        public void onFailure(DataStorageException dse) {
+        }
+    }
+}
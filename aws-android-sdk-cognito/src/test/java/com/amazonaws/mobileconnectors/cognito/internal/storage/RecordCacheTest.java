@@ -0,0 +1,199 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito.internal.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.amazonaws.mobileconnectors.cognito.Record;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuppressWarnings("deprecation")
+public class RecordCacheTest {
+
+    private static final String IDENTITY_ID = "us-east-1:identity";
+    private static final String DATASET = "dataset";
+
+    @Test
+    public void testReadLoadsOnceThenHits() {
+        final RecordCache cache = new RecordCache(100);
+        final FakeDatabase database = new FakeDatabase();
+        database.write("key", "v1");
+
+        assertEquals("v1", cache.get(IDENTITY_ID, DATASET, database).get("key").getValue());
+        assertEquals("v1", cache.get(IDENTITY_ID, DATASET, database).get("key").getValue());
+        assertEquals(1, database.loads);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testWriteInvalidatesTheDataset() {
+        final RecordCache cache = new RecordCache(100);
+        final FakeDatabase database = new FakeDatabase();
+        database.write("key", "v1");
+        cache.get(IDENTITY_ID, DATASET, database);
+
+        database.write("key", "v2");
+        cache.invalidate(IDENTITY_ID, DATASET);
+
+        assertNull(cache.get(IDENTITY_ID, DATASET));
+        assertEquals("v2", cache.get(IDENTITY_ID, DATASET, database).get("key").getValue());
+    }
+
+    @Test
+    public void testDatasetsOfOtherIdentitiesAreKeptApart() {
+        final RecordCache cache = new RecordCache(100);
+        cache.put(IDENTITY_ID, DATASET, records("v1"), cache.getGeneration());
+        cache.put("us-east-1:other", DATASET, records("v2"), cache.getGeneration());
+
+        cache.invalidate("us-east-1:other", DATASET);
+        assertEquals("v1", cache.get(IDENTITY_ID, DATASET).get("key").getValue());
+        assertNull(cache.get("us-east-1:other", DATASET));
+    }
+
+    @Test
+    public void testLoadThatRacedWithAWriteIsNotCached() {
+        final RecordCache cache = new RecordCache(100);
+        final FakeDatabase database = new FakeDatabase();
+        database.write("key", "v1");
+
+        // the reader has queried the old value when the write commits
+        final RecordCache.Loader racingLoader = new RecordCache.Loader() {
+            @Override
+            public List<Record> load(String identityId, String datasetName) {
+                final List<Record> stale = database.load(identityId, datasetName);
+                database.write("key", "v2");
+                cache.invalidate(identityId, datasetName);
+                return stale;
+            }
+        };
+        assertEquals("v1", cache.get(IDENTITY_ID, DATASET, racingLoader).get("key").getValue());
+
+        assertNull(cache.get(IDENTITY_ID, DATASET));
+        assertEquals("v2", cache.get(IDENTITY_ID, DATASET, database).get("key").getValue());
+    }
+
+    @Test
+    public void testLoadStartedBeforeInvalidateAllIsNotCached() {
+        final RecordCache cache = new RecordCache(100);
+        final long generation = cache.getGeneration();
+        cache.invalidateAll();
+
+        cache.put(IDENTITY_ID, DATASET, records("v1"), generation);
+        assertNull(cache.get(IDENTITY_ID, DATASET));
+    }
+
+    @Test
+    public void testConcurrentReadsNeverCacheStaleRecords() throws Exception {
+        final RecordCache cache = new RecordCache(100);
+        final FakeDatabase database = new FakeDatabase();
+        database.write("key", "0");
+        final int writes = 2000;
+        final int readers = 4;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(readers);
+
+        for (int r = 0; r < readers; r++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (failure.get() == null
+                                && Integer.parseInt(database.value("key")) < writes) {
+                            cache.get(IDENTITY_ID, DATASET, database);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        for (int i = 1; i <= writes; i++) {
+            // as SQLiteLocalStorage does: write, then invalidate
+            database.write("key", String.valueOf(i));
+            cache.invalidate(IDENTITY_ID, DATASET);
+        }
+        done.await();
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        final Map<String, Record> cached = cache.get(IDENTITY_ID, DATASET);
+        if (cached != null) {
+            assertEquals(String.valueOf(writes), cached.get("key").getValue());
+        }
+        assertEquals(String.valueOf(writes),
+                cache.get(IDENTITY_ID, DATASET, database).get("key").getValue());
+    }
+
+    @Test
+    public void testLeastRecentlyReadDatasetIsEvicted() {
+        final RecordCache cache = new RecordCache(2);
+        cache.put(IDENTITY_ID, "first", records("v1"), cache.getGeneration());
+        cache.put(IDENTITY_ID, "second", records("v2"), cache.getGeneration());
+        assertNotNull(cache.get(IDENTITY_ID, "first"));
+
+        cache.put(IDENTITY_ID, "third", records("v3"), cache.getGeneration());
+        assertNotNull(cache.get(IDENTITY_ID, "first"));
+        assertNull(cache.get(IDENTITY_ID, "second"));
+        assertNotNull(cache.get(IDENTITY_ID, "third"));
+    }
+
+    private static List<Record> records(String value) {
+        return Collections.singletonList(new Record.Builder("key").value(value).build());
+    }
+
+    /**
+     * Records of one dataset, standing in for the records table.
+     */
+    private static final class FakeDatabase implements RecordCache.Loader {
+        private final Map<String, String> values = new ConcurrentHashMap<String, String>();
+        private volatile int loads;
+
+        void write(String key, String value) {
+            values.put(key, value);
+        }
+
+        String value(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public List<Record> load(String identityId, String datasetName) {
+            loads++;
+            final List<Record> records = new ArrayList<Record>();
+            for (final Map.Entry<String, String> entry : values.entrySet()) {
+                records.add(new Record.Builder(entry.getKey()).value(entry.getValue()).build());
+            }
+            return records;
+        }
+    }
+}
@@ -65,6 +65,23 @@ public class ClientConfiguration {
      */
     public static final boolean DEFAULT_USE_REAPER = true;
 
+    /**
+     * The default number of retries in a row, without any request succeeding,
+     * after which a client stops retrying when throttled retries are used.
+     *
+     * @see #setUseThrottleRetries(boolean)
+     */
+    public static final int DEFAULT_MAX_CONSECUTIVE_RETRIES_BEFORE_THROTTLING = 100;
+
+    /** The default share of failed requests at which a circuit breaker opens. */
+    public static final double DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 0.5;
+
+    /** The default time a circuit breaker stays open. */
+    public static final int DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 30 * 1000;
+
+    /** The default time a pooled connection is kept open while unused. */
+    public static final int DEFAULT_CONNECTION_MAX_IDLE_MILLIS = 60 * 1000;
+
     /** The HTTP user agent header passed with all HTTP requests. */
     private String userAgent = DEFAULT_USER_AGENT;
 
@@ -184,6 +201,38 @@ public class ClientConfiguration {
      */
     private boolean enableGzip = false;
 
+    /**
+     * Optional whether request body buffers are returned to a pool for reuse
+     * after a request is executed.
+     */
+    private boolean requestBufferPooling = false;
+
+    /**
+     * Optional whether retries are limited by a client-wide retry budget.
+     */
+    private boolean useThrottleRetries = false;
+
+    private int maxConsecutiveRetriesBeforeThrottling =
+            DEFAULT_MAX_CONSECUTIVE_RETRIES_BEFORE_THROTTLING;
+
+    /**
+     * Optional whether requests to an endpoint failing too often are rejected
+     * without being sent.
+     */
+    private boolean circuitBreakerEnabled = false;
+
+    private double circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+    private int circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+
+    /**
+     * Optional whether the default HTTP client keeps its own pool of
+     * connections.
+     */
+    private boolean connectionPooling = false;
+
+    private int connectionMaxIdleMillis = DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+
     /**
      * Constructor.
      */
@@ -217,6 +266,14 @@ public class ClientConfiguration {
         this.trustManager = other.trustManager;
         this.curlLogging = other.curlLogging;
         this.enableGzip = other.enableGzip;
+        this.requestBufferPooling = other.requestBufferPooling;
+        this.useThrottleRetries = other.useThrottleRetries;
+        this.maxConsecutiveRetriesBeforeThrottling = other.maxConsecutiveRetriesBeforeThrottling;
+        this.circuitBreakerEnabled = other.circuitBreakerEnabled;
+        this.circuitBreakerFailureThreshold = other.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenMillis = other.circuitBreakerOpenMillis;
+        this.connectionPooling = other.connectionPooling;
+        this.connectionMaxIdleMillis = other.connectionMaxIdleMillis;
     }
 
     /**
@@ -1132,4 +1189,291 @@ public class ClientConfiguration {
         setEnableGzip(enableGzip);
         return this;
     }
+
+    /**
+     * @return if request body buffers are pooled.
+     */
+    public boolean isRequestBufferPooling() {
+        return requestBufferPooling;
+    }
+
+    /**
+     * Sets whether the buffers of request bodies built in memory are returned
+     * to a pool once the request has been executed, so large requests, e.g.
+     * Kinesis PutRecords batches, reuse them instead of allocating new ones.
+     * Only enable this if nothing reads the content of a request after the
+     * client returns, e.g. from a {@link com.amazonaws.handlers.RequestHandler2}
+     * that keeps the request.
+     *
+     * @param requestBufferPooling whether request body buffers are pooled.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setRequestBufferPooling(boolean requestBufferPooling) {
+        this.requestBufferPooling = requestBufferPooling;
+    }
+
+    /**
+     * Sets whether request body buffers are pooled.
+     *
+     * @param requestBufferPooling whether request body buffers are pooled.
+     * @return The updated ClientConfiguration object.
+     * @see #setRequestBufferPooling(boolean)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withRequestBufferPooling(boolean requestBufferPooling) {
+        setRequestBufferPooling(requestBufferPooling);
+        return this;
+    }
+
+    /**
+     * @return if retries are limited by a client-wide retry budget.
+     */
+    public boolean isUseThrottleRetries() {
+        return useThrottleRetries;
+    }
+
+    /**
+     * Sets whether retries are limited by a client-wide retry budget. Each
+     * retry takes from the budget, more so after a timeout, and each request
+     * succeeding puts some back. When the budget is spent, failed requests
+     * are no longer retried, so a service that keeps failing isn't hit with
+     * every retry of every request. The budget is sized from
+     * {@link #getMaxConsecutiveRetriesBeforeThrottling()} when the client is
+     * created.
+     *
+     * @param useThrottleRetries whether retries are limited by a retry budget.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setUseThrottleRetries(boolean useThrottleRetries) {
+        this.useThrottleRetries = useThrottleRetries;
+    }
+
+    /**
+     * Sets whether retries are limited by a client-wide retry budget.
+     *
+     * @param useThrottleRetries whether retries are limited by a retry budget.
+     * @return The updated ClientConfiguration object.
+     * @see #setUseThrottleRetries(boolean)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withThrottleRetries(boolean useThrottleRetries) {
+        setUseThrottleRetries(useThrottleRetries);
+        return this;
+    }
+
+    /**
+     * @return the number of retries in a row after which retries are
+     *         throttled.
+     */
+    public int getMaxConsecutiveRetriesBeforeThrottling() {
+        return maxConsecutiveRetriesBeforeThrottling;
+    }
+
+    /**
+     * Sets the number of retries in a row, without any request succeeding,
+     * after which retries are throttled, when
+     * {@link #setUseThrottleRetries(boolean)} is set.
+     *
+     * @param maxConsecutiveRetriesBeforeThrottling the number of retries.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setMaxConsecutiveRetriesBeforeThrottling(
+            int maxConsecutiveRetriesBeforeThrottling) {
+        if (maxConsecutiveRetriesBeforeThrottling < 1) {
+            throw new IllegalArgumentException(
+                    "maxConsecutiveRetriesBeforeThrottling must be at least 1");
+        }
+        this.maxConsecutiveRetriesBeforeThrottling = maxConsecutiveRetriesBeforeThrottling;
+    }
+
+    /**
+     * Sets the number of retries in a row after which retries are throttled.
+     *
+     * @param maxConsecutiveRetriesBeforeThrottling the number of retries.
+     * @return The updated ClientConfiguration object.
+     * @see #setMaxConsecutiveRetriesBeforeThrottling(int)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withMaxConsecutiveRetriesBeforeThrottling(
+            int maxConsecutiveRetriesBeforeThrottling) {
+        setMaxConsecutiveRetriesBeforeThrottling(maxConsecutiveRetriesBeforeThrottling);
+        return this;
+    }
+
+    /**
+     * @return if requests to failing endpoints are rejected without being
+     *         sent.
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    /**
+     * Sets whether the client keeps a circuit breaker per endpoint. Once the
+     * share of requests to an endpoint failing with a server error, a
+     * throttling error or an I/O error reaches
+     * {@link #getCircuitBreakerFailureThreshold()}, requests to it fail
+     * immediately with an {@link AmazonClientException} for
+     * {@link #getCircuitBreakerOpenMillis()}, after which a single request is
+     * let through to probe the endpoint.
+     *
+     * @param circuitBreakerEnabled whether circuit breakers are used.
+     * @see com.amazonaws.retry.CircuitBreaker
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+
+    /**
+     * Sets whether the client keeps a circuit breaker per endpoint.
+     *
+     * @param circuitBreakerEnabled whether circuit breakers are used.
+     * @return The updated ClientConfiguration object.
+     * @see #setCircuitBreakerEnabled(boolean)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        setCircuitBreakerEnabled(circuitBreakerEnabled);
+        return this;
+    }
+
+    /**
+     * @return the share of failed requests at which a circuit breaker opens.
+     */
+    public double getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Sets the share of failed requests, greater than 0 and at most 1, at
+     * which a circuit breaker opens.
+     *
+     * @param circuitBreakerFailureThreshold the failure threshold.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setCircuitBreakerFailureThreshold(double circuitBreakerFailureThreshold) {
+        if (circuitBreakerFailureThreshold <= 0 || circuitBreakerFailureThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "circuitBreakerFailureThreshold must be greater than 0 and at most 1");
+        }
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Sets the share of failed requests at which a circuit breaker opens.
+     *
+     * @param circuitBreakerFailureThreshold the failure threshold.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withCircuitBreakerFailureThreshold(
+            double circuitBreakerFailureThreshold) {
+        setCircuitBreakerFailureThreshold(circuitBreakerFailureThreshold);
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds a circuit breaker stays open.
+     */
+    public int getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a circuit breaker stays open before
+     * letting a request through.
+     *
+     * @param circuitBreakerOpenMillis the open time.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setCircuitBreakerOpenMillis(int circuitBreakerOpenMillis) {
+        if (circuitBreakerOpenMillis < 0) {
+            throw new IllegalArgumentException("circuitBreakerOpenMillis cannot be negative");
+        }
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a circuit breaker stays open.
+     *
+     * @param circuitBreakerOpenMillis the open time.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withCircuitBreakerOpenMillis(int circuitBreakerOpenMillis) {
+        setCircuitBreakerOpenMillis(circuitBreakerOpenMillis);
+        return this;
+    }
+
+    /**
+     * @return if the default HTTP client keeps its own connection pool.
+     */
+    public boolean isConnectionPooling() {
+        return connectionPooling;
+    }
+
+    /**
+     * Sets whether service clients created without an explicit
+     * {@link com.amazonaws.http.HttpClient} use a
+     * {@link com.amazonaws.http.PooledHttpClient} in place of the default
+     * {@link com.amazonaws.http.UrlHttpClient}. It keeps up to
+     * {@link #getMaxConnections()} connections open per host and closes those
+     * unused for longer than {@link #getConnectionMaxIdleMillis()}.
+     *
+     * @param connectionPooling whether the pooled HTTP client is used.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setConnectionPooling(boolean connectionPooling) {
+        this.connectionPooling = connectionPooling;
+    }
+
+    /**
+     * Sets whether the pooled HTTP client is used.
+     *
+     * @param connectionPooling whether the pooled HTTP client is used.
+     * @return The updated ClientConfiguration object.
+     * @see #setConnectionPooling(boolean)
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withConnectionPooling(boolean connectionPooling) {
+        setConnectionPooling(connectionPooling);
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds a pooled connection is kept open while
+     *         unused.
+     */
+    public int getConnectionMaxIdleMillis() {
+        return connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a pooled connection is kept open while
+     * unused. It should be shorter than the time after which the service
+     * closes idle connections.
+     *
+     * @param connectionMaxIdleMillis the idle time.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setConnectionMaxIdleMillis(int connectionMaxIdleMillis) {
+        if (connectionMaxIdleMillis < 0) {
+            throw new IllegalArgumentException("connectionMaxIdleMillis cannot be negative");
+        }
+        this.connectionMaxIdleMillis = connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a pooled connection is kept open while
+     * unused.
+     *
+     * @param connectionMaxIdleMillis the idle time.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withConnectionMaxIdleMillis(int connectionMaxIdleMillis) {
+        setConnectionMaxIdleMillis(connectionMaxIdleMillis);
+        return this;
+    }
 }
@@ -32,7 +32,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -42,12 +44,34 @@ public class AWS4Signer extends AbstractAWSSigner
 
     protected static final String ALGORITHM = "AWS4-HMAC-SHA256";
     protected static final String TERMINATOR = "aws4_request";
-    private static final String DATE_PATTERN = "yyyyMMdd";
     private static final String TIME_PATTERN = "yyyyMMdd'T'HHmmss'Z'";
     private static final long MILLISEC = 1000L;
 
     /** Seconds in a week, which is the max expiration time Sig-v4 accepts */
     private static final long MAX_EXPIRATION_TIME_IN_SECONDS = 60 * 60 * 24 * 7;
+    /** Max number of derived signing keys kept in the cache. */
+    private static final int MAX_SIGNING_KEY_CACHE_SIZE = 300;
+    private static final int DATE_STAMP_LENGTH = 8;
+
+    /**
+     * Derived signing keys keyed by secret key, region and service. A key only
+     * depends on those and the date, so it's reused until the date changes.
+     */
+    private static final Map<String, SigningKey> SIGNING_KEY_CACHE =
+            new LinkedHashMap<String, SigningKey>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SigningKey> eldest) {
+                    return size() > MAX_SIGNING_KEY_CACHE_SIZE;
+                }
+            };
+
+    /**
+     * Timestamp of the last signed second. Requests signed within the same
+     * second share it instead of formatting the date again.
+     */
+    private static volatile FormattedTime lastFormattedTime = new FormattedTime(-1L, null);
     /**
      * Service name override for use when the endpoint can't be used to
      * determine the service name.
@@ -208,46 +232,72 @@ public class AWS4Signer extends AbstractAWSSigner
     }
 
     protected String getCanonicalizedHeaderString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+        final Map<String, String> headers = request.getHeaders();
+        final List<String> sortedHeaders = getSortedSignedHeaders(headers);
 
-        final StringBuilder buffer = new StringBuilder();
+        final StringBuilder buffer = new StringBuilder(sortedHeaders.size() * 32);
         for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                final String key = StringUtils.lowerCase(header).replaceAll("\\s+", " ");
-                final String value = request.getHeaders().get(header);
-
-                buffer.append(key).append(":");
-                if (value != null) {
-                    buffer.append(value.replaceAll("\\s+", " "));
-                }
-
-                buffer.append("\n");
+            appendCollapsingWhitespace(buffer, StringUtils.lowerCase(header));
+            buffer.append(':');
+            final String value = headers.get(header);
+            if (value != null) {
+                appendCollapsingWhitespace(buffer, value);
             }
+            buffer.append('\n');
         }
 
         return buffer.toString();
     }
 
     protected String getSignedHeadersString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+        final List<String> sortedHeaders = getSortedSignedHeaders(request.getHeaders());
 
-        final StringBuilder buffer = new StringBuilder();
+        final StringBuilder buffer = new StringBuilder(sortedHeaders.size() * 16);
         for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                if (buffer.length() > 0) {
-                    buffer.append(";");
-                }
-                buffer.append(StringUtils.lowerCase(header));
+            if (buffer.length() > 0) {
+                buffer.append(';');
             }
+            buffer.append(StringUtils.lowerCase(header));
         }
 
         return buffer.toString();
     }
 
+    /**
+     * Returns the names of the headers to sign, in case-insensitive order.
+     */
+    private List<String> getSortedSignedHeaders(Map<String, String> headers) {
+        final List<String> sortedHeaders = new ArrayList<String>(headers.size());
+        for (final String header : headers.keySet()) {
+            if (needsSign(header)) {
+                sortedHeaders.add(header);
+            }
+        }
+        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+        return sortedHeaders;
+    }
+
+    /**
+     * Appends a value with each run of whitespace replaced by a single space,
+     * same as {@code value.replaceAll("\\s+", " ")} without the regular
+     * expression.
+     */
+    private static void appendCollapsingWhitespace(StringBuilder buffer, String value) {
+        boolean inWhitespace = false;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                if (!inWhitespace) {
+                    buffer.append(' ');
+                    inWhitespace = true;
+                }
+            } else {
+                buffer.append(c);
+                inWhitespace = false;
+            }
+        }
+    }
+
     protected String getCanonicalRequest(Request<?> request, String contentSha256) {
         /* This would url-encode the resource path for the first time */
         final String path = HttpUtils.appendUri(request.getEndpoint().getPath(),
@@ -294,26 +344,85 @@ public class AWS4Signer extends AbstractAWSSigner
         final String stringToSign = getStringToSign(algorithm, timeStamp, scope,
                 getCanonicalRequest(request, contentSha256));
 
+        final byte[] kSigning = getSigningKey(sanitizedCredentials.getAWSSecretKey(),
+                dateStamp, regionName, serviceName);
+
+        final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
+                SigningAlgorithm.HmacSHA256);
+        return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
+    }
+
+    /**
+     * Returns the signing key for a date, region and service, deriving it only
+     * if it isn't cached for that date yet.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    private byte[] getSigningKey(String secretKey, String dateStamp, String regionName,
+            String serviceName) {
+        final String cacheKey = secretKey + "-" + regionName + "-" + serviceName;
+        SigningKey signingKey;
+        synchronized (SIGNING_KEY_CACHE) {
+            signingKey = SIGNING_KEY_CACHE.get(cacheKey);
+        }
+        if (signingKey != null && signingKey.dateStamp.equals(dateStamp)) {
+            return signingKey.key;
+        }
+
         // AWS4 uses a series of derived keys, formed by hashing different
         // pieces of data
-        final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
-                .getBytes(StringUtils.UTF8);
+        final byte[] kSecret = ("AWS4" + secretKey).getBytes(StringUtils.UTF8);
         final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
         final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
         final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
         final byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
 
-        final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
-                SigningAlgorithm.HmacSHA256);
-        return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
+        synchronized (SIGNING_KEY_CACHE) {
+            SIGNING_KEY_CACHE.put(cacheKey, new SigningKey(dateStamp, kSigning));
+        }
+        return kSigning;
+    }
+
+    /**
+     * A derived signing key and the date it is valid for.
+     */
+    private static final class SigningKey {
+        final String dateStamp;
+        /** Never handed out, HeaderSigningResult returns copies. */
+        final byte[] key;
+
+        SigningKey(String dateStamp, byte[] key) {
+            this.dateStamp = dateStamp;
+            this.key = key;
+        }
+    }
+
+    /**
+     * A second and its formatted timestamp.
+     */
+    private static final class FormattedTime {
+        final long second;
+        final String timeStamp;
+
+        FormattedTime(long second, String timeStamp) {
+            this.second = second;
+            this.timeStamp = timeStamp;
+        }
     }
 
     protected final String getTimeStamp(long dateMilli) {
-        return DateUtils.format(TIME_PATTERN, new Date(dateMilli));
+        final long second = dateMilli / MILLISEC;
+        FormattedTime formattedTime = lastFormattedTime;
+        if (formattedTime.second != second || dateMilli < 0) {
+            formattedTime = new FormattedTime(second,
+                    DateUtils.format(TIME_PATTERN, new Date(dateMilli)));
+            lastFormattedTime = formattedTime;
+        }
+        return formattedTime.timeStamp;
     }
 
     protected final String getDateStamp(long dateMilli) {
-        return DateUtils.format(DATE_PATTERN, new Date(dateMilli));
+        // the time stamp starts with the date stamp
+        return getTimeStamp(dateMilli).substring(0, DATE_STAMP_LENGTH);
     }
 
     protected final long getDateFromRequest(Request<?> request) {
@@ -20,6 +20,7 @@ import static com.amazonaws.util.StringUtils.UTF8;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.SDKGlobalConfiguration;
+import com.amazonaws.internal.SdkByteArrayInputStream;
 import com.amazonaws.internal.SdkDigestInputStream;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.BinaryUtils;
@@ -55,6 +56,8 @@ public abstract class AbstractAWSSigner implements Signer {
     /** Empty sha256 hex. */
     public static final String EMPTY_STRING_SHA256_HEX;
     private static final ThreadLocal<MessageDigest> SHA256_MESSAGE_DIGEST;
+    /** HMAC instances are expensive to look up, so each thread keeps one. */
+    private static final ThreadLocal<Mac> HMAC_SHA256;
     private static final int DEFAULT_BUFFER_SIZE = 1024;
     private static final int BUFFER_SIZE_MULTIPLIER = 5;
     private static final int TIME_MILLISEC = 1000;
@@ -73,6 +76,19 @@ public abstract class AbstractAWSSigner implements Signer {
                 }
             }
         };
+        HMAC_SHA256 = new ThreadLocal<Mac>() {
+            @Override
+            protected Mac initialValue() {
+                try {
+                    return Mac.getInstance(SigningAlgorithm.HmacSHA256.toString());
+                } catch (final NoSuchAlgorithmException e) {
+                    throw new AmazonClientException(
+                            "Unable to get HmacSHA256 Function"
+                                    + e.getMessage(),
+                            e);
+                }
+            }
+        };
         EMPTY_STRING_SHA256_HEX = BinaryUtils.toHex(doHash(""));
     }
 
@@ -119,7 +135,10 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] sign(byte[] data, byte[] key, SigningAlgorithm algorithm) {
         try {
-            final Mac mac = Mac.getInstance(algorithm.toString());
+            final Mac mac = algorithm == SigningAlgorithm.HmacSHA256
+                    ? HMAC_SHA256.get()
+                    : Mac.getInstance(algorithm.toString());
+            // init resets any state left by a previous use of the instance
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (final Exception e) {
@@ -156,6 +175,11 @@ public abstract class AbstractAWSSigner implements Signer {
     protected byte[] hash(InputStream input) {
         try {
             final MessageDigest md = getMessageDigestInstance();
+            if (input instanceof SdkByteArrayInputStream) {
+                // hash the buffer in place instead of reading it in chunks
+                ((SdkByteArrayInputStream) input).updateDigest(md);
+                return md.digest();
+            }
             @SuppressWarnings("resource")
             final DigestInputStream digestInputStream = new SdkDigestInputStream(input, md);
             final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
@@ -177,9 +201,22 @@ public abstract class AbstractAWSSigner implements Signer {
      * @throws AmazonClientException If the hash cannot be computed.
      */
     public byte[] hash(byte[] data) {
+        return hash(data, 0, data.length);
+    }
+
+    /**
+     * Hashes part of the binary data using the SHA-256 algorithm.
+     *
+     * @param data The binary data to hash.
+     * @param offset The offset of the bytes to hash.
+     * @param length The number of bytes to hash.
+     * @return The hashed bytes from the specified data.
+     * @throws AmazonClientException If the hash cannot be computed.
+     */
+    public byte[] hash(byte[] data, int offset, int length) {
         try {
-            final MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(data);
+            final MessageDigest md = getMessageDigestInstance();
+            md.update(data, offset, length);
             return md.digest();
         } catch (final Exception e) {
             throw new AmazonClientException("Unable to compute hash while signing request: "
@@ -469,7 +469,7 @@ public class CognitoCachingCredentialsProvider
     }
 
     @Override
-    public AWSSessionCredentials getCredentials() {
+    protected AWSSessionCredentials getValidCredentials() {
     	credentialsLock.writeLock().lock();
         try {
         	// return only if the credentials are valid
@@ -482,7 +482,7 @@ public class CognitoCachingCredentialsProvider
         	}
         	// super will validate loaded credentials
         	// and fetch if necessary
-        	super.getCredentials();
+        	super.getValidCredentials();
 
         	// null check before saving credentials
         	if (sessionCredentialsExpiration != null) {
@@ -496,7 +496,7 @@ public class CognitoCachingCredentialsProvider
                 // If the fetch failed then the credentials don't
                 // match the current id, so clear them
                 super.setIdentityId(null);
-                super.getCredentials();
+                super.getValidCredentials();
                 return sessionCredentials;
             }
             else {
@@ -39,10 +39,16 @@ import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import org.json.JSONObject;
 
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * AWSCredentialsProvider implementation that uses the Amazon Cognito Identity
@@ -90,6 +96,24 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
 
     protected ReentrantReadWriteLock credentialsLock;
 
+    /**
+     * Credentials closer to expiring than this are never handed out without
+     * waiting for a refresh.
+     */
+    private static final long EXPIRATION_MARGIN_MILLIS = 30 * 1000L;
+    /** Fraction of the refresh threshold used to spread out refreshes. */
+    private static final int REFRESH_JITTER_DIVISOR = 4;
+    private static final long REFRESH_THREAD_KEEP_ALIVE_SECONDS = 60L;
+    private static final Random RANDOM = new Random();
+
+    /** Whether credentials are refreshed in the background, see {@link #setBackgroundRefreshEnabled(boolean)}. */
+    private volatile boolean backgroundRefreshEnabled;
+    /** The current credentials for lock free reads, null if there are none. */
+    private volatile CredentialsSnapshot credentialsSnapshot;
+    /** Set while a background refresh is queued or running. */
+    private final AtomicBoolean backgroundRefreshInProgress = new AtomicBoolean(false);
+    private ThreadPoolExecutor refreshExecutor;
+
     /**
      * Constructs a new {@link CognitoCredentialsProvider}, which will use the
      * specified Amazon Cognito identity pool to make a request, using the basic
@@ -459,6 +483,29 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
      */
     @Override
     public AWSSessionCredentials getCredentials() {
+        if (backgroundRefreshEnabled) {
+            final AWSSessionCredentials credentials = getSnapshotCredentials();
+            if (credentials != null) {
+                return credentials;
+            }
+        }
+
+        final AWSSessionCredentials credentials = getValidCredentials();
+        if (backgroundRefreshEnabled) {
+            publishSnapshot(credentials);
+        }
+        return credentials;
+    }
+
+    /**
+     * Returns valid credentials, starting a new session while holding the
+     * credentials lock if needed. Subclasses that keep credentials elsewhere
+     * override this rather than {@link #getCredentials()}, so they get the
+     * same lock free reads and background refreshes.
+     *
+     * @return the session credentials.
+     */
+    protected AWSSessionCredentials getValidCredentials() {
         credentialsLock.writeLock().lock();
         try {
             if (needsNewSession()) {
@@ -470,6 +517,158 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
         }
     }
 
+    /**
+     * Returns the published credentials without locking if they are usable,
+     * queueing a background refresh once they are within the refresh
+     * threshold.
+     *
+     * @return the credentials, or null if the caller has to wait for new ones.
+     */
+    private AWSSessionCredentials getSnapshotCredentials() {
+        final CredentialsSnapshot snapshot = credentialsSnapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        final long now = currentTimeMillis();
+        if (now < snapshot.refreshTime) {
+            return snapshot.credentials;
+        }
+        if (now < snapshot.expirationTime - EXPIRATION_MARGIN_MILLIS) {
+            startBackgroundRefresh();
+            return snapshot.credentials;
+        }
+        return null;
+    }
+
+    private void publishSnapshot(AWSSessionCredentials credentials) {
+        credentialsLock.readLock().lock();
+        try {
+            // credentials that were replaced or cleared meanwhile aren't published
+            if (credentials == null || credentials != sessionCredentials
+                    || sessionCredentialsExpiration == null) {
+                return;
+            }
+            final long expirationTime = sessionCredentialsExpiration.getTime();
+            final long threshold = refreshThreshold * 1000L;
+            // refresh at a random point in the first part of the threshold, so
+            // many clients started together don't refresh together
+            final long jitter = nextLong(threshold / REFRESH_JITTER_DIVISOR);
+            credentialsSnapshot = new CredentialsSnapshot(credentials,
+                    expirationTime - threshold + jitter, expirationTime);
+        } finally {
+            credentialsLock.readLock().unlock();
+        }
+    }
+
+    private static long nextLong(long bound) {
+        if (bound <= 0) {
+            return 0;
+        }
+        synchronized (RANDOM) {
+            return (long) (RANDOM.nextDouble() * bound);
+        }
+    }
+
+    private void startBackgroundRefresh() {
+        if (!backgroundRefreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        publishSnapshot(getValidCredentials());
+                    } catch (final RuntimeException e) {
+                        // callers keep the current credentials and retry later
+                        log.warn("Failed to refresh credentials in the background", e);
+                    } finally {
+                        backgroundRefreshInProgress.set(false);
+                    }
+                }
+            });
+        } catch (final RuntimeException e) {
+            backgroundRefreshInProgress.set(false);
+            throw e;
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = new ThreadPoolExecutor(1, 1, REFRESH_THREAD_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "CognitoCredentialsRefresh");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            refreshExecutor.allowCoreThreadTimeOut(true);
+        }
+        return refreshExecutor;
+    }
+
+    private static long currentTimeMillis() {
+        return System.currentTimeMillis()
+                - SDKGlobalConfiguration.getGlobalTimeOffset() * 1000L;
+    }
+
+    /**
+     * Credentials and the times they are due for refresh and expire, published
+     * together so they can be read without locking.
+     */
+    private static final class CredentialsSnapshot {
+        final AWSSessionCredentials credentials;
+        final long refreshTime;
+        final long expirationTime;
+
+        CredentialsSnapshot(AWSSessionCredentials credentials, long refreshTime,
+                long expirationTime) {
+            this.credentials = credentials;
+            this.refreshTime = refreshTime;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    /**
+     * Sets whether credentials are refreshed in the background. When enabled,
+     * {@link #getCredentials()} returns the current credentials without
+     * locking. Once they are within the refresh threshold, one background
+     * thread fetches new ones while callers keep using the current ones.
+     * Callers only wait for a refresh when there are no credentials yet or
+     * they are about to expire. Disabled by default.
+     *
+     * @param backgroundRefreshEnabled whether to refresh in the background.
+     */
+    public void setBackgroundRefreshEnabled(boolean backgroundRefreshEnabled) {
+        this.backgroundRefreshEnabled = backgroundRefreshEnabled;
+        if (!backgroundRefreshEnabled) {
+            credentialsSnapshot = null;
+        }
+    }
+
+    /**
+     * Sets whether credentials are refreshed in the background.
+     *
+     * @param backgroundRefreshEnabled whether to refresh in the background.
+     * @return the updated CognitoCredentialsProvider object.
+     * @see #setBackgroundRefreshEnabled(boolean)
+     */
+    public CognitoCredentialsProvider withBackgroundRefreshEnabled(
+            boolean backgroundRefreshEnabled) {
+        setBackgroundRefreshEnabled(backgroundRefreshEnabled);
+        return this;
+    }
+
+    /**
+     * @return whether credentials are refreshed in the background.
+     */
+    public boolean isBackgroundRefreshEnabled() {
+        return backgroundRefreshEnabled;
+    }
+
     /**
      * Set the duration of the session credentials created by this client in
      * seconds. Values must be supported by AssumeRoleWithWebIdentityRequest.
@@ -629,6 +828,9 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
         credentialsLock.writeLock().lock();
         try {
             startSession();
+            if (backgroundRefreshEnabled) {
+                publishSnapshot(sessionCredentials);
+            }
         } finally {
             credentialsLock.writeLock().unlock();
         }
@@ -657,6 +859,7 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
     public void clearCredentials() {
         credentialsLock.writeLock().lock();
         try {
+            credentialsSnapshot = null;
             sessionCredentials = null;
             sessionCredentialsExpiration = null;
         } finally {
@@ -847,8 +1050,7 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
         if (sessionCredentials == null) {
             return true;
         }
-        long currentTime = System.currentTimeMillis()
-                - SDKGlobalConfiguration.getGlobalTimeOffset() * 1000;
+        long currentTime = currentTimeMillis();
         long timeRemaining = sessionCredentialsExpiration.getTime()
                 - currentTime;
         return timeRemaining < (refreshThreshold * 1000);
@@ -32,9 +32,12 @@ import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
+import com.amazonaws.internal.SdkByteArrayInputStream;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.CircuitBreaker;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryTokenBucket;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
@@ -43,8 +46,10 @@ import com.amazonaws.util.TimingInfo;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
@@ -53,6 +58,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The Amazon HTTP Client class.
@@ -67,6 +74,7 @@ public class AmazonHttpClient {
     private static final int HTTP_STATUS_TEMP_REDIRECT = 307;
     private static final int HTTP_STATUS_MULTIPLE_CHOICES = 300;
     private static final int HTTP_STATUS_REQ_TOO_LONG = 413;
+    private static final int HTTP_STATUS_SERVER_ERROR = 500;
     private static final int HTTP_STATUS_SERVICE_UNAVAILABLE = 503;
 
     private static final int TIME_MILLISEC = 1000;
@@ -101,6 +109,21 @@ public class AmazonHttpClient {
 
     private final HttpRequestFactory requestFactory = new HttpRequestFactory();
 
+    /**
+     * The retry budget shared by all requests of this client; or null if
+     * retries aren't throttled.
+     *
+     * @see ClientConfiguration#setUseThrottleRetries(boolean)
+     */
+    private final RetryTokenBucket retryTokenBucket;
+
+    /**
+     * The circuit breakers of the endpoints requests were sent to; or null if circuit breakers aren't enabled.
+     *
+     * @see ClientConfiguration#setCircuitBreakerEnabled(boolean)
+     */
+    private final ConcurrentMap<URI, CircuitBreaker> circuitBreakers;
+
     /**
      * Constructs a new AWS client using the specified client configuration
      * options (ex: max retry attempts, proxy settings, etc).
@@ -140,8 +163,10 @@ public class AmazonHttpClient {
      */
     public AmazonHttpClient(ClientConfiguration config, HttpClient httpClient) {
         this.config = config;
-        this.httpClient = httpClient;
+        this.httpClient = createHttpClient(config, httpClient);
         this.requestMetricCollector = null;
+        this.retryTokenBucket = createRetryTokenBucket(config);
+        this.circuitBreakers = createCircuitBreakers(config);
     }
 
     /**
@@ -160,8 +185,38 @@ public class AmazonHttpClient {
     public AmazonHttpClient(ClientConfiguration config, HttpClient httpClient,
             RequestMetricCollector requestMetricCollector) {
         this.config = config;
-        this.httpClient = httpClient;
+        this.httpClient = createHttpClient(config, httpClient);
         this.requestMetricCollector = requestMetricCollector;
+        this.retryTokenBucket = createRetryTokenBucket(config);
+        this.circuitBreakers = createCircuitBreakers(config);
+    }
+
+    /**
+     * Swaps the default {@link UrlHttpClient} for a {@link PooledHttpClient}
+     * if the configuration asks for connection pooling. An HTTP client of any
+     * other kind is used as given.
+     */
+    private static HttpClient createHttpClient(ClientConfiguration config,
+            HttpClient httpClient) {
+        if (config.isConnectionPooling() && httpClient != null
+                && httpClient.getClass() == UrlHttpClient.class) {
+            return new PooledHttpClient(config);
+        }
+        return httpClient;
+    }
+
+    private static RetryTokenBucket createRetryTokenBucket(ClientConfiguration config) {
+        return config.isUseThrottleRetries()
+                ? new RetryTokenBucket(config.getMaxConsecutiveRetriesBeforeThrottling()
+                        * RetryTokenBucket.RETRY_COST)
+                : null;
+    }
+
+    private static ConcurrentMap<URI, CircuitBreaker> createCircuitBreakers(
+            ClientConfiguration config) {
+        return config.isCircuitBreakerEnabled()
+                ? new ConcurrentHashMap<URI, CircuitBreaker>()
+                : null;
     }
 
     /**
@@ -217,6 +272,11 @@ public class AmazonHttpClient {
         } catch (final AmazonClientException e) {
             afterError(request, response, requestHandler2s, e);
             throw e;
+        } finally {
+            if (config.isRequestBufferPooling()
+                    && request.getContent() instanceof SdkByteArrayInputStream) {
+                ((SdkByteArrayInputStream) request.getContent()).release();
+            }
         }
     }
 
@@ -292,9 +352,22 @@ public class AmazonHttpClient {
         request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
         int requestCount = 0;
         long lastBackoffDelay = 0;
+        int acquiredRetryCapacity = 0;
         URI redirectedURI = null;
         AmazonClientException retriedException = null;
 
+        // when run by a RetrySchedulingExecutorService, pick up where a
+        // deferred retry stopped and hand further backoffs back to it
+        RetryDeferral deferral = RetryDeferral.claim(request.getOriginalRequest());
+        boolean resumed = false;
+        if (deferral != null && deferral.isResuming()) {
+            requestCount = deferral.getRequestCount();
+            retriedException = deferral.getLastException();
+            lastBackoffDelay = deferral.getDelay();
+            acquiredRetryCapacity = deferral.getAcquiredRetryCapacity();
+            resumed = true;
+        }
+
         // Make a copy of the original request params and headers so that we can
         // permute it in this loop and start over with the original every time.
         final Map<String, String> originalParameters = new LinkedHashMap<String, String>(
@@ -305,6 +378,11 @@ public class AmazonHttpClient {
         if (originalContent != null && originalContent.markSupported()) {
             originalContent.mark(-1);
         }
+        if (deferral != null && (!deferral.isDeferrable() || originalContent != null
+                && !(originalContent instanceof ByteArrayInputStream))) {
+            // the task would resend a stream it has already read from
+            deferral = null;
+        }
 
         final AWSCredentials credentials = executionContext.getCredentials();
         Signer signer = null;
@@ -314,10 +392,29 @@ public class AmazonHttpClient {
         while (true) {
             ++requestCount;
             awsRequestMetrics.setCounter(Field.RequestCount, requestCount);
+            CircuitBreaker circuitBreaker = null;
+            CircuitBreaker.Permit circuitBreakerPermit = null;
+            boolean endpointFailed = false;
+            boolean requestSent = false;
+            long backoffDelay = 0;
             if (requestCount > 1) { // retry
                 request.setParameters(originalParameters);
                 request.setHeaders(originalHeaders);
                 request.setContent(originalContent);
+                if (resumed) {
+                    // the backoff has already passed
+                    resumed = false;
+                } else {
+                    backoffDelay = backoffBeforeNextRetry(request.getOriginalRequest(),
+                            retriedException,
+                            requestCount,
+                            config.getRetryPolicy());
+                    if (deferral != null && backoffDelay > 0 && redirectedURI == null) {
+                        throw deferral.defer(requestCount - 1, retriedException, backoffDelay,
+                                acquiredRetryCapacity);
+                    }
+                    lastBackoffDelay = backoffDelay;
+                }
             }
             if (redirectedURI != null && request.getEndpoint() == null
                     && request.getResourcePath() == null) {
@@ -327,13 +424,21 @@ public class AmazonHttpClient {
             }
 
             try {
+                circuitBreaker = getCircuitBreaker(request.getEndpoint());
+                if (circuitBreaker != null) {
+                    circuitBreakerPermit = circuitBreaker.allowRequest();
+                    if (circuitBreakerPermit == null) {
+                        awsRequestMetrics.incrementCounter(Field.CircuitBreakerRejectionCount);
+                        throw new AmazonClientException("Circuit breaker open for "
+                                + request.getEndpoint() + ", request not sent", retriedException);
+                    }
+                }
                 if (requestCount > 1) { // retry
                     awsRequestMetrics.startEvent(Field.RetryPauseTime);
                     try {
-                        lastBackoffDelay = pauseBeforeNextRetry(request.getOriginalRequest(),
-                                retriedException,
-                                requestCount,
-                                config.getRetryPolicy());
+                        if (backoffDelay > 0) {
+                            pauseBeforeNextRetry(backoffDelay);
+                        }
                     } finally {
                         awsRequestMetrics.endEvent(Field.RetryPauseTime);
                     }
@@ -367,6 +472,7 @@ public class AmazonHttpClient {
 
                 retriedException = null;
                 awsRequestMetrics.startEvent(Field.HttpRequestTime);
+                requestSent = true;
                 try {
                     httpResponse = httpClient.execute(httpRequest);
                 } finally {
@@ -383,6 +489,7 @@ public class AmazonHttpClient {
                     final T response = handleResponse(request, responseHandler,
                             httpResponse,
                             executionContext);
+                    releaseRetryCapacity(acquiredRetryCapacity);
                     return new Response<T>(response, httpResponse);
                 } else if (isTemporaryRedirect(httpResponse)) {
                     /*
@@ -407,6 +514,8 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID, ase.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode, ase.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode, ase.getStatusCode());
+                    endpointFailed = ase.getStatusCode() >= HTTP_STATUS_SERVER_ERROR
+                            || RetryUtils.isThrottlingException(ase);
 
                     if (!shouldRetry(request.getOriginalRequest(),
                             httpRequest.getContent(),
@@ -415,6 +524,10 @@ public class AmazonHttpClient {
                             config.getRetryPolicy())) {
                         throw ase;
                     }
+                    acquiredRetryCapacity = acquireRetryCapacity(ase, awsRequestMetrics);
+                    if (acquiredRetryCapacity < 0) {
+                        throw ase;
+                    }
 
                     // Cache the retryable exception
                     retriedException = ase;
@@ -436,6 +549,7 @@ public class AmazonHttpClient {
                 awsRequestMetrics.incrementCounter(Field.Exception);
                 awsRequestMetrics.addProperty(Field.Exception, ioe);
                 awsRequestMetrics.addProperty(Field.AWSRequestID, null);
+                endpointFailed = true;
 
                 final AmazonClientException ace = new AmazonClientException(
                         "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
@@ -446,6 +560,10 @@ public class AmazonHttpClient {
                         config.getRetryPolicy())) {
                     throw ace;
                 }
+                acquiredRetryCapacity = acquireRetryCapacity(ace, awsRequestMetrics);
+                if (acquiredRetryCapacity < 0) {
+                    throw ace;
+                }
 
                 // Cache the retryable exception
                 retriedException = ace;
@@ -455,6 +573,14 @@ public class AmazonHttpClient {
             } catch (final Error e) {
                 throw handleUnexpectedFailure(e, awsRequestMetrics);
             } finally {
+                if (circuitBreakerPermit != null) {
+                    if (requestSent) {
+                        circuitBreaker.recordResult(circuitBreakerPermit, endpointFailed);
+                    } else {
+                        // failed before reaching the endpoint, e.g. in signing
+                        circuitBreaker.release(circuitBreakerPermit);
+                    }
+                }
                 /*
                  * Some response handlers need to manually manage the HTTP
                  * connection and will take care of releasing the connection on
@@ -606,6 +732,69 @@ public class AmazonHttpClient {
                 retries);
     }
 
+    /**
+     * Takes the capacity for a retry from the retry budget, if any.
+     *
+     * @return the capacity taken, 0 if retries aren't throttled, or -1 if the
+     *         budget is spent and the request must not be retried.
+     */
+    private int acquireRetryCapacity(AmazonClientException exception,
+            AWSRequestMetrics awsRequestMetrics) {
+        if (retryTokenBucket == null) {
+            return 0;
+        }
+        final int cost = exception.getCause() instanceof SocketTimeoutException
+                ? RetryTokenBucket.TIMEOUT_RETRY_COST
+                : RetryTokenBucket.RETRY_COST;
+        if (!retryTokenBucket.tryAcquire(cost)) {
+            awsRequestMetrics.incrementCounter(Field.ThrottledRetryCount);
+            if (log.isDebugEnabled()) {
+                log.debug("Retry budget spent, not retrying: " + exception.getMessage());
+            }
+            return -1;
+        }
+        return cost;
+    }
+
+    /**
+     * Puts capacity back into the retry budget after a request succeeded:
+     * the capacity taken by its last retry, or a little if it wasn't retried.
+     */
+    private void releaseRetryCapacity(int acquiredRetryCapacity) {
+        if (retryTokenBucket != null) {
+            retryTokenBucket.release(acquiredRetryCapacity > 0 ? acquiredRetryCapacity
+                    : RetryTokenBucket.NO_RETRY_INCREMENT);
+        }
+    }
+
+    /**
+     * @return the circuit breaker of an endpoint; or null if circuit breakers
+     *         aren't enabled.
+     */
+    CircuitBreaker getCircuitBreaker(URI endpoint) {
+        if (circuitBreakers == null || endpoint == null) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(config.getCircuitBreakerFailureThreshold(),
+                    config.getCircuitBreakerOpenMillis());
+            final CircuitBreaker existing = circuitBreakers.putIfAbsent(endpoint, circuitBreaker);
+            if (existing != null) {
+                circuitBreaker = existing;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the retry budget of this client; or null if retries aren't
+     *         throttled.
+     */
+    RetryTokenBucket getRetryTokenBucket() {
+        return retryTokenBucket;
+    }
+
     private static boolean isTemporaryRedirect(HttpResponse response) {
         final int statusCode = response.getStatusCode();
         final String location = response.getHeaders().get("Location");
@@ -732,8 +921,8 @@ public class AmazonHttpClient {
     }
 
     /**
-     * Sleep for a period of time on failed request to avoid flooding a service
-     * with retries.
+     * Returns the period of time to wait on failed request to avoid flooding a
+     * service with retries.
      *
      * @param originalRequest The original service request that is being
      *            executed.
@@ -743,7 +932,7 @@ public class AmazonHttpClient {
      *            after the delay)
      * @param retryPolicy The retry policy configured in this http client.
      */
-    private long pauseBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+    private long backoffBeforeNextRetry(AmazonWebServiceRequest originalRequest,
             AmazonClientException previousException,
             int requestCount,
             RetryPolicy retryPolicy) {
@@ -758,10 +947,18 @@ public class AmazonHttpClient {
             log.debug("Retriable error detected, " +
                     "will retry in " + delay + "ms, attempt number: " + retries);
         }
+        return delay;
+    }
 
+    /**
+     * Sleep for a period of time on failed request to avoid flooding a service
+     * with retries.
+     *
+     * @param delay the backoff delay in milliseconds.
+     */
+    private void pauseBeforeNextRetry(long delay) {
         try {
             Thread.sleep(delay);
-            return delay;
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new AmazonClientException(e.getMessage(), e);
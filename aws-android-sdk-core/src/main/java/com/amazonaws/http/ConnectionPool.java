@@ -0,0 +1,426 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connections of a {@link PooledHttpClient}, kept open between requests
+ * and grouped by host. At most a fixed number of connections per host are in
+ * use or idle at a time; a caller asking for another one waits for a
+ * connection to be released. Connections idle for longer than the configured
+ * time are closed.
+ * <p>
+ * A connection handed over with the content of a response is released when
+ * that content is read or closed. If the content is dropped without being
+ * closed, the connection is reclaimed once the content has been garbage
+ * collected. A caller that would wait on connections held by responses it
+ * hasn't closed itself fails at once instead of waiting.
+ */
+final class ConnectionPool {
+
+    /** Idle time after which a connection is checked for being closed. */
+    static final long STALE_CHECK_MILLIS = 1000;
+
+    /** How often a caller waiting for a connection looks for leaked ones. */
+    static final long LEAK_CHECK_MILLIS = 100;
+
+    private static final Log log = LogFactory.getLog(ConnectionPool.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /** Opens new connections for a pool. */
+    interface ConnectionFactory {
+        /**
+         * @return a newly connected socket.
+         * @throws IOException if the connection cannot be opened.
+         */
+        Socket connect() throws IOException;
+    }
+
+    private final int maxConnectionsPerHost;
+    private final long maxIdleNanos;
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<String, Host>();
+    /** Enqueues the content of responses collected without being closed. */
+    private final ReferenceQueue<Object> leakedContents = new ReferenceQueue<Object>();
+    private volatile boolean shutdown;
+
+    /**
+     * @param maxConnectionsPerHost the number of connections per host.
+     * @param maxIdleMillis the time an idle connection is kept open.
+     */
+    ConnectionPool(int maxConnectionsPerHost, long maxIdleMillis) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+    }
+
+    /**
+     * Takes an idle connection to a host, or opens one if there is none.
+     *
+     * @param key identifies the host, e.g. <code>https://host:443</code>.
+     * @param timeoutMillis how long to wait for a connection to be released
+     *            when all connections to the host are in use.
+     * @param factory opens a connection if needed.
+     * @return the connection, to be given back with
+     *         {@link #release(Connection, boolean)}.
+     * @throws IOException if no connection was released in time or a new one
+     *             cannot be opened.
+     */
+    Connection acquire(String key, long timeoutMillis, ConnectionFactory factory)
+            throws IOException {
+        if (shutdown) {
+            throw new IllegalStateException("Connection pool has been shut down");
+        }
+        Host host = hosts.get(key);
+        if (host == null) {
+            host = new Host(maxConnectionsPerHost);
+            final Host existing = hosts.putIfAbsent(key, host);
+            if (existing != null) {
+                host = existing;
+            }
+        }
+        try {
+            waitForPermit(key, host, timeoutMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection to " + key);
+        }
+
+        try {
+            final long now = System.nanoTime();
+            closeIdleConnections(now);
+            Connection connection;
+            while ((connection = host.takeIdle()) != null) {
+                if (!connection.isStale(now)) {
+                    connection.reused = true;
+                    host.checkOut(connection);
+                    return connection;
+                }
+                connection.close();
+            }
+            connection = new Connection(host, factory.connect());
+            host.checkOut(connection);
+            return connection;
+        } catch (final IOException e) {
+            host.permits.release();
+            throw e;
+        } catch (final RuntimeException e) {
+            host.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for one of the connections to a host to become free, reclaiming
+     * the connections of responses dropped without being closed.
+     */
+    private void waitForPermit(String key, Host host, long timeoutMillis)
+            throws IOException, InterruptedException {
+        reclaimLeakedConnections();
+        if (host.permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            if (host.isHeldBy(Thread.currentThread(), maxConnectionsPerHost)) {
+                throw new IOException("All " + maxConnectionsPerHost + " connections to " + key
+                        + " are held by responses this thread hasn't closed. The content of"
+                        + " every response must be read to the end or closed.");
+            }
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new IOException("Timed out waiting for a connection to " + key
+                        + ": all " + maxConnectionsPerHost + " connections are in use."
+                        + " The content of every response must be read to the end or closed.");
+            }
+            if (host.permits.tryAcquire(Math.min(remainingNanos,
+                    TimeUnit.MILLISECONDS.toNanos(LEAK_CHECK_MILLIS)), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            reclaimLeakedConnections();
+        }
+    }
+
+    /**
+     * Records that a connection now belongs to the content of a response,
+     * read by the current thread. The connection is released by the content,
+     * or reclaimed if the content is garbage collected first.
+     *
+     * @param connection the connection.
+     * @param content the content of the response.
+     */
+    void handOver(Connection connection, Object content) {
+        synchronized (connection.host) {
+            connection.owner = Thread.currentThread();
+            connection.content = new ContentReference(content, connection, leakedContents);
+        }
+    }
+
+    private void reclaimLeakedConnections() {
+        Reference<?> reference;
+        while ((reference = leakedContents.poll()) != null) {
+            final Connection connection = ((ContentReference) reference).connection;
+            // skipped if it was released before the content was collected
+            if (connection.host.checkIn(connection, reference)) {
+                log.warn("Reclaiming a pooled connection whose response content was not closed");
+                giveBack(connection, false);
+            }
+        }
+    }
+
+    /**
+     * Gives back a connection taken from the pool.
+     *
+     * @param connection the connection.
+     * @param reusable true if the last response was read completely and the
+     *            connection can be kept open; false to close it.
+     */
+    void release(Connection connection, boolean reusable) {
+        if (connection.host.checkIn(connection, null)) {
+            giveBack(connection, reusable);
+        }
+    }
+
+    private void giveBack(Connection connection, boolean reusable) {
+        final Host host = connection.host;
+        if (reusable && !shutdown) {
+            connection.idleSince = System.nanoTime();
+            host.putIdle(connection);
+            if (shutdown) {
+                host.closeAllIdle();
+            }
+        } else {
+            connection.close();
+        }
+        host.permits.release();
+    }
+
+    /** Closes all idle connections and stops handing out connections. */
+    void shutdown() {
+        shutdown = true;
+        for (final Host host : hosts.values()) {
+            host.closeAllIdle();
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        for (final Host host : hosts.values()) {
+            host.closeIdle(now, maxIdleNanos);
+        }
+    }
+
+    /** The connections to one host. */
+    private static final class Host {
+        private final Semaphore permits;
+        /** Most recently used last. */
+        private final LinkedList<Connection> idle = new LinkedList<Connection>();
+
+        Host(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+
+        /** Connections taken from the pool and not released yet. */
+        private final Set<Connection> inUse = new HashSet<Connection>();
+
+        synchronized void checkOut(Connection connection) {
+            inUse.add(connection);
+        }
+
+        /**
+         * @param content if not null, only check in the connection if it is
+         *            still held by this content.
+         * @return false if the connection had already been released.
+         */
+        synchronized boolean checkIn(Connection connection, Reference<?> content) {
+            if (content != null && connection.content != content) {
+                return false;
+            }
+            if (!inUse.remove(connection)) {
+                return false;
+            }
+            if (connection.content != null) {
+                connection.content.clear();
+                connection.content = null;
+            }
+            connection.owner = null;
+            return true;
+        }
+
+        /**
+         * @return true if all connections are held by responses handed to the
+         *         given thread, which then can't wait for one to be released.
+         */
+        synchronized boolean isHeldBy(Thread thread, int maxConnections) {
+            if (inUse.size() < maxConnections) {
+                return false;
+            }
+            for (final Connection connection : inUse) {
+                if (connection.owner != thread) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized Connection takeIdle() {
+            return idle.isEmpty() ? null : idle.removeLast();
+        }
+
+        synchronized void putIdle(Connection connection) {
+            idle.addLast(connection);
+        }
+
+        void closeAllIdle() {
+            final LinkedList<Connection> all;
+            synchronized (this) {
+                all = new LinkedList<Connection>(idle);
+                idle.clear();
+            }
+            for (final Connection connection : all) {
+                connection.close();
+            }
+        }
+
+        void closeIdle(long now, long maxIdleNanos) {
+            LinkedList<Connection> expired = null;
+            synchronized (this) {
+                for (final Iterator<Connection> it = idle.iterator(); it.hasNext();) {
+                    final Connection connection = it.next();
+                    if (now - connection.idleSince < maxIdleNanos) {
+                        // the rest were used more recently
+                        break;
+                    }
+                    it.remove();
+                    if (expired == null) {
+                        expired = new LinkedList<Connection>();
+                    }
+                    expired.add(connection);
+                }
+            }
+            if (expired != null) {
+                for (final Connection connection : expired) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /** Refers weakly to the content of a response holding a connection. */
+    private static final class ContentReference extends WeakReference<Object> {
+        private final Connection connection;
+
+        ContentReference(Object content, Connection connection, ReferenceQueue<Object> queue) {
+            super(content, queue);
+            this.connection = connection;
+        }
+    }
+
+    /** A connection taken from the pool. */
+    static final class Connection {
+        private final Host host;
+        private final Socket socket;
+        private final BufferedInputStream in;
+        private final BufferedOutputStream out;
+        private long idleSince;
+        private boolean reused;
+        /** The thread reading the response holding the connection, guarded by host. */
+        private Thread owner;
+        /** The content of the response holding the connection, guarded by host. */
+        private ContentReference content;
+
+        Connection(Host host, Socket socket) throws IOException {
+            this.host = host;
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        BufferedInputStream getInputStream() {
+            return in;
+        }
+
+        BufferedOutputStream getOutputStream() {
+            return out;
+        }
+
+        /** @return true if the connection was used by an earlier request. */
+        boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * Checks whether the server closed a connection that has been idle
+         * for a while, by peeking at it with a very short timeout.
+         */
+        boolean isStale(long now) {
+            if (socket.isClosed() || socket.isInputShutdown()) {
+                return true;
+            }
+            if (now - idleSince < TimeUnit.MILLISECONDS.toNanos(STALE_CHECK_MILLIS)) {
+                return false;
+            }
+            try {
+                if (in.available() > 0) {
+                    // nothing should have been sent
+                    return true;
+                }
+                final int timeout = socket.getSoTimeout();
+                socket.setSoTimeout(1);
+                try {
+                    // end of stream, or something unexpected
+                    in.read();
+                    return true;
+                } catch (final SocketTimeoutException e) {
+                    return false;
+                } finally {
+                    socket.setSoTimeout(timeout);
+                }
+            } catch (final IOException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // already unusable
+            }
+        }
+    }
+}
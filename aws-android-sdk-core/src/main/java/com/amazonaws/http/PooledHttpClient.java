@@ -0,0 +1,631 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.internal.WritableContent;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * An implementation of {@link HttpClient} speaking HTTP/1.1 over its own pool
+ * of connections.
+ * <p>
+ * {@link UrlHttpClient} leaves connection reuse to the platform, which keeps
+ * connections alive by heuristics that can't be tuned per client. This client
+ * keeps up to {@link ClientConfiguration#getMaxConnections()} connections per
+ * host open between requests, making further requests wait for one to be
+ * released, and closes connections unused for longer than
+ * {@link ClientConfiguration#getConnectionMaxIdleMillis()}. All of its TLS
+ * connections come from a single socket factory, so new connections to a host
+ * resume the TLS session of earlier ones instead of doing a full handshake.
+ * <p>
+ * A connection is given back to the pool once the response content has been
+ * read to the end or closed, so the content of every response must be
+ * closed. The connection of content dropped without being closed is only
+ * reclaimed after the content is garbage collected, and a thread that holds
+ * all the connections to a host this way gets an error on its next request
+ * to the host instead of waiting for one. Requests that have to go through a proxy are sent by a
+ * {@link UrlHttpClient} instead.
+ * <p>
+ * The client is used in place of {@link UrlHttpClient} by service clients
+ * when {@link ClientConfiguration#setConnectionPooling(boolean)} is set.
+ */
+public class PooledHttpClient implements HttpClient {
+
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Unread response content up to this size is read to keep the connection. */
+    private static final int MAX_DRAIN_LENGTH = 64 * 1024;
+    private static final int HEX = 16;
+    private static final int STATUS_CONTINUE = 100;
+    private static final int STATUS_SWITCHING_PROTOCOLS = 101;
+    private static final int STATUS_SUCCESS = 200;
+    private static final int STATUS_NO_CONTENT = 204;
+    private static final int STATUS_NOT_MODIFIED = 304;
+    private static final String CHARSET = "ISO-8859-1";
+
+    private final ClientConfiguration config;
+    private final ConnectionPool pool;
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+    private final HttpClient proxiedHttpClient;
+
+    /**
+     * Constructor.
+     *
+     * @param config the client config.
+     */
+    public PooledHttpClient(ClientConfiguration config) {
+        this.config = config;
+        this.pool = new ConnectionPool(config.getMaxConnections(),
+                config.getConnectionMaxIdleMillis());
+        this.sslSocketFactory = createSslSocketFactory(config);
+        this.hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        this.proxiedHttpClient = new UrlHttpClient(config);
+    }
+
+    private static SSLSocketFactory createSslSocketFactory(ClientConfiguration config) {
+        if (config.getTrustManager() == null) {
+            return HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[] {
+                    config.getTrustManager()
+            }, null);
+            return sslContext.getSocketFactory();
+        } catch (final GeneralSecurityException e) {
+            throw new AmazonClientException("Unable to create an SSL context", e);
+        }
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        final URI uri = request.getUri();
+        if (!isDirect(uri)) {
+            return proxiedHttpClient.execute(request);
+        }
+
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        final String host = uri.getHost();
+        final int port = uri.getPort() != -1 ? uri.getPort() : secure ? HTTPS_PORT : HTTP_PORT;
+        final ConnectionPool.Connection connection = pool.acquire(
+                uri.getScheme() + "://" + host + ":" + port,
+                config.getConnectionTimeout(),
+                new ConnectionPool.ConnectionFactory() {
+                    @Override
+                    public Socket connect() throws IOException {
+                        return openSocket(host, port, secure);
+                    }
+                });
+        boolean handedOver = false;
+        try {
+            writeRequest(request, uri, connection.getOutputStream());
+            final HttpResponse response = readResponse(request, connection);
+            handedOver = true;
+            return response;
+        } finally {
+            if (!handedOver) {
+                pool.release(connection, false);
+            }
+        }
+    }
+
+    /**
+     * Closes the pooled connections. Responses being read are not affected.
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+        proxiedHttpClient.shutdown();
+    }
+
+    private static boolean isDirect(URI uri) {
+        final ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector == null) {
+            return true;
+        }
+        final List<Proxy> proxies = proxySelector.select(uri);
+        return proxies == null || proxies.isEmpty()
+                || proxies.get(0).type() == Proxy.Type.DIRECT;
+    }
+
+    Socket openSocket(String host, int port, boolean secure) throws IOException {
+        final Socket socket = new Socket();
+        boolean connected = false;
+        try {
+            socket.setTcpNoDelay(true);
+            final int sendBufferSize = config.getSocketBufferSizeHints()[0];
+            final int receiveBufferSize = config.getSocketBufferSizeHints()[1];
+            if (sendBufferSize > 0) {
+                socket.setSendBufferSize(sendBufferSize);
+            }
+            if (receiveBufferSize > 0) {
+                socket.setReceiveBufferSize(receiveBufferSize);
+            }
+            if (config.getLocalAddress() != null) {
+                socket.bind(new InetSocketAddress(config.getLocalAddress(), 0));
+            }
+            socket.connect(new InetSocketAddress(host, port), config.getConnectionTimeout());
+            socket.setSoTimeout(config.getSocketTimeout());
+            if (!secure) {
+                connected = true;
+                return socket;
+            }
+
+            final SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host,
+                    port, true);
+            sslSocket.startHandshake();
+            if (!hostnameVerifier.verify(host, sslSocket.getSession())) {
+                sslSocket.close();
+                throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+            }
+            connected = true;
+            return sslSocket;
+        } finally {
+            if (!connected) {
+                socket.close();
+            }
+        }
+    }
+
+    void writeRequest(HttpRequest request, URI uri, OutputStream out) throws IOException {
+        final StringBuilder head = new StringBuilder(BUFFER_SIZE / 8);
+        head.append(request.getMethod()).append(' ');
+        final String path = uri.getRawPath();
+        head.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+
+        String hostHeader = null;
+        for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            final String key = header.getKey();
+            if (HttpHeader.HOST.equalsIgnoreCase(key)) {
+                hostHeader = header.getValue();
+                continue;
+            }
+            if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(key)
+                    || "Transfer-Encoding".equalsIgnoreCase(key)) {
+                continue;
+            }
+            head.append(key).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("Host: ").append(hostHeader != null ? hostHeader : uri.getRawAuthority())
+                .append("\r\n");
+
+        final InputStream content = request.getContent();
+        final boolean hasContent = content != null && request.getContentLength() >= 0;
+        if (hasContent && request.isStreaming()) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (hasContent) {
+            head.append("Content-Length: ").append(request.getContentLength()).append("\r\n");
+        } else if ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(CHARSET));
+
+        if (hasContent && request.isStreaming()) {
+            final ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+            if (content instanceof WritableContent) {
+                ((WritableContent) content).writeRemainingTo(chunked);
+            } else {
+                copy(content, chunked, Long.MAX_VALUE);
+            }
+            chunked.finish();
+        } else if (hasContent) {
+            final long length = request.getContentLength();
+            if (content instanceof WritableContent) {
+                // write straight from the buffers of the content
+                final CountingOutputStream counting = new CountingOutputStream(out);
+                ((WritableContent) content).writeRemainingTo(counting);
+                if (counting.count != length) {
+                    throw new IOException("Request content has " + counting.count
+                            + " bytes but its Content-Length is " + length);
+                }
+            } else if (copy(content, out, length) < length) {
+                throw new IOException("Request content is shorter than its Content-Length "
+                        + length);
+            }
+        }
+        out.flush();
+    }
+
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long copied = 0;
+        while (copied < limit) {
+            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied));
+            if (read == -1) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    HttpResponse readResponse(HttpRequest request, ConnectionPool.Connection connection)
+            throws IOException {
+        final InputStream in = connection.getInputStream();
+        String version;
+        int statusCode;
+        String statusText;
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        do {
+            final String statusLine = readLine(in);
+            if (statusLine == null) {
+                throw new IOException(connection.isReused()
+                        ? "Pooled connection closed by the server"
+                        : "Connection closed by the server");
+            }
+            final int firstSpace = statusLine.indexOf(' ');
+            if (firstSpace < 0 || !statusLine.startsWith("HTTP/")) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            final int secondSpace = statusLine.indexOf(' ', firstSpace + 1);
+            version = statusLine.substring(0, firstSpace);
+            try {
+                statusCode = Integer.parseInt(statusLine.substring(firstSpace + 1,
+                        secondSpace < 0 ? statusLine.length() : secondSpace));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            statusText = secondSpace < 0 ? "" : statusLine.substring(secondSpace + 1);
+            headers.clear();
+            readHeaders(in, headers);
+            // skip 100 Continue and other interim responses
+        } while (statusCode >= STATUS_CONTINUE && statusCode < STATUS_SUCCESS
+                && statusCode != STATUS_SWITCHING_PROTOCOLS);
+
+        final HttpResponse.Builder builder = HttpResponse.builder()
+                .statusCode(statusCode)
+                .statusText(statusText);
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        final String connectionHeader = header(headers, "Connection");
+        final boolean keepAlive = "HTTP/1.1".equals(version)
+                ? !"close".equalsIgnoreCase(connectionHeader)
+                : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        final boolean isHead = "HEAD".equals(request.getMethod());
+        final String transferEncoding = header(headers, "Transfer-Encoding");
+        final String contentLength = header(headers, HttpHeader.CONTENT_LENGTH);
+        if (isHead || statusCode < STATUS_SUCCESS || statusCode == STATUS_NO_CONTENT
+                || statusCode == STATUS_NOT_MODIFIED) {
+            pool.release(connection, keepAlive);
+            return builder.content(isHead ? null : new ByteArrayInputStream(new byte[0]))
+                    .build();
+        }
+        final ResponseContentInputStream content;
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            content = new ResponseContentInputStream(connection, ResponseContentInputStream.CHUNKED,
+                    keepAlive);
+        } else if (contentLength != null) {
+            final long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (final NumberFormatException e) {
+                throw new IOException("Malformed Content-Length: " + contentLength);
+            }
+            content = new ResponseContentInputStream(connection, length, keepAlive);
+        } else {
+            content = new ResponseContentInputStream(connection,
+                    ResponseContentInputStream.UNTIL_CLOSED, false);
+        }
+        return builder.content(content).build();
+    }
+
+    private static void readHeaders(InputStream in, Map<String, String> headers)
+            throws IOException {
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            final String key = line.substring(0, colon).trim();
+            // No AWS service return a list of header values, so it's safe to
+            // take the first one.
+            if (header(headers, key) == null) {
+                headers.put(key, line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new IOException("Connection closed while reading the response headers");
+        }
+    }
+
+    private static String header(Map<String, String> headers, String name) {
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a line ending with a line feed, without it and any carriage
+     * return before it.
+     *
+     * @return the line, or null at the end of the stream.
+     */
+    static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                break;
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("Response line too long");
+            }
+            line.append((char) b);
+        }
+        final int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * The content of a response. The connection goes back to the pool once
+     * the content is read to the end, or closed.
+     */
+    private final class ResponseContentInputStream extends InputStream {
+        static final long CHUNKED = -1;
+        static final long UNTIL_CLOSED = -2;
+
+        private final ConnectionPool.Connection connection;
+        private final InputStream in;
+        private final boolean chunked;
+        private final boolean keepAlive;
+        /** Bytes left in the content or the current chunk, or -1 if unknown. */
+        private long remaining;
+        private boolean eof;
+        private boolean released;
+
+        ResponseContentInputStream(ConnectionPool.Connection connection, long length,
+                boolean keepAlive) throws IOException {
+            this.connection = connection;
+            this.in = connection.getInputStream();
+            this.chunked = length == CHUNKED;
+            this.keepAlive = keepAlive;
+            this.remaining = chunked ? 0 : length == UNTIL_CLOSED ? -1 : length;
+            pool.handOver(connection, this);
+            if (remaining == 0 && !chunked) {
+                endOfContent();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int read = read(b, 0, 1);
+            return read == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (released && !eof) {
+                throw new IOException("Response content has been closed");
+            }
+            if (eof) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                if (chunked && remaining == 0 && !nextChunk()) {
+                    return -1;
+                }
+                final int toRead = remaining < 0 ? len : (int) Math.min(len, remaining);
+                final int read = in.read(b, off, toRead);
+                if (read == -1) {
+                    if (remaining < 0) {
+                        endOfContent();
+                        return -1;
+                    }
+                    throw new IOException("Connection closed before the end of the response");
+                }
+                if (remaining > 0) {
+                    remaining -= read;
+                    if (remaining == 0 && chunked) {
+                        // the line ending the chunk
+                        readLine(in);
+                    } else if (remaining == 0) {
+                        endOfContent();
+                    }
+                }
+                return read;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        /** @return false at the last chunk. */
+        private boolean nextChunk() throws IOException {
+            final String line = readLine(in);
+            if (line == null) {
+                throw new IOException("Connection closed before the end of the response");
+            }
+            final int extension = line.indexOf(';');
+            try {
+                remaining = Long.parseLong(
+                        (extension < 0 ? line : line.substring(0, extension)).trim(), HEX);
+            } catch (final NumberFormatException e) {
+                throw new IOException("Malformed chunk size: " + line);
+            }
+            if (remaining == 0) {
+                // skip the trailers
+                String trailer;
+                do {
+                    trailer = readLine(in);
+                } while (trailer != null && !trailer.isEmpty());
+                endOfContent();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (eof || released) {
+                return 0;
+            }
+            final int available = in.available();
+            return remaining < 0 ? available : (int) Math.min(available, remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            if (!keepAlive || remaining < 0) {
+                release(false);
+                return;
+            }
+            // read what's left if it's little, to keep the connection
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long drained = 0;
+            try {
+                while (!eof && drained <= MAX_DRAIN_LENGTH) {
+                    final int read = read(buffer, 0, buffer.length);
+                    if (read == -1) {
+                        break;
+                    }
+                    drained += read;
+                }
+            } catch (final IOException e) {
+                // the connection is closed
+                return;
+            }
+            if (!eof) {
+                release(false);
+            }
+        }
+
+        private void endOfContent() {
+            eof = true;
+            release(keepAlive);
+        }
+
+        private void release(boolean reusable) {
+            if (!released) {
+                released = true;
+                pool.release(connection, reusable);
+            }
+        }
+    }
+
+    /** Counts the bytes written through it. */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /** Writes the content of a streaming request in chunks. */
+    private static final class ChunkedOutputStream extends FilterOutputStream {
+        private static final byte[] CRLF = {
+                '\r', '\n'
+        };
+
+        ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {
+                    (byte) b
+            }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                // an empty chunk would end the content
+                return;
+            }
+            out.write(Integer.toHexString(len).getBytes(CHARSET));
+            out.write(CRLF);
+            out.write(b, off, len);
+            out.write(CRLF);
+        }
+
+        void finish() throws IOException {
+            out.write('0');
+            out.write(CRLF);
+            out.write(CRLF);
+        }
+
+        @Override
+        public void close() {
+            // the connection stays open
+        }
+    }
+}
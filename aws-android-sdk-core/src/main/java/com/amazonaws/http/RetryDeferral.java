@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+
+/**
+ * Lets {@link AmazonHttpClient} hand the backoff before a retry back to a
+ * {@link RetrySchedulingExecutorService} instead of sleeping through it.
+ * <p>
+ * The executor makes a deferral current on the thread running a task. It
+ * belongs to the request the task was submitted for, see
+ * {@link RetrySchedulingExecutorService#forRequest(AmazonWebServiceRequest, java.util.concurrent.Callable)},
+ * and only that request can claim it. When the request has to wait before a
+ * retry, the client records where it stopped and throws
+ * {@link RetryDeferredError}; the executor runs the task again once the
+ * backoff has passed, and the request then carries on with the retry it
+ * stopped at.
+ */
+final class RetryDeferral {
+
+    private static final ThreadLocal<RetryDeferral> CURRENT = new ThreadLocal<RetryDeferral>();
+
+    /** The request the deferral belongs to, or null for none. */
+    private AmazonWebServiceRequest originalRequest;
+    /** The number of attempts made before deferring, or 0. */
+    private int requestCount;
+    private AmazonClientException lastException;
+    private long delay;
+    private int acquiredRetryCapacity;
+    private boolean deferrable = true;
+
+    /**
+     * @param request the request the task was submitted for.
+     */
+    void bind(AmazonWebServiceRequest request) {
+        originalRequest = request;
+    }
+
+    void makeCurrent() {
+        CURRENT.set(this);
+    }
+
+    static void clearCurrent() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Claims the deferral current on this thread, if any, for a request.
+     * Only the request the task was submitted for gets it. Other requests
+     * executed by the same task, e.g. from a credentials provider fetching
+     * credentials first, wait for their retries in place.
+     *
+     * @param request the request about to be executed.
+     * @return the deferral, or null if retries must be waited for in place.
+     */
+    static RetryDeferral claim(AmazonWebServiceRequest request) {
+        final RetryDeferral deferral = CURRENT.get();
+        if (deferral == null || request == null || deferral.originalRequest != request) {
+            return null;
+        }
+        CURRENT.remove();
+        return deferral;
+    }
+
+    /**
+     * Records the state of a request that will be retried after a delay.
+     *
+     * @return the error to throw to the executor.
+     */
+    RetryDeferredError defer(int requestCount, AmazonClientException lastException,
+            long delay, int acquiredRetryCapacity) {
+        this.requestCount = requestCount;
+        this.lastException = lastException;
+        this.delay = delay;
+        this.acquiredRetryCapacity = acquiredRetryCapacity;
+        return new RetryDeferredError(delay);
+    }
+
+    /**
+     * @param deferrable false to have the request wait for further retries in
+     *            place, e.g. once the executor no longer accepts tasks.
+     */
+    void setDeferrable(boolean deferrable) {
+        this.deferrable = deferrable;
+    }
+
+    boolean isDeferrable() {
+        return deferrable;
+    }
+
+    /** @return true if the request stopped before a retry and resumes now. */
+    boolean isResuming() {
+        return requestCount > 0;
+    }
+
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    AmazonClientException getLastException() {
+        return lastException;
+    }
+
+    long getDelay() {
+        return delay;
+    }
+
+    int getAcquiredRetryCapacity() {
+        return acquiredRetryCapacity;
+    }
+
+    /**
+     * Thrown by {@link AmazonHttpClient} to unwind a task whose request is to
+     * be retried after {@link #getDelay()} milliseconds. It is an
+     * {@link Error}, like {@link ThreadDeath}, so that the
+     * <code>catch (Exception)</code> of the asynchronous clients doesn't
+     * report it to their {@link com.amazonaws.handlers.AsyncHandler}.
+     */
+    static final class RetryDeferredError extends Error {
+        private static final long serialVersionUID = 1L;
+
+        private final long delay;
+
+        RetryDeferredError(long delay) {
+            super("Retry deferred by " + delay + "ms");
+            this.delay = delay;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // used for control flow only
+            return this;
+        }
+
+        long getDelay() {
+            return delay;
+        }
+    }
+}
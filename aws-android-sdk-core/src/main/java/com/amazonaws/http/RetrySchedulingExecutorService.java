@@ -0,0 +1,312 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonWebServiceRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor for the asynchronous service clients that doesn't tie up a
+ * thread while a request waits to be retried.
+ * <p>
+ * Normally the client sleeps through the backoff before each retry, holding
+ * on to the thread running the request. When the request runs on this
+ * executor, the client instead gives the thread back, and the task is run
+ * again on a timer once the backoff has passed, carrying on with the retry it
+ * stopped at. Throttling or a struggling service then doesn't exhaust the
+ * thread pool, so a few threads can keep many requests in flight.
+ * <p>
+ * Pass it to the constructor of an <code>*AsyncClient</code> that submits its
+ * tasks through {@link #forRequest(AmazonWebServiceRequest, Callable)}, e.g.
+ * the DynamoDB and SQS clients:
+ *
+ * <pre>
+ * AmazonDynamoDBAsyncClient client = new AmazonDynamoDBAsyncClient(credentialsProvider,
+ *         new ClientConfiguration(), new RetrySchedulingExecutorService(4));
+ * </pre>
+ * <p>
+ * Only the request a task was submitted for defers its retries. Any other
+ * request the task executes, e.g. to fetch credentials, and tasks submitted
+ * without a request wait for their retries in place.
+ * <p>
+ * A task that runs a request with a stream it can't read again, e.g. an
+ * upload from a file stream, waits for its retries in place as usual. A task
+ * deferring a retry runs again from the start, so it shouldn't do anything
+ * else that can't be repeated before sending the request.
+ */
+public class RetrySchedulingExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    /** Tasks waiting for a retry. */
+    private final Set<RetryingTask<?>> deferredTasks = Collections.newSetFromMap(
+            new ConcurrentHashMap<RetryingTask<?>, Boolean>());
+    private volatile boolean shutdown;
+
+    /**
+     * Creates an executor with a fixed number of threads running requests and
+     * a daemon thread scheduling retries.
+     *
+     * @param threads the number of threads running requests.
+     */
+    public RetrySchedulingExecutorService(int threads) {
+        this(Executors.newFixedThreadPool(threads),
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "aws-sdk-retry-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }));
+    }
+
+    /**
+     * @param workers the executor running the tasks.
+     * @param scheduler the executor waiting for the backoffs before retries.
+     *            It only hands tasks back to the workers, so a single thread
+     *            is enough.
+     */
+    public RetrySchedulingExecutorService(ExecutorService workers,
+            ScheduledExecutorService scheduler) {
+        if (workers == null || scheduler == null) {
+            throw new IllegalArgumentException("workers and scheduler cannot be null");
+        }
+        this.workers = workers;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Marks a task as executing a request, so that the request can hand the
+     * backoffs before its retries back to this executor. On other executors
+     * the task runs as usual.
+     *
+     * @param request the request the task executes.
+     * @param task the task.
+     * @return the task to submit.
+     */
+    public static <T> Callable<T> forRequest(AmazonWebServiceRequest request, Callable<T> task) {
+        return new RequestTask<T>(request, task);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new RetryingTask<T>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new RetryingTask<T>(Executors.callable(runnable, value));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        workers.execute(command instanceof RetryingTask
+                ? command : newTaskFor(command, null));
+    }
+
+    /**
+     * Stops accepting tasks. The tasks already submitted, including those
+     * waiting for a retry, are still run.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        tryTerminate();
+    }
+
+    /**
+     * Stops accepting tasks, cancels the tasks waiting for a retry and
+     * attempts to stop the running ones.
+     *
+     * @return the tasks that never started running.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        for (final RetryingTask<?> task : deferredTasks) {
+            task.cancel(false);
+        }
+        deferredTasks.clear();
+        scheduler.shutdownNow();
+        return workers.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return workers.isTerminated() && scheduler.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return workers.awaitTermination(timeout, unit)
+                && scheduler.awaitTermination(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+    }
+
+    /** Shuts the threads down once no more tasks wait for a retry. */
+    private void tryTerminate() {
+        if (shutdown && deferredTasks.isEmpty()) {
+            workers.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    private void defer(final RetryingTask<?> task, long delay) {
+        deferredTasks.add(task);
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    deferredTasks.remove(task);
+                    try {
+                        workers.execute(task);
+                    } catch (final RejectedExecutionException e) {
+                        task.run(false);
+                    }
+                    tryTerminate();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            // shut down meanwhile; finish here instead
+            deferredTasks.remove(task);
+            task.run(false);
+        }
+    }
+
+    /**
+     * A task that can hand the backoff before a retry back to the executor.
+     * Every attempt runs through {@link FutureTask#runAndReset()}, so that
+     * {@link #cancel(boolean)} can interrupt the thread running it.
+     */
+    private final class RetryingTask<T> extends FutureTask<T> {
+        private final Attempt<T> attempt;
+        private final RetryDeferral deferral = new RetryDeferral();
+
+        RetryingTask(Callable<T> callable) {
+            this(new Attempt<T>(callable));
+        }
+
+        private RetryingTask(Attempt<T> attempt) {
+            super(attempt);
+            this.attempt = attempt;
+            if (attempt.callable instanceof RequestTask) {
+                deferral.bind(((RequestTask<T>) attempt.callable).request);
+            }
+        }
+
+        @Override
+        public void run() {
+            run(true);
+        }
+
+        /**
+         * @param deferrable false to wait for further retries in place.
+         */
+        void run(boolean deferrable) {
+            if (isDone()) {
+                return;
+            }
+            deferral.setDeferrable(deferrable);
+            deferral.makeCurrent();
+            final boolean completed;
+            try {
+                // false if the attempt failed, which sets the exception, or
+                // if the task was cancelled
+                completed = runAndReset();
+            } finally {
+                RetryDeferral.clearCurrent();
+            }
+            if (!completed) {
+                return;
+            }
+            if (attempt.retryDelay >= 0) {
+                defer(this, attempt.retryDelay);
+            } else {
+                set(attempt.result);
+            }
+        }
+    }
+
+    /**
+     * One run of a task. It keeps the result, or the delay of the retry the
+     * task deferred, instead of completing the future, so that the future can
+     * run the task again. Only used by one thread at a time.
+     */
+    private static final class Attempt<T> implements Callable<T> {
+        private final Callable<T> callable;
+        private T result;
+        /** The delay of the deferred retry, negative if there is none. */
+        private long retryDelay;
+
+        Attempt(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            result = null;
+            retryDelay = -1;
+            try {
+                result = callable.call();
+            } catch (final RetryDeferral.RetryDeferredError e) {
+                retryDelay = e.getDelay();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A task along with the request it executes.
+     */
+    private static final class RequestTask<T> implements Callable<T> {
+        private final AmazonWebServiceRequest request;
+        private final Callable<T> task;
+
+        RequestTask(AmazonWebServiceRequest request, Callable<T> task) {
+            this.request = request;
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            return task.call();
+        }
+    }
+}
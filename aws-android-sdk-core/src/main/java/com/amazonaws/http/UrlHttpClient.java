@@ -16,6 +16,7 @@
 package com.amazonaws.http;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.internal.WritableContent;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
@@ -35,6 +36,7 @@ import java.util.Map;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 
 /**
@@ -239,6 +241,11 @@ public class UrlHttpClient implements HttpClient {
 
     private void write(InputStream is, OutputStream os, CurlBuilder curlBuilder,
             ByteBuffer curlBuffer) throws IOException {
+        if (curlBuffer == null && is instanceof WritableContent) {
+            // write straight from the buffers of the content
+            ((WritableContent) is).writeRemainingTo(os);
+            return;
+        }
         final byte[] buf = new byte[DEFAULT_BUFFER_SIZE * BUFFER_SIZE_MULTIPLIER];
         int len;
         while ((len = is.read(buf)) != -1) {
@@ -284,6 +291,11 @@ public class UrlHttpClient implements HttpClient {
     }
 
     private SSLContext sc = null;
+    /**
+     * Connections are only kept alive for reuse by connections with the same
+     * socket factory, so it is created once.
+     */
+    private SSLSocketFactory sslSocketFactory = null;
 
     private void enableCustomTrustManager(HttpsURLConnection connection) {
         if (sc == null) {
@@ -296,9 +308,10 @@ public class UrlHttpClient implements HttpClient {
             } catch (final GeneralSecurityException e) {
                 throw new RuntimeException(e);
             }
+            sslSocketFactory = sc.getSocketFactory();
         }
 
-        connection.setSSLSocketFactory(sc.getSocketFactory());
+        connection.setSSLSocketFactory(sslSocketFactory);
     }
 
     /*
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * A {@link ByteArrayInputStream} over the buffer of a
+ * {@link SdkByteArrayOutputStream}. Besides reading it, the content can be
+ * written or digested straight from the buffer, so request bodies are sent
+ * and signed without copying them.
+ */
+public class SdkByteArrayInputStream extends ByteArrayInputStream
+        implements Releasable, WritableContent {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private boolean released;
+
+    SdkByteArrayInputStream(byte[] buffer, int length) {
+        super(buffer, 0, length);
+    }
+
+    @Override
+    public synchronized void writeRemainingTo(OutputStream out) throws IOException {
+        out.write(buf, pos, count - pos);
+        pos = count;
+    }
+
+    /**
+     * Updates a digest with the remaining bytes, leaving this stream at its
+     * end.
+     *
+     * @param digest the digest to update.
+     */
+    public synchronized void updateDigest(MessageDigest digest) {
+        digest.update(buf, pos, count - pos);
+        pos = count;
+    }
+
+    synchronized byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Empties this stream and returns its buffer to the pool of
+     * {@link SdkByteArrayOutputStream}. The stream must not be in use by
+     * anyone else.
+     */
+    @Override
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        final byte[] buffer = buf;
+        buf = EMPTY;
+        pos = 0;
+        count = 0;
+        mark = 0;
+        SdkByteArrayOutputStream.recycle(buffer);
+    }
+}
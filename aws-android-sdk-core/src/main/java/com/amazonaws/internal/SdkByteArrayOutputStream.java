@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedList;
+
+/**
+ * A {@link ByteArrayOutputStream} whose content can be read back through
+ * {@link #toInputStream()} without copying it, for building request bodies.
+ * <p>
+ * Buffers may come from a small shared pool, see {@link #obtain()}. A buffer
+ * is only returned to the pool when the {@link SdkByteArrayInputStream} over
+ * it is released, which {@link com.amazonaws.http.AmazonHttpClient} does after
+ * executing a request if
+ * {@link com.amazonaws.ClientConfiguration#isRequestBufferPooling()} is set.
+ */
+public class SdkByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private static final int DEFAULT_SIZE = 8 * 1024;
+    /** Max number of buffers kept in the pool. */
+    private static final int MAX_POOLED_BUFFERS = 4;
+    /** Larger buffers are left to the garbage collector. */
+    private static final int MAX_POOLED_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    private static final LinkedList<byte[]> POOL = new LinkedList<byte[]>();
+
+    /**
+     * Creates a stream with a new buffer of the default size.
+     */
+    public SdkByteArrayOutputStream() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a stream with a new buffer.
+     *
+     * @param size the initial size of the buffer.
+     */
+    public SdkByteArrayOutputStream(int size) {
+        super(size);
+    }
+
+    private SdkByteArrayOutputStream(byte[] buffer) {
+        super(0);
+        buf = buffer;
+    }
+
+    /**
+     * Returns a stream over a pooled buffer, or over a new one if the pool is
+     * empty.
+     *
+     * @return an empty stream.
+     */
+    public static SdkByteArrayOutputStream obtain() {
+        final byte[] buffer;
+        synchronized (POOL) {
+            buffer = POOL.poll();
+        }
+        return buffer == null ? new SdkByteArrayOutputStream()
+                : new SdkByteArrayOutputStream(buffer);
+    }
+
+    /**
+     * Returns an input stream over the bytes written so far, sharing this
+     * stream's buffer. Nothing must be written to this stream afterwards.
+     *
+     * @return an input stream over the content.
+     */
+    public synchronized SdkByteArrayInputStream toInputStream() {
+        return new SdkByteArrayInputStream(buf, count);
+    }
+
+    synchronized byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Puts a buffer that is no longer used back into the pool.
+     */
+    static void recycle(byte[] buffer) {
+        if (buffer.length == 0 || buffer.length > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+        synchronized (POOL) {
+            if (POOL.size() < MAX_POOLED_BUFFERS) {
+                // most recently used first, it is the most likely to be cached
+                POOL.addFirst(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Request content that can write itself to an output stream from the buffers
+ * it already holds. The HTTP clients use it instead of reading the content
+ * into a buffer of their own.
+ */
+public interface WritableContent {
+
+    /**
+     * Writes the remaining content to an output stream, leaving this content
+     * at its end.
+     *
+     * @param out the stream to write to.
+     * @throws IOException if reading the content or writing fails.
+     */
+    void writeRemainingTo(OutputStream out) throws IOException;
+}
@@ -45,7 +45,12 @@ import java.util.Set;
  * When the system property is specified, a default metric collector will be
  * started at the AWS SDK level. The default implementation uploads the
  * request/response metrics captured to Amazon CloudWatch using AWS credentials
- * obtained via the {@link DefaultAWSCredentialsProviderChain}.
+ * obtained via the {@link DefaultAWSCredentialsProviderChain}. It is provided
+ * by the aws-android-sdk-cloudwatch library; without it, enabling the default
+ * metrics has no effect.
+ * <p>
+ * To aggregate the metrics in memory without uploading them, use
+ * {@link #enableInProcessMetrics()}.
  * <p>
  * For additional optional attributes that can be specified for the system
  * property, please read the javadoc of the individual fields of this class for
@@ -502,6 +507,28 @@ public enum AwsSdkMetrics {
         return false;
     }
 
+    /**
+     * Starts collecting request metrics in memory at the AWS SDK level, unless
+     * an {@link InProcessMetricCollector} is already in use, in which case its
+     * request metric collector is returned. Any other metric collector in use
+     * is stopped.
+     * <p>
+     * Unlike {@link #enableDefaultMetrics()}, this does not upload anything;
+     * the metrics are read through
+     * {@link InProcessRequestMetricCollector#getSnapshots()}.
+     *
+     * @return the request metric collector aggregating the metrics.
+     */
+    public static synchronized InProcessRequestMetricCollector enableInProcessMetrics() {
+        final MetricCollector current = mc;
+        if (current instanceof InProcessMetricCollector && current.isEnabled()) {
+            return ((InProcessMetricCollector) current).getRequestMetricCollector();
+        }
+        final InProcessMetricCollector collector = new InProcessMetricCollector();
+        setMetricCollector(collector);
+        return collector.getRequestMetricCollector();
+    }
+
     /**
      * Convenient method to disable the metric collector at the AWS SDK level.
      */
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+/**
+ * A {@link MetricCollector} keeping request metrics in memory through an
+ * {@link InProcessRequestMetricCollector}. Subclasses may publish them, see
+ * {@link #start()} and {@link #stop()}.
+ */
+public class InProcessMetricCollector extends MetricCollector {
+
+    private final InProcessRequestMetricCollector requestMetricCollector;
+    private volatile boolean enabled = true;
+
+    /**
+     * Creates a collector with a new request metric collector.
+     */
+    public InProcessMetricCollector() {
+        this(new InProcessRequestMetricCollector());
+    }
+
+    /**
+     * @param requestMetricCollector the request metric collector to use.
+     */
+    public InProcessMetricCollector(InProcessRequestMetricCollector requestMetricCollector) {
+        if (requestMetricCollector == null) {
+            throw new IllegalArgumentException("requestMetricCollector cannot be null");
+        }
+        this.requestMetricCollector = requestMetricCollector;
+    }
+
+    @Override
+    public boolean start() {
+        enabled = true;
+        return true;
+    }
+
+    @Override
+    public boolean stop() {
+        final boolean wasEnabled = enabled;
+        enabled = false;
+        return wasEnabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public InProcessRequestMetricCollector getRequestMetricCollector() {
+        return requestMetricCollector;
+    }
+
+    @Override
+    public ServiceMetricCollector getServiceMetricCollector() {
+        return ServiceMetricCollector.NONE;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.http.HttpHeader;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RequestMetricCollector} that aggregates request metrics in memory,
+ * per service and operation, and makes them available through
+ * {@link #getSnapshots()}.
+ * <p>
+ * The latencies of {@link #LATENCY_FIELDS} are recorded in microseconds into
+ * {@link ConcurrentHistogram}s, along with request, error and retry counts and
+ * the sizes of request and response bodies. Nothing is locked or allocated per
+ * request beyond what reading the request metrics takes, so the collector can
+ * be shared by all clients.
+ * <p>
+ * Request metrics are only captured while a collector is enabled, e.g. through
+ * {@link AwsSdkMetrics#enableInProcessMetrics()} or
+ * {@link AmazonWebServiceRequest#setRequestMetricCollector(RequestMetricCollector)}.
+ */
+public class InProcessRequestMetricCollector extends RequestMetricCollector {
+
+    /** The timed events recorded, in the order of the snapshot latencies. */
+    public static final List<Field> LATENCY_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            Field.ClientExecuteTime,
+            Field.HttpRequestTime,
+            Field.RequestSigningTime,
+            Field.RetryPauseTime,
+            Field.ResponseProcessingTime));
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, OperationMetrics>> services =
+            new ConcurrentHashMap<String, ConcurrentMap<Class<?>, OperationMetrics>>();
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || !metrics.isEnabled()) {
+            return;
+        }
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final OperationMetrics operation = getOperationMetrics(request);
+
+        operation.requests.incrementAndGet();
+        final Number exceptions = timingInfo.getCounter(Field.Exception.name());
+        if (response == null || exceptions != null && exceptions.longValue() > 0) {
+            operation.errors.incrementAndGet();
+        }
+        final Number attempts = timingInfo.getCounter(Field.RequestCount.name());
+        if (attempts != null && attempts.longValue() > 1) {
+            operation.retries.addAndGet(attempts.longValue() - 1);
+        }
+
+        for (int i = 0; i < LATENCY_FIELDS.size(); i++) {
+            final List<TimingInfo> events =
+                    timingInfo.getAllSubMeasurements(LATENCY_FIELDS.get(i).name());
+            if (events == null) {
+                continue;
+            }
+            for (final TimingInfo event : events) {
+                final Long end = event.getEndTimeNanoIfKnown();
+                if (end != null) {
+                    operation.latencies[i].record(
+                            (end - event.getStartTimeNano()) / NANOS_PER_MICRO);
+                }
+            }
+        }
+
+        final long sent = contentLength(request.getHeaders());
+        if (sent >= 0) {
+            operation.bytesSent.record(sent);
+        }
+        if (response != null && response.getHttpResponse() != null) {
+            final long received = contentLength(response.getHttpResponse().getHeaders());
+            if (received >= 0) {
+                operation.bytesReceived.record(received);
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the metrics of every operation seen so far.
+     */
+    public List<OperationSnapshot> getSnapshots() {
+        return snapshots(false);
+    }
+
+    /**
+     * Returns a snapshot of the metrics of every operation seen so far and
+     * starts over, so that each snapshot covers the requests since the
+     * previous call. Used to publish metrics periodically.
+     *
+     * @return a snapshot of the metrics since the last reset.
+     */
+    public List<OperationSnapshot> getSnapshotsAndReset() {
+        return snapshots(true);
+    }
+
+    private List<OperationSnapshot> snapshots(boolean reset) {
+        final List<OperationSnapshot> snapshots = new ArrayList<OperationSnapshot>();
+        for (final ConcurrentMap<Class<?>, OperationMetrics> operations : services.values()) {
+            for (final OperationMetrics operation : operations.values()) {
+                snapshots.add(operation.snapshot(reset));
+            }
+        }
+        return snapshots;
+    }
+
+    private OperationMetrics getOperationMetrics(Request<?> request) {
+        final String serviceName = request.getServiceName() == null ? ""
+                : request.getServiceName();
+        ConcurrentMap<Class<?>, OperationMetrics> operations = services.get(serviceName);
+        if (operations == null) {
+            operations = new ConcurrentHashMap<Class<?>, OperationMetrics>();
+            final ConcurrentMap<Class<?>, OperationMetrics> existing =
+                    services.putIfAbsent(serviceName, operations);
+            if (existing != null) {
+                operations = existing;
+            }
+        }
+
+        final AmazonWebServiceRequest original = request.getOriginalRequest();
+        final Class<?> requestClass = original == null ? AmazonWebServiceRequest.class
+                : original.getClass();
+        OperationMetrics operation = operations.get(requestClass);
+        if (operation == null) {
+            operation = new OperationMetrics(serviceName, operationName(requestClass));
+            final OperationMetrics existing = operations.putIfAbsent(requestClass, operation);
+            if (existing != null) {
+                operation = existing;
+            }
+        }
+        return operation;
+    }
+
+    private static String operationName(Class<?> requestClass) {
+        final String name = requestClass.getSimpleName();
+        return name.endsWith("Request") && name.length() > "Request".length()
+                ? name.substring(0, name.length() - "Request".length())
+                : name;
+    }
+
+    private static long contentLength(Map<String, String> headers) {
+        if (headers == null) {
+            return -1;
+        }
+        String value = headers.get(HttpHeader.CONTENT_LENGTH);
+        if (value == null) {
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                if (HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+                    value = header.getValue();
+                    break;
+                }
+            }
+        }
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class OperationMetrics {
+        private final String serviceName;
+        private final String operationName;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final ConcurrentHistogram[] latencies =
+                new ConcurrentHistogram[LATENCY_FIELDS.size()];
+        private final ConcurrentHistogram bytesSent = new ConcurrentHistogram();
+        private final ConcurrentHistogram bytesReceived = new ConcurrentHistogram();
+
+        OperationMetrics(String serviceName, String operationName) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new ConcurrentHistogram();
+            }
+        }
+
+        OperationSnapshot snapshot(boolean reset) {
+            final ConcurrentHistogram.Snapshot[] latencySnapshots =
+                    new ConcurrentHistogram.Snapshot[latencies.length];
+            for (int i = 0; i < latencies.length; i++) {
+                latencySnapshots[i] = reset ? latencies[i].getSnapshotAndReset()
+                        : latencies[i].getSnapshot();
+            }
+            return new OperationSnapshot(serviceName, operationName,
+                    reset ? requests.getAndSet(0) : requests.get(),
+                    reset ? errors.getAndSet(0) : errors.get(),
+                    reset ? retries.getAndSet(0) : retries.get(),
+                    latencySnapshots,
+                    reset ? bytesSent.getSnapshotAndReset() : bytesSent.getSnapshot(),
+                    reset ? bytesReceived.getSnapshotAndReset() : bytesReceived.getSnapshot());
+        }
+    }
+
+    /**
+     * The metrics of one service operation, e.g. Kinesis PutRecord.
+     */
+    public static final class OperationSnapshot {
+        private final String serviceName;
+        private final String operationName;
+        private final long requestCount;
+        private final long errorCount;
+        private final long retryCount;
+        private final ConcurrentHistogram.Snapshot[] latencies;
+        private final ConcurrentHistogram.Snapshot bytesSent;
+        private final ConcurrentHistogram.Snapshot bytesReceived;
+
+        OperationSnapshot(String serviceName, String operationName, long requestCount,
+                long errorCount, long retryCount, ConcurrentHistogram.Snapshot[] latencies,
+                ConcurrentHistogram.Snapshot bytesSent,
+                ConcurrentHistogram.Snapshot bytesReceived) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            this.requestCount = requestCount;
+            this.errorCount = errorCount;
+            this.retryCount = retryCount;
+            this.latencies = latencies;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+
+        /** @return the name of the service, as used for signing. */
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        /** @return the name of the operation, e.g. PutRecord. */
+        public String getOperationName() {
+            return operationName;
+        }
+
+        /** @return the number of requests, not counting retries. */
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /** @return the number of requests that failed. */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /** @return the number of retries. */
+        public long getRetryCount() {
+            return retryCount;
+        }
+
+        /**
+         * Returns the latencies of a timed event, in microseconds. Events
+         * happening several times per request, like
+         * {@link Field#HttpRequestTime} on retries, are recorded each time.
+         *
+         * @param field one of {@link InProcessRequestMetricCollector#LATENCY_FIELDS}.
+         * @return the latencies of the event.
+         * @throws IllegalArgumentException if the field isn't recorded.
+         */
+        public ConcurrentHistogram.Snapshot getLatency(Field field) {
+            final int index = LATENCY_FIELDS.indexOf(field);
+            if (index < 0) {
+                throw new IllegalArgumentException(field + " is not recorded");
+            }
+            return latencies[index];
+        }
+
+        /** @return the sizes of the request bodies, in bytes. */
+        public ConcurrentHistogram.Snapshot getBytesSent() {
+            return bytesSent;
+        }
+
+        /** @return the sizes of the response bodies, in bytes. */
+        public ConcurrentHistogram.Snapshot getBytesReceived() {
+            return bytesReceived;
+        }
+
+        @Override
+        public String toString() {
+            return serviceName + "." + operationName + ": requests=" + requestCount
+                    + ", errors=" + errorCount + ", retries=" + retryCount
+                    + ", latency(us)={" + getLatency(Field.ClientExecuteTime) + "}";
+        }
+    }
+}
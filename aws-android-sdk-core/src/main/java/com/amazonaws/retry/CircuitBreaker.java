@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+/**
+ * A circuit breaker for the requests sent to one endpoint.
+ * <p>
+ * The breaker counts the requests and failures in windows of
+ * {@link #WINDOW_MILLIS}. Once at least {@link #MINIMUM_REQUESTS} requests
+ * were sent in a window and the share of failures reaches the threshold, the
+ * breaker opens: requests are rejected without being sent for the open
+ * duration. After that one request, the probe, is let through; the breaker
+ * closes if it succeeds and opens again if it fails.
+ * <p>
+ * Every request allowed gets a {@link Permit} to record its result with.
+ * Results of requests allowed before the breaker last changed state, e.g.
+ * requests still in flight when it opened, don't count, so only the probe
+ * decides whether a half open breaker closes. A request that fails before it
+ * is sent gives its permit back with {@link #release(Permit)}, which counts
+ * neither way and lets another request probe.
+ */
+public class CircuitBreaker {
+
+    /** The length of a window of counted requests. */
+    public static final long WINDOW_MILLIS = 10 * 1000;
+    /** The number of requests in a window below which the breaker stays closed. */
+    public static final int MINIMUM_REQUESTS = 20;
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private long windowStart;
+    private int requests;
+    private int failures;
+    /** When the breaker lets a request through again, while open. */
+    private long openUntil;
+    /** Counts the changes of state, to tell apart the permits given before. */
+    private long generation;
+    /** Whether the probe of a half open breaker is in flight. */
+    private boolean probing;
+
+    /**
+     * @param failureRateThreshold the share of failed requests, between 0 and
+     *            1, at which the breaker opens.
+     * @param openMillis how long the breaker stays open.
+     */
+    public CircuitBreaker(double failureRateThreshold, long openMillis) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "failureRateThreshold must be greater than 0 and at most 1");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("openMillis cannot be negative");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Returns whether a request may be sent. While half open, only the first
+     * caller, the probe, is allowed, until its outcome is recorded or its
+     * permit released.
+     *
+     * @return the permit to record the outcome of the request with, or null
+     *         if the request must be rejected.
+     */
+    public synchronized Permit allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return new Permit(generation);
+            case OPEN:
+                if (currentTimeMillis() < openUntil) {
+                    return null;
+                }
+                setState(State.HALF_OPEN);
+                probing = true;
+                return new Permit(generation);
+            default:
+                if (probing) {
+                    return null;
+                }
+                probing = true;
+                return new Permit(generation);
+        }
+    }
+
+    /**
+     * Records the outcome of a request that was allowed.
+     *
+     * @param permit the permit the request was allowed with.
+     * @param failed true if the request failed in a way that suggests the
+     *            endpoint is unhealthy, e.g. a server error or a timeout.
+     */
+    public synchronized void recordResult(Permit permit, boolean failed) {
+        if (permit.generation != generation) {
+            // allowed before the breaker opened or was probed
+            return;
+        }
+        final long now = currentTimeMillis();
+        if (state == State.HALF_OPEN) {
+            // the probe
+            if (failed) {
+                open(now);
+            } else {
+                setState(State.CLOSED);
+                resetWindow(now);
+            }
+            return;
+        }
+        if (now - windowStart >= WINDOW_MILLIS) {
+            resetWindow(now);
+        }
+        requests++;
+        if (failed) {
+            failures++;
+        }
+        if (requests >= MINIMUM_REQUESTS && failures >= failureRateThreshold * requests) {
+            open(now);
+        }
+    }
+
+    /**
+     * Gives back the permit of a request that wasn't sent, e.g. because
+     * signing it failed. Its outcome says nothing about the endpoint, so it
+     * isn't counted, and if it was the probe another request may probe.
+     *
+     * @param permit the permit the request was allowed with.
+     */
+    public synchronized void release(Permit permit) {
+        if (permit.generation == generation && state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    /** @return true if requests are currently rejected. */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && currentTimeMillis() < openUntil;
+    }
+
+    private void open(long now) {
+        setState(State.OPEN);
+        openUntil = now + openMillis;
+        resetWindow(now);
+    }
+
+    private void setState(State state) {
+        this.state = state;
+        generation++;
+        probing = false;
+    }
+
+    private void resetWindow(long now) {
+        windowStart = now;
+        requests = 0;
+        failures = 0;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Lets one request through the breaker.
+     */
+    public static final class Permit {
+        private final long generation;
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+    }
+}
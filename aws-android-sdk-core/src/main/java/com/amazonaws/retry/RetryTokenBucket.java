@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client-wide budget for retries. Every retry takes tokens from the bucket
+ * and every successful request puts some back, so while a service keeps
+ * failing the retries stop once the bucket is empty instead of multiplying the
+ * load on it, and resume as requests succeed again.
+ */
+public class RetryTokenBucket {
+
+    /** Tokens taken by a retry. */
+    public static final int RETRY_COST = 5;
+    /** Tokens taken by the retry of a request that timed out. */
+    public static final int TIMEOUT_RETRY_COST = 10;
+    /** Tokens put back by a request succeeding without being retried. */
+    public static final int NO_RETRY_INCREMENT = 1;
+
+    private final int capacity;
+    private final AtomicInteger tokens;
+
+    /**
+     * @param capacity the number of tokens the bucket holds when full.
+     */
+    public RetryTokenBucket(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        this.capacity = capacity;
+        this.tokens = new AtomicInteger(capacity);
+    }
+
+    /**
+     * Takes tokens from the bucket, if it holds enough of them.
+     *
+     * @param cost the number of tokens to take.
+     * @return true if the tokens were taken; false if the bucket holds fewer.
+     */
+    public boolean tryAcquire(int cost) {
+        while (true) {
+            final int available = tokens.get();
+            if (available < cost) {
+                return false;
+            }
+            if (tokens.compareAndSet(available, available - cost)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Puts tokens back in the bucket, up to its capacity.
+     *
+     * @param amount the number of tokens to put back.
+     */
+    public void release(int amount) {
+        while (true) {
+            final int available = tokens.get();
+            if (available >= capacity) {
+                return;
+            }
+            if (tokens.compareAndSet(available, Math.min(capacity, available + amount))) {
+                return;
+            }
+        }
+    }
+
+    /** @return the number of tokens in the bucket. */
+    public int getAvailableTokens() {
+        return tokens.get();
+    }
+
+    /** @return the number of tokens the bucket holds when full. */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -97,6 +97,16 @@ public class AWSRequestMetrics {
          */
         RetryCount, // captured via the RequestCount since (RetryCount =
                     // RequestCount - 1)
+        /**
+         * Number of retries not attempted because the client-wide retry budget
+         * was spent.
+         */
+        ThrottledRetryCount,
+        /**
+         * Number of attempts rejected without being sent because the circuit
+         * breaker of the endpoint was open.
+         */
+        CircuitBreakerRejectionCount,
         /**
          * Number of retries of the underlying http client library in sending a
          * request to AWS.
@@ -21,10 +21,10 @@ package com.amazonaws.util;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -53,7 +53,8 @@ public class DateUtils {
     /**
      * A map to cache date pattern string to SimpleDateFormat object
      */
-    private static final Map<String, ThreadLocal<SimpleDateFormat>> SDF_MAP = new HashMap<String, ThreadLocal<SimpleDateFormat>>();
+    private static final Map<String, ThreadLocal<SimpleDateFormat>> SDF_MAP =
+            new ConcurrentHashMap<String, ThreadLocal<SimpleDateFormat>>();
 
     /**
      * A helper function to retrieve a SimpleDateFormat object for the given
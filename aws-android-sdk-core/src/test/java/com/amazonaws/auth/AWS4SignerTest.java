@@ -17,14 +17,17 @@ package com.amazonaws.auth;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.Request;
+import com.amazonaws.internal.SdkByteArrayOutputStream;
 import com.amazonaws.util.StringUtils;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -189,6 +192,114 @@ public class AWS4SignerTest {
         assertNull(request.getHeaders().get("Authorization"));
     }
 
+    @Test
+    public void testSigningKeyCache() throws Exception {
+        final String expected =
+                "AWS4-HMAC-SHA256 Credential=access/19810216/us-east-1/demo/aws4_request, SignedHeaders=host;x-amz-archive-description;x-amz-date, Signature=77fe7c02927966018667f21d1dc3dfad9057e58401cbb9ed64f1b7868288e35a";
+        final AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        final Calendar c = new GregorianCalendar();
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // cache a key for another day first
+        c.set(1981, 1, 17, 6, 30, 0);
+        signer.overrideDate(c.getTime());
+        Request<?> request = generateBasicRequest();
+        signer.sign(request, credentials);
+        final String nextDay = request.getHeaders().get("Authorization");
+        assertTrue(nextDay.contains("access/19810217/"));
+
+        c.set(1981, 1, 16, 6, 30, 0);
+        signer.overrideDate(c.getTime());
+        for (int i = 0; i < 2; i++) {
+            request = generateBasicRequest();
+            signer.sign(request, credentials);
+            assertEquals(expected, request.getHeaders().get("Authorization"));
+        }
+
+        // another secret key doesn't get the cached key
+        request = generateBasicRequest();
+        signer.sign(request, new BasicAWSCredentials("access", "secret2"));
+        assertNotEquals(expected, request.getHeaders().get("Authorization"));
+    }
+
+    @Test
+    public void testSigningBufferedContent() throws Exception {
+        final AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        final Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        signer.overrideDate(c.getTime());
+
+        final Request<?> expected = generateBasicRequest();
+        signer.sign(expected, credentials);
+
+        // the payload hash is computed from the buffer in place
+        final Request<?> request = generateBasicRequest();
+        final SdkByteArrayOutputStream out = new SdkByteArrayOutputStream();
+        out.write("{\"TableName\": \"foo\"}".getBytes(StringUtils.UTF8));
+        request.setContent(out.toInputStream());
+        signer.sign(request, credentials);
+        assertEquals(expected.getHeaders().get("Authorization"),
+                request.getHeaders().get("Authorization"));
+        assertEquals("content is reset after hashing", out.size(),
+                request.getContent().available());
+    }
+
+    @Test
+    public void testCanonicalizedHeaderWhitespace() {
+        final Request<?> request = generateBasicRequest();
+        request.addHeader("X-Amz-Meta", " a \t\r\n b\u000Bc  ");
+        request.addHeader("Content-Type", "not  signed");
+        assertEquals("host:demo.us-east-1.amazonaws.com\n"
+                + "x-amz-archive-description:test test\n"
+                + "x-amz-meta: a b c \n",
+                signer.getCanonicalizedHeaderString(request));
+        assertEquals("host;x-amz-archive-description;x-amz-meta",
+                signer.getSignedHeadersString(request));
+    }
+
+    /**
+     * Measures the time to sign a small request, as sent by high rate callers
+     * like Kinesis or IoT data, with the signing key cached and with a key
+     * that has to be derived for every request. Run by hand.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmarkSigning() throws Exception {
+        final AWS4Signer benchmarkSigner = new AWS4Signer();
+        benchmarkSigner.setServiceName("demo");
+        final int iterations = 40000;
+        final AWSCredentials cachedCredentials = new BasicAWSCredentials("access", "secret");
+        // a new secret for every request, so its signing key is never cached
+        final AWSCredentials[] uncachedCredentials = new AWSCredentials[iterations];
+        for (int i = 0; i < iterations; i++) {
+            uncachedCredentials[i] = new BasicAWSCredentials("access", "secret" + i);
+        }
+
+        // warm up both paths before timing either
+        for (int i = 0; i < iterations; i++) {
+            benchmarkSigner.sign(generateBasicRequest(), cachedCredentials);
+            benchmarkSigner.sign(generateBasicRequest(),
+                    new BasicAWSCredentials("access", "warmup" + i));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            benchmarkSigner.sign(generateBasicRequest(), cachedCredentials);
+        }
+        final long cachedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            benchmarkSigner.sign(generateBasicRequest(), uncachedCredentials[i]);
+        }
+        final long uncachedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format(
+                "%d signs: cached signing key %d ns/sign, derived signing key %d ns/sign",
+                iterations, cachedNanos / iterations, uncachedNanos / iterations));
+    }
+
     private Request<?> generateBasicRequest() {
         final Request<?> request = new DefaultRequest<Void>("Foo");
         request.setContent(new ByteArrayInputStream("{\"TableName\": \"foo\"}"
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.model.AssumeRoleWithWebIdentityRequest;
+import com.amazonaws.services.securitytoken.model.AssumeRoleWithWebIdentityResult;
+import com.amazonaws.services.securitytoken.model.Credentials;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CognitoCredentialsProviderTest {
+
+    private AWSCognitoIdentityProvider identityProvider;
+    private AWSSecurityTokenService sts;
+    private final AtomicInteger stsCalls = new AtomicInteger();
+    /** Seconds until the credentials returned by each STS call expire. */
+    private long[] expirations;
+    private final CountDownLatch secondStsCall = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        identityProvider = EasyMock.createNiceMock(AWSCognitoIdentityProvider.class);
+        EasyMock.expect(identityProvider.refresh()).andReturn("token").anyTimes();
+        EasyMock.expect(identityProvider.isAuthenticated()).andReturn(false).anyTimes();
+
+        sts = EasyMock.createMock(AWSSecurityTokenService.class);
+        EasyMock.expect(sts.assumeRoleWithWebIdentity(
+                EasyMock.anyObject(AssumeRoleWithWebIdentityRequest.class)))
+                .andAnswer(new IAnswer<AssumeRoleWithWebIdentityResult>() {
+                    @Override
+                    public AssumeRoleWithWebIdentityResult answer() throws Throwable {
+                        final int call = stsCalls.getAndIncrement();
+                        if (call == 1) {
+                            secondStsCall.countDown();
+                        }
+                        return new AssumeRoleWithWebIdentityResult().withCredentials(
+                                new Credentials()
+                                        .withAccessKeyId("access" + call)
+                                        .withSecretAccessKey("secret" + call)
+                                        .withSessionToken("token" + call)
+                                        .withExpiration(new Date(System.currentTimeMillis()
+                                                + expirations[call] * 1000)));
+                    }
+                }).anyTimes();
+        EasyMock.replay(identityProvider, sts);
+    }
+
+    private CognitoCredentialsProvider newProvider() {
+        return new CognitoCredentialsProvider(identityProvider, "unauth", "auth", sts)
+                .withBackgroundRefreshEnabled(true);
+    }
+
+    @Test
+    public void testReusesValidCredentials() {
+        expirations = new long[] {
+                3600
+        };
+        final CognitoCredentialsProvider provider = newProvider();
+        final AWSSessionCredentials credentials = provider.getCredentials();
+        assertEquals("access0", credentials.getAWSAccessKeyId());
+        for (int i = 0; i < 100; i++) {
+            assertSame(credentials, provider.getCredentials());
+        }
+        assertEquals(1, stsCalls.get());
+
+        provider.clearCredentials();
+        expirations = new long[] {
+                3600, 3600
+        };
+        assertEquals("access1", provider.getCredentials().getAWSAccessKeyId());
+    }
+
+    @Test
+    public void testRefreshesInBackgroundBeforeExpiration() throws Exception {
+        // within the refresh threshold, but not about to expire
+        expirations = new long[] {
+                CognitoCredentialsProvider.DEFAULT_THRESHOLD_SECONDS / 2, 3600
+        };
+        final CognitoCredentialsProvider provider = newProvider();
+        final AWSSessionCredentials first = provider.getCredentials();
+        assertEquals("access0", first.getAWSAccessKeyId());
+
+        // doesn't wait for the refresh it starts
+        assertSame(first, provider.getCredentials());
+        assertTrue("refreshed", secondStsCall.await(5, TimeUnit.SECONDS));
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (provider.getCredentials() == first && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("access1", provider.getCredentials().getAWSAccessKeyId());
+        assertEquals("single refresh", 2, stsCalls.get());
+    }
+
+    @Test
+    public void testWaitsForExpiredCredentials() {
+        expirations = new long[] {
+                5, 3600
+        };
+        final CognitoCredentialsProvider provider = newProvider();
+        assertEquals("access0", provider.getCredentials().getAWSAccessKeyId());
+        assertEquals("access1", provider.getCredentials().getAWSAccessKeyId());
+        assertEquals(2, stsCalls.get());
+    }
+}
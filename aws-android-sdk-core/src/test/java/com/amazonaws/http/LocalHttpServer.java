@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal HTTP/1.1 server on the loopback interface that keeps connections
+ * alive and counts them.
+ */
+class LocalHttpServer {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    volatile byte[] responseBody = "OK".getBytes();
+    volatile boolean chunkedResponse;
+    volatile boolean closeAfterResponse;
+    volatile long delayMillis;
+    volatile String lastRequestBody;
+    volatile Map<String, String> lastRequestHeaders;
+
+    LocalHttpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        connections.incrementAndGet();
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    } catch (final IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    URI getUri(String path) {
+        return URI.create("http://127.0.0.1:" + serverSocket.getLocalPort() + path);
+    }
+
+    int getConnectionCount() {
+        return connections.get();
+    }
+
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    void shutdown() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                final String requestLine = PooledHttpClient.readLine(in);
+                if (requestLine == null) {
+                    return;
+                }
+                final Map<String, String> headers = new HashMap<String, String>();
+                String line;
+                while (!(line = PooledHttpClient.readLine(in)).isEmpty()) {
+                    final int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).toLowerCase(),
+                            line.substring(colon + 1).trim());
+                }
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                if ("chunked".equals(headers.get("transfer-encoding"))) {
+                    int size;
+                    while ((size = Integer.parseInt(PooledHttpClient.readLine(in), 16)) > 0) {
+                        copy(in, body, size);
+                        PooledHttpClient.readLine(in);
+                    }
+                    PooledHttpClient.readLine(in);
+                } else if (headers.containsKey("content-length")) {
+                    copy(in, body, Integer.parseInt(headers.get("content-length")));
+                }
+                lastRequestHeaders = headers;
+                lastRequestBody = body.toString("UTF-8");
+                requests.incrementAndGet();
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                respond(out, requestLine.startsWith("HEAD "));
+                if (closeAfterResponse) {
+                    socket.close();
+                    return;
+                }
+            }
+        } catch (final Exception e) {
+            // the client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private void respond(OutputStream out, boolean head) throws IOException {
+        final byte[] body = responseBody;
+        final StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\n");
+        if (closeAfterResponse) {
+            response.append("Connection: close\r\n");
+        }
+        if (chunkedResponse) {
+            response.append("Transfer-Encoding: chunked\r\n\r\n");
+            out.write(response.toString().getBytes("UTF-8"));
+            final int half = body.length / 2;
+            writeChunk(out, body, 0, half);
+            writeChunk(out, body, half, body.length - half);
+            out.write("0\r\n\r\n".getBytes("UTF-8"));
+        } else {
+            response.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+            out.write(response.toString().getBytes("UTF-8"));
+            if (!head) {
+                out.write(body);
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeChunk(OutputStream out, byte[] b, int off, int len)
+            throws IOException {
+        if (len > 0) {
+            out.write((Integer.toHexString(len) + "\r\n").getBytes("UTF-8"));
+            out.write(b, off, len);
+            out.write("\r\n".getBytes("UTF-8"));
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.write(in.read());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PooledHttpClientTest {
+
+    private LocalHttpServer server;
+    private PooledHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LocalHttpServer();
+        client = new PooledHttpClient(new ClientConfiguration());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testReusesConnection() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("OK", get(client, "/" + i));
+        }
+        assertEquals(20, server.getRequestCount());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testChunkedRequestAndResponse() throws IOException {
+        server.chunkedResponse = true;
+        server.responseBody = "chunked response".getBytes("UTF-8");
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", "12");
+        final HttpRequest request = new HttpRequest("PUT", server.getUri("/upload"), headers,
+                new StringInputStream("request body"));
+        request.setStreaming(true);
+
+        for (int i = 0; i < 2; i++) {
+            final HttpResponse response = client.execute(request);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("chunked response", IOUtils.toString(response.getContent()));
+            assertEquals("request body", server.lastRequestBody);
+            assertEquals("chunked", server.lastRequestHeaders.get("transfer-encoding"));
+            request.getContent().reset();
+        }
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testFixedLengthRequest() throws IOException {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", "4");
+        headers.put("Host", "example.com");
+        final HttpResponse response = client.execute(new HttpRequest("POST",
+                server.getUri("/?a=b"), headers, new StringInputStream("body")));
+        response.getContent().close();
+        assertEquals("body", server.lastRequestBody);
+        assertEquals("4", server.lastRequestHeaders.get("content-length"));
+        assertEquals("the signed Host header is kept", "example.com",
+                server.lastRequestHeaders.get("host"));
+    }
+
+    @Test
+    public void testHeadAndUnreadContent() throws IOException {
+        final HttpResponse head = client.execute(new HttpRequest("HEAD", server.getUri("/")));
+        assertNull(head.getContent());
+
+        // closing without reading drains the content and keeps the connection
+        client.execute(new HttpRequest("GET", server.getUri("/"))).getContent().close();
+        assertEquals("OK", get(client, "/"));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testConnectionCloseIsHonored() throws IOException {
+        server.closeAfterResponse = true;
+        assertEquals("OK", get(client, "/"));
+        assertEquals("OK", get(client, "/"));
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    public void testEvictsIdleConnections() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withConnectionMaxIdleMillis(50));
+        assertEquals("OK", get(client, "/"));
+        Thread.sleep(150);
+        assertEquals("OK", get(client, "/"));
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    public void testLimitsConnectionsPerHost() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withMaxConnections(2));
+        server.delayMillis = 10;
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return get(client, "/");
+                    }
+                }));
+            }
+            for (final Future<String> future : futures) {
+                assertEquals("OK", future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(32, server.getRequestCount());
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    @Test
+    public void testSelectedByConfiguration() throws Exception {
+        final Field field = AmazonHttpClient.class.getDeclaredField("httpClient");
+        field.setAccessible(true);
+        final ClientConfiguration config = new ClientConfiguration();
+        assertEquals(UrlHttpClient.class,
+                field.get(new AmazonHttpClient(config)).getClass());
+        config.setConnectionPooling(true);
+        assertEquals(PooledHttpClient.class,
+                field.get(new AmazonHttpClient(config)).getClass());
+    }
+
+    @Test
+    public void testFailsFastWhenThreadHoldsAllConnections() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withMaxConnections(1)
+                .withConnectionTimeout(10000));
+        final HttpResponse unclosed = client.execute(new HttpRequest("GET", server.getUri("/")));
+        final long start = System.nanoTime();
+        try {
+            get(client, "/");
+            fail("expected an IOException");
+        } catch (final IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("hasn't closed"));
+        }
+        assertTrue("failed without waiting for the timeout",
+                System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        // closing the content frees the connection
+        unclosed.getContent().close();
+        assertEquals("OK", get(client, "/"));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testWaitsForConnectionReleasedByAnotherThread() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withMaxConnections(1)
+                .withConnectionTimeout(10000));
+        final HttpResponse held = client.execute(new HttpRequest("GET", server.getUri("/")));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> waiting = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return get(client, "/");
+                }
+            });
+            Thread.sleep(200);
+            assertFalse("waits while the connection is held", waiting.isDone());
+            held.getContent().close();
+            assertEquals("OK", waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testTimesOutWhenConnectionsAreNotReleased() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withMaxConnections(1)
+                .withConnectionTimeout(300));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final HttpResponse held = executor.submit(new Callable<HttpResponse>() {
+                @Override
+                public HttpResponse call() throws Exception {
+                    return client.execute(new HttpRequest("GET", server.getUri("/")));
+                }
+            }).get();
+            try {
+                get(client, "/");
+                fail("expected an IOException");
+            } catch (final IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("Timed out"));
+            }
+            held.getContent().close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReclaimsConnectionOfCollectedContent() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration().withMaxConnections(1)
+                .withConnectionTimeout(10000));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the response is dropped by another thread without being closed
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    client.execute(new HttpRequest("GET", server.getUri("/")));
+                    return null;
+                }
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+        System.gc();
+        assertEquals("OK", get(client, "/"));
+        assertEquals("the leaked connection was closed", 2, server.getConnectionCount());
+    }
+
+    private String get(HttpClient httpClient, String path) throws IOException {
+        final HttpResponse response = httpClient.execute(
+                new HttpRequest("GET", server.getUri(path)));
+        final InputStream content = response.getContent();
+        try {
+            return IOUtils.toString(content);
+        } finally {
+            content.close();
+        }
+    }
+}
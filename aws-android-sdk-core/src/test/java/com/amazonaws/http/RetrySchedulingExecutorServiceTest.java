@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryPolicyTestBase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetrySchedulingExecutorServiceTest extends RetryPolicyTestBase {
+
+    private static final long BACKOFF = 200;
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger errors = new AtomicInteger();
+    private RetrySchedulingExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = new RetrySchedulingExecutorService(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWorkerIsFreeDuringBackoff() throws Exception {
+        final Future<String> retried = executor.submit(task("A", client("A", 1, 3)));
+        Thread.sleep(BACKOFF / 4);
+        final Future<String> other = executor.submit(task("B", client("B", 0, 3)));
+
+        assertEquals("B", other.get(BACKOFF / 2, TimeUnit.MILLISECONDS));
+        assertEquals("A", retried.get(5, TimeUnit.SECONDS));
+        assertEquals("B ran while A waited to be retried", "[A, B, A]", sent.toString());
+        assertEquals("deferral isn't reported as an error", 0, errors.get());
+    }
+
+    @Test
+    public void testMaxErrorRetryIsKeptAcrossDeferrals() throws Exception {
+        final Future<String> future = executor.submit(
+                task("A", client("A", Integer.MAX_VALUE, 2)));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected a service exception");
+        } catch (final ExecutionException expected) {
+            assertEquals(500, ((AmazonServiceException) expected.getCause()).getStatusCode());
+        }
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void testShutdownRunsDeferredRetries() throws Exception {
+        final Future<String> future = executor.submit(task("A", client("A", 2, 3)));
+        Thread.sleep(BACKOFF / 4);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals("A", future.get());
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void testRequestOfCredentialsProviderRetriesInPlace() throws Exception {
+        final CredentialsProvider provider = new CredentialsProvider(client("C", 1, 3));
+        final Future<String> retried = executor.submit(
+                task("A", client("A", 1, 3), provider));
+        Thread.sleep(BACKOFF * 3 / 2);
+        final Future<String> other = executor.submit(task("B", client("B", 0, 3)));
+
+        assertEquals("A", retried.get(5, TimeUnit.SECONDS));
+        assertEquals("B", other.get());
+        assertNull("credentials request didn't unwind the task", provider.thrown);
+        assertEquals("C waited for its retry in place, A deferred its retry",
+                "[C, C, A, B, A]", sent.toString());
+        assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void testTaskWithoutRequestRetriesInPlace() throws Exception {
+        final AmazonHttpClient client = client("A", 1, 3);
+        final Future<String> retried = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                execute(client, new TestAmazonWebServiceRequest());
+                return "A";
+            }
+        });
+        Thread.sleep(BACKOFF / 4);
+        final Future<String> other = executor.submit(task("B", client("B", 0, 3)));
+
+        assertEquals("B", other.get(5, TimeUnit.SECONDS));
+        assertTrue(retried.isDone());
+        assertEquals("[A, A, B]", sent.toString());
+    }
+
+    @Test
+    public void testCancelInterruptsRunningAttempt() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Future<String> running = executor.submit(RetrySchedulingExecutorService.forRequest(
+                new TestAmazonWebServiceRequest(), new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        started.countDown();
+                        try {
+                            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                        } catch (final InterruptedException e) {
+                            interrupted.countDown();
+                            throw e;
+                        }
+                        return "A";
+                    }
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(running.cancel(true));
+        assertTrue("attempt wasn't interrupted", interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(running.isCancelled());
+        final Future<String> other = executor.submit(task("B", client("B", 0, 3)));
+        assertEquals("B", other.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * @return a client whose requests are logged as the given name and fail
+     *         with a 500 the given number of times.
+     */
+    private AmazonHttpClient client(final String name, final int failures, int maxErrorRetry) {
+        final ClientConfiguration config = new ClientConfiguration()
+                .withRetryPolicy(new RetryPolicy(null, new RetryPolicy.BackoffStrategy() {
+                    @Override
+                    public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                            AmazonClientException exception, int retriesAttempted) {
+                        return BACKOFF;
+                    }
+                }, maxErrorRetry, false));
+        final AtomicInteger attempts = new AtomicInteger();
+        return new AmazonHttpClient(config, new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                sent.add(name);
+                return HttpResponse.builder()
+                        .statusCode(attempts.incrementAndGet() > failures ? 200 : 500)
+                        .statusText("InternalFailure")
+                        .build();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+    }
+
+    /**
+     * @return a task executing a request the way the asynchronous clients
+     *         do, marshalling it again every time it runs and reporting
+     *         errors.
+     */
+    private Callable<String> task(final String name, final AmazonHttpClient client) {
+        return task(name, client, null);
+    }
+
+    /**
+     * @return a task that, like the generated clients, fetches credentials
+     *         from the provider, if any, before executing its request.
+     */
+    private Callable<String> task(final String name, final AmazonHttpClient client,
+            final CredentialsProvider provider) {
+        final AmazonWebServiceRequest originalRequest = new TestAmazonWebServiceRequest();
+        return RetrySchedulingExecutorService.forRequest(originalRequest, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    if (provider != null) {
+                        provider.getCredentials();
+                    }
+                    execute(client, originalRequest);
+                } catch (final Exception e) {
+                    errors.incrementAndGet();
+                    throw e;
+                }
+                return name;
+            }
+        });
+    }
+
+    /**
+     * Fetches credentials with a request of its own, like the Cognito and
+     * STS providers, and caches them.
+     */
+    private static final class CredentialsProvider implements AWSCredentialsProvider {
+        private final AmazonHttpClient client;
+        private AWSCredentials credentials;
+        private volatile Throwable thrown;
+
+        CredentialsProvider(AmazonHttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public AWSCredentials getCredentials() {
+            if (credentials == null) {
+                try {
+                    execute(client, new TestAmazonWebServiceRequest());
+                } catch (final Throwable t) {
+                    thrown = t;
+                    throw new AmazonClientException("Unable to fetch credentials", t);
+                }
+                credentials = new BasicAWSCredentials("access", "secret");
+            }
+            return credentials;
+        }
+
+        @Override
+        public void refresh() {
+            credentials = null;
+        }
+    }
+
+    private static void execute(AmazonHttpClient client,
+            AmazonWebServiceRequest originalRequest) {
+        client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                new HttpResponseHandler<AmazonWebServiceResponse<Object>>() {
+                    @Override
+                    public AmazonWebServiceResponse<Object> handle(HttpResponse response) {
+                        return new AmazonWebServiceResponse<Object>();
+                    }
+
+                    @Override
+                    public boolean needsConnectionLeftOpen() {
+                        return false;
+                    }
+                }, errorResponseHandler, new ExecutionContext(true));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+
+public class SdkByteArrayOutputStreamTest {
+
+    private static final byte[] CONTENT = "{\"StreamName\": \"stream\"}".getBytes(StringUtils.UTF8);
+
+    @Test
+    public void testReadWithoutCopy() throws Exception {
+        final SdkByteArrayOutputStream out = new SdkByteArrayOutputStream(4);
+        out.write(CONTENT);
+        final SdkByteArrayInputStream in = out.toInputStream();
+        assertSame("shares the buffer", out.getBuffer(), in.getBuffer());
+        assertEquals(CONTENT.length, in.available());
+
+        in.mark(-1);
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        in.reset();
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        in.writeRemainingTo(written);
+        assertArrayEquals(CONTENT, written.toByteArray());
+        assertEquals(-1, in.read());
+
+        in.reset();
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        in.updateDigest(digest);
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(CONTENT), digest.digest());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testReleaseReturnsBufferToPool() throws Exception {
+        SdkByteArrayOutputStream out = SdkByteArrayOutputStream.obtain();
+        out.write(CONTENT);
+        final SdkByteArrayInputStream in = out.toInputStream();
+        final byte[] buffer = in.getBuffer();
+
+        in.release();
+        assertEquals("released stream is empty", -1, in.read());
+        // releasing twice must not pool the buffer twice
+        in.release();
+
+        out = SdkByteArrayOutputStream.obtain();
+        assertSame(buffer, out.getBuffer());
+        assertEquals(0, out.size());
+        assertNotSame("pool only had the buffer once", buffer,
+                SdkByteArrayOutputStream.obtain().getBuffer());
+    }
+}
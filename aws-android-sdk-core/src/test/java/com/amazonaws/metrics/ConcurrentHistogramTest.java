@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 100000; value++) {
+            final int index = ConcurrentHistogram.bucketIndex(value);
+            assertTrue(ConcurrentHistogram.bucketLowerBound(index) <= value);
+            assertTrue(ConcurrentHistogram.bucketUpperBound(index) >= value);
+        }
+        final int last = ConcurrentHistogram.bucketIndex(ConcurrentHistogram.MAX_VALUE);
+        assertEquals(ConcurrentHistogram.MAX_VALUE, ConcurrentHistogram.bucketUpperBound(last));
+    }
+
+    @Test
+    public void testSnapshot() {
+        final ConcurrentHistogram histogram = new ConcurrentHistogram();
+        assertEquals(0, histogram.getSnapshot().getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        final ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1001, snapshot.getCount());
+        assertEquals(500500, snapshot.getSum());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(1000, snapshot.getMax());
+        assertWithin(500, snapshot.getValueAtPercentile(50));
+        assertWithin(990, snapshot.getValueAtPercentile(99));
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+
+        final ConcurrentHistogram.Snapshot drained = histogram.getSnapshotAndReset();
+        assertEquals(1001, drained.getCount());
+        assertEquals(0, histogram.getSnapshot().getCount());
+        assertEquals(0, histogram.getSnapshot().getMax());
+        histogram.record(7);
+        assertEquals(7, histogram.getSnapshot().getMin());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final ConcurrentHistogram histogram = new ConcurrentHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 10000; i++) {
+                            histogram.record(i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(80000, snapshot.getCount());
+        assertEquals(8L * 9999 * 10000 / 2, snapshot.getSum());
+        assertEquals(9999, snapshot.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16 + 1);
+    }
+}
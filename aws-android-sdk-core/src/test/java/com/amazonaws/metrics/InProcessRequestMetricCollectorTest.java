@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.metrics.InProcessRequestMetricCollector.OperationSnapshot;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+public class InProcessRequestMetricCollectorTest {
+
+    private static class PutThingRequest extends AmazonWebServiceRequest {
+    }
+
+    @After
+    public void tearDown() {
+        AwsSdkMetrics.setMetricCollector(null);
+    }
+
+    private static DefaultRequest<PutThingRequest> request(int attempts, boolean failed) {
+        final DefaultRequest<PutThingRequest> request =
+                new DefaultRequest<PutThingRequest>(new PutThingRequest(), "things");
+        final AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        request.setAWSRequestMetrics(metrics);
+        request.addHeader("Content-Length", "100");
+        metrics.startEvent(Field.ClientExecuteTime);
+        for (int i = 1; i <= attempts; i++) {
+            metrics.setCounter(Field.RequestCount, i);
+            if (i > 1) {
+                metrics.startEvent(Field.RetryPauseTime);
+                metrics.endEvent(Field.RetryPauseTime);
+            }
+            metrics.startEvent(Field.RequestSigningTime);
+            metrics.endEvent(Field.RequestSigningTime);
+            metrics.startEvent(Field.HttpRequestTime);
+            metrics.endEvent(Field.HttpRequestTime);
+        }
+        if (failed) {
+            metrics.incrementCounter(Field.Exception);
+        }
+        metrics.endEvent(Field.ClientExecuteTime);
+        return request;
+    }
+
+    private static Response<Object> response() {
+        return new Response<Object>(null, HttpResponse.builder()
+                .statusCode(200)
+                .header("content-length", "2000")
+                .build());
+    }
+
+    @Test
+    public void testAggregatesPerOperation() {
+        final InProcessRequestMetricCollector collector = new InProcessRequestMetricCollector();
+        collector.collectMetrics(request(1, false), response());
+        collector.collectMetrics(request(3, false), response());
+        collector.collectMetrics(request(1, true), null);
+
+        final List<OperationSnapshot> snapshots = collector.getSnapshots();
+        assertEquals(1, snapshots.size());
+        final OperationSnapshot snapshot = snapshots.get(0);
+        assertEquals("things", snapshot.getServiceName());
+        assertEquals("PutThing", snapshot.getOperationName());
+        assertEquals(3, snapshot.getRequestCount());
+        assertEquals(1, snapshot.getErrorCount());
+        assertEquals(2, snapshot.getRetryCount());
+        assertEquals(3, snapshot.getLatency(Field.ClientExecuteTime).getCount());
+        assertEquals(5, snapshot.getLatency(Field.HttpRequestTime).getCount());
+        assertEquals(5, snapshot.getLatency(Field.RequestSigningTime).getCount());
+        assertEquals(2, snapshot.getLatency(Field.RetryPauseTime).getCount());
+        assertEquals(300, snapshot.getBytesSent().getSum());
+        assertEquals(2, snapshot.getBytesReceived().getCount());
+        assertEquals(2000, snapshot.getBytesReceived().getMax());
+
+        assertEquals(3, collector.getSnapshotsAndReset().get(0).getRequestCount());
+        final OperationSnapshot reset = collector.getSnapshots().get(0);
+        assertEquals(0, reset.getRequestCount());
+        assertEquals(0, reset.getLatency(Field.HttpRequestTime).getCount());
+    }
+
+    @Test
+    public void testIgnoresRequestsWithoutMetrics() {
+        final InProcessRequestMetricCollector collector = new InProcessRequestMetricCollector();
+        collector.collectMetrics(
+                new DefaultRequest<PutThingRequest>(new PutThingRequest(), "things"), null);
+        assertTrue(collector.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testEnableInProcessMetrics() {
+        final InProcessRequestMetricCollector collector = AwsSdkMetrics.enableInProcessMetrics();
+        assertTrue(AwsSdkMetrics.isMetricsEnabled());
+        assertSame(collector, AwsSdkMetrics.getRequestMetricCollector());
+        assertSame(collector, AwsSdkMetrics.enableInProcessMetrics());
+    }
+}
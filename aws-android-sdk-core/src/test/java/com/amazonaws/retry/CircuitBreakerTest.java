@@ -0,0 +1,364 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.Signer;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.util.AWSRequestMetrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CircuitBreakerTest extends RetryPolicyTestBase {
+
+    private static class TestCircuitBreaker extends CircuitBreaker {
+        private long now = 1000;
+
+        TestCircuitBreaker() {
+            super(0.5, 5000);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testOpensAtFailureThreshold() {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.MINIMUM_REQUESTS - 1; i++) {
+            breaker.recordResult(allow(breaker), true);
+        }
+        assertFalse("not enough requests yet", breaker.isOpen());
+        breaker.recordResult(allow(breaker), false);
+        assertTrue(breaker.isOpen());
+        assertNull(breaker.allowRequest());
+
+        breaker.now += 5000;
+        CircuitBreaker.Permit probe = allow(breaker);
+        assertNull("single probe", breaker.allowRequest());
+        breaker.recordResult(probe, true);
+        assertNull("failed probe reopens", breaker.allowRequest());
+
+        breaker.now += 5000;
+        probe = allow(breaker);
+        breaker.recordResult(probe, false);
+        assertNotNull("successful probe closes", breaker.allowRequest());
+        assertNotNull(breaker.allowRequest());
+    }
+
+    @Test
+    public void testOnlyProbeDecidesWhenHalfOpen() {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        final List<CircuitBreaker.Permit> inFlight = new ArrayList<CircuitBreaker.Permit>();
+        for (int i = 0; i < 3; i++) {
+            inFlight.add(allow(breaker));
+        }
+        openBreaker(breaker);
+
+        breaker.now += 5000;
+        final CircuitBreaker.Permit probe = allow(breaker);
+        // requests sent before the breaker opened finish during the probe
+        breaker.recordResult(inFlight.get(0), false);
+        assertNull("still probing", breaker.allowRequest());
+        breaker.recordResult(inFlight.get(1), true);
+        assertFalse("still probing", breaker.isOpen());
+
+        breaker.recordResult(probe, false);
+        assertNotNull("closed by the probe", breaker.allowRequest());
+        breaker.recordResult(inFlight.get(2), true);
+        assertNotNull(breaker.allowRequest());
+    }
+
+    @Test
+    public void testReleasedProbeLetsAnotherRequestProbe() {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        final CircuitBreaker.Permit inFlight = allow(breaker);
+        openBreaker(breaker);
+
+        breaker.now += 5000;
+        final CircuitBreaker.Permit unsent = allow(breaker);
+        assertNull("single probe", breaker.allowRequest());
+        breaker.release(unsent);
+        assertFalse("not opened by an unsent probe", breaker.isOpen());
+        // a permit from before the breaker opened doesn't free the probe
+        final CircuitBreaker.Permit probe = allow(breaker);
+        breaker.release(inFlight);
+        assertNull("still probing", breaker.allowRequest());
+
+        breaker.recordResult(probe, true);
+        assertTrue("reopened by the probe", breaker.isOpen());
+    }
+
+    @Test
+    public void testIgnoresResultsOfRequestsAllowedBeforeOpening() {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        final List<CircuitBreaker.Permit> inFlight = new ArrayList<CircuitBreaker.Permit>();
+        for (int i = 0; i < CircuitBreaker.MINIMUM_REQUESTS; i++) {
+            inFlight.add(allow(breaker));
+        }
+        openBreaker(breaker);
+        breaker.now += 5000;
+        breaker.recordResult(allow(breaker), false);
+
+        // failures from before don't count towards the new window
+        for (final CircuitBreaker.Permit permit : inFlight) {
+            breaker.recordResult(permit, true);
+        }
+        assertFalse(breaker.isOpen());
+        assertNotNull(breaker.allowRequest());
+    }
+
+    @Test
+    public void testStaysClosedBelowThreshold() {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        for (int i = 0; i < 100; i++) {
+            breaker.recordResult(allow(breaker), i % 3 == 0);
+        }
+        assertFalse(breaker.isOpen());
+
+        // failures spread over several windows don't add up
+        for (int i = 0; i < CircuitBreaker.MINIMUM_REQUESTS; i++) {
+            breaker.recordResult(allow(breaker), i % 2 == 0);
+            breaker.now += CircuitBreaker.WINDOW_MILLIS / 4;
+        }
+        assertFalse(breaker.isOpen());
+    }
+
+    private static CircuitBreaker.Permit allow(CircuitBreaker breaker) {
+        final CircuitBreaker.Permit permit = breaker.allowRequest();
+        assertNotNull("request allowed", permit);
+        return permit;
+    }
+
+    private static void openBreaker(CircuitBreaker breaker) {
+        for (int i = 0; i < CircuitBreaker.MINIMUM_REQUESTS; i++) {
+            breaker.recordResult(allow(breaker), true);
+        }
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void testClientFailsFastWhenOpen() {
+        final ClientConfiguration config = new ClientConfiguration()
+                .withCircuitBreakerEnabled(true)
+                .withCircuitBreakerOpenMillis(60 * 1000)
+                .withRetryPolicy(new RetryPolicy(null, RetryPolicy.BackoffStrategy.NO_DELAY,
+                        3, false));
+        final AtomicInteger sent = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(config,
+                new ReturnServiceErrorHttpClient(503, "ServiceUnavailable") {
+                    @Override
+                    public HttpResponse execute(HttpRequest request) throws IOException {
+                        sent.incrementAndGet();
+                        return super.execute(request);
+                    }
+                });
+
+        // 5 requests of 4 attempts each fill the window with failures
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                        errorResponseHandler, new ExecutionContext(true));
+                fail("expected a service exception");
+            } catch (final AmazonServiceException expected) {
+                assertEquals(503, expected.getStatusCode());
+            }
+        }
+        assertEquals(CircuitBreaker.MINIMUM_REQUESTS, sent.get());
+
+        final Request<?> request = getSampleRequestWithRepeatableContent(originalRequest);
+        final ExecutionContext context = new ExecutionContext(true);
+        try {
+            client.execute(request, null, errorResponseHandler, context);
+            fail("expected the circuit breaker to be open");
+        } catch (final AmazonServiceException e) {
+            fail("request should not have been sent");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getMessage().contains("Circuit breaker open"));
+        }
+        assertEquals("not sent", CircuitBreaker.MINIMUM_REQUESTS, sent.get());
+        assertEquals(1, context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(AWSRequestMetrics.Field.CircuitBreakerRejectionCount.name())
+                .intValue());
+    }
+
+    @Test
+    public void testClientStopsRetryingOnceOpen() {
+        final AtomicInteger sent = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(breakerConfig(60 * 1000),
+                new CountingHttpClient(sent, new AtomicBoolean(true)));
+
+        // a single request retried until the breaker opens
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, new ExecutionContext(true));
+            fail("expected the circuit breaker to be open");
+        } catch (final AmazonServiceException e) {
+            fail("retry should not have been sent");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getMessage().contains("Circuit breaker open"));
+            assertEquals("last error kept", 503,
+                    ((AmazonServiceException) expected.getCause()).getStatusCode());
+        }
+        assertEquals(CircuitBreaker.MINIMUM_REQUESTS, sent.get());
+    }
+
+    @Test
+    public void testClientProbesOnceOpenDurationHasPassed() throws Exception {
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final AmazonHttpClient client = new AmazonHttpClient(breakerConfig(100),
+                new CountingHttpClient(sent, failing));
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, new ExecutionContext(true));
+            fail("expected the circuit breaker to be open");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getMessage().contains("Circuit breaker open"));
+        }
+
+        Thread.sleep(200);
+        failing.set(false);
+        sent.set(0);
+        executeSuccessfully(client);
+        assertEquals("probe sent", 1, sent.get());
+        executeSuccessfully(client);
+        assertEquals("closed after the probe", 2, sent.get());
+    }
+
+    @Test
+    public void testFailureBeforeSendingDoesNotCloseHalfOpenBreaker() throws Exception {
+        final AtomicInteger sent = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(breakerConfig(100),
+                new CountingHttpClient(sent, new AtomicBoolean(true)));
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, new ExecutionContext(true));
+            fail("expected the circuit breaker to be open");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getMessage().contains("Circuit breaker open"));
+        }
+
+        Thread.sleep(200);
+        sent.set(0);
+        final ExecutionContext failingSigning = new ExecutionContext(true) {
+            @Override
+            public Signer getSignerByURI(URI uri) {
+                return new Signer() {
+                    @Override
+                    public void sign(Request<?> request, AWSCredentials credentials) {
+                        throw new IllegalStateException("signing failed");
+                    }
+                };
+            }
+        };
+        failingSigning.setCredentials(new BasicAWSCredentials("access", "secret"));
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, failingSigning);
+            fail("expected signing to fail");
+        } catch (final IllegalStateException expected) {
+            assertEquals("signing failed", expected.getMessage());
+        }
+        assertEquals("nothing sent", 0, sent.get());
+
+        // the breaker is still half open: one probe, which fails and reopens it
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, new ExecutionContext(true));
+            fail("expected the circuit breaker to be open");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getMessage().contains("Circuit breaker open"));
+        }
+        assertEquals("only the probe sent", 1, sent.get());
+    }
+
+    private static ClientConfiguration breakerConfig(int openMillis) {
+        return new ClientConfiguration()
+                .withCircuitBreakerEnabled(true)
+                .withCircuitBreakerOpenMillis(openMillis)
+                .withRetryPolicy(new RetryPolicy(null, RetryPolicy.BackoffStrategy.NO_DELAY,
+                        2 * CircuitBreaker.MINIMUM_REQUESTS, false));
+    }
+
+    private static void executeSuccessfully(AmazonHttpClient client) {
+        client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                new HttpResponseHandler<AmazonWebServiceResponse<Object>>() {
+                    @Override
+                    public AmazonWebServiceResponse<Object> handle(HttpResponse response) {
+                        return new AmazonWebServiceResponse<Object>();
+                    }
+
+                    @Override
+                    public boolean needsConnectionLeftOpen() {
+                        return false;
+                    }
+                }, errorResponseHandler, new ExecutionContext(true));
+    }
+
+    /**
+     * Counts the requests sent and answers with a 503 while failing.
+     */
+    private static final class CountingHttpClient implements HttpClient {
+        private final AtomicInteger sent;
+        private final AtomicBoolean failing;
+
+        CountingHttpClient(AtomicInteger sent, AtomicBoolean failing) {
+            this.sent = sent;
+            this.failing = failing;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            sent.incrementAndGet();
+            return HttpResponse.builder()
+                    .statusCode(failing.get() ? 503 : 200)
+                    .statusText("ServiceUnavailable")
+                    .build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.util.AWSRequestMetrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryTokenBucketTest extends RetryPolicyTestBase {
+
+    @Test
+    public void testAcquireAndRelease() {
+        final RetryTokenBucket bucket = new RetryTokenBucket(10);
+        assertTrue(bucket.tryAcquire(5));
+        assertTrue(bucket.tryAcquire(5));
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(0, bucket.getAvailableTokens());
+
+        bucket.release(7);
+        assertEquals(7, bucket.getAvailableTokens());
+        bucket.release(7);
+        assertEquals("capped at capacity", 10, bucket.getAvailableTokens());
+    }
+
+    @Test
+    public void testRetriesStopWhenBudgetIsSpent() {
+        final ClientConfiguration config = new ClientConfiguration()
+                .withThrottleRetries(true)
+                .withMaxConsecutiveRetriesBeforeThrottling(2)
+                .withRetryPolicy(new RetryPolicy(null, RetryPolicy.BackoffStrategy.NO_DELAY,
+                        3, false));
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final AtomicInteger sent = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(config, new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                sent.incrementAndGet();
+                return HttpResponse.builder()
+                        .statusCode(failing.get() ? 500 : 200)
+                        .statusText("InternalFailure")
+                        .build();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+
+        // the first request uses up the budget of 2 retries
+        ExecutionContext context = new ExecutionContext(true);
+        executeAndExpectError(client, context);
+        assertEquals(3, sent.get());
+        assertEquals(1, throttledRetries(context));
+
+        // so the next one isn't retried at all
+        context = new ExecutionContext(true);
+        executeAndExpectError(client, context);
+        assertEquals(4, sent.get());
+        assertEquals(1, throttledRetries(context));
+
+        // successful requests refill the budget
+        failing.set(false);
+        for (int i = 0; i < RetryTokenBucket.RETRY_COST; i++) {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    new HttpResponseHandler<AmazonWebServiceResponse<Object>>() {
+                        @Override
+                        public AmazonWebServiceResponse<Object> handle(HttpResponse response) {
+                            return new AmazonWebServiceResponse<Object>();
+                        }
+
+                        @Override
+                        public boolean needsConnectionLeftOpen() {
+                            return false;
+                        }
+                    }, errorResponseHandler, new ExecutionContext(true));
+        }
+        failing.set(true);
+        sent.set(0);
+        executeAndExpectError(client, new ExecutionContext(true));
+        assertEquals("one retry", 2, sent.get());
+    }
+
+    @Test
+    public void testTimeoutRetriesCostMore() {
+        final ClientConfiguration config = new ClientConfiguration()
+                .withThrottleRetries(true)
+                .withMaxConsecutiveRetriesBeforeThrottling(2)
+                .withRetryPolicy(new RetryPolicy(new RetryPolicy.RetryCondition() {
+                    // the default condition doesn't retry timeouts
+                    @Override
+                    public boolean shouldRetry(AmazonWebServiceRequest originalRequest,
+                            AmazonClientException exception, int retriesAttempted) {
+                        return true;
+                    }
+                }, RetryPolicy.BackoffStrategy.NO_DELAY, 3, false));
+        final AtomicInteger sent = new AtomicInteger();
+        final AmazonHttpClient client = new AmazonHttpClient(config, new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                sent.incrementAndGet();
+                throw new SocketTimeoutException("Read timed out");
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+
+        // a budget of 2 retries only pays for one retry after a timeout
+        final ExecutionContext context = new ExecutionContext(true);
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, context);
+            fail("expected a client exception");
+        } catch (final AmazonClientException expected) {
+            assertTrue(expected.getCause() instanceof SocketTimeoutException);
+        }
+        assertEquals(2, sent.get());
+        assertEquals(1, throttledRetries(context));
+    }
+
+    private static void executeAndExpectError(AmazonHttpClient client,
+            ExecutionContext context) {
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest), null,
+                    errorResponseHandler, context);
+            fail("expected a service exception");
+        } catch (final AmazonServiceException expected) {
+            assertEquals(500, expected.getStatusCode());
+        }
+    }
+
+    private static int throttledRetries(ExecutionContext context) {
+        return context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(AWSRequestMetrics.Field.ThrottledRetryCount.name()).intValue();
+    }
+}
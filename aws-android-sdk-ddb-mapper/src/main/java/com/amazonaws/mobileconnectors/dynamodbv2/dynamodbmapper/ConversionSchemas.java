@@ -94,11 +94,13 @@ import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Pre-defined strategies for mapping between Java types and DynamoDB types.
@@ -203,6 +205,18 @@ public final class ConversionSchemas {
         private final DynamoDBReflector reflector;
         private final S3ClientCache s3cc;
 
+        /*
+         * Marshallers and unmarshallers with their per-converter augmentations
+         * applied, plus a table of the mapped properties of each class, so
+         * converting an item doesn't rebuild them. Lookups don't lock.
+         */
+        private final Map<Method, ArgumentMarshaller> marshallerCache =
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
+        private final Map<Method, ArgumentUnmarshaller> unmarshallerCache =
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
+        private final Map<Class<?>, ItemModel> itemModels =
+                new ConcurrentHashMap<Class<?>, ItemModel>();
+
         public StandardItemConverter(
                 MarshallerSet marshallerSet,
                 UnmarshallerSet unmarshallerSet,
@@ -264,19 +278,19 @@ public final class ConversionSchemas {
                 return null;
             }
 
-            final Class<?> clazz = object.getClass();
+            final PropertyModel[] properties = getItemModel(object.getClass()).properties;
             final Map<String, AttributeValue> result =
-                    new HashMap<String, AttributeValue>();
+                    new HashMap<String, AttributeValue>(capacityFor(properties.length));
 
-            for (final Method getter : reflector.getRelevantGetters(clazz)) {
+            for (final PropertyModel property : properties) {
                 final Object getterResult =
-                        ReflectionUtils.safeInvoke(getter, object);
+                        ReflectionUtils.safeInvoke(property.getter, object);
 
                 if (getterResult != null) {
-                    final AttributeValue value = convert(getter, getterResult);
+                    final AttributeValue value =
+                            property.getMarshaller().marshall(getterResult);
                     if (value != null) {
-                        final String name = reflector.getAttributeName(getter);
-                        result.put(name, value);
+                        result.put(property.getAttributeName(), value);
                     }
                 }
             }
@@ -284,12 +298,26 @@ public final class ConversionSchemas {
             return result;
         }
 
-        private ArgumentMarshaller getMarshaller(Method getter) {
-            ArgumentMarshaller marshaller =
-                    marshallerSet.getMarshaller(getter);
+        private static int capacityFor(int size) {
+            return (int) (size / 0.75f) + 1;
+        }
 
-            marshaller = augment(getter.getGenericReturnType(), marshaller);
+        private ItemModel getItemModel(Class<?> clazz) {
+            ItemModel model = itemModels.get(clazz);
+            if (model == null) {
+                model = new ItemModel(reflector.getRelevantGetters(clazz));
+                itemModels.put(clazz, model);
+            }
+            return model;
+        }
 
+        private ArgumentMarshaller getMarshaller(Method getter) {
+            ArgumentMarshaller marshaller = marshallerCache.get(getter);
+            if (marshaller == null) {
+                marshaller = marshallerSet.getMarshaller(getter);
+                marshaller = augment(getter.getGenericReturnType(), marshaller);
+                marshallerCache.put(getter, marshaller);
+            }
             return marshaller;
         }
 
@@ -413,41 +441,101 @@ public final class ConversionSchemas {
                 return result;
             }
 
-            for (final Method m : reflector.getRelevantGetters(clazz)) {
-                final String attributeName = reflector.getAttributeName(m);
-                final AttributeValue av = value.get(attributeName);
+            for (final PropertyModel property : getItemModel(clazz).properties) {
+                final AttributeValue av = value.get(property.getAttributeName());
                 if (av != null) {
-                    setValue(result, m, av);
+                    final Method setter = property.getSetter();
+                    final Object unmarshalled =
+                            unmarshall(property.getUnmarshaller(), setter, av);
+                    ReflectionUtils.safeInvoke(setter, result, unmarshalled);
                 }
             }
 
             return result;
         }
 
-        private void setValue(
-                Object target,
+        private ArgumentUnmarshaller getUnmarshaller(
                 Method getter,
-                AttributeValue value) {
+                Method setter) {
 
-            final Method setter = reflector.getSetter(getter);
-            final ArgumentUnmarshaller unmarshaller =
-                    getUnmarshaller(getter, setter);
+            ArgumentUnmarshaller unmarshaller = unmarshallerCache.get(setter);
+            if (unmarshaller == null) {
+                unmarshaller = unmarshallerSet.getUnmarshaller(getter, setter);
+                unmarshaller = augment(
+                        setter.getGenericParameterTypes()[0], unmarshaller);
+                unmarshaller = new NullableUnmarshaller(unmarshaller);
+                unmarshallerCache.put(setter, unmarshaller);
+            }
+            return unmarshaller;
+        }
 
-            final Object unmarshalled = unmarshall(unmarshaller, setter, value);
-            ReflectionUtils.safeInvoke(setter, target, unmarshalled);
+        /**
+         * The mapped properties of a class, in the order the reflector returns
+         * them.
+         */
+        private final class ItemModel {
+            final PropertyModel[] properties;
+
+            ItemModel(Collection<Method> getters) {
+                properties = new PropertyModel[getters.size()];
+                int i = 0;
+                for (final Method getter : getters) {
+                    properties[i++] = new PropertyModel(getter);
+                }
+            }
         }
 
-        private ArgumentUnmarshaller getUnmarshaller(
-                Method getter,
-                Method setter) {
+        /**
+         * A mapped property. Everything but the getter is looked up on first
+         * use, so a class with a property that can't be mapped only fails when
+         * that property is converted, as it did before the model was cached.
+         */
+        private final class PropertyModel {
+            final Method getter;
+            private volatile String attributeName;
+            private volatile Method setter;
+            private volatile ArgumentMarshaller marshaller;
+            private volatile ArgumentUnmarshaller unmarshaller;
+
+            PropertyModel(Method getter) {
+                this.getter = getter;
+            }
 
-            ArgumentUnmarshaller unmarshaller =
-                    unmarshallerSet.getUnmarshaller(getter, setter);
+            String getAttributeName() {
+                String name = attributeName;
+                if (name == null) {
+                    name = reflector.getAttributeName(getter);
+                    attributeName = name;
+                }
+                return name;
+            }
 
-            unmarshaller = augment(
-                    setter.getGenericParameterTypes()[0], unmarshaller);
+            Method getSetter() {
+                Method method = setter;
+                if (method == null) {
+                    method = reflector.getSetter(getter);
+                    setter = method;
+                }
+                return method;
+            }
 
-            return new NullableUnmarshaller(unmarshaller);
+            ArgumentMarshaller getMarshaller() {
+                ArgumentMarshaller result = marshaller;
+                if (result == null) {
+                    result = StandardItemConverter.this.getMarshaller(getter);
+                    marshaller = result;
+                }
+                return result;
+            }
+
+            ArgumentUnmarshaller getUnmarshaller() {
+                ArgumentUnmarshaller result = unmarshaller;
+                if (result == null) {
+                    result = StandardItemConverter.this.getUnmarshaller(getter, getSetter());
+                    unmarshaller = result;
+                }
+                return result;
+            }
         }
 
         private ArgumentUnmarshaller getMemberUnmarshaller(Type type) {
@@ -1264,10 +1352,10 @@ public final class ConversionSchemas {
     static class CachingMarshallerSet implements MarshallerSet {
 
         private final Map<Method, ArgumentMarshaller> cache =
-                new HashMap<Method, ArgumentMarshaller>();
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
 
         private final Map<Type, ArgumentMarshaller> memberCache =
-                new HashMap<Type, ArgumentMarshaller>();
+                new ConcurrentHashMap<Type, ArgumentMarshaller>();
 
         private final MarshallerSet wrapped;
 
@@ -1277,40 +1365,37 @@ public final class ConversionSchemas {
 
         @Override
         public ArgumentMarshaller getMarshaller(Method getter) {
-            synchronized (cache) {
-                ArgumentMarshaller marshaler = cache.get(getter);
-                if (marshaler != null) {
-                    return marshaler;
-                }
-
-                marshaler = wrapped.getMarshaller(getter);
-                cache.put(getter, marshaler);
+            ArgumentMarshaller marshaler = cache.get(getter);
+            if (marshaler != null) {
                 return marshaler;
             }
+
+            // racing lookups of the same getter find equivalent marshallers
+            marshaler = wrapped.getMarshaller(getter);
+            cache.put(getter, marshaler);
+            return marshaler;
         }
 
         @Override
         public ArgumentMarshaller getMemberMarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentMarshaller marshaller = memberCache.get(memberType);
-                if (marshaller != null) {
-                    return marshaller;
-                }
-
-                marshaller = wrapped.getMemberMarshaller(memberType);
-                memberCache.put(memberType, marshaller);
+            ArgumentMarshaller marshaller = memberCache.get(memberType);
+            if (marshaller != null) {
                 return marshaller;
             }
+
+            marshaller = wrapped.getMemberMarshaller(memberType);
+            memberCache.put(memberType, marshaller);
+            return marshaller;
         }
     }
 
     static class CachingUnmarshallerSet implements UnmarshallerSet {
 
         private final Map<Method, ArgumentUnmarshaller> cache =
-                new HashMap<Method, ArgumentUnmarshaller>();
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
 
         private final Map<Type, ArgumentUnmarshaller> memberCache =
-                new HashMap<Type, ArgumentUnmarshaller>();
+                new ConcurrentHashMap<Type, ArgumentUnmarshaller>();
 
         private final UnmarshallerSet wrapped;
 
@@ -1323,30 +1408,26 @@ public final class ConversionSchemas {
                 Method getter,
                 Method setter) {
 
-            synchronized (cache) {
-                ArgumentUnmarshaller unmarshaler = cache.get(getter);
-                if (unmarshaler != null) {
-                    return unmarshaler;
-                }
-
-                unmarshaler = wrapped.getUnmarshaller(getter, setter);
-                cache.put(getter, unmarshaler);
+            ArgumentUnmarshaller unmarshaler = cache.get(getter);
+            if (unmarshaler != null) {
                 return unmarshaler;
             }
+
+            unmarshaler = wrapped.getUnmarshaller(getter, setter);
+            cache.put(getter, unmarshaler);
+            return unmarshaler;
         }
 
         @Override
         public ArgumentUnmarshaller getMemberUnmarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
-                if (unmarshaller != null) {
-                    return unmarshaller;
-                }
-
-                unmarshaller = wrapped.getMemberUnmarshaller(memberType);
-                memberCache.put(memberType, unmarshaller);
+            ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
+            if (unmarshaller != null) {
                 return unmarshaller;
             }
+
+            unmarshaller = wrapped.getMemberUnmarshaller(memberType);
+            memberCache.put(memberType, unmarshaller);
+            return unmarshaller;
         }
     }
 
@@ -78,6 +78,9 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Object mapper for domain-object interaction with DynamoDB.
@@ -179,6 +182,12 @@ public class DynamoDBMapper {
     private final AmazonDynamoDB db;
     private final DynamoDBMapperConfig config;
     private final DynamoDBReflector reflector = new DynamoDBReflector();
+    /**
+     * Converters of the built-in conversion schemas, kept so the per-class
+     * models they build are reused across operations.
+     */
+    private final Map<ConversionSchema, ItemConverter> converterCache =
+            new ConcurrentHashMap<ConversionSchema, ItemConverter>();
     private final DynamoDBTableSchemaParser schemaParser = new DynamoDBTableSchemaParser();
     private final VersionIncrementor incrementor = new VersionIncrementor();
 
@@ -192,7 +201,7 @@ public class DynamoDBMapper {
     /** The max number of items allowed in a BatchWrite request */
     static final int MAX_ITEMS_PER_BATCH = 25;
 
-    private static final int MAX_BATCH_GET_COUNT = 100;
+    static final int MAX_BATCH_GET_COUNT = 100;
     /**
      * This retry count is applicable only when every batch get item request
      * results in no data retrieved from server and the un processed keys is
@@ -1723,11 +1732,147 @@ public class DynamoDBMapper {
 
         final List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
 
+        final List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
+        final Map<String, List<WriteRequest>> requestItems =
+                createWriteRequests(objectsToWrite, objectsToDelete, config, inMemoryUpdates);
+
+        // Break into chunks of 25 items and make service requests to DynamoDB
+        while (!requestItems.isEmpty()) {
+            final Map<String, List<WriteRequest>> batch = nextWriteBatch(requestItems);
+
+            final List<FailedBatch> failedBatches = writeOneBatch(batch);
+            if (failedBatches != null) {
+                totalFailedBatches.addAll(failedBatches);
+
+                // If contains throttling exception, we do a backoff
+                if (containsThrottlingException(failedBatches)) {
+                    try {
+                        Thread.sleep(THREAD_SLEEP_TWO_SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AmazonClientException(e.getMessage(), e);
+                    }
+                }
+            }
+        }
+
+        // Once the entire batch is processed, update assigned keys in memory
+        for (final ValueUpdate update : inMemoryUpdates) {
+            update.apply();
+        }
+
+        return totalFailedBatches;
+    }
+
+    /**
+     * Saves the objects given using several concurrent calls to the
+     * {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API.
+     *
+     * @param objectsToSave list of objects to save.
+     * @param concurrency max number of batch write requests in flight.
+     * @return list of objects that failed the opeartion.
+     * @see DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig, int)
+     */
+    public List<FailedBatch> batchSave(List<? extends Object> objectsToSave, int concurrency) {
+        return batchWrite(objectsToSave, Collections.emptyList(), this.config, concurrency);
+    }
+
+    /**
+     * Saves and deletes the objects given using several concurrent calls to
+     * the {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API,
+     * run on a thread pool of the given size that is shut down when done.
+     *
+     * @param objectsToWrite A list of objects to save to DynamoDB.
+     * @param objectsToDelete A list of objects to delete from DynamoDB.
+     * @param config as in
+     *            {@link DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig)}
+     * @param concurrency max number of batch write requests in flight.
+     * @return A list of failed batches which includes the unprocessed items and
+     *         the exceptions causing the failure.
+     * @see DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig,
+     *      ExecutorService, int)
+     */
+    public List<FailedBatch> batchWrite(List<? extends Object> objectsToWrite,
+            List<? extends Object> objectsToDelete, DynamoDBMapperConfig config,
+            int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            return batchWrite(objectsToWrite, objectsToDelete, config, executor, concurrency);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Saves and deletes the objects given using several concurrent calls to
+     * the {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API.
+     * <p>
+     * The objects are split into batches of up to 25 items and up to
+     * <code>concurrency</code> batches are written at the same time on the
+     * given executor. Unprocessed items returned by DynamoDB are added to
+     * later batches, and throttling pauses new requests with jittered
+     * exponential backoff. As in
+     * {@link DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig)},
+     * batches failing with an exception are returned rather than retried, and
+     * a batch too large for a single request is split in two. The calling
+     * thread waits for all batches to complete.
+     * </p>
+     *
+     * @param objectsToWrite A list of objects to save to DynamoDB. <b>No
+     *            version checks are performed</b>, as required by the
+     *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
+     *            API.
+     * @param objectsToDelete A list of objects to delete from DynamoDB. <b>No
+     *            version checks are performed</b>, as required by the
+     *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
+     *            API.
+     * @param config as in
+     *            {@link DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig)}
+     * @param executor executor to make the requests on. It is not shut down.
+     * @param concurrency max number of batch write requests in flight.
+     * @return A list of failed batches which includes the unprocessed items and
+     *         the exceptions causing the failure.
+     */
+    public List<FailedBatch> batchWrite(List<? extends Object> objectsToWrite,
+            List<? extends Object> objectsToDelete, DynamoDBMapperConfig config,
+            ExecutorService executor, int concurrency) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        config = mergeConfig(config);
+
+        final List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
+        final Map<String, List<WriteRequest>> requestItems =
+                createWriteRequests(objectsToWrite, objectsToDelete, config, inMemoryUpdates);
+
+        final List<FailedBatch> failedBatches =
+                new ParallelBatchWriteTask(db, executor, concurrency).write(requestItems);
+
+        // Once the entire batch is processed, update assigned keys in memory
+        for (final ValueUpdate update : inMemoryUpdates) {
+            update.apply();
+        }
+
+        return failedBatches;
+    }
+
+    /**
+     * Converts the objects to save and delete into write requests grouped by
+     * table name.
+     */
+    private Map<String, List<WriteRequest>> createWriteRequests(
+            List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete,
+            DynamoDBMapperConfig config, List<ValueUpdate> inMemoryUpdates) {
         final HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
 
         final ItemConverter converter = getConverter(config);
 
-        final List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
         for (final Object toWrite : objectsToWrite) {
             final Class<?> clazz = toWrite.getClass();
             final String tableName = getTableName(clazz, toWrite, config);
@@ -1782,58 +1927,42 @@ public class DynamoDBMapper {
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
-        // Break into chunks of 25 items and make service requests to DynamoDB
-        while (!requestItems.isEmpty()) {
-
-            final HashMap<String, List<WriteRequest>> batch =
-                    new HashMap<String, List<WriteRequest>>();
+        return requestItems;
+    }
 
-            int i = 0;
+    /**
+     * Removes up to {@link #MAX_ITEMS_PER_BATCH} write requests from the
+     * pending requests and returns them as one batch.
+     */
+    static Map<String, List<WriteRequest>> nextWriteBatch(
+            Map<String, List<WriteRequest>> requestItems) {
+        final HashMap<String, List<WriteRequest>> batch =
+                new HashMap<String, List<WriteRequest>>();
 
-            final Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet()
-                    .iterator();
-            while (tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH) {
+        int i = 0;
 
-                final Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
+        final Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet()
+                .iterator();
+        while (tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH) {
 
-                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
-                final Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
+            final Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
 
-                while (writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH) {
-                    final WriteRequest writeRequest = writeRequestIter.next();
-                    batch.get(tableRequest.getKey()).add(writeRequest);
-                    writeRequestIter.remove();
-                }
+            batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
+            final Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
 
-                // If we've processed all the write requests for this table,
-                // remove it from the parent iterator.
-                if (!writeRequestIter.hasNext()) {
-                    tableIter.remove();
-                }
+            while (writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH) {
+                final WriteRequest writeRequest = writeRequestIter.next();
+                batch.get(tableRequest.getKey()).add(writeRequest);
+                writeRequestIter.remove();
             }
 
-            final List<FailedBatch> failedBatches = writeOneBatch(batch);
-            if (failedBatches != null) {
-                totalFailedBatches.addAll(failedBatches);
-
-                // If contains throttling exception, we do a backoff
-                if (containsThrottlingException(failedBatches)) {
-                    try {
-                        Thread.sleep(THREAD_SLEEP_TWO_SECONDS);
-                    } catch (final InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new AmazonClientException(e.getMessage(), e);
-                    }
-                }
+            // If we've processed all the write requests for this table,
+            // remove it from the parent iterator.
+            if (!writeRequestIter.hasNext()) {
+                tableIter.remove();
             }
         }
-
-        // Once the entire batch is processed, update assigned keys in memory
-        for (final ValueUpdate update : inMemoryUpdates) {
-            update.apply();
-        }
-
-        return totalFailedBatches;
+        return batch;
     }
 
     /**
@@ -1894,7 +2023,7 @@ public class DynamoDBMapper {
      * Divide the batch of objects to save into two smaller batches. Each
      * contains half of the elements.
      */
-    private void divideBatch(Map<String, List<WriteRequest>> batch,
+    static void divideBatch(Map<String, List<WriteRequest>> batch,
             Map<String, List<WriteRequest>> firstHalfBatch,
             Map<String, List<WriteRequest>> secondHalfBatch) {
         for (final String key : batch.keySet()) {
@@ -2073,7 +2202,154 @@ public class DynamoDBMapper {
      */
     public Map<String, List<Object>> batchLoad(Map<Class<?>, List<KeyPair>> itemsToGet,
             DynamoDBMapperConfig config) {
+        return batchLoad(createKeyObjects(itemsToGet), config);
+    }
+
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * with several concurrent calls to the
+     * {@link AmazonDynamoDB#batchGetItem(BatchGetItemRequest)} API run on a
+     * thread pool of the given size that is shut down when done.
+     *
+     * @param itemsToGet Map from class to load to list of primary key
+     *            attributes.
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
+     *            and {@link DynamoDBMapperConfig#getConsistentReads()} are
+     *            considered.
+     * @param concurrency max number of batch get requests in flight.
+     * @return A map of the loaded objects by table name, as in
+     *         {@link DynamoDBMapper#batchLoad(Map, DynamoDBMapperConfig)}.
+     * @see DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig,
+     *      ExecutorService, int, BatchLoadHandler)
+     */
+    public Map<String, List<Object>> batchLoad(Map<Class<?>, List<KeyPair>> itemsToGet,
+            DynamoDBMapperConfig config, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            return batchLoad(createKeyObjects(itemsToGet), config, executor, concurrency);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * with several concurrent calls to the
+     * {@link AmazonDynamoDB#batchGetItem(BatchGetItemRequest)} API.
+     *
+     * @param itemsToGet Key objects, corresponding to the class to fetch, with
+     *            their primary key values set.
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
+     *            and {@link DynamoDBMapperConfig#getConsistentReads()} are
+     *            considered.
+     * @param executor executor to make the requests on. It is not shut down.
+     * @param concurrency max number of batch get requests in flight.
+     * @return A map of the loaded objects by table name, as in
+     *         {@link DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig)}.
+     * @see DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig,
+     *      ExecutorService, int, BatchLoadHandler)
+     */
+    public Map<String, List<Object>> batchLoad(List<Object> itemsToGet,
+            DynamoDBMapperConfig config, ExecutorService executor, int concurrency) {
+        final Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
+        batchLoad(itemsToGet, config, executor, concurrency, new BatchLoadHandler() {
+            @Override
+            public void onItemsLoaded(String tableName, List<Object> items) {
+                List<Object> objects = resultSet.get(tableName);
+                if (objects == null) {
+                    objects = new LinkedList<Object>();
+                    resultSet.put(tableName, objects);
+                }
+                objects.addAll(items);
+            }
+        });
+        return resultSet;
+    }
+
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * with several concurrent calls to the
+     * {@link AmazonDynamoDB#batchGetItem(BatchGetItemRequest)} API, passing
+     * the loaded objects to a handler as each response arrives.
+     * <p>
+     * The keys are split into requests of up to 100 keys and up to
+     * <code>concurrency</code> requests are in flight at the same time on the
+     * given executor. Unprocessed keys returned by DynamoDB are added to later
+     * requests after a jittered exponential backoff. The handler is called on
+     * the calling thread, which waits until all items are loaded. An
+     * exception thrown by a request is rethrown and the remaining keys are
+     * not loaded.
+     * </p>
+     *
+     * @param itemsToGet Key objects, corresponding to the class to fetch, with
+     *            their primary key values set.
+     * @param config Only {@link DynamoDBMapperConfig#getTableNameOverride()}
+     *            and {@link DynamoDBMapperConfig#getConsistentReads()} are
+     *            considered.
+     * @param executor executor to make the requests on. It is not shut down.
+     * @param concurrency max number of batch get requests in flight.
+     * @param handler receives the loaded objects.
+     */
+    public void batchLoad(List<Object> itemsToGet, DynamoDBMapperConfig config,
+            ExecutorService executor, int concurrency, final BatchLoadHandler handler) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        final DynamoDBMapperConfig mergedConfig = mergeConfig(config);
+        final boolean consistentReads =
+                (mergedConfig.getConsistentReads() == ConsistentReads.CONSISTENT);
+
+        if (itemsToGet == null || itemsToGet.isEmpty()) {
+            return;
+        }
+
+        final Map<String, List<Map<String, AttributeValue>>> keys =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        final Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
+        final ItemConverter converter = getConverter(mergedConfig);
 
+        for (final Object keyObject : itemsToGet) {
+            final Class<?> clazz = keyObject.getClass();
+            final String tableName = getTableName(clazz, keyObject, mergedConfig);
+            classesByTableName.put(tableName, clazz);
+
+            if (!keys.containsKey(tableName)) {
+                keys.put(tableName, new LinkedList<Map<String, AttributeValue>>());
+            }
+            keys.get(tableName).add(getKey(converter, keyObject));
+        }
+
+        new ParallelBatchLoadTask(db, executor, concurrency, consistentReads,
+                mergedConfig.getRequestMetricCollector()).load(keys,
+                new ParallelBatchLoadTask.ResponseHandler() {
+                    @Override
+                    public void handle(String tableName,
+                            List<Map<String, AttributeValue>> items) {
+                        final Class<?> clazz = classesByTableName.get(tableName);
+                        final List<Object> objects = new ArrayList<Object>(items.size());
+                        for (final Map<String, AttributeValue> item : items) {
+                            final AttributeTransformer.Parameters<?> parameters =
+                                    toParameters(item, clazz, tableName, mergedConfig);
+                            objects.add(privateMarshallIntoObject(converter, parameters));
+                        }
+                        handler.onItemsLoaded(tableName, objects);
+                    }
+                });
+    }
+
+    /**
+     * Creates the key objects for the given keys of each class.
+     */
+    private List<Object> createKeyObjects(Map<Class<?>, List<KeyPair>> itemsToGet) {
         final List<Object> keys = new ArrayList<Object>();
         if (itemsToGet != null) {
             for (final Class<?> clazz : itemsToGet.keySet()) {
@@ -2084,8 +2360,7 @@ public class DynamoDBMapper {
                 }
             }
         }
-
-        return batchLoad(keys, config);
+        return keys;
     }
 
     /**
@@ -3184,11 +3459,24 @@ public class DynamoDBMapper {
     ItemConverter getConverter(DynamoDBMapperConfig config) {
         final ConversionSchema schema = config.getConversionSchema();
 
+        // custom schemas may rely on getting a new converter every time
+        final boolean cacheable = schema instanceof ConversionSchemas.StandardConversionSchema;
+        if (cacheable) {
+            final ItemConverter converter = converterCache.get(schema);
+            if (converter != null) {
+                return converter;
+            }
+        }
+
         final ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
                 .with(DynamoDBReflector.class, reflector)
                 .with(S3ClientCache.class, s3cc);
 
-        return schema.getConverter(params);
+        final ItemConverter converter = schema.getConverter(params);
+        if (cacheable) {
+            converterCache.put(schema, converter);
+        }
+        return converter;
     }
 
     private void pauseExponentially(int retries) {
@@ -3285,6 +3573,23 @@ public class DynamoDBMapper {
      * information about the unprocessed items and the exception causing the
      * failure.
      */
+    /**
+     * Receives the objects loaded by
+     * {@link DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig, ExecutorService, int, BatchLoadHandler)}
+     * as each response arrives.
+     */
+    public interface BatchLoadHandler {
+        /**
+         * Called with the objects of one table loaded by one batch get
+         * request.
+         *
+         * @param tableName the table the objects were loaded from.
+         * @param items the loaded objects, which can be cast to the class
+         *            mapping the table.
+         */
+        void onItemsLoaded(String tableName, List<Object> items);
+    }
+
     public static class FailedBatch {
 
         private Map<String, java.util.List<WriteRequest>> unprocessedItems;
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.Random;
+
+/**
+ * Backoff between the requests of the parallel batch operations. Each
+ * {@link #backOff()} delays the next request by a random time up to an
+ * exponentially growing limit (full jitter), so concurrent requests don't
+ * retry in lock step. {@link #reset()} once a request fully succeeds. Not
+ * thread safe; used by the thread coordinating the requests.
+ */
+class JitteredBackoff {
+
+    /** Base delay of the backoff. */
+    static final long BACKOFF_BASE_IN_MILLISECONDS = 50;
+    private static final int MAX_SHIFT = 16;
+
+    private final Random random = new Random();
+    private final long maxDelay;
+    /** Number of consecutive backoffs. */
+    private int attempts;
+    /** Time before which no new request is sent. */
+    private long nextRequestTime;
+
+    JitteredBackoff(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Delays the next request.
+     */
+    void backOff() {
+        attempts++;
+        final long limit = Math.min(maxDelay,
+                BACKOFF_BASE_IN_MILLISECONDS << Math.min(attempts, MAX_SHIFT));
+        final long delay = (long) (random.nextDouble() * limit);
+        nextRequestTime = Math.max(nextRequestTime, System.currentTimeMillis() + delay);
+    }
+
+    /**
+     * Resets the limit of the delay to its base value.
+     */
+    void reset() {
+        attempts = 0;
+    }
+
+    /**
+     * Waits until the next request may be sent.
+     */
+    void await() {
+        final long delay = nextRequestTime - System.currentTimeMillis();
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+}
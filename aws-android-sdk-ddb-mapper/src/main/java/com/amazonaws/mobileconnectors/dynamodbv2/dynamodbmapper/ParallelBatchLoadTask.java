@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Loads items by key with several BatchGetItem requests in flight.
+ * Unprocessed keys are added back to the pending keys and requested with
+ * later batches, after a jittered exponential backoff. Items are handed to a
+ * {@link ResponseHandler} on the calling thread as each response arrives.
+ */
+class ParallelBatchLoadTask {
+
+    /**
+     * Receives the items of each BatchGetItem response.
+     */
+    interface ResponseHandler {
+        /**
+         * Called on the thread running {@link ParallelBatchLoadTask#load} for
+         * the items of one table in one response.
+         *
+         * @param tableName the table the items were loaded from.
+         * @param items the loaded items.
+         */
+        void handle(String tableName, List<Map<String, AttributeValue>> items);
+    }
+
+    private final AmazonDynamoDB db;
+    private final CompletionService<BatchGetItemResult> completionService;
+    private final int concurrency;
+    private final boolean consistentReads;
+    private final RequestMetricCollector requestMetricCollector;
+    private final JitteredBackoff backoff =
+            new JitteredBackoff(DynamoDBMapper.MAX_BACKOFF_IN_MILLISECONDS);
+
+    /** Keys not yet requested, by table name. */
+    private final Map<String, List<Map<String, AttributeValue>>> pendingKeys =
+            new HashMap<String, List<Map<String, AttributeValue>>>();
+    /** Number of consecutive responses without any items. */
+    private int emptyResponses;
+
+    ParallelBatchLoadTask(AmazonDynamoDB db, ExecutorService executor, int concurrency,
+            boolean consistentReads, RequestMetricCollector requestMetricCollector) {
+        this.db = db;
+        this.completionService = new ExecutorCompletionService<BatchGetItemResult>(executor);
+        this.concurrency = concurrency;
+        this.consistentReads = consistentReads;
+        this.requestMetricCollector = requestMetricCollector;
+    }
+
+    /**
+     * Loads the items with the given keys and waits until all are loaded.
+     *
+     * @param keys keys of the items to load by table name.
+     * @param handler receives the loaded items.
+     */
+    void load(Map<String, List<Map<String, AttributeValue>>> keys, ResponseHandler handler) {
+        addPendingKeys(keys);
+
+        int inFlight = 0;
+        while (!pendingKeys.isEmpty() || inFlight > 0) {
+            while (inFlight < concurrency && !pendingKeys.isEmpty()) {
+                backoff.await();
+                submit(nextBatch());
+                inFlight++;
+            }
+
+            final BatchGetItemResult result = takeResult();
+            inFlight--;
+            handle(result, handler);
+        }
+    }
+
+    private void addPendingKeys(Map<String, List<Map<String, AttributeValue>>> keys) {
+        for (final Entry<String, List<Map<String, AttributeValue>>> entry : keys.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            List<Map<String, AttributeValue>> tableKeys = pendingKeys.get(entry.getKey());
+            if (tableKeys == null) {
+                tableKeys = new LinkedList<Map<String, AttributeValue>>();
+                pendingKeys.put(entry.getKey(), tableKeys);
+            }
+            tableKeys.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Removes up to the maximum number of keys of one BatchGetItem request
+     * from the pending keys.
+     */
+    private Map<String, KeysAndAttributes> nextBatch() {
+        final Map<String, KeysAndAttributes> batch = new HashMap<String, KeysAndAttributes>();
+        int count = 0;
+        final Iterator<Entry<String, List<Map<String, AttributeValue>>>> tableIter =
+                pendingKeys.entrySet().iterator();
+        while (tableIter.hasNext() && count < DynamoDBMapper.MAX_BATCH_GET_COUNT) {
+            final Entry<String, List<Map<String, AttributeValue>>> tableKeys = tableIter.next();
+            final List<Map<String, AttributeValue>> keys =
+                    new LinkedList<Map<String, AttributeValue>>();
+            final Iterator<Map<String, AttributeValue>> keyIter = tableKeys.getValue().iterator();
+            while (keyIter.hasNext() && count < DynamoDBMapper.MAX_BATCH_GET_COUNT) {
+                keys.add(keyIter.next());
+                keyIter.remove();
+                count++;
+            }
+            batch.put(tableKeys.getKey(),
+                    new KeysAndAttributes().withConsistentRead(consistentReads).withKeys(keys));
+            if (!keyIter.hasNext()) {
+                tableIter.remove();
+            }
+        }
+        return batch;
+    }
+
+    private void submit(final Map<String, KeysAndAttributes> batch) {
+        completionService.submit(new Callable<BatchGetItemResult>() {
+            @Override
+            public BatchGetItemResult call() {
+                final BatchGetItemRequest request = new BatchGetItemRequest()
+                        .withRequestMetricCollector(requestMetricCollector);
+                request.setRequestItems(batch);
+                return db.batchGetItem(DynamoDBMapper.applyBatchOperationUserAgent(request));
+            }
+        });
+    }
+
+    private BatchGetItemResult takeResult() {
+        try {
+            return completionService.take().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            // requests already in flight finish in the background
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AmazonClientException(cause.getMessage(), cause);
+        }
+    }
+
+    private void handle(BatchGetItemResult result, ResponseHandler handler) {
+        boolean loadedItems = false;
+        final Map<String, List<Map<String, AttributeValue>>> responses = result.getResponses();
+        if (responses != null) {
+            for (final Entry<String, List<Map<String, AttributeValue>>> entry : responses
+                    .entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    loadedItems = true;
+                    handler.handle(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        final Map<String, KeysAndAttributes> unprocessedKeys = result.getUnprocessedKeys();
+        if (unprocessedKeys == null || unprocessedKeys.isEmpty()) {
+            backoff.reset();
+            return;
+        }
+
+        if (loadedItems) {
+            emptyResponses = 0;
+        } else if (++emptyResponses > DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
+            throw new AmazonClientException(
+                    "Batch Get Item request to server hasn't received any data. "
+                            + "Please try again later.");
+        }
+        for (final Entry<String, KeysAndAttributes> entry : unprocessedKeys.entrySet()) {
+            final Map<String, List<Map<String, AttributeValue>>> keys =
+                    new HashMap<String, List<Map<String, AttributeValue>>>();
+            keys.put(entry.getKey(), entry.getValue().getKeys());
+            addPendingKeys(keys);
+        }
+        backoff.backOff();
+    }
+}
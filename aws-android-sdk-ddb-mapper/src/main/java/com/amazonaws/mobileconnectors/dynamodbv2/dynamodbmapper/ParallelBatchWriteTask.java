@@ -0,0 +1,202 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.FailedBatch;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Writes batches of items with several BatchWriteItem requests in flight.
+ * Unprocessed items are added back to the pending items and written with
+ * later batches. Unprocessed items and throttling delay new requests with
+ * jittered exponential backoff, which resets once a batch is fully written.
+ */
+class ParallelBatchWriteTask {
+
+    private final AmazonDynamoDB db;
+    private final CompletionService<Outcome> completionService;
+    private final int concurrency;
+    private final JitteredBackoff backoff =
+            new JitteredBackoff(DynamoDBMapper.MAX_BACKOFF_IN_MILLISECONDS);
+
+    /** Write requests not yet sent, by table name. */
+    private final Map<String, List<WriteRequest>> pendingItems =
+            new HashMap<String, List<WriteRequest>>();
+    /** Halves of batches that were too large, sent before other pending items. */
+    private final LinkedList<Map<String, List<WriteRequest>>> splitBatches =
+            new LinkedList<Map<String, List<WriteRequest>>>();
+    private final List<FailedBatch> failedBatches = new LinkedList<FailedBatch>();
+
+    /**
+     * The result of one BatchWriteItem request.
+     */
+    static final class Outcome {
+        final Map<String, List<WriteRequest>> batch;
+        final BatchWriteItemResult result;
+        final Exception exception;
+
+        Outcome(Map<String, List<WriteRequest>> batch, BatchWriteItemResult result,
+                Exception exception) {
+            this.batch = batch;
+            this.result = result;
+            this.exception = exception;
+        }
+    }
+
+    ParallelBatchWriteTask(AmazonDynamoDB db, ExecutorService executor, int concurrency) {
+        this.db = db;
+        this.completionService = new ExecutorCompletionService<Outcome>(executor);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Writes the given items and waits until all are written or failed.
+     *
+     * @param requestItems write requests by table name.
+     * @return the batches that failed with an exception.
+     */
+    List<FailedBatch> write(Map<String, List<WriteRequest>> requestItems) {
+        addPendingItems(requestItems);
+
+        int inFlight = 0;
+        while (hasPendingItems() || inFlight > 0) {
+            while (inFlight < concurrency && hasPendingItems()) {
+                backoff.await();
+                submit(nextBatch());
+                inFlight++;
+            }
+
+            final Outcome outcome = takeOutcome();
+            inFlight--;
+            handle(outcome);
+        }
+        return failedBatches;
+    }
+
+    private boolean hasPendingItems() {
+        return !splitBatches.isEmpty() || !pendingItems.isEmpty();
+    }
+
+    private Map<String, List<WriteRequest>> nextBatch() {
+        if (!splitBatches.isEmpty()) {
+            return splitBatches.removeFirst();
+        }
+        return DynamoDBMapper.nextWriteBatch(pendingItems);
+    }
+
+    private void addPendingItems(Map<String, List<WriteRequest>> items) {
+        for (final Map.Entry<String, List<WriteRequest>> entry : items.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            List<WriteRequest> requests = pendingItems.get(entry.getKey());
+            if (requests == null) {
+                requests = new LinkedList<WriteRequest>();
+                pendingItems.put(entry.getKey(), requests);
+            }
+            requests.addAll(entry.getValue());
+        }
+    }
+
+    private void submit(final Map<String, List<WriteRequest>> batch) {
+        completionService.submit(new Callable<Outcome>() {
+            @Override
+            public Outcome call() {
+                try {
+                    final BatchWriteItemResult result = db.batchWriteItem(
+                            DynamoDBMapper.applyBatchOperationUserAgent(
+                                    new BatchWriteItemRequest().withRequestItems(batch)));
+                    return new Outcome(batch, result, null);
+                } catch (final Exception e) {
+                    return new Outcome(batch, null, e);
+                }
+            }
+        });
+    }
+
+    private Outcome takeOutcome() {
+        try {
+            return completionService.take().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            // the task catches all exceptions, so this is an error
+            throw new AmazonClientException("Batch write failed.", e.getCause());
+        }
+    }
+
+    private void handle(Outcome outcome) {
+        if (outcome.exception == null) {
+            final Map<String, List<WriteRequest>> unprocessedItems =
+                    outcome.result.getUnprocessedItems();
+            if (unprocessedItems != null && !unprocessedItems.isEmpty()) {
+                addPendingItems(unprocessedItems);
+                backoff.backOff();
+            } else {
+                backoff.reset();
+            }
+            return;
+        }
+
+        final Exception e = outcome.exception;
+        if (e instanceof AmazonServiceException
+                && RetryUtils.isRequestEntityTooLargeException((AmazonServiceException) e)
+                && countItems(outcome.batch) > 1) {
+            final Map<String, List<WriteRequest>> firstHalfBatch =
+                    new HashMap<String, List<WriteRequest>>();
+            final Map<String, List<WriteRequest>> secondHalfBatch =
+                    new HashMap<String, List<WriteRequest>>();
+            DynamoDBMapper.divideBatch(outcome.batch, firstHalfBatch, secondHalfBatch);
+            splitBatches.addFirst(secondHalfBatch);
+            splitBatches.addFirst(firstHalfBatch);
+            return;
+        }
+
+        final FailedBatch failedBatch = new FailedBatch();
+        failedBatch.setUnprocessedItems(outcome.batch);
+        failedBatch.setException(e);
+        failedBatches.add(failedBatch);
+        if (e instanceof AmazonServiceException
+                && RetryUtils.isThrottlingException((AmazonServiceException) e)) {
+            backoff.backOff();
+        }
+    }
+
+    private static int countItems(Map<String, List<WriteRequest>> batch) {
+        int count = 0;
+        for (final List<WriteRequest> requests : batch.values()) {
+            count += requests.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelBatchLoadTaskTest {
+
+    private static final String TABLE = "testTable";
+
+    private AmazonDynamoDB mockClient;
+    private ExecutorService executor;
+    /** Ids of the loaded items, in the order the handler received them. */
+    private final List<String> loaded = new ArrayList<String>();
+    private final ParallelBatchLoadTask.ResponseHandler handler =
+            new ParallelBatchLoadTask.ResponseHandler() {
+                @Override
+                public void handle(String tableName, List<Map<String, AttributeValue>> items) {
+                    assertEquals(TABLE, tableName);
+                    for (final Map<String, AttributeValue> item : items) {
+                        loaded.add(item.get("id").getS());
+                    }
+                }
+            };
+
+    @Before
+    public void setup() {
+        mockClient = EasyMock.createMock(AmazonDynamoDB.class);
+        // thread safe mocks serialize calls
+        EasyMock.makeThreadSafe(mockClient, false);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, List<Map<String, AttributeValue>>> keys(int count) {
+        final List<Map<String, AttributeValue>> keys =
+                new LinkedList<Map<String, AttributeValue>>();
+        for (int i = 0; i < count; i++) {
+            final Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+            key.put("id", new AttributeValue().withS(String.valueOf(i)));
+            keys.add(key);
+        }
+        final Map<String, List<Map<String, AttributeValue>>> keysByTable =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        keysByTable.put(TABLE, keys);
+        return keysByTable;
+    }
+
+    private static List<Map<String, AttributeValue>> requestedKeys(Object request) {
+        return ((BatchGetItemRequest) request).getRequestItems().get(TABLE).getKeys();
+    }
+
+    private static BatchGetItemResult found(List<Map<String, AttributeValue>> keys) {
+        final Map<String, List<Map<String, AttributeValue>>> responses =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        responses.put(TABLE, new ArrayList<Map<String, AttributeValue>>(keys));
+        return new BatchGetItemResult().withResponses(responses);
+    }
+
+    private void assertAllLoaded(int count) {
+        assertEquals(count, loaded.size());
+        final Set<String> ids = new HashSet<String>(loaded);
+        assertEquals("each item loaded once", count, ids.size());
+    }
+
+    @Test
+    public void testBatchesAreLoadedConcurrently() {
+        final CyclicBarrier barrier = new CyclicBarrier(3);
+        final AtomicInteger calls = new AtomicInteger();
+        EasyMock.expect(mockClient.batchGetItem(anyObject(BatchGetItemRequest.class)))
+                .andAnswer(new IAnswer<BatchGetItemResult>() {
+                    @Override
+                    public BatchGetItemResult answer() throws Throwable {
+                        final List<Map<String, AttributeValue>> keys = requestedKeys(EasyMock
+                                .getCurrentArguments()[0]);
+                        assertTrue(keys.size() <= DynamoDBMapper.MAX_BATCH_GET_COUNT);
+                        // the first three requests only complete if they are in flight together
+                        if (calls.incrementAndGet() <= 3) {
+                            barrier.await(5, TimeUnit.SECONDS);
+                        }
+                        return found(keys);
+                    }
+                }).times(5);
+        EasyMock.replay(mockClient);
+
+        new ParallelBatchLoadTask(mockClient, executor, 4, true, null).load(keys(450), handler);
+
+        EasyMock.verify(mockClient);
+        assertAllLoaded(450);
+    }
+
+    @Test
+    public void testUnprocessedKeysAreMerged() {
+        final AtomicInteger calls = new AtomicInteger();
+        EasyMock.expect(mockClient.batchGetItem(anyObject(BatchGetItemRequest.class)))
+                .andAnswer(new IAnswer<BatchGetItemResult>() {
+                    @Override
+                    public BatchGetItemResult answer() throws Throwable {
+                        final BatchGetItemRequest request = (BatchGetItemRequest) EasyMock
+                                .getCurrentArguments()[0];
+                        assertTrue(request.getRequestItems().get(TABLE).getConsistentRead());
+                        final List<Map<String, AttributeValue>> keys = requestedKeys(request);
+                        if (calls.incrementAndGet() == 1) {
+                            // leave the last ten keys unprocessed
+                            final int processed = keys.size() - 10;
+                            final Map<String, KeysAndAttributes> unprocessed =
+                                    new HashMap<String, KeysAndAttributes>();
+                            unprocessed.put(TABLE, new KeysAndAttributes().withKeys(
+                                    keys.subList(processed, keys.size())));
+                            return found(keys.subList(0, processed))
+                                    .withUnprocessedKeys(unprocessed);
+                        }
+                        return found(keys);
+                    }
+                }).times(2);
+        EasyMock.replay(mockClient);
+
+        // the unprocessed keys join the remaining 50 in the second request
+        new ParallelBatchLoadTask(mockClient, executor, 1, true, null).load(keys(150), handler);
+
+        EasyMock.verify(mockClient);
+        assertAllLoaded(150);
+    }
+
+    @Test
+    public void testGivesUpWithoutProgress() {
+        EasyMock.expect(mockClient.batchGetItem(anyObject(BatchGetItemRequest.class)))
+                .andAnswer(new IAnswer<BatchGetItemResult>() {
+                    @Override
+                    public BatchGetItemResult answer() throws Throwable {
+                        final Map<String, KeysAndAttributes> unprocessed =
+                                new HashMap<String, KeysAndAttributes>();
+                        unprocessed.put(TABLE, new KeysAndAttributes().withKeys(
+                                requestedKeys(EasyMock.getCurrentArguments()[0])));
+                        return new BatchGetItemResult().withUnprocessedKeys(unprocessed);
+                    }
+                }).times(DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS + 1);
+        EasyMock.replay(mockClient);
+
+        try {
+            new ParallelBatchLoadTask(mockClient, executor, 1, false, null).load(keys(10),
+                    handler);
+            fail("expected an exception");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().contains("hasn't received any data"));
+        }
+        EasyMock.verify(mockClient);
+    }
+
+    @Test
+    public void testRequestExceptionIsRethrown() {
+        final AmazonServiceException ase = new AmazonServiceException("TestException");
+        EasyMock.expect(mockClient.batchGetItem(anyObject(BatchGetItemRequest.class)))
+                .andThrow(ase);
+        EasyMock.replay(mockClient);
+
+        try {
+            new ParallelBatchLoadTask(mockClient, executor, 2, false, null).load(keys(10),
+                    handler);
+            fail("expected an exception");
+        } catch (final AmazonServiceException e) {
+            assertSame(ase, e);
+        }
+    }
+}
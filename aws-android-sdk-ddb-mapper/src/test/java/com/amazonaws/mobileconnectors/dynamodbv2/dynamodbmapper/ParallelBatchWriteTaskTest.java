@@ -0,0 +1,220 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelBatchWriteTaskTest {
+
+    private static final String TABLE = "testTable";
+
+    private AmazonDynamoDB mockClient;
+    private ExecutorService executor;
+    /** Ids of the items written, in any order. */
+    private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setup() {
+        mockClient = EasyMock.createMock(AmazonDynamoDB.class);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, List<WriteRequest>> requestItems(int count) {
+        final List<WriteRequest> requests = new LinkedList<WriteRequest>();
+        for (int i = 0; i < count; i++) {
+            final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", new AttributeValue().withS(String.valueOf(i)));
+            requests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+        }
+        final Map<String, List<WriteRequest>> requestItems =
+                new HashMap<String, List<WriteRequest>>();
+        requestItems.put(TABLE, requests);
+        return requestItems;
+    }
+
+    private static List<WriteRequest> requests(Object request) {
+        return ((BatchWriteItemRequest) request).getRequestItems().get(TABLE);
+    }
+
+    private void recordWritten(List<WriteRequest> requests) {
+        for (final WriteRequest request : requests) {
+            written.add(request.getPutRequest().getItem().get("id").getS());
+        }
+    }
+
+    private void assertAllWritten(int count) {
+        assertEquals(count, written.size());
+        final Set<String> ids = new HashSet<String>(written);
+        assertEquals("each item written once", count, ids.size());
+    }
+
+    @Test
+    public void testBatchesAreWrittenConcurrently() {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final AtomicInteger calls = new AtomicInteger();
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() throws Throwable {
+                        final List<WriteRequest> requests = requests(EasyMock
+                                .getCurrentArguments()[0]);
+                        assertTrue(requests.size() <= DynamoDBMapper.MAX_ITEMS_PER_BATCH);
+                        // the first two requests only complete if they are in flight together
+                        if (calls.incrementAndGet() <= 2) {
+                            barrier.await(5, TimeUnit.SECONDS);
+                        }
+                        recordWritten(requests);
+                        return new BatchWriteItemResult();
+                    }
+                }).times(4);
+        // thread safe mocks serialize calls
+        EasyMock.makeThreadSafe(mockClient, false);
+        EasyMock.replay(mockClient);
+
+        final List<FailedBatch> failedBatches = new ParallelBatchWriteTask(mockClient, executor, 4)
+                .write(requestItems(100));
+
+        EasyMock.verify(mockClient);
+        assertEquals(0, failedBatches.size());
+        assertAllWritten(100);
+    }
+
+    @Test
+    public void testUnprocessedItemsAreRequeued() {
+        final AtomicInteger calls = new AtomicInteger();
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() throws Throwable {
+                        final List<WriteRequest> requests = requests(EasyMock
+                                .getCurrentArguments()[0]);
+                        final BatchWriteItemResult result = new BatchWriteItemResult();
+                        if (calls.incrementAndGet() == 1) {
+                            // leave the last five items unprocessed
+                            final int processed = requests.size() - 5;
+                            recordWritten(requests.subList(0, processed));
+                            final Map<String, List<WriteRequest>> unprocessed =
+                                    new HashMap<String, List<WriteRequest>>();
+                            unprocessed.put(TABLE, new ArrayList<WriteRequest>(
+                                    requests.subList(processed, requests.size())));
+                            return result.withUnprocessedItems(unprocessed);
+                        }
+                        recordWritten(requests);
+                        return result;
+                    }
+                }).times(2);
+        EasyMock.replay(mockClient);
+
+        // the unprocessed items join the remaining 15 in the second batch
+        final List<FailedBatch> failedBatches = new ParallelBatchWriteTask(mockClient, executor, 1)
+                .write(requestItems(40));
+
+        EasyMock.verify(mockClient);
+        assertEquals(0, failedBatches.size());
+        assertAllWritten(40);
+    }
+
+    @Test
+    public void testFailedBatchesAreReported() {
+        final AmazonServiceException ase = new AmazonServiceException("TestException");
+        ase.setErrorCode("ValidationException");
+        final AtomicInteger calls = new AtomicInteger();
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() throws Throwable {
+                        if (calls.incrementAndGet() == 2) {
+                            throw ase;
+                        }
+                        recordWritten(requests(EasyMock.getCurrentArguments()[0]));
+                        return new BatchWriteItemResult();
+                    }
+                }).times(3);
+        EasyMock.replay(mockClient);
+
+        final List<FailedBatch> failedBatches = new ParallelBatchWriteTask(mockClient, executor, 2)
+                .write(requestItems(60));
+
+        EasyMock.verify(mockClient);
+        assertEquals(1, failedBatches.size());
+        assertSame(ase, failedBatches.get(0).getException());
+        final int failedItems = failedBatches.get(0).getUnprocessedItems().get(TABLE).size();
+        assertEquals(60, written.size() + failedItems);
+    }
+
+    @Test
+    public void testTooLargeBatchesAreSplit() {
+        final AmazonServiceException ase = new AmazonServiceException("TestException");
+        ase.setErrorCode("Request entity too large");
+        EasyMock.expect(mockClient.batchWriteItem(anyObject(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() throws Throwable {
+                        final List<WriteRequest> requests = requests(EasyMock
+                                .getCurrentArguments()[0]);
+                        if (requests.size() > 10) {
+                            throw ase;
+                        }
+                        recordWritten(requests);
+                        return new BatchWriteItemResult();
+                    }
+                }).anyTimes();
+        EasyMock.replay(mockClient);
+
+        final List<FailedBatch> failedBatches = new ParallelBatchWriteTask(mockClient, executor, 3)
+                .write(requestItems(50));
+
+        assertEquals(0, failedBatches.size());
+        assertAllWritten(50);
+    }
+}
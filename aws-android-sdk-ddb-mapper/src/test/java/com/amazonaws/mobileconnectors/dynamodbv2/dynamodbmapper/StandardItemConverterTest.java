@@ -0,0 +1,267 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import org.easymock.EasyMock;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class StandardItemConverterTest {
+
+    private static ItemConverter newConverter() {
+        return ConversionSchemas.V2_COMPATIBLE
+                .getConverter(new ConversionSchema.Dependencies());
+    }
+
+    private static NumberAttributeClass item(int i) {
+        final NumberAttributeClass item = new NumberAttributeClass();
+        item.setKey("key" + i);
+        item.setIntAttribute(i);
+        item.setLongObjectAttribute((long) i * 3);
+        item.setBigDecimalAttribute(new BigDecimal(i).movePointLeft(2));
+        item.setBooleanAttribute(i % 2 == 0);
+        return item;
+    }
+
+    private static void assertItemEquals(NumberAttributeClass expected,
+            NumberAttributeClass actual) {
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getIntAttribute(), actual.getIntAttribute());
+        assertEquals(expected.getLongObjectAttribute(), actual.getLongObjectAttribute());
+        assertEquals(expected.getBigDecimalAttribute(), actual.getBigDecimalAttribute());
+        assertEquals(expected.isBooleanAttribute(), actual.isBooleanAttribute());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final ItemConverter converter = newConverter();
+        final NumberAttributeClass item = item(42);
+
+        final Map<String, AttributeValue> attributes = converter.convert(item);
+        assertEquals("key42", attributes.get("key").getS());
+        assertEquals("42", attributes.get("intAttribute").getN());
+        assertEquals("1", attributes.get("booleanAttribute").getN());
+        assertFalse("null values are skipped", attributes.containsKey("integerAttribute"));
+        assertFalse("ignored property", attributes.containsKey("ignored"));
+
+        // the second conversion goes through the cached model
+        assertEquals(attributes, converter.convert(item));
+        final NumberAttributeClass copy =
+                converter.unconvert(NumberAttributeClass.class, attributes);
+        assertItemEquals(item, copy);
+        assertNull(copy.getIntegerAttribute());
+        assertItemEquals(item,
+                converter.unconvert(NumberAttributeClass.class, attributes));
+    }
+
+    @Test
+    public void testConcurrentConversions() throws Exception {
+        final ItemConverter converter = newConverter();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t * 1000;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = offset; i < offset + 1000; i++) {
+                            final NumberAttributeClass item = item(i);
+                            assertItemEquals(item, converter.unconvert(
+                                    NumberAttributeClass.class, converter.convert(item)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMapperReusesConverter() {
+        final DynamoDBMapper mapper =
+                new DynamoDBMapper(EasyMock.createMock(AmazonDynamoDB.class));
+        final DynamoDBMapperConfig config = DynamoDBMapperConfig.DEFAULT;
+        assertSame(mapper.getConverter(config), mapper.getConverter(config));
+    }
+
+    /**
+     * Measures marshalling and unmarshalling throughput on one thread, with
+     * the cached item models and with per-item reflection.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmarkConversions() throws Exception {
+        benchmarkConversions(1);
+    }
+
+    /**
+     * Measures marshalling and unmarshalling throughput with the converter
+     * shared by four threads.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmarkConcurrentConversions() throws Exception {
+        benchmarkConversions(4);
+    }
+
+    private static void benchmarkConversions(int threads) throws Exception {
+        final int itemCount = 1000000;
+        final ItemConverter converter = newConverter();
+        final Conversion cached = new Conversion() {
+            @Override
+            public NumberAttributeClass roundTrip(NumberAttributeClass item) {
+                return converter.unconvert(NumberAttributeClass.class, converter.convert(item));
+            }
+        };
+        final ReflectiveConverter reflectiveConverter = new ReflectiveConverter(newConverter());
+        final Conversion reflective = new Conversion() {
+            @Override
+            public NumberAttributeClass roundTrip(NumberAttributeClass item) {
+                return reflectiveConverter.unconvert(NumberAttributeClass.class,
+                        reflectiveConverter.convert(item));
+            }
+        };
+        final List<NumberAttributeClass> items = new ArrayList<NumberAttributeClass>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(item(i));
+        }
+
+        // warm up
+        convertItems(reflective, items, 100000);
+        convertItems(cached, items, 100000);
+
+        final long reflectiveNanos = timeConversions(reflective, items, itemCount, threads);
+        final long cachedNanos = timeConversions(cached, items, itemCount, threads);
+        System.out.println(String.format(
+                "%d items on %d threads: reflective %d ns/item, cached models %d ns/item",
+                itemCount, threads, reflectiveNanos / itemCount, cachedNanos / itemCount));
+    }
+
+    /**
+     * @return the nanoseconds taken to convert the items there and back.
+     */
+    private static long timeConversions(final Conversion conversion,
+            final List<NumberAttributeClass> items, final int itemCount, final int threads)
+            throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final long start = System.nanoTime();
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        convertItems(conversion, items, itemCount / threads);
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void convertItems(Conversion conversion,
+            List<NumberAttributeClass> items, int count) {
+        for (int i = 0; i < count; i++) {
+            final NumberAttributeClass item = items.get(i % items.size());
+            final NumberAttributeClass copy = conversion.roundTrip(item);
+            if (copy.getIntAttribute() != item.getIntAttribute()) {
+                throw new AssertionError("conversion mismatch");
+            }
+        }
+    }
+
+    private interface Conversion {
+        NumberAttributeClass roundTrip(NumberAttributeClass item);
+    }
+
+    /**
+     * Converts items the way the standard converter did before it cached a
+     * model of each class: the getters, attribute names and setters are
+     * looked up through the reflector for every item, and every property
+     * goes through the converter on its own.
+     */
+    private static final class ReflectiveConverter {
+        private final DynamoDBReflector reflector = new DynamoDBReflector();
+        private final ItemConverter converter;
+
+        ReflectiveConverter(ItemConverter converter) {
+            this.converter = converter;
+        }
+
+        Map<String, AttributeValue> convert(Object item) {
+            final Map<String, AttributeValue> result = new HashMap<String, AttributeValue>();
+            for (final Method getter : reflector.getRelevantGetters(item.getClass())) {
+                final Object getterResult = ReflectionUtils.safeInvoke(getter, item);
+                if (getterResult != null) {
+                    final AttributeValue value = converter.convert(getter, getterResult);
+                    if (value != null) {
+                        result.put(reflector.getAttributeName(getter), value);
+                    }
+                }
+            }
+            return result;
+        }
+
+        <T> T unconvert(Class<T> clazz, Map<String, AttributeValue> attributes) {
+            final T result;
+            try {
+                result = clazz.newInstance();
+            } catch (final Exception e) {
+                throw new AssertionError(e);
+            }
+            for (final Method getter : reflector.getRelevantGetters(clazz)) {
+                final AttributeValue value = attributes.get(reflector.getAttributeName(getter));
+                if (value != null) {
+                    final Method setter = reflector.getSetter(getter);
+                    ReflectionUtils.safeInvoke(setter, result,
+                            converter.unconvert(getter, setter, value));
+                }
+            }
+            return result;
+        }
+    }
+}
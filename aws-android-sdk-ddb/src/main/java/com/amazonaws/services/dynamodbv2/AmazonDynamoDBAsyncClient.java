@@ -27,6 +27,7 @@ import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.http.RetrySchedulingExecutorService;
 
 import com.amazonaws.services.dynamodbv2.model.*;
 
@@ -140,7 +141,9 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      * @param awsCredentials The AWS credentials (access key ID and secret key)
      *            to use when authenticating with AWS services.
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonDynamoDBAsyncClient(AWSCredentials awsCredentials, ExecutorService executorService) {
         super(awsCredentials);
@@ -161,7 +164,9 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      * @param clientConfiguration Client configuration options (ex: max retry
      *            limit, proxy settings, etc).
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonDynamoDBAsyncClient(AWSCredentials awsCredentials,
             ClientConfiguration clientConfiguration, ExecutorService executorService) {
@@ -200,7 +205,9 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      *            provide credentials to authenticate requests with AWS
      *            services.
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonDynamoDBAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
             ExecutorService executorService) {
@@ -243,7 +250,9 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      * @param clientConfiguration Client configuration options (ex: max retry
      *            limit, proxy settings, etc).
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonDynamoDBAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
             ClientConfiguration clientConfiguration, ExecutorService executorService) {
@@ -375,11 +384,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<BatchGetItemResult> batchGetItemAsync(
             final BatchGetItemRequest batchGetItemRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<BatchGetItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                batchGetItemRequest, new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
                 return batchGetItem(batchGetItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -483,7 +493,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final BatchGetItemRequest batchGetItemRequest,
             final AsyncHandler<BatchGetItemRequest, BatchGetItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<BatchGetItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                batchGetItemRequest, new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
                 BatchGetItemResult result = null;
                 try {
@@ -495,7 +506,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(batchGetItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -641,11 +652,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<BatchWriteItemResult> batchWriteItemAsync(
             final BatchWriteItemRequest batchWriteItemRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<BatchWriteItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                batchWriteItemRequest, new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
                 return batchWriteItem(batchWriteItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -792,7 +804,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final BatchWriteItemRequest batchWriteItemRequest,
             final AsyncHandler<BatchWriteItemRequest, BatchWriteItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<BatchWriteItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                batchWriteItemRequest, new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
                 BatchWriteItemResult result = null;
                 try {
@@ -804,7 +817,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(batchWriteItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -884,11 +897,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<CreateBackupResult> createBackupAsync(
             final CreateBackupRequest createBackupRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<CreateBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createBackupRequest, new Callable<CreateBackupResult>() {
             public CreateBackupResult call() throws Exception {
                 return createBackup(createBackupRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -969,7 +983,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final CreateBackupRequest createBackupRequest,
             final AsyncHandler<CreateBackupRequest, CreateBackupResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createBackupRequest, new Callable<CreateBackupResult>() {
             public CreateBackupResult call() throws Exception {
                 CreateBackupResult result = null;
                 try {
@@ -981,7 +996,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(createBackupRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1067,11 +1082,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<CreateGlobalTableResult> createGlobalTableAsync(
             final CreateGlobalTableRequest createGlobalTableRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<CreateGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createGlobalTableRequest, new Callable<CreateGlobalTableResult>() {
             public CreateGlobalTableResult call() throws Exception {
                 return createGlobalTable(createGlobalTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1158,7 +1174,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final CreateGlobalTableRequest createGlobalTableRequest,
             final AsyncHandler<CreateGlobalTableRequest, CreateGlobalTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createGlobalTableRequest, new Callable<CreateGlobalTableResult>() {
             public CreateGlobalTableResult call() throws Exception {
                 CreateGlobalTableResult result = null;
                 try {
@@ -1170,7 +1187,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(createGlobalTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1218,11 +1235,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<CreateTableResult> createTableAsync(final CreateTableRequest createTableRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createTableRequest, new Callable<CreateTableResult>() {
             public CreateTableResult call() throws Exception {
                 return createTable(createTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1271,7 +1289,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<CreateTableResult> createTableAsync(final CreateTableRequest createTableRequest,
             final AsyncHandler<CreateTableRequest, CreateTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createTableRequest, new Callable<CreateTableResult>() {
             public CreateTableResult call() throws Exception {
                 CreateTableResult result = null;
                 try {
@@ -1283,7 +1302,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(createTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1313,11 +1332,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DeleteBackupResult> deleteBackupAsync(
             final DeleteBackupRequest deleteBackupRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<DeleteBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteBackupRequest, new Callable<DeleteBackupResult>() {
             public DeleteBackupResult call() throws Exception {
                 return deleteBackup(deleteBackupRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1348,7 +1368,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DeleteBackupRequest deleteBackupRequest,
             final AsyncHandler<DeleteBackupRequest, DeleteBackupResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteBackupRequest, new Callable<DeleteBackupResult>() {
             public DeleteBackupResult call() throws Exception {
                 DeleteBackupResult result = null;
                 try {
@@ -1360,7 +1381,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(deleteBackupRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1405,11 +1426,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest deleteItemRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteItemRequest, new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
                 return deleteItem(deleteItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1455,7 +1477,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest deleteItemRequest,
             final AsyncHandler<DeleteItemRequest, DeleteItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteItemRequest, new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
                 DeleteItemResult result = null;
                 try {
@@ -1467,7 +1490,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(deleteItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1521,11 +1544,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<DeleteTableResult> deleteTableAsync(final DeleteTableRequest deleteTableRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteTableRequest, new Callable<DeleteTableResult>() {
             public DeleteTableResult call() throws Exception {
                 return deleteTable(deleteTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1580,7 +1604,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DeleteTableResult> deleteTableAsync(final DeleteTableRequest deleteTableRequest,
             final AsyncHandler<DeleteTableRequest, DeleteTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteTableRequest, new Callable<DeleteTableResult>() {
             public DeleteTableResult call() throws Exception {
                 DeleteTableResult result = null;
                 try {
@@ -1592,7 +1617,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(deleteTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1620,11 +1645,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeBackupResult> describeBackupAsync(
             final DescribeBackupRequest describeBackupRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<DescribeBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeBackupRequest, new Callable<DescribeBackupResult>() {
             public DescribeBackupResult call() throws Exception {
                 return describeBackup(describeBackupRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1653,7 +1679,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeBackupRequest describeBackupRequest,
             final AsyncHandler<DescribeBackupRequest, DescribeBackupResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeBackupRequest, new Callable<DescribeBackupResult>() {
             public DescribeBackupResult call() throws Exception {
                 DescribeBackupResult result = null;
                 try {
@@ -1665,7 +1692,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeBackupRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1708,11 +1735,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeContinuousBackupsResult> describeContinuousBackupsAsync(
             final DescribeContinuousBackupsRequest describeContinuousBackupsRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeContinuousBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeContinuousBackupsRequest, new Callable<DescribeContinuousBackupsResult>() {
             public DescribeContinuousBackupsResult call() throws Exception {
                 return describeContinuousBackups(describeContinuousBackupsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1756,7 +1784,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeContinuousBackupsRequest describeContinuousBackupsRequest,
             final AsyncHandler<DescribeContinuousBackupsRequest, DescribeContinuousBackupsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeContinuousBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeContinuousBackupsRequest, new Callable<DescribeContinuousBackupsResult>() {
             public DescribeContinuousBackupsResult call() throws Exception {
                 DescribeContinuousBackupsResult result = null;
                 try {
@@ -1768,7 +1797,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeContinuousBackupsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1786,11 +1815,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeEndpointsResult> describeEndpointsAsync(
             final DescribeEndpointsRequest describeEndpointsRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<DescribeEndpointsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeEndpointsRequest, new Callable<DescribeEndpointsResult>() {
             public DescribeEndpointsResult call() throws Exception {
                 return describeEndpoints(describeEndpointsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1809,7 +1839,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeEndpointsRequest describeEndpointsRequest,
             final AsyncHandler<DescribeEndpointsRequest, DescribeEndpointsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeEndpointsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeEndpointsRequest, new Callable<DescribeEndpointsResult>() {
             public DescribeEndpointsResult call() throws Exception {
                 DescribeEndpointsResult result = null;
                 try {
@@ -1821,7 +1852,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeEndpointsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1846,11 +1877,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeGlobalTableResult> describeGlobalTableAsync(
             final DescribeGlobalTableRequest describeGlobalTableRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeGlobalTableRequest, new Callable<DescribeGlobalTableResult>() {
             public DescribeGlobalTableResult call() throws Exception {
                 return describeGlobalTable(describeGlobalTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1876,7 +1908,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeGlobalTableRequest describeGlobalTableRequest,
             final AsyncHandler<DescribeGlobalTableRequest, DescribeGlobalTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeGlobalTableRequest, new Callable<DescribeGlobalTableResult>() {
             public DescribeGlobalTableResult call() throws Exception {
                 DescribeGlobalTableResult result = null;
                 try {
@@ -1888,7 +1921,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeGlobalTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1913,11 +1946,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeGlobalTableSettingsResult> describeGlobalTableSettingsAsync(
             final DescribeGlobalTableSettingsRequest describeGlobalTableSettingsRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeGlobalTableSettingsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeGlobalTableSettingsRequest, new Callable<DescribeGlobalTableSettingsResult>() {
             public DescribeGlobalTableSettingsResult call() throws Exception {
                 return describeGlobalTableSettings(describeGlobalTableSettingsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1943,7 +1977,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeGlobalTableSettingsRequest describeGlobalTableSettingsRequest,
             final AsyncHandler<DescribeGlobalTableSettingsRequest, DescribeGlobalTableSettingsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeGlobalTableSettingsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeGlobalTableSettingsRequest, new Callable<DescribeGlobalTableSettingsResult>() {
             public DescribeGlobalTableSettingsResult call() throws Exception {
                 DescribeGlobalTableSettingsResult result = null;
                 try {
@@ -1955,7 +1990,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeGlobalTableSettingsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2082,11 +2117,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeLimitsResult> describeLimitsAsync(
             final DescribeLimitsRequest describeLimitsRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<DescribeLimitsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeLimitsRequest, new Callable<DescribeLimitsResult>() {
             public DescribeLimitsResult call() throws Exception {
                 return describeLimits(describeLimitsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2214,7 +2250,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeLimitsRequest describeLimitsRequest,
             final AsyncHandler<DescribeLimitsRequest, DescribeLimitsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeLimitsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeLimitsRequest, new Callable<DescribeLimitsResult>() {
             public DescribeLimitsResult call() throws Exception {
                 DescribeLimitsResult result = null;
                 try {
@@ -2226,7 +2263,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeLimitsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2265,11 +2302,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeTableResult> describeTableAsync(
             final DescribeTableRequest describeTableRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<DescribeTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeTableRequest, new Callable<DescribeTableResult>() {
             public DescribeTableResult call() throws Exception {
                 return describeTable(describeTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2309,7 +2347,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeTableRequest describeTableRequest,
             final AsyncHandler<DescribeTableRequest, DescribeTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeTableRequest, new Callable<DescribeTableResult>() {
             public DescribeTableResult call() throws Exception {
                 DescribeTableResult result = null;
                 try {
@@ -2321,7 +2360,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2347,11 +2386,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<DescribeTimeToLiveResult> describeTimeToLiveAsync(
             final DescribeTimeToLiveRequest describeTimeToLiveRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeTimeToLiveResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeTimeToLiveRequest, new Callable<DescribeTimeToLiveResult>() {
             public DescribeTimeToLiveResult call() throws Exception {
                 return describeTimeToLive(describeTimeToLiveRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2378,7 +2418,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final DescribeTimeToLiveRequest describeTimeToLiveRequest,
             final AsyncHandler<DescribeTimeToLiveRequest, DescribeTimeToLiveResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DescribeTimeToLiveResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                describeTimeToLiveRequest, new Callable<DescribeTimeToLiveResult>() {
             public DescribeTimeToLiveResult call() throws Exception {
                 DescribeTimeToLiveResult result = null;
                 try {
@@ -2390,7 +2431,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(describeTimeToLiveRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2426,11 +2467,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<GetItemResult> getItemAsync(final GetItemRequest getItemRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getItemRequest, new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
                 return getItem(getItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2467,7 +2509,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<GetItemResult> getItemAsync(final GetItemRequest getItemRequest,
             final AsyncHandler<GetItemRequest, GetItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getItemRequest, new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
                 GetItemResult result = null;
                 try {
@@ -2479,7 +2522,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(getItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2513,11 +2556,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<ListBackupsResult> listBackupsAsync(final ListBackupsRequest listBackupsRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listBackupsRequest, new Callable<ListBackupsResult>() {
             public ListBackupsResult call() throws Exception {
                 return listBackups(listBackupsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2552,7 +2596,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ListBackupsResult> listBackupsAsync(final ListBackupsRequest listBackupsRequest,
             final AsyncHandler<ListBackupsRequest, ListBackupsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listBackupsRequest, new Callable<ListBackupsResult>() {
             public ListBackupsResult call() throws Exception {
                 ListBackupsResult result = null;
                 try {
@@ -2564,7 +2609,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(listBackupsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2587,11 +2632,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ListGlobalTablesResult> listGlobalTablesAsync(
             final ListGlobalTablesRequest listGlobalTablesRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<ListGlobalTablesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listGlobalTablesRequest, new Callable<ListGlobalTablesResult>() {
             public ListGlobalTablesResult call() throws Exception {
                 return listGlobalTables(listGlobalTablesRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2615,7 +2661,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final ListGlobalTablesRequest listGlobalTablesRequest,
             final AsyncHandler<ListGlobalTablesRequest, ListGlobalTablesResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListGlobalTablesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listGlobalTablesRequest, new Callable<ListGlobalTablesResult>() {
             public ListGlobalTablesResult call() throws Exception {
                 ListGlobalTablesResult result = null;
                 try {
@@ -2627,7 +2674,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(listGlobalTablesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2653,11 +2700,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<ListTablesResult> listTablesAsync(final ListTablesRequest listTablesRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListTablesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listTablesRequest, new Callable<ListTablesResult>() {
             public ListTablesResult call() throws Exception {
                 return listTables(listTablesRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2684,7 +2732,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ListTablesResult> listTablesAsync(final ListTablesRequest listTablesRequest,
             final AsyncHandler<ListTablesRequest, ListTablesResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListTablesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listTablesRequest, new Callable<ListTablesResult>() {
             public ListTablesResult call() throws Exception {
                 ListTablesResult result = null;
                 try {
@@ -2696,7 +2745,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(listTablesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2727,11 +2776,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ListTagsOfResourceResult> listTagsOfResourceAsync(
             final ListTagsOfResourceRequest listTagsOfResourceRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListTagsOfResourceResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listTagsOfResourceRequest, new Callable<ListTagsOfResourceResult>() {
             public ListTagsOfResourceResult call() throws Exception {
                 return listTagsOfResource(listTagsOfResourceRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2763,7 +2813,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final ListTagsOfResourceRequest listTagsOfResourceRequest,
             final AsyncHandler<ListTagsOfResourceRequest, ListTagsOfResourceResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListTagsOfResourceResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listTagsOfResourceRequest, new Callable<ListTagsOfResourceResult>() {
             public ListTagsOfResourceResult call() throws Exception {
                 ListTagsOfResourceResult result = null;
                 try {
@@ -2775,7 +2826,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(listTagsOfResourceRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2906,11 +2957,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<PutItemResult> putItemAsync(final PutItemRequest putItemRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<PutItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                putItemRequest, new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
                 return putItem(putItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -3042,7 +3094,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<PutItemResult> putItemAsync(final PutItemRequest putItemRequest,
             final AsyncHandler<PutItemRequest, PutItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<PutItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                putItemRequest, new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
                 PutItemResult result = null;
                 try {
@@ -3054,7 +3107,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(putItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3150,11 +3203,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<QueryResult> queryAsync(final QueryRequest queryRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<QueryResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                queryRequest, new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
                 return query(queryRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -3251,7 +3305,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<QueryResult> queryAsync(final QueryRequest queryRequest,
             final AsyncHandler<QueryRequest, QueryResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<QueryResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                queryRequest, new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
                 QueryResult result = null;
                 try {
@@ -3263,7 +3318,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(queryRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3333,11 +3388,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<RestoreTableFromBackupResult> restoreTableFromBackupAsync(
             final RestoreTableFromBackupRequest restoreTableFromBackupRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<RestoreTableFromBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                restoreTableFromBackupRequest, new Callable<RestoreTableFromBackupResult>() {
             public RestoreTableFromBackupResult call() throws Exception {
                 return restoreTableFromBackup(restoreTableFromBackupRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -3408,7 +3464,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final RestoreTableFromBackupRequest restoreTableFromBackupRequest,
             final AsyncHandler<RestoreTableFromBackupRequest, RestoreTableFromBackupResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<RestoreTableFromBackupResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                restoreTableFromBackupRequest, new Callable<RestoreTableFromBackupResult>() {
             public RestoreTableFromBackupResult call() throws Exception {
                 RestoreTableFromBackupResult result = null;
                 try {
@@ -3420,7 +3477,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(restoreTableFromBackupRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3530,11 +3587,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<RestoreTableToPointInTimeResult> restoreTableToPointInTimeAsync(
             final RestoreTableToPointInTimeRequest restoreTableToPointInTimeRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<RestoreTableToPointInTimeResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                restoreTableToPointInTimeRequest, new Callable<RestoreTableToPointInTimeResult>() {
             public RestoreTableToPointInTimeResult call() throws Exception {
                 return restoreTableToPointInTime(restoreTableToPointInTimeRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -3645,7 +3703,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final RestoreTableToPointInTimeRequest restoreTableToPointInTimeRequest,
             final AsyncHandler<RestoreTableToPointInTimeRequest, RestoreTableToPointInTimeResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<RestoreTableToPointInTimeResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                restoreTableToPointInTimeRequest, new Callable<RestoreTableToPointInTimeResult>() {
             public RestoreTableToPointInTimeResult call() throws Exception {
                 RestoreTableToPointInTimeResult result = null;
                 try {
@@ -3657,7 +3716,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(restoreTableToPointInTimeRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3721,11 +3780,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<ScanResult> scanAsync(final ScanRequest scanRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ScanResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                scanRequest, new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
                 return scan(scanRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -3790,7 +3850,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<ScanResult> scanAsync(final ScanRequest scanRequest,
             final AsyncHandler<ScanRequest, ScanResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ScanResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                scanRequest, new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
                 ScanResult result = null;
                 try {
@@ -3802,7 +3863,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(scanRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3835,12 +3896,13 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<Void> tagResourceAsync(final TagResourceRequest tagResourceRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                tagResourceRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 tagResource(tagResourceRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -3874,7 +3936,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<Void> tagResourceAsync(final TagResourceRequest tagResourceRequest,
             final AsyncHandler<TagResourceRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                tagResourceRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -3886,7 +3949,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(tagResourceRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -3917,12 +3980,13 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<Void> untagResourceAsync(final UntagResourceRequest untagResourceRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                untagResourceRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 untagResource(untagResourceRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -3954,7 +4018,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<Void> untagResourceAsync(final UntagResourceRequest untagResourceRequest,
             final AsyncHandler<UntagResourceRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                untagResourceRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -3966,7 +4031,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(untagResourceRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4009,11 +4074,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateContinuousBackupsResult> updateContinuousBackupsAsync(
             final UpdateContinuousBackupsRequest updateContinuousBackupsRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateContinuousBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateContinuousBackupsRequest, new Callable<UpdateContinuousBackupsResult>() {
             public UpdateContinuousBackupsResult call() throws Exception {
                 return updateContinuousBackups(updateContinuousBackupsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4057,7 +4123,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final UpdateContinuousBackupsRequest updateContinuousBackupsRequest,
             final AsyncHandler<UpdateContinuousBackupsRequest, UpdateContinuousBackupsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateContinuousBackupsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateContinuousBackupsRequest, new Callable<UpdateContinuousBackupsResult>() {
             public UpdateContinuousBackupsResult call() throws Exception {
                 UpdateContinuousBackupsResult result = null;
                 try {
@@ -4069,7 +4136,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateContinuousBackupsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4130,11 +4197,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateGlobalTableResult> updateGlobalTableAsync(
             final UpdateGlobalTableRequest updateGlobalTableRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<UpdateGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateGlobalTableRequest, new Callable<UpdateGlobalTableResult>() {
             public UpdateGlobalTableResult call() throws Exception {
                 return updateGlobalTable(updateGlobalTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4196,7 +4264,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final UpdateGlobalTableRequest updateGlobalTableRequest,
             final AsyncHandler<UpdateGlobalTableRequest, UpdateGlobalTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateGlobalTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateGlobalTableRequest, new Callable<UpdateGlobalTableResult>() {
             public UpdateGlobalTableResult call() throws Exception {
                 UpdateGlobalTableResult result = null;
                 try {
@@ -4208,7 +4277,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateGlobalTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4237,11 +4306,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateGlobalTableSettingsResult> updateGlobalTableSettingsAsync(
             final UpdateGlobalTableSettingsRequest updateGlobalTableSettingsRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateGlobalTableSettingsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateGlobalTableSettingsRequest, new Callable<UpdateGlobalTableSettingsResult>() {
             public UpdateGlobalTableSettingsResult call() throws Exception {
                 return updateGlobalTableSettings(updateGlobalTableSettingsRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4271,7 +4341,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final UpdateGlobalTableSettingsRequest updateGlobalTableSettingsRequest,
             final AsyncHandler<UpdateGlobalTableSettingsRequest, UpdateGlobalTableSettingsResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateGlobalTableSettingsResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateGlobalTableSettingsRequest, new Callable<UpdateGlobalTableSettingsResult>() {
             public UpdateGlobalTableSettingsResult call() throws Exception {
                 UpdateGlobalTableSettingsResult result = null;
                 try {
@@ -4283,7 +4354,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateGlobalTableSettingsRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4320,11 +4391,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest updateItemRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateItemRequest, new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
                 return updateItem(updateItemRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4362,7 +4434,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest updateItemRequest,
             final AsyncHandler<UpdateItemRequest, UpdateItemResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateItemResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateItemRequest, new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
                 UpdateItemResult result = null;
                 try {
@@ -4374,7 +4447,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateItemRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4437,11 +4510,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
      */
     public Future<UpdateTableResult> updateTableAsync(final UpdateTableRequest updateTableRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateTableRequest, new Callable<UpdateTableResult>() {
             public UpdateTableResult call() throws Exception {
                 return updateTable(updateTableRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4505,7 +4579,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateTableResult> updateTableAsync(final UpdateTableRequest updateTableRequest,
             final AsyncHandler<UpdateTableRequest, UpdateTableResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateTableResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateTableRequest, new Callable<UpdateTableResult>() {
             public UpdateTableResult call() throws Exception {
                 UpdateTableResult result = null;
                 try {
@@ -4517,7 +4592,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateTableRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -4585,11 +4660,12 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public Future<UpdateTimeToLiveResult> updateTimeToLiveAsync(
             final UpdateTimeToLiveRequest updateTimeToLiveRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<UpdateTimeToLiveResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateTimeToLiveRequest, new Callable<UpdateTimeToLiveResult>() {
             public UpdateTimeToLiveResult call() throws Exception {
                 return updateTimeToLive(updateTimeToLiveRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -4658,7 +4734,8 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
             final UpdateTimeToLiveRequest updateTimeToLiveRequest,
             final AsyncHandler<UpdateTimeToLiveRequest, UpdateTimeToLiveResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<UpdateTimeToLiveResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                updateTimeToLiveRequest, new Callable<UpdateTimeToLiveResult>() {
             public UpdateTimeToLiveResult call() throws Exception {
                 UpdateTimeToLiveResult result = null;
                 try {
@@ -4670,7 +4747,7 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
                 asyncHandler.onSuccess(updateTimeToLiveRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
 }
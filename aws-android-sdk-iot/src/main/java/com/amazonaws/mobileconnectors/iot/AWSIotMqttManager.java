@@ -39,13 +39,26 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
 
 import javax.net.SocketFactory;
@@ -81,6 +94,10 @@ public class AWSIotMqttManager {
     public static final Integer DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND = 100;
     /** Constant for milliseconds between queue publishes. */
     private static final Long DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES = 250L;
+    /** Name of the offline publish queue file in the offline publish queue directory. */
+    private static final String OFFLINE_PUBLISH_QUEUE_FILE_NAME = "awsiot_offline_publish_queue";
+    /** Seconds the thread writing the offline publish queue file is kept when idle. */
+    private static final long PERSISTENT_QUEUE_WRITER_KEEP_ALIVE_SECONDS = 60L;
     /** Default value for "connection established" hysteresis timer. */
     private static final Integer DEFAULT_CONNECTION_STABILITY_TIME_SECONDS = 10;
 
@@ -115,6 +132,11 @@ public class AWSIotMqttManager {
      * to proved per-topic message arrived callbacks.
      */
     private final Map<String, AWSIotMqttTopic> topicListeners;
+    /**
+     * The same subscriptions as topicListeners indexed by topic filter levels
+     * to find the subscriptions matching an incoming message.
+     */
+    private final AWSIotMqttTopicTrie topicTrie = new AWSIotMqttTopicTrie();
     /**
      * Queue for messages attempted to publish while MQTT client was offline.
      * Republished upon reconnect.
@@ -149,6 +171,26 @@ public class AWSIotMqttManager {
     private boolean fullQueueKeepsOldest;
     /** Milliseconds between publishes when publishing queued messages (draining interval). */
     private long drainingInterval;
+    /** Offline publish queue bound in bytes, 0 if only bound by number of messages. */
+    private long offlinePublishQueueByteBound;
+    /** Bytes taken by the messages in the offline publish queue. */
+    private long offlinePublishQueueBytes;
+    /** Copy of the offline publish queue on disk, null if the queue is only kept in memory. */
+    private volatile AWSIotMqttPersistentQueue persistentQueue;
+    /**
+     * Updates the copy of the offline publish queue on disk in order, so that
+     * queueing and draining messages, which happens on the main looper, doesn't
+     * wait for the file.
+     */
+    private final ExecutorService persistentQueueWriter = newPersistentQueueWriter();
+    /**
+     * Maximum number of QoS 1 messages from the offline queue awaiting
+     * acknowledgement, 0 to publish queued messages one per draining interval.
+     */
+    private int drainingWindow;
+    /** User contexts of the QoS 1 messages from the offline queue awaiting acknowledgement. */
+    private final Set<Object> inflightQueuedMessages =
+            Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
     /** Was this disconnect requested by the user? */
     private boolean userDisconnect;
     /** Do we need to resubscribe upon reconnecting? */
@@ -403,6 +445,109 @@ public class AWSIotMqttManager {
         drainingInterval = interval;
     }
 
+    /**
+     * Get the bound in bytes of the messages queued while offline.
+     *
+     * @return max number of bytes stored in the message queue, 0 if not bound
+     *         by size.
+     */
+    public long getOfflinePublishQueueByteBound() {
+        return offlinePublishQueueByteBound;
+    }
+
+    /**
+     * Set the bound in bytes (topics and payloads) of the messages queued while
+     * offline. Applies in addition to the bound on the number of messages and
+     * follows the same full queue behavior.
+     *
+     * @param bound max number of bytes to queue while offline, 0 to only bound
+     *            the number of messages.
+     */
+    public void setOfflinePublishQueueByteBound(long bound) {
+        if (bound < 0) {
+            throw new IllegalArgumentException("Offline queue byte bound must be >= 0");
+        }
+        offlinePublishQueueByteBound = bound;
+    }
+
+    /**
+     * Keep the messages queued while offline in a file in the given directory
+     * so they are published after the application restarts. Messages already
+     * in the file are added to the queue. Callbacks and user data of queued
+     * messages are not kept, so messages read back from the file are published
+     * without them. Use a separate directory for each client. The file is
+     * written on a background thread.
+     *
+     * @param directory directory to keep the offline queue in.
+     */
+    public void setOfflinePublishQueueDirectory(File directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory is null");
+        }
+        synchronized (mqttMessageQueue) {
+            updatePersistentQueue(persistentQueue, new PersistentQueueUpdate() {
+                @Override
+                public void apply(AWSIotMqttPersistentQueue queue) {
+                    queue.close();
+                }
+            });
+            persistentQueue = null;
+        }
+        // the file may be the one still being written
+        awaitPersistentQueueWrites();
+        synchronized (mqttMessageQueue) {
+            try {
+                persistentQueue = new AWSIotMqttPersistentQueue(
+                        new File(directory, OFFLINE_PUBLISH_QUEUE_FILE_NAME));
+            } catch (final IOException e) {
+                persistentQueue = null;
+                throw new AmazonClientException("Failed to open the offline publish queue.", e);
+            }
+            // messages from the file go first, followed by any already queued
+            final List<AWSIotMqttQueueMessage> queued =
+                    new ArrayList<AWSIotMqttQueueMessage>(mqttMessageQueue);
+            mqttMessageQueue.clear();
+            offlinePublishQueueBytes = 0;
+            for (final AWSIotMqttQueueMessage message : persistentQueue.getLoadedMessages()) {
+                mqttMessageQueue.add(message);
+                offlinePublishQueueBytes += queuedSize(message);
+            }
+            persistentQueue.getLoadedMessages().clear();
+            for (final AWSIotMqttQueueMessage message : queued) {
+                enqueue(message, queuedSize(message));
+            }
+        }
+    }
+
+    /**
+     * Get the draining window, the maximum number of QoS 1 messages from the
+     * offline queue awaiting acknowledgement.
+     *
+     * @return the draining window, 0 if queued messages are published one per
+     *         draining interval.
+     */
+    public int getDrainingWindow() {
+        return drainingWindow;
+    }
+
+    /**
+     * Set the draining window. When greater than 0, queued messages are
+     * published in bursts as soon as the acknowledgements of earlier QoS 1
+     * messages arrive, keeping at most this many QoS 1 messages awaiting
+     * acknowledgement, instead of one message per draining interval. Must be
+     * set before connecting.
+     *
+     * @param window max number of QoS 1 messages from the offline queue
+     *            awaiting acknowledgement, 0 to publish one message per
+     *            draining interval.
+     */
+    public void setDrainingWindow(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Draining window must be >= 0");
+        }
+        drainingWindow = window;
+    }
+
     /**
      * Keep the oldest messages when publish queue is full?
      * @return boolean true if set to keep oldest messages, false if set to keep newest.
@@ -806,6 +951,9 @@ public class AWSIotMqttManager {
 
         options.setCleanSession(cleanSession);
         options.setKeepAliveInterval(userKeepAlive);
+        if (drainingWindow > 0) {
+            options.setMaxInflight(MqttConnectOptions.MAX_INFLIGHT_DEFAULT + drainingWindow);
+        }
 
         if (isMetricsEnabled()) {
             options.setUserName("?SDK=Android&Version=" + SDK_VERSION);
@@ -815,7 +963,12 @@ public class AWSIotMqttManager {
             ", username: " + options.getUserName());
 
         topicListeners.clear();
-        mqttMessageQueue.clear();
+        topicTrie.clear();
+        // messages kept on disk are still published after connecting
+        if (persistentQueue == null) {
+            clearMessageQueue();
+        }
+        inflightQueuedMessages.clear();
 
         resetReconnect();
         userDisconnect = false;
@@ -891,6 +1044,7 @@ public class AWSIotMqttManager {
         userDisconnect = true;
         reset();
         topicListeners.clear();
+        topicTrie.clear();
         connectionState = MqttManagerConnectionState.Disconnected;
         userConnectionCallback();
         return true;
@@ -927,6 +1081,9 @@ public class AWSIotMqttManager {
 
             options.setCleanSession(cleanSession);
             options.setKeepAliveInterval(userKeepAlive);
+            if (drainingWindow > 0) {
+                options.setMaxInflight(MqttConnectOptions.MAX_INFLIGHT_DEFAULT + drainingWindow);
+            }
 
             if (mqttLWT != null) {
                 options.setWill(mqttLWT.getTopic(), mqttLWT.getMessage().getBytes(),
@@ -1087,6 +1244,7 @@ public class AWSIotMqttManager {
             }
             final AWSIotMqttTopic topicModel = new AWSIotMqttTopic(topic, qos, callback);
             topicListeners.put(topic, topicModel);
+            topicTrie.put(topic, topicModel);
         }
     }
 
@@ -1108,6 +1266,7 @@ public class AWSIotMqttManager {
                 throw new AmazonClientException("Client error while unsubscribing.", e);
             }
             topicListeners.remove(topic);
+            topicTrie.remove(topic);
         }
     }
 
@@ -1229,6 +1388,9 @@ public class AWSIotMqttManager {
             } else {
                 // if the queue has messages we're making the assumption that offline queueing is enabled
                 putMessageInQueueAndNotify(data, topic, qos, publishMessageUserData);
+                if (drainingWindow > 0) {
+                    publishMessagesFromQueue();
+                }
             }
         } else if (connectionState == MqttManagerConnectionState.Reconnecting) {
             if (offlinePublishQueueEnabled) {
@@ -1261,19 +1423,193 @@ public class AWSIotMqttManager {
     void putMessageInQueueAndNotify(byte[] data, String topic, AWSIotMqttQos qos,
                                     PublishMessageUserData publishMessageUserData) {
         final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData);
+        final long size = queuedSize(message);
+
+        if (offlinePublishQueueByteBound > 0 && size > offlinePublishQueueByteBound) {
+            notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    publishMessageUserData.getUserData(),
+                    new AmazonClientException("Failed to publish the message. Message is larger than the offline queue byte bound."));
+            return;
+        }
+
+        // user callbacks are notified outside the lock
+        boolean rejected = false;
+        synchronized (mqttMessageQueue) {
+            final boolean overByteBound = offlinePublishQueueByteBound > 0
+                    && offlinePublishQueueBytes + size > offlinePublishQueueByteBound;
+            if (mqttMessageQueue.size() >= offlinePublishQueueBound || overByteBound) {
+                if (fullQueueKeepsOldest) {
+                    rejected = true;
+                } else {
+                    pollMessageQueue();
+                    // shed the oldest messages until the new one fits
+                    while (overByteBound
+                            && offlinePublishQueueBytes + size > offlinePublishQueueByteBound
+                            && pollMessageQueue() != null) {
+                    }
+                }
+            }
+            if (!rejected) {
+                enqueue(message, size);
+            }
+        }
+
+        if (rejected) {
+            notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    publishMessageUserData.getUserData(),
+                    new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+        }
+    }
+
+    /**
+     * Append a message to the message queue and its copy on disk.
+     *
+     * @param message the message.
+     * @param size bytes the message takes in the queue.
+     */
+    private void enqueue(final AWSIotMqttQueueMessage message, long size) {
+        synchronized (mqttMessageQueue) {
+            mqttMessageQueue.add(message);
+            offlinePublishQueueBytes += size;
+            updatePersistentQueue(persistentQueue, new PersistentQueueUpdate() {
+                @Override
+                public void apply(AWSIotMqttPersistentQueue queue) throws IOException {
+                    queue.add(message);
+                }
+            });
+        }
+    }
+
+    /**
+     * An update of the copy of the message queue on disk.
+     */
+    private interface PersistentQueueUpdate {
+        void apply(AWSIotMqttPersistentQueue queue) throws IOException;
+    }
+
+    private static ExecutorService newPersistentQueueWriter() {
+        final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1,
+                PERSISTENT_QUEUE_WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "AWSIotMqttManager offline queue");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        writer.allowCoreThreadTimeOut(true);
+        return writer;
+    }
+
+    /**
+     * Update the copy of the message queue on disk on the writer thread.
+     * Updates are applied in the order they are made.
+     *
+     * @param queue the copy on disk, nothing is done if null.
+     * @param update the update.
+     */
+    private void updatePersistentQueue(final AWSIotMqttPersistentQueue queue,
+            final PersistentQueueUpdate update) {
+        if (queue == null) {
+            return;
+        }
+        persistentQueueWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    update.apply(queue);
+                } catch (final IOException e) {
+                    stopPersistingQueue(queue, e);
+                }
+            }
+        });
+    }
 
-        if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
-            if (fullQueueKeepsOldest) {
-                notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                        publishMessageUserData.getUserData(),
-                        new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+    /**
+     * Wait for the updates of the copy of the message queue on disk made so
+     * far to be written.
+     */
+    void awaitPersistentQueueWrites() {
+        final Future<?> written = persistentQueueWriter.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        try {
+            written.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOGGER.warn("Failed to wait for the offline publish queue file.", e);
+        }
+    }
+
+    /**
+     * Stop keeping the message queue on disk once the file no longer matches
+     * the queue in memory.
+     *
+     * @param queue the copy on disk that failed.
+     * @param e the error updating the file.
+     */
+    private void stopPersistingQueue(AWSIotMqttPersistentQueue queue, IOException e) {
+        synchronized (mqttMessageQueue) {
+            if (persistentQueue != queue) {
+                // already stopped, later updates of the same file fail too
                 return;
-            } else {
-                mqttMessageQueue.remove(0);
             }
+            persistentQueue = null;
+        }
+        LOGGER.error("Failed to update the offline publish queue file, queueing in memory only.", e);
+        queue.close();
+    }
+
+    /**
+     * Number of bytes a message takes in the offline queue.
+     *
+     * @param message queued message.
+     * @return size of the message.
+     */
+    private static long queuedSize(AWSIotMqttQueueMessage message) {
+        return AWSIotMqttPersistentQueue.recordSize(message.getTopic(), message.getMessage());
+    }
+
+    /**
+     * Remove the oldest message from the message queue and its copy on disk.
+     *
+     * @return the oldest message or null if the queue is empty.
+     */
+    AWSIotMqttQueueMessage pollMessageQueue() {
+        synchronized (mqttMessageQueue) {
+            final AWSIotMqttQueueMessage message = mqttMessageQueue.poll();
+            if (message == null) {
+                return null;
+            }
+            offlinePublishQueueBytes -= queuedSize(message);
+            updatePersistentQueue(persistentQueue, new PersistentQueueUpdate() {
+                @Override
+                public void apply(AWSIotMqttPersistentQueue queue) throws IOException {
+                    queue.removeFirst();
+                }
+            });
+            return message;
         }
+    }
 
-        mqttMessageQueue.add(message);
+    /**
+     * Remove all messages from the message queue and its copy on disk.
+     */
+    private void clearMessageQueue() {
+        synchronized (mqttMessageQueue) {
+            mqttMessageQueue.clear();
+            offlinePublishQueueBytes = 0;
+            updatePersistentQueue(persistentQueue, new PersistentQueueUpdate() {
+                @Override
+                public void apply(AWSIotMqttPersistentQueue queue) throws IOException {
+                    queue.clear();
+                }
+            });
+        }
     }
 
     /**
@@ -1281,10 +1617,14 @@ public class AWSIotMqttManager {
      * Called to handle publishing messages accumulated in the message queue when the client was unable to publish.
      */
     void publishMessagesFromQueue() {
+        if (drainingWindow > 0) {
+            publishWindowFromQueue();
+            return;
+        }
         if (connectionState == MqttManagerConnectionState.Connected &&
             mqttMessageQueue != null &&
             !mqttMessageQueue.isEmpty()) {
-            final AWSIotMqttQueueMessage message = mqttMessageQueue.poll();
+            final AWSIotMqttQueueMessage message = pollMessageQueue();
             if (message != null) {
                 try {
                     if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
@@ -1325,6 +1665,60 @@ public class AWSIotMqttManager {
         }
     }
 
+    /**
+     * Publish queued messages until drainingWindow QoS 1 messages await
+     * acknowledgement. Called again as acknowledgements arrive. At most
+     * drainingWindow messages are published per call, so when the window does
+     * not fill (QoS 0 messages) the next burst follows after the draining
+     * interval.
+     */
+    private void publishWindowFromQueue() {
+        synchronized (inflightQueuedMessages) {
+            int published = 0;
+            while (connectionState == MqttManagerConnectionState.Connected
+                    && published < drainingWindow
+                    && inflightQueuedMessages.size() < drainingWindow) {
+                final AWSIotMqttQueueMessage message = pollMessageQueue();
+                if (message == null) {
+                    return;
+                }
+                published++;
+                // each publish needs its own context to match its acknowledgement
+                final PublishMessageUserData userContext = message.getUserData() != null
+                        ? message.getUserData() : new PublishMessageUserData(null, null);
+                final boolean awaitsAck = message.getQos() == AWSIotMqttQos.QOS1;
+                if (awaitsAck) {
+                    inflightQueuedMessages.add(userContext);
+                }
+                try {
+                    mqttClient.publish(message.getTopic(), message.getMessage(),
+                            message.getQos().asInt(), false, userContext, null);
+                } catch (final MqttException e) {
+                    // as in publishMessagesFromQueue, drop the message rather
+                    // than block the queue
+                    inflightQueuedMessages.remove(userContext);
+                    notifyPublishResult(userContext.getUserCallback(),
+                            AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                            userContext.getUserData(),
+                            new AmazonClientException("Client error while publishing.", e));
+                }
+            }
+
+            if (published == drainingWindow && inflightQueuedMessages.size() < drainingWindow) {
+                (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mqttMessageQueue.isEmpty()) {
+                            if (connectionState == MqttManagerConnectionState.Connected) {
+                                publishMessagesFromQueue();
+                            }
+                        }
+                    }
+                }, drainingInterval);
+            }
+        }
+    }
+
     /**
      * Setup the MQTT client calbacks. The Paho MQTT client exposes callbacks
      * for connection status, publish status and incoming messages. The Android
@@ -1337,6 +1731,7 @@ public class AWSIotMqttManager {
             @Override
             public void connectionLost(Throwable cause) {
                 LOGGER.warn("connection is Lost");
+                inflightQueuedMessages.clear();
                 if (!userDisconnect && autoReconnect) {
                     // If we have been connected longer than the connectionStabilityTime then
                     // restart the reconnect logic from minimum value before scheduling reconnect.
@@ -1359,14 +1754,9 @@ public class AWSIotMqttManager {
                 LOGGER.info("message arrived on topic: " + topic);
                 final byte[] data = mqttMessage.getPayload();
 
-                for (final String topicKey : topicListeners.keySet()) {
-                    if (isTopicMatch(topicKey, topic)) {
-                        final AWSIotMqttTopic topicModel = topicListeners.get(topicKey);
-                        if (topicModel != null) {
-                            if (topicModel.getCallback() != null) {
-                                topicModel.getCallback().onMessageArrived(topic, data);
-                            }
-                        }
+                for (final AWSIotMqttTopic topicModel : topicTrie.match(topic)) {
+                    if (topicModel.getCallback() != null) {
+                        topicModel.getCallback().onMessageArrived(topic, data);
                     }
                 }
             }
@@ -1381,6 +1771,10 @@ public class AWSIotMqttManager {
                         notifyPublishResult(pmud.getUserCallback(),
                                 AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Success,
                                 pmud.getUserData(), null);
+                        // an acknowledgement frees a place in the draining window
+                        if (inflightQueuedMessages.remove(pmud) && !mqttMessageQueue.isEmpty()) {
+                            publishMessagesFromQueue();
+                        }
                     }
                 }
             }
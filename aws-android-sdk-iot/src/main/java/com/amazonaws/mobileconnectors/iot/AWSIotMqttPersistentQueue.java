@@ -0,0 +1,303 @@
+/**
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import com.amazonaws.util.StringUtils;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * File backed copy of the offline publish queue, so messages queued while
+ * offline survive a restart of the process. The file starts with the offset of
+ * the oldest queued message followed by the messages, each stored as
+ *
+ * <pre>
+ * record length (4 bytes) | topic length (2 bytes) | topic (UTF-8) | QoS (1 byte) | payload | CRC32 (4 bytes)
+ * </pre>
+ *
+ * Messages are appended to the end of the file and removed by moving the
+ * offset. Removed messages are dropped from the file once the queue is empty
+ * or they take up most of the file. Delivery callbacks and user data can't be
+ * persisted, so messages read back from the file have none.
+ */
+class AWSIotMqttPersistentQueue {
+    private static final Log LOGGER = LogFactory.getLog(AWSIotMqttPersistentQueue.class);
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    /** Size of the offset of the oldest message at the start of the file. */
+    private static final int HEADER_SIZE = 8;
+    /** Bytes of a record in addition to its topic and payload. */
+    private static final int RECORD_OVERHEAD = 4 + 2 + 1 + 4;
+    private static final int CRC_SIZE = 4;
+    private static final int MAX_TOPIC_LENGTH = 0xFFFF;
+    /** Removed messages are dropped from the file once they take this many bytes. */
+    private static final long COMPACTION_THRESHOLD = 256 * 1024L;
+
+    private final File queueFile;
+    private RandomAccessFile file;
+    /** Offset of the oldest message. */
+    private long head;
+    /** Offset after the newest message. */
+    private long tail;
+    /** Sizes of the queued records, oldest first. */
+    private final LinkedList<Integer> recordSizes = new LinkedList<Integer>();
+    /** Messages read from the file when it was opened. */
+    private final List<AWSIotMqttQueueMessage> loadedMessages =
+            new ArrayList<AWSIotMqttQueueMessage>();
+
+    /**
+     * Opens the queue file and reads the messages in it.
+     *
+     * @param queueFile file to keep queued messages in.
+     * @throws IOException if the file can't be read or created.
+     */
+    AWSIotMqttPersistentQueue(File queueFile) throws IOException {
+        this.queueFile = queueFile;
+        final File directory = queueFile.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory);
+        }
+        file = new RandomAccessFile(queueFile, "rw");
+        load();
+    }
+
+    /**
+     * Returns the messages that were in the file when it was opened, oldest
+     * first.
+     *
+     * @return the persisted messages.
+     */
+    List<AWSIotMqttQueueMessage> getLoadedMessages() {
+        return loadedMessages;
+    }
+
+    private void load() throws IOException {
+        final long length = file.length();
+        if (length < HEADER_SIZE) {
+            file.setLength(0);
+            file.writeLong(HEADER_SIZE);
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            return;
+        }
+
+        file.seek(0);
+        head = file.readLong();
+        if (head < HEADER_SIZE || head > length) {
+            LOGGER.warn("Invalid offline queue file, discarding queued messages.");
+            clear();
+            return;
+        }
+
+        long offset = head;
+        while (offset < length) {
+            final AWSIotMqttQueueMessage message = readRecord(offset, length);
+            if (message == null) {
+                // a record torn by a crash or corrupted, drop it and the rest
+                LOGGER.warn("Invalid message at the end of the offline queue file, discarding.");
+                file.setLength(offset);
+                break;
+            }
+            final int size = recordSize(message.getTopic(), message.getMessage());
+            loadedMessages.add(message);
+            recordSizes.add(size);
+            offset += size;
+        }
+        tail = offset;
+    }
+
+    private AWSIotMqttQueueMessage readRecord(long offset, long length) throws IOException {
+        if (length - offset < 4) {
+            return null;
+        }
+        file.seek(offset);
+        final int recordLength = file.readInt();
+        if (recordLength < RECORD_OVERHEAD - 4 || recordLength > length - offset - 4) {
+            return null;
+        }
+        final byte[] record = new byte[recordLength];
+        file.readFully(record);
+
+        final CRC32 crc = new CRC32();
+        crc.update(record, 0, recordLength - CRC_SIZE);
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        if ((int) crc.getValue() != buffer.getInt(recordLength - CRC_SIZE)) {
+            return null;
+        }
+
+        final int topicLength = buffer.getShort() & MAX_TOPIC_LENGTH;
+        final int payloadLength = recordLength - topicLength - (RECORD_OVERHEAD - 4);
+        if (payloadLength < 0) {
+            return null;
+        }
+        final String topic = new String(record, 2, topicLength, StringUtils.UTF8);
+        buffer.position(2 + topicLength);
+        final AWSIotMqttQos qos = buffer.get() == 0 ? AWSIotMqttQos.QOS0 : AWSIotMqttQos.QOS1;
+        final byte[] payload = new byte[payloadLength];
+        buffer.get(payload);
+        return new AWSIotMqttQueueMessage(topic, payload, qos,
+                new PublishMessageUserData(null, null));
+    }
+
+    /**
+     * Returns the number of bytes a message takes in the queue file.
+     *
+     * @param topic topic of the message.
+     * @param payload payload of the message.
+     * @return size of the message in bytes.
+     */
+    static int recordSize(String topic, byte[] payload) {
+        return RECORD_OVERHEAD + topic.getBytes(StringUtils.UTF8).length + payload.length;
+    }
+
+    /**
+     * Appends a message to the queue.
+     *
+     * @param message the message.
+     * @throws IOException if the message can't be written.
+     */
+    synchronized void add(AWSIotMqttQueueMessage message) throws IOException {
+        final byte[] topic = message.getTopic().getBytes(StringUtils.UTF8);
+        if (topic.length > MAX_TOPIC_LENGTH) {
+            throw new IllegalArgumentException("topic is too long");
+        }
+        final byte[] payload = message.getMessage();
+        final int size = RECORD_OVERHEAD + topic.length + payload.length;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size - 4);
+        buffer.putShort((short) topic.length);
+        buffer.put(topic);
+        buffer.put((byte) message.getQos().asInt());
+        buffer.put(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, size - 4 - CRC_SIZE);
+        buffer.putInt((int) crc.getValue());
+
+        file.seek(tail);
+        file.write(buffer.array());
+        tail += size;
+        recordSizes.add(size);
+    }
+
+    /**
+     * Removes the oldest message from the queue.
+     *
+     * @throws IOException if the queue file can't be updated.
+     */
+    synchronized void removeFirst() throws IOException {
+        if (recordSizes.isEmpty()) {
+            return;
+        }
+        head += recordSizes.removeFirst();
+        if (recordSizes.isEmpty()) {
+            clear();
+        } else if (head - HEADER_SIZE >= COMPACTION_THRESHOLD && head - HEADER_SIZE > tail - head) {
+            compact();
+        } else {
+            file.seek(0);
+            file.writeLong(head);
+        }
+    }
+
+    /**
+     * Removes all messages from the queue.
+     *
+     * @throws IOException if the queue file can't be updated.
+     */
+    synchronized void clear() throws IOException {
+        recordSizes.clear();
+        file.setLength(0);
+        file.seek(0);
+        file.writeLong(HEADER_SIZE);
+        head = HEADER_SIZE;
+        tail = HEADER_SIZE;
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return the number of messages.
+     */
+    synchronized int size() {
+        return recordSizes.size();
+    }
+
+    /**
+     * Returns the number of bytes the queued messages take in the file.
+     *
+     * @return size of the queued messages in bytes.
+     */
+    synchronized long getByteSize() {
+        return tail - head;
+    }
+
+    /**
+     * Closes the queue file.
+     */
+    synchronized void close() {
+        try {
+            file.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close offline queue file.", e);
+        }
+    }
+
+    /**
+     * Copies the queued messages into a new file without the removed ones and
+     * replaces the queue file with it.
+     */
+    private void compact() throws IOException {
+        final File tempFile = new File(queueFile.getPath() + TEMP_FILE_SUFFIX);
+        final RandomAccessFile temp = new RandomAccessFile(tempFile, "rw");
+        try {
+            temp.setLength(0);
+            temp.writeLong(HEADER_SIZE);
+            final byte[] buffer = new byte[8 * 1024];
+            file.seek(head);
+            long remaining = tail - head;
+            while (remaining > 0) {
+                final int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Offline queue file is truncated");
+                }
+                temp.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            temp.close();
+        }
+
+        file.close();
+        if (!tempFile.renameTo(queueFile)) {
+            file = new RandomAccessFile(queueFile, "rw");
+            throw new IOException("Failed to compact offline queue file");
+        }
+        file = new RandomAccessFile(queueFile, "rw");
+        tail -= head - HEADER_SIZE;
+        head = HEADER_SIZE;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscriptions indexed by the levels of their topic filters, so the
+ * subscriptions matching a topic are found in time proportional to the depth
+ * of the topic rather than the number of subscriptions. Matching follows
+ * {@link AWSIotMqttManager#isTopicMatch(String, String)}: '+' matches one
+ * level and '#' matches one or more remaining levels.
+ *
+ * Lookups don't lock and may run concurrently with changes. Changes are
+ * serialized.
+ */
+class AWSIotMqttTopicTrie {
+    private static final String LEVEL_SEPARATOR = "/";
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    /**
+     * A level of topic filters.
+     */
+    private static final class Node {
+        /** Next levels keyed by filter token. */
+        final Map<String, Node> children = new ConcurrentHashMap<String, Node>();
+        /**
+         * Subscriptions whose filter ends at this level, keyed by the filter.
+         * Filters only differing in trailing separators share a node.
+         */
+        final Map<String, AWSIotMqttTopic> subscriptions =
+                new ConcurrentHashMap<String, AWSIotMqttTopic>();
+
+        boolean isEmpty() {
+            return children.isEmpty() && subscriptions.isEmpty();
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Adds a subscription, replacing any subscription of the same filter.
+     *
+     * @param topicFilter MQTT topic filter of the subscription.
+     * @param topic the subscription.
+     */
+    synchronized void put(String topicFilter, AWSIotMqttTopic topic) {
+        Node node = root;
+        for (final String token : topicFilter.split(LEVEL_SEPARATOR)) {
+            Node child = node.children.get(token);
+            if (child == null) {
+                child = new Node();
+                node.children.put(token, child);
+            }
+            node = child;
+        }
+        node.subscriptions.put(topicFilter, topic);
+    }
+
+    /**
+     * Removes the subscription of a filter.
+     *
+     * @param topicFilter MQTT topic filter of the subscription.
+     */
+    synchronized void remove(String topicFilter) {
+        remove(root, topicFilter, topicFilter.split(LEVEL_SEPARATOR), 0);
+    }
+
+    private static void remove(Node node, String topicFilter, String[] tokens, int level) {
+        if (level == tokens.length) {
+            node.subscriptions.remove(topicFilter);
+            return;
+        }
+        final Node child = node.children.get(tokens[level]);
+        if (child == null) {
+            return;
+        }
+        remove(child, topicFilter, tokens, level + 1);
+        // prune levels that no longer lead to a subscription
+        if (child.isEmpty()) {
+            node.children.remove(tokens[level]);
+        }
+    }
+
+    /**
+     * Removes all subscriptions.
+     */
+    synchronized void clear() {
+        root.children.clear();
+        root.subscriptions.clear();
+    }
+
+    /**
+     * Finds the subscriptions whose filter matches a topic.
+     *
+     * @param topic the topic (no wildcards) a message was published on.
+     * @return the matching subscriptions, each at most once.
+     */
+    List<AWSIotMqttTopic> match(String topic) {
+        final List<AWSIotMqttTopic> matches = new ArrayList<AWSIotMqttTopic>();
+        collect(root, topic.split(LEVEL_SEPARATOR), 0, matches);
+        return matches;
+    }
+
+    private static void collect(Node node, String[] tokens, int level,
+            List<AWSIotMqttTopic> matches) {
+        if (level == tokens.length) {
+            matches.addAll(node.subscriptions.values());
+            return;
+        }
+
+        // '#' matches this level and all that is left
+        final Node multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+        if (multiLevel != null) {
+            matches.addAll(multiLevel.subscriptions.values());
+        }
+
+        final String token = tokens[level];
+        if (!MULTI_LEVEL_WILDCARD.equals(token)) {
+            final Node exact = node.children.get(token);
+            if (exact != null) {
+                collect(exact, tokens, level + 1, matches);
+            }
+        }
+        if (!SINGLE_LEVEL_WILDCARD.equals(token)) {
+            final Node singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+            if (singleLevel != null) {
+                collect(singleLevel, tokens, level + 1, matches);
+            }
+        }
+    }
+}
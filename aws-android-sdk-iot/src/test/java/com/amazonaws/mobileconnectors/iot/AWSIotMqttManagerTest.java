@@ -2217,13 +2217,209 @@ public class AWSIotMqttManagerTest {
         
         // queue is now full - publish one more message to ensure queue keeps newest messages
         testClient.publishString("test payload 10", "test/topic", AWSIotMqttQos.QOS0);
-        assertEquals(11, testClient.getMqttMessageQueue().size());
+        assertEquals(10, testClient.getMqttMessageQueue().size());
 
-        // verify the payload
-        checkOfflinePublishingQueue(testClient);
+        // verify the payload, the oldest message was dropped
+        int i = 1;
+        for (AWSIotMqttQueueMessage message : testClient.getMqttMessageQueue()) {
+            assertEquals("test payload " + i++, new String(message.getMessage()));
+        }
 
         testClient.getMqttMessageQueue().poll().getMessage();
-        assertEquals(10, testClient.getMqttMessageQueue().size());
+        assertEquals(9, testClient.getMqttMessageQueue().size());
+    }
+
+    @Test
+    public void testOfflinePublishQueueLimitNewestOnDisk() throws Exception {
+        File directory = new File(System.getProperty("java.io.tmpdir"),
+                "awsiot_offline_queue_test_" + System.nanoTime());
+        try {
+            MockMqttClient mockClient = new MockMqttClient();
+
+            AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                    Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+            testClient.setMqttClient(mockClient);
+            testClient.setOfflinePublishQueueBound(3);
+            testClient.setOfflinePublishQueueDirectory(directory);
+
+            TestClientStatusCallback csb = new TestClientStatusCallback();
+
+            KeyStore testKeystore = AWSIotKeystoreHelper.getIotKeystore(CERT_ID, KEYSTORE_PATH,
+                    KEYSTORE_NAME, KEYSTORE_PASSWORD);
+            testClient.connect(testKeystore, csb);
+            mockClient.mockConnectSuccess();
+            mockClient.mockDisconnect();
+
+            for (int i = 0; i < 5; i++) {
+                testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+            }
+            assertEquals(3, testClient.getMqttMessageQueue().size());
+            testClient.awaitPersistentQueueWrites();
+
+            // the file holds the same newest messages
+            AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                    Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+            restartedClient.setOfflinePublishQueueDirectory(directory);
+            assertEquals(3, restartedClient.getMqttMessageQueue().size());
+            assertEquals("test payload 2",
+                    new String(restartedClient.getMqttMessageQueue().peek().getMessage()));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testOfflinePublishQueueByteBound() throws Exception {
+        MockMqttClient mockClient = new MockMqttClient();
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        // room for three messages
+        testClient.setOfflinePublishQueueByteBound(3 * AWSIotMqttPersistentQueue.recordSize(
+                "test/topic", "test payload 0".getBytes(StringUtils.UTF8)));
+        assertEquals(105, testClient.getOfflinePublishQueueByteBound());
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper.getIotKeystore(CERT_ID, KEYSTORE_PATH,
+                KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+        assertEquals(MqttManagerConnectionState.Reconnecting, testClient.getConnectionState());
+
+        for (int i = 0; i <= 4; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS0);
+        }
+
+        // queue keeps the newest messages that fit
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+        assertEquals("test payload 2",
+                new String(testClient.getMqttMessageQueue().peek().getMessage()));
+
+        testClient.setFullQueueToKeepOldestMessages();
+        TestMessageDeliveryCallback mdcb = new TestMessageDeliveryCallback();
+        testClient.publishString("test payload 5", "test/topic", AWSIotMqttQos.QOS0, mdcb, null);
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+        assertEquals(AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                mdcb.statuses.get(0));
+    }
+
+    @Test
+    public void testOfflinePublishQueueDirectory() throws Exception {
+        File directory = new File(System.getProperty("java.io.tmpdir"),
+                "awsiot_offline_queue_test_" + System.nanoTime());
+        try {
+            MockMqttClient mockClient = new MockMqttClient();
+
+            AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                    Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+            testClient.setMqttClient(mockClient);
+            testClient.setOfflinePublishQueueDirectory(directory);
+
+            TestClientStatusCallback csb = new TestClientStatusCallback();
+
+            KeyStore testKeystore = AWSIotKeystoreHelper.getIotKeystore(CERT_ID, KEYSTORE_PATH,
+                    KEYSTORE_NAME, KEYSTORE_PASSWORD);
+            testClient.connect(testKeystore, csb);
+            mockClient.mockConnectSuccess();
+            mockClient.mockDisconnect();
+
+            for (int i = 0; i < 3; i++) {
+                testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+            }
+            assertEquals(3, testClient.getMqttMessageQueue().size());
+            testClient.awaitPersistentQueueWrites();
+
+            // a new client (after a restart) picks up the queued messages
+            MockMqttClient restartedMockClient = new MockMqttClient();
+            AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                    Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+            restartedClient.setMqttClient(restartedMockClient);
+            restartedClient.setOfflinePublishQueueDirectory(directory);
+            assertEquals(3, restartedClient.getMqttMessageQueue().size());
+            checkOfflinePublishingQueue(restartedClient);
+            assertEquals(AWSIotMqttQos.QOS1,
+                    restartedClient.getMqttMessageQueue().peek().getQos());
+
+            // connecting keeps and publishes the queued messages
+            restartedClient.connect(testKeystore, csb);
+            restartedMockClient.mockConnectSuccess();
+            assertEquals(1, restartedMockClient.publishCalls);
+            assertEquals("test payload 0",
+                    new String(restartedMockClient.mostRecentPublishPayload));
+            Robolectric.getUiThreadScheduler().advanceBy(250);
+            assertEquals(2, restartedMockClient.publishCalls);
+            restartedClient.awaitPersistentQueueWrites();
+
+            // published messages are removed from disk
+            AWSIotMqttManager anotherClient = new AWSIotMqttManager("test-client",
+                    Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+            anotherClient.setOfflinePublishQueueDirectory(directory);
+            assertEquals(1, anotherClient.getMqttMessageQueue().size());
+            assertEquals("test payload 2",
+                    new String(anotherClient.getMqttMessageQueue().peek().getMessage()));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testOfflinePublishQueueDrainingWindow() throws Exception {
+        MockMqttClient mockClient = new MockMqttClient();
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setDrainingWindow(2);
+        assertEquals(2, testClient.getDrainingWindow());
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper.getIotKeystore(CERT_ID, KEYSTORE_PATH,
+                KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        assertEquals(12, mockClient.mostRecentOptions.getMaxInflight());
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        TestMessageDeliveryCallback mdcb = new TestMessageDeliveryCallback();
+        for (int i = 0; i < 5; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1,
+                    mdcb, "TEST_TOKEN_" + i);
+        }
+
+        // cause reconnect attempt
+        Robolectric.getUiThreadScheduler().advanceBy(4100);
+        assertEquals(12, mockClient.mostRecentOptions.getMaxInflight());
+        mockClient.mockConnectSuccess();
+
+        // a window of messages is published at once, no timer needed
+        assertEquals(2, mockClient.publishCalls);
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+        assertEquals(2, mockClient.publishCalls);
+
+        // an acknowledgement opens the window for the next message
+        MockDeliveryToken testDeliveryToken = new MockDeliveryToken();
+        testDeliveryToken.setUserContext(mockClient.mostRecentPublishUserContext);
+        mockClient.mockCallback.deliveryComplete(testDeliveryToken);
+        assertEquals(1, mdcb.statuses.size());
+        assertEquals("TEST_TOKEN_1", mdcb.userDatas.get(0));
+        assertEquals(3, mockClient.publishCalls);
+        assertEquals("test payload 2", new String(mockClient.mostRecentPublishPayload));
+
+        // new messages wait behind the queued ones
+        testClient.publishString("test payload 5", "test/topic", AWSIotMqttQos.QOS1);
+        assertEquals(3, mockClient.publishCalls);
+        assertEquals(3, testClient.getMqttMessageQueue().size());
     }
 
     @Test
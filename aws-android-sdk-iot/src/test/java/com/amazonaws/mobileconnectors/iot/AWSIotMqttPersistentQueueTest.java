@@ -0,0 +1,113 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class AWSIotMqttPersistentQueueTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static AWSIotMqttQueueMessage message(int i, AWSIotMqttQos qos) {
+        return new AWSIotMqttQueueMessage("test/topic/" + i,
+                ("test payload " + i).getBytes(StringUtils.UTF8), qos, null);
+    }
+
+    @Test
+    public void testAddRemoveAndReload() throws Exception {
+        File file = new File(temp.newFolder(), "queue");
+        AWSIotMqttPersistentQueue queue = new AWSIotMqttPersistentQueue(file);
+        assertEquals(0, queue.getLoadedMessages().size());
+        assertEquals(0, queue.getByteSize());
+
+        for (int i = 0; i < 5; i++) {
+            queue.add(message(i, i % 2 == 0 ? AWSIotMqttQos.QOS0 : AWSIotMqttQos.QOS1));
+        }
+        queue.removeFirst();
+        queue.removeFirst();
+        assertEquals(3, queue.size());
+        queue.close();
+
+        queue = new AWSIotMqttPersistentQueue(file);
+        List<AWSIotMqttQueueMessage> messages = queue.getLoadedMessages();
+        assertEquals(3, messages.size());
+        assertEquals("test/topic/2", messages.get(0).getTopic());
+        assertArrayEquals("test payload 2".getBytes(StringUtils.UTF8),
+                messages.get(0).getMessage());
+        assertEquals(AWSIotMqttQos.QOS0, messages.get(0).getQos());
+        assertEquals(AWSIotMqttQos.QOS1, messages.get(1).getQos());
+        assertEquals(3, queue.size());
+
+        queue.removeFirst();
+        queue.removeFirst();
+        queue.removeFirst();
+        assertEquals(0, queue.getByteSize());
+        assertEquals("emptied queue truncates the file", 8, file.length());
+        queue.close();
+    }
+
+    @Test
+    public void testDiscardTornRecord() throws Exception {
+        File file = new File(temp.newFolder(), "queue");
+        AWSIotMqttPersistentQueue queue = new AWSIotMqttPersistentQueue(file);
+        queue.add(message(0, AWSIotMqttQos.QOS1));
+        queue.add(message(1, AWSIotMqttQos.QOS1));
+        queue.close();
+
+        // cut the last record short as a crash while writing would
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+
+        queue = new AWSIotMqttPersistentQueue(file);
+        assertEquals(1, queue.getLoadedMessages().size());
+        assertEquals("test/topic/0", queue.getLoadedMessages().get(0).getTopic());
+
+        // appends after the last valid record
+        queue.add(message(2, AWSIotMqttQos.QOS0));
+        queue.close();
+        queue = new AWSIotMqttPersistentQueue(file);
+        assertEquals(2, queue.getLoadedMessages().size());
+        assertEquals("test/topic/2", queue.getLoadedMessages().get(1).getTopic());
+        queue.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        File file = new File(temp.newFolder(), "queue");
+        AWSIotMqttPersistentQueue queue = new AWSIotMqttPersistentQueue(file);
+        byte[] payload = new byte[10 * 1024];
+        for (int i = 0; i < 40; i++) {
+            payload[0] = (byte) i;
+            queue.add(new AWSIotMqttQueueMessage("test/topic", payload.clone(),
+                    AWSIotMqttQos.QOS1, null));
+        }
+        long fullLength = file.length();
+        for (int i = 0; i < 30; i++) {
+            queue.removeFirst();
+        }
+        assertTrue("removed messages are dropped from the file", file.length() < fullLength / 2);
+        queue.close();
+
+        queue = new AWSIotMqttPersistentQueue(file);
+        List<AWSIotMqttQueueMessage> messages = queue.getLoadedMessages();
+        assertEquals(10, messages.size());
+        assertEquals(30, messages.get(0).getMessage()[0]);
+        assertEquals(39, messages.get(9).getMessage()[0]);
+        queue.close();
+    }
+}
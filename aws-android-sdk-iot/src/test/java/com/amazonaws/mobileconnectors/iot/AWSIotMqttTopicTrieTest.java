@@ -0,0 +1,191 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AWSIotMqttTopicTrieTest {
+
+    AWSIotMqttTopicTrie trie;
+
+    @Before
+    public void setUp() throws Exception {
+        trie = new AWSIotMqttTopicTrie();
+    }
+
+    private AWSIotMqttTopic subscribe(String topicFilter) {
+        AWSIotMqttTopic topic = new AWSIotMqttTopic(topicFilter, AWSIotMqttQos.QOS0, null);
+        trie.put(topicFilter, topic);
+        return topic;
+    }
+
+    private Set<String> matchingFilters(String topic) {
+        Set<String> filters = new HashSet<String>();
+        for (AWSIotMqttTopic match : trie.match(topic)) {
+            assertTrue("matched once", filters.add(match.getTopic()));
+        }
+        return filters;
+    }
+
+    @Test
+    public void testMatch() throws Exception {
+        subscribe("test");
+        subscribe("test/1");
+        subscribe("test/+");
+        subscribe("test/+/1");
+        subscribe("test/#");
+        subscribe("#");
+        subscribe("+/1/+");
+
+        assertEquals(setOf("test", "#"), matchingFilters("test"));
+        assertEquals(setOf("test/1", "test/+", "test/#", "#"), matchingFilters("test/1"));
+        assertEquals(setOf("test/+/1", "test/#", "#", "+/1/+"), matchingFilters("test/1/1"));
+        assertEquals(setOf("test/#", "#"), matchingFilters("test/1/2/3"));
+        assertEquals(setOf("#", "+/1/+"), matchingFilters("A/1/B"));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        subscribe("test/+");
+        subscribe("test/+/1");
+        subscribe("test/1/");
+
+        trie.remove("test/+/1");
+        assertEquals(setOf("test/+", "test/1/"), matchingFilters("test/1"));
+        assertEquals(new HashSet<String>(), matchingFilters("test/1/1"));
+
+        trie.remove("test/+");
+        assertEquals(setOf("test/1/"), matchingFilters("test/1"));
+        trie.remove("not/subscribed");
+        trie.clear();
+        assertEquals(new HashSet<String>(), matchingFilters("test/1"));
+    }
+
+    @Test
+    public void testSameAsLinearScan() throws Exception {
+        Random random = new Random(1);
+        Map<String, AWSIotMqttTopic> topicListeners = new ConcurrentHashMap<String, AWSIotMqttTopic>();
+        for (String filter : randomFilters(random, 500)) {
+            topicListeners.put(filter, subscribe(filter));
+        }
+        for (String topic : randomTopics(random, 2000)) {
+            assertEquals(topic, linearScan(topicListeners, topic), matchingFilters(topic));
+        }
+    }
+
+    /**
+     * Compares dispatch through the trie with the linear scan over all
+     * subscriptions it replaced.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmarkAgainstLinearScan() throws Exception {
+        Random random = new Random(2);
+        Map<String, AWSIotMqttTopic> topicListeners = new ConcurrentHashMap<String, AWSIotMqttTopic>();
+        for (String filter : randomFilters(random, 300)) {
+            topicListeners.put(filter, subscribe(filter));
+        }
+        List<String> topics = randomTopics(random, 1000);
+        int rounds = 20;
+
+        // warm up both paths before timing either
+        for (int i = 0; i < rounds; i++) {
+            for (String topic : topics) {
+                linearScan(topicListeners, topic);
+                trie.match(topic);
+            }
+        }
+
+        long start = System.nanoTime();
+        long linearMatches = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String topic : topics) {
+                linearMatches += linearScan(topicListeners, topic).size();
+            }
+        }
+        long linearNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long trieMatches = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String topic : topics) {
+                trieMatches += trie.match(topic).size();
+            }
+        }
+        long trieNanos = System.nanoTime() - start;
+
+        int messages = rounds * topics.size();
+        System.out.println(String.format(
+                "%d subscriptions, %d messages: linear scan %d ns/message, trie %d ns/message",
+                topicListeners.size(), messages, linearNanos / messages, trieNanos / messages));
+        assertEquals("same matches", linearMatches, trieMatches);
+    }
+
+    private static Set<String> linearScan(Map<String, AWSIotMqttTopic> topicListeners,
+            String topic) {
+        Set<String> filters = new HashSet<String>();
+        for (String topicKey : topicListeners.keySet()) {
+            if (AWSIotMqttManager.isTopicMatch(topicKey, topic)) {
+                filters.add(topicKey);
+            }
+        }
+        return filters;
+    }
+
+    private static String randomLevel(Random random) {
+        return "l" + random.nextInt(4);
+    }
+
+    private static List<String> randomFilters(Random random, int count) {
+        List<String> filters = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder filter = new StringBuilder("dev");
+            int depth = random.nextInt(5);
+            for (int level = 0; level < depth; level++) {
+                filter.append('/');
+                int kind = random.nextInt(6);
+                if (kind == 0) {
+                    filter.append('+');
+                } else if (kind == 1 && level == depth - 1) {
+                    filter.append('#');
+                } else {
+                    filter.append(randomLevel(random));
+                }
+            }
+            filters.add(filter.toString());
+        }
+        return filters;
+    }
+
+    private static List<String> randomTopics(Random random, int count) {
+        List<String> topics = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder topic = new StringBuilder("dev");
+            int depth = random.nextInt(6);
+            for (int level = 0; level < depth; level++) {
+                topic.append('/').append(randomLevel(random));
+            }
+            topics.add(topic.toString());
+        }
+        return topics;
+    }
+
+    private static Set<String> setOf(String... values) {
+        Set<String> set = new HashSet<String>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
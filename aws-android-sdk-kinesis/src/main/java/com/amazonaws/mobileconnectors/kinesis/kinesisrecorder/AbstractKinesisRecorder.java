@@ -23,9 +23,20 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract class for Amazon Kinesis recorders. It manages local file store
@@ -45,14 +56,26 @@ public abstract class AbstractKinesisRecorder {
      * Maximum size in bytes of records in PutRecordBatch.
      */
     private static final int MAX_BATCH_RECORDS_SIZE_BYTES = 512 * 1024;
+    private static final long SUBMIT_THREAD_KEEP_ALIVE_SECONDS = 60;
 
     /**
      * The configurable options for Kinesis Recorder, includes the
      * ClientConfiguration of the low level client.
      */
     protected KinesisRecorderConfig config;
+    /**
+     * The store of the records if it's a text file, null if the records are
+     * kept in a segmented log.
+     */
     protected FileRecordStore recordStore;
 
+    /** The store the records are saved to and submitted from. */
+    private final RecordStore store;
+
+    private final SubmitMetrics metrics = new SubmitMetrics();
+    /** Sends batches when more than one batch is in flight, created on demand. */
+    private ThreadPoolExecutor submitExecutor;
+
     /**
      * Gets the sender to send saved records.
      *
@@ -67,10 +90,23 @@ public abstract class AbstractKinesisRecorder {
      * @param config configuration
      */
     protected AbstractKinesisRecorder(FileRecordStore recordStore, KinesisRecorderConfig config) {
+        this((RecordStore) recordStore, config);
+    }
+
+    /**
+     * Creates a {@link AbstractKinesisRecorder}.
+     *
+     * @param recordStore local store that keeps Kinesis records
+     * @param config configuration
+     */
+    AbstractKinesisRecorder(RecordStore recordStore, KinesisRecorderConfig config) {
         if (recordStore == null) {
             throw new IllegalArgumentException("Record store can't be null");
         }
-        this.recordStore = recordStore;
+        this.store = recordStore;
+        this.recordStore = recordStore instanceof FileRecordStore
+                ? (FileRecordStore) recordStore
+                : null;
         this.config = config;
     }
 
@@ -97,7 +133,7 @@ public abstract class AbstractKinesisRecorder {
      */
     public void saveRecord(byte[] data, String streamName) {
         try {
-            recordStore.put(FileRecordParser.asString(streamName, data));
+            store.put(streamName, data);
         } catch (final IOException e) {
             throw new AmazonClientException("Error saving record", e);
         }
@@ -108,9 +144,11 @@ public abstract class AbstractKinesisRecorder {
      * successfully sent will be deleted from the device. Requests that fail due
      * to the device being offline will stop the submission process and be kept.
      * Requests that fail due to other reasons (such as the request being
-     * invalid) will be deleted. Note: Since KinesisRecorder uses synchronous
-     * methods to make calls to Amazon Kinesis, do not call submitAll() on the
-     * main thread of your application.
+     * invalid) will be deleted. Up to
+     * {@link KinesisRecorderConfig#getSubmitConcurrency()} batches are sent at
+     * the same time. Note: Since KinesisRecorder uses synchronous methods to
+     * make calls to Amazon Kinesis, do not call submitAll() on the main thread
+     * of your application.
      *
      * @throws AmazonClientException Thrown if there was an unrecoverable error
      *             during submission. Note: If the request appears to be
@@ -118,100 +156,243 @@ public abstract class AbstractKinesisRecorder {
      *             to be valid, it will be kept.
      */
     public synchronized void submitAllRecords() {
-        final RecordSender sender = getRecordSender();
-        final RecordIterator iterator = recordStore.iterator();
-        final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
-        int retry = 0;
-        int count = 0;
-        boolean unknownErrorRetried = false;
+        final long start = System.nanoTime();
+        final int concurrency = Math.max(1, config.getSubmitConcurrency());
+        final Submission submission = new Submission(getRecordSender(), store.cursor(),
+                concurrency > 1 ? getSubmitExecutor(concurrency) : null);
+        final LinkedList<Batch> inFlight = new LinkedList<Batch>();
         try {
-            while (iterator.hasNext() && retry < MAX_RETRY_COUNT) {
-                final String streamName = nextBatch(iterator, data, MAX_RECORDS_PER_BATCH,
-                        MAX_BATCH_RECORDS_SIZE_BYTES);
-                if (streamName == null || data.isEmpty()) {
+            while (submission.retry < MAX_RETRY_COUNT) {
+                if (inFlight.size() >= concurrency) {
+                    submission.complete(inFlight.removeFirst());
+                    continue;
+                }
+                final Batch batch = submission.nextBatch();
+                if (batch != null) {
+                    submission.send(batch);
+                    inFlight.add(batch);
+                } else if (!inFlight.isEmpty()) {
+                    // completing a batch may save failed records again
+                    submission.complete(inFlight.removeFirst());
+                } else {
                     break;
                 }
+            }
+            // batches sent before reaching the retry limit are still
+            // acknowledged so they aren't sent again
+            while (!inFlight.isEmpty()) {
+                submission.complete(inFlight.removeFirst());
+            }
+        } finally {
+            metrics.recordSubmit(System.nanoTime() - start);
+            LOGGER.debug(String.format("submitAllRecords sent %d records", submission.count));
+            try {
+                submission.iterator.close();
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to close record file", e);
+            }
+        }
+    }
 
-                try {
+    /**
+     * Returns the executor that sends batches when more than one batch is in
+     * flight. Its threads are released when idle.
+     */
+    private ThreadPoolExecutor getSubmitExecutor(int concurrency) {
+        if (submitExecutor == null || submitExecutor.getMaximumPoolSize() != concurrency) {
+            if (submitExecutor != null) {
+                submitExecutor.shutdown();
+            }
+            submitExecutor = new ThreadPoolExecutor(concurrency, concurrency,
+                    SUBMIT_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
 
-                    List<byte[]> failures = null;
-                    try {
-                        failures = sender.sendBatch(streamName, data);
-                    } catch (AmazonClientException ace) {
-                        if (!unknownErrorRetried
-                                && ace.getMessage() != null
-                                && ace.getMessage().contains("Unable to unmarshall error response")) {
-                            // Retry once for unforeseen error, possible kinesis error without shape
-                            unknownErrorRetried = true;
-                            failures = data;
-                        } else {
-                            throw ace;
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "KinesisRecorder-submit-"
+                                    + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
                         }
-                    }
+                    });
+            submitExecutor.allowCoreThreadTimeOut(true);
+        }
+        return submitExecutor;
+    }
+
+    /**
+     * A batch of records of one stream read from the record store.
+     */
+    private final class Batch implements Callable<List<byte[]>> {
+        final RecordSender sender;
+        final String streamName;
+        final List<byte[]> data;
+        /** Position in the record store right after this batch. */
+        final RecordStore.Position end;
+        final FutureTask<List<byte[]>> task = new FutureTask<List<byte[]>>(this);
+
+        Batch(RecordSender sender, String streamName, List<byte[]> data,
+                RecordStore.Position end) {
+            this.sender = sender;
+            this.streamName = streamName;
+            this.data = data;
+            this.end = end;
+        }
+
+        @Override
+        public List<byte[]> call() {
+            final long start = System.nanoTime();
+            try {
+                return sender.sendBatch(streamName, data);
+            } finally {
+                long bytes = 0;
+                for (final byte[] record : data) {
+                    bytes += record.length;
+                }
+                metrics.recordBatch(bytes, System.nanoTime() - start);
+            }
+        }
+    }
 
-                    final int successCount = data.size() - failures.size();
-                    count += successCount;
-
-                    /**
-                     * We hold off on removing records until we are sure that we
-                     * have successfully made the request. We would prefer to
-                     * send duplicates than to lose records. This is still not a
-                     * perfect solution as there is a chance for loss between
-                     * removing the read records and re-saving the failed
-                     * records.
-                     * https://github.com/aws/aws-sdk-android/issues/225 If this
-                     * errors it will throw an IOException. We don't wrap it so
-                     * it's handled separately from network errors which will be
-                     * wrapped by an AmazonClientException.
-                     */
-                    iterator.removeReadRecords();
-
-                    if (successCount == 0) {
-                        // no record went through, increase retry count.
-                        retry++;
+    /**
+     * State of one call of {@link AbstractKinesisRecorder#submitAllRecords()}.
+     */
+    private final class Submission {
+        final RecordSender sender;
+        final RecordStore.Cursor iterator;
+        /** Executor to send batches on, or null to send on the calling thread. */
+        final Executor executor;
+        int retry = 0;
+        int count = 0;
+        boolean unknownErrorRetried = false;
+
+        Submission(RecordSender sender, RecordStore.Cursor iterator, Executor executor) {
+            this.sender = sender;
+            this.iterator = iterator;
+            this.executor = executor;
+        }
+
+        /**
+         * Reads the next batch, or returns null if there are no more records.
+         */
+        Batch nextBatch() {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
+            final String streamName = iterator.nextBatch(data, MAX_RECORDS_PER_BATCH,
+                    MAX_BATCH_RECORDS_SIZE_BYTES);
+            if (streamName == null || data.isEmpty()) {
+                return null;
+            }
+            return new Batch(sender, streamName, data, iterator.position());
+        }
+
+        void send(Batch batch) {
+            if (executor == null) {
+                batch.task.run();
+            } else {
+                executor.execute(batch.task);
+            }
+        }
+
+        /**
+         * Waits for the response of a batch and removes its records from the
+         * record store. All batches read before it must have been completed.
+         */
+        void complete(Batch batch) {
+            final String streamName = batch.streamName;
+            final List<byte[]> data = batch.data;
+            try {
+                List<byte[]> failures = null;
+                try {
+                    failures = getResponse(batch);
+                } catch (AmazonClientException ace) {
+                    if (!unknownErrorRetried
+                            && ace.getMessage() != null
+                            && ace.getMessage().contains("Unable to unmarshall error response")) {
+                        // Retry once for unforeseen error, possible kinesis error without shape
+                        unknownErrorRetried = true;
+                        failures = data;
+                    } else {
+                        throw ace;
                     }
-                    if (!failures.isEmpty()) {
-                        for (final byte[] bytes : failures) {
-                            saveRecord(bytes, streamName);
-                        }
+                }
+
+                final int successCount = data.size() - failures.size();
+                count += successCount;
+                metrics.recordResult(successCount, failures.size());
+
+                /**
+                 * We hold off on removing records until we are sure that we
+                 * have successfully made the request. We would prefer to send
+                 * duplicates than to lose records. This is still not a perfect
+                 * solution as there is a chance for loss between removing the
+                 * read records and re-saving the failed records.
+                 * https://github.com/aws/aws-sdk-android/issues/225 If this
+                 * errors it will throw an IOException. We don't wrap it so
+                 * it's handled separately from network errors which will be
+                 * wrapped by an AmazonClientException. Records of batches
+                 * still in flight stay in the store.
+                 */
+                iterator.removeRecordsBefore(batch.end);
+
+                if (successCount == 0) {
+                    // no record went through, increase retry count.
+                    retry++;
+                }
+                if (!failures.isEmpty()) {
+                    for (final byte[] bytes : failures) {
+                        saveRecord(bytes, streamName);
                     }
+                }
 
-                } catch (final AmazonClientException ace) {
-                    if (sender.isRecoverable(ace)) {
-                        LOGGER.error(
-                                "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
-                                ace);
-                    } else {
+            } catch (final AmazonClientException ace) {
+                if (sender.isRecoverable(ace)) {
+                    LOGGER.error(
+                            "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
+                            ace);
+                } else {
 
-                        // Data is dead and should be added to dead letter queue
-                        try {
-                            this.config.getDeadLetterListener().onRecordsDropped(streamName, data);
-                        } catch (Exception e) {
-                            LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
-                        }
+                    // Data is dead and should be added to dead letter queue
+                    try {
+                        config.getDeadLetterListener().onRecordsDropped(streamName, data);
+                    } catch (Exception e) {
+                        LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
+                    }
 
-                        try {
-                            iterator.removeReadRecords();
-                        } catch (final IOException e) {
-                            throw new AmazonClientException("Failed to drop bad records.", e);
-                        }
-                        // We have reason to believe the values in the request
-                        // is invalid and cannot be sent or recovered.
-                        LOGGER.error(
-                                "ServiceException in submit all, the last request is presumed to be the cause and will be dropped",
-                                ace);
+                    try {
+                        iterator.removeRecordsBefore(batch.end);
+                    } catch (final IOException e) {
+                        throw new AmazonClientException("Failed to drop bad records.", e);
                     }
-                    throw ace;
-                } catch (final IOException e) {
-                    throw new AmazonClientException("Failed to remove read records", e);
+                    // We have reason to believe the values in the request
+                    // is invalid and cannot be sent or recovered.
+                    LOGGER.error(
+                            "ServiceException in submit all, the last request is presumed to be the cause and will be dropped",
+                            ace);
                 }
+                throw ace;
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to remove read records", e);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while submitting records", e);
             }
-        } finally {
-            LOGGER.debug(String.format("submitAllRecords sent %d records", count));
+        }
+
+        private List<byte[]> getResponse(Batch batch) throws InterruptedException {
             try {
-                iterator.close();
-            } catch (final IOException e) {
-                throw new AmazonClientException("Failed to close record file", e);
+                return batch.task.get();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new AmazonClientException("Failed to send records", cause);
             }
         }
     }
@@ -229,41 +410,44 @@ public abstract class AbstractKinesisRecorder {
      */
     protected String nextBatch(RecordIterator iterator, List<byte[]> data, int maxCount,
             int maxSize) {
-        data.clear();
+        return iterator.nextBatch(data, maxCount, maxSize);
+    }
 
-        String lastStreamName = null;
-        int size = 0;
-        int count = 0;
-        final FileRecordParser frp = new FileRecordParser();
-        while (iterator.hasNext() && count < maxCount && size < maxSize) {
-            final String line = iterator.peek();
-            if (line == null || line.isEmpty()) {
-                iterator.next();
-                continue;
-            }
-            // parse a line. Skip in case of corrupted data
-            try {
-                frp.parse(line);
-            } catch (final Exception e) {
-                LOGGER.warn("Failed to read line. Skip.", e);
-                iterator.next();
-                continue;
-            }
+    /**
+     * Creates the record store selected by {@link KinesisRecorderConfig#getRecordStoreType()}.
+     * When the segmented log is selected, records left in the line based
+     * record file are moved into it.
+     *
+     * @param directory the directory to store records in
+     * @param recordFileName name of the record file
+     * @param config configuration
+     * @return a {@link RecordStore}
+     */
+    static RecordStore createRecordStore(File directory, String recordFileName,
+            KinesisRecorderConfig config) {
+        if (config.getRecordStoreType() != RecordStoreType.SEGMENTED_LOG) {
+            return new FileRecordStore(directory, recordFileName, config.getMaxStorageSize());
+        }
 
-            // check whether it belongs to previous batch
-            if (lastStreamName == null || lastStreamName.equals(frp.streamName)) {
-                data.add(frp.bytes);
-                // update counter
-                count++;
-                size += frp.bytes.length;
-                lastStreamName = frp.streamName;
-                iterator.next();
-            } else {
-                break;
+        final SegmentedRecordStore recordStore = new SegmentedRecordStore(directory,
+                recordFileName, config.getMaxStorageSize());
+        final File lineFile = new File(new File(directory, Constants.RECORDS_DIRECTORY),
+                recordFileName);
+        if (lineFile.isFile()) {
+            try {
+                if (lineFile.length() > 0) {
+                    final int count = recordStore.importRecords(new FileRecordStore(directory,
+                            recordFileName, Long.MAX_VALUE));
+                    LOGGER.info(String.format("Moved %d records into the segmented log", count));
+                }
+                if (!lineFile.delete()) {
+                    LOGGER.warn("Failed to delete record file " + lineFile.getName());
+                }
+            } catch (final IOException e) {
+                LOGGER.error("Failed to move records into the segmented log", e);
             }
         }
-
-        return lastStreamName;
+        return recordStore;
     }
 
     /**
@@ -284,7 +468,17 @@ public abstract class AbstractKinesisRecorder {
      * @return long The number of bytes used
      */
     public long getDiskBytesUsed() {
-        return recordStore.getFileSize();
+        return store.getFileSize();
+    }
+
+    /**
+     * Returns the counters of the batches this Kinesis Recorder has submitted,
+     * such as batch latency and throughput.
+     *
+     * @return the {@link SubmitMetrics}
+     */
+    public SubmitMetrics getSubmitMetrics() {
+        return metrics;
     }
 
     /**
@@ -305,7 +499,7 @@ public abstract class AbstractKinesisRecorder {
      */
     public synchronized void deleteAllRecords() {
         try {
-            recordStore.iterator().removeAllRecords();
+            store.removeAllRecords();
         } catch (final IOException e) {
             throw new AmazonClientException("Error deleting events", e);
         }
@@ -33,6 +33,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -40,7 +41,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * the Android disk. Currently it stores each request as a JSON object
  * representing it's properties. One request per line.
  */
-class FileRecordStore {
+class FileRecordStore implements RecordStore {
     private static final Log LOGGER = LogFactory.getLog(FileRecordStore.class);
     private final ReentrantLock accessLock = new ReentrantLock(true);
 
@@ -94,6 +95,12 @@ class FileRecordStore {
         return success;
     }
 
+    @Override
+    public boolean put(String streamName, byte[] data) throws IOException {
+        return put(FileRecordParser.asString(streamName, data));
+    }
+
+    @Override
     public long getFileSize() {
         return recordFile == null ? 0 : recordFile.length();
     }
@@ -200,8 +207,20 @@ class FileRecordStore {
 
     }
 
-    public class RecordIterator implements java.util.Iterator<String> {
+    @Override
+    public Cursor cursor() {
+        return iterator();
+    }
+
+    @Override
+    public void removeAllRecords() throws IOException {
+        iterator().removeAllRecords();
+    }
+
+    public class RecordIterator implements java.util.Iterator<String>, Cursor {
         int linesRead = 0;
+        /** Lines removed from the file through this iterator. */
+        long linesRemoved = 0;
         String nextBuffer = null;
         BufferedReader reader = null;
         boolean isEndOfFile = false;
@@ -333,20 +352,96 @@ class FileRecordStore {
                     "The remove() operation is not supported for this iterator");
         }
 
+        @Override
+        public String nextBatch(List<byte[]> data, int maxCount, int maxSize) {
+            data.clear();
+
+            String lastStreamName = null;
+            int size = 0;
+            int count = 0;
+            final FileRecordParser frp = new FileRecordParser();
+            while (hasNext() && count < maxCount && size < maxSize) {
+                final String line = peek();
+                if (line == null || line.isEmpty()) {
+                    next();
+                    continue;
+                }
+                // parse a line. Skip in case of corrupted data
+                try {
+                    frp.parse(line);
+                } catch (final Exception e) {
+                    LOGGER.warn("Failed to read line. Skip.", e);
+                    next();
+                    continue;
+                }
+
+                // check whether it belongs to previous batch
+                if (lastStreamName == null || lastStreamName.equals(frp.streamName)) {
+                    data.add(frp.bytes);
+                    // update counter
+                    count++;
+                    size += frp.bytes.length;
+                    lastStreamName = frp.streamName;
+                    next();
+                } else {
+                    break;
+                }
+            }
+
+            return lastStreamName;
+        }
+
+        @Override
+        public Position position() {
+            accessLock.lock();
+            try {
+                return new Position(0, linesRemoved + linesRead);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
         public void removeReadRecords() throws IOException {
             accessLock.lock();
             try {
                 deleteReadRecords(linesRead);
+                linesRemoved += linesRead;
                 resetReader();
             } finally {
                 accessLock.unlock();
             }
         }
 
+        @Override
+        public void removeRecordsBefore(Position position) throws IOException {
+            accessLock.lock();
+            try {
+                final int count = (int) (position.offset - linesRemoved);
+                if (count <= 0 && !isEndOfFile) {
+                    return;
+                }
+                // lines read past the position are kept in the file, skip
+                // them again after reopening it
+                final int readAhead = linesRead - Math.max(count, 0);
+                if (count > 0) {
+                    deleteReadRecords(count);
+                    linesRemoved += count;
+                }
+                resetReader();
+                for (int i = 0; i < readAhead && hasNext(); i++) {
+                    next();
+                }
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
         public void removeAllRecords() throws IOException {
             accessLock.lock();
             try {
                 deleteAllRecords();
+                linesRemoved = 0;
                 resetReader();
             } finally {
                 accessLock.unlock();
@@ -360,6 +455,7 @@ class FileRecordStore {
             isEndOfFile = false;
         }
 
+        @Override
         public void close() throws IOException {
             tryCloseReader();
         }
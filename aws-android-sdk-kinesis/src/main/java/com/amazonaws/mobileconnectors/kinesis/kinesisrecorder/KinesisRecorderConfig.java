@@ -24,10 +24,13 @@ import com.amazonaws.ClientConfiguration;
 public class KinesisRecorderConfig {
 
     private static final long DEFAUT_MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final int DEFAULT_SUBMIT_CONCURRENCY = 1;
     private long maxStorageSize = DEFAUT_MAX_STORAGE_SIZE;
     private final ClientConfiguration clientConfiguration;
     private String partitionKey;
     private DeadLetterListener mDeadLetterListener;
+    private RecordStoreType recordStoreType = RecordStoreType.TEXT_FILE;
+    private int submitConcurrency = DEFAULT_SUBMIT_CONCURRENCY;
 
     /**
      * Construct an instance of KinesisRecorderConfig which has default values
@@ -61,6 +64,8 @@ public class KinesisRecorderConfig {
         this.maxStorageSize = other.getMaxStorageSize();
         this.clientConfiguration = new ClientConfiguration(other.getClientConfiguration());
         this.partitionKey = other.partitionKey;
+        this.recordStoreType = other.recordStoreType;
+        this.submitConcurrency = other.submitConcurrency;
     }
 
     /**
@@ -94,6 +99,53 @@ public class KinesisRecorderConfig {
         return this.maxStorageSize;
     }
 
+    /**
+     * Sets the format KinesisRecorder uses to keep records on disk. The
+     * default is {@link RecordStoreType#TEXT_FILE}.
+     *
+     * @param recordStoreType the record store type.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withRecordStoreType(RecordStoreType recordStoreType) {
+        if (recordStoreType == null) {
+            throw new IllegalArgumentException("Record store type can't be null");
+        }
+        this.recordStoreType = recordStoreType;
+        return this;
+    }
+
+    /**
+     * @return The format KinesisRecorder uses to keep records on disk.
+     */
+    public RecordStoreType getRecordStoreType() {
+        return this.recordStoreType;
+    }
+
+    /**
+     * Sets the maximum number of batches submitAllRecords keeps in flight. The
+     * next batches are read and sent while earlier ones are waiting for a
+     * response, and records are removed from disk in order once every batch
+     * before them has been acknowledged. The default is 1, which sends one
+     * batch at a time.
+     *
+     * @param submitConcurrency the maximum number of batches in flight.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withSubmitConcurrency(int submitConcurrency) {
+        if (submitConcurrency < 1) {
+            throw new IllegalArgumentException("Submit concurrency must be at least 1");
+        }
+        this.submitConcurrency = submitConcurrency;
+        return this;
+    }
+
+    /**
+     * @return The maximum number of batches submitAllRecords keeps in flight.
+     */
+    public int getSubmitConcurrency() {
+        return this.submitConcurrency;
+    }
+
     /**
      * Returns the {@link DeadLetterListener} that will respond to records being dropped.
      * @return the {@link DeadLetterListener} that will respond to records being dropped.
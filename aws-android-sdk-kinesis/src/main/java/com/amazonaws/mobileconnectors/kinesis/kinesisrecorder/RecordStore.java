@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Local storage of Kinesis records waiting to be submitted.
+ */
+interface RecordStore {
+    /**
+     * Appends a record to the store.
+     *
+     * @param streamName the stream the record is sent to
+     * @param data data of the record
+     * @return true if the record is saved, false if the store is full
+     * @throws IOException if the record can't be written
+     */
+    boolean put(String streamName, byte[] data) throws IOException;
+
+    /**
+     * Opens a cursor that reads records from the oldest unacknowledged one.
+     *
+     * @return a {@link Cursor}
+     */
+    Cursor cursor();
+
+    /**
+     * Returns the number of bytes the store occupies on disk.
+     *
+     * @return the number of bytes used
+     */
+    long getFileSize();
+
+    /**
+     * Removes all the records in the store.
+     *
+     * @throws IOException if the records can't be removed
+     */
+    void removeAllRecords() throws IOException;
+
+    /**
+     * A position in a {@link RecordStore}, returned by a {@link Cursor}.
+     */
+    final class Position {
+        final long segment;
+        final long offset;
+
+        Position(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Reads batches of records from a {@link RecordStore}.
+     */
+    interface Cursor {
+        /**
+         * Tests whether there are more records to read.
+         *
+         * @return true if there are more records
+         */
+        boolean hasNext();
+
+        /**
+         * Reads a batch of records belong to the same stream into a list. If
+         * data is read successfully, the stream name is returned.
+         *
+         * @param data a list to hold data.
+         * @param maxCount maximum number of records in a batch
+         * @param maxSize a threshold that concludes a batch. It allows one
+         *            extra record that brings the total size over this
+         *            threshold.
+         * @return the stream name that the batch belongs to
+         */
+        String nextBatch(List<byte[]> data, int maxCount, int maxSize);
+
+        /**
+         * Returns the position right after the last record read by this
+         * cursor. The records before it can be removed later with
+         * {@link #removeRecordsBefore(Position)} while the cursor keeps
+         * reading ahead.
+         *
+         * @return the position of this cursor
+         */
+        Position position();
+
+        /**
+         * Removes the records read by this cursor from the store.
+         *
+         * @throws IOException if the records can't be removed
+         */
+        void removeReadRecords() throws IOException;
+
+        /**
+         * Removes the records before a position returned by
+         * {@link #position()} from the store. Records read after that
+         * position stay in the store and the cursor continues after them.
+         *
+         * @param position a position of this cursor
+         * @throws IOException if the records can't be removed
+         */
+        void removeRecordsBefore(Position position) throws IOException;
+
+        /**
+         * Releases the resources held by this cursor.
+         *
+         * @throws IOException if the cursor can't be closed
+         */
+        void close() throws IOException;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+/**
+ * The format Kinesis recorders use to keep records on disk.
+ */
+public enum RecordStoreType {
+    /**
+     * A text file with one Base64 encoded record per line. Removing sent
+     * records rewrites the file.
+     */
+    TEXT_FILE,
+    /**
+     * An append-only log of binary segment files with a checksum per record.
+     * Removing sent records only persists a read cursor and deletes the
+     * segments that were sent completely. Records left in a
+     * {@link #TEXT_FILE} store are moved into the log when the recorder is
+     * created.
+     */
+    SEGMENTED_LOG
+}
@@ -0,0 +1,647 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.util.StringUtils;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link RecordStore} backed by an append-only log of binary segment files.
+ * Each record is stored as
+ *
+ * <pre>
+ * stream name length (2 bytes) | stream name (UTF-8) | data length (4 bytes) | data | CRC32 (4 bytes)
+ * </pre>
+ *
+ * Records are appended to the newest segment with a single write, and a new
+ * segment is started once the newest one reaches the segment size. The
+ * position of the oldest unacknowledged record is persisted in a cursor file,
+ * so removing acknowledged records only rewrites the cursor and deletes the
+ * segments that were read completely.
+ */
+class SegmentedRecordStore implements RecordStore {
+    private static final Log LOGGER = LogFactory.getLog(SegmentedRecordStore.class);
+
+    /**
+     * Default size in bytes after which a new segment is started.
+     */
+    static final long DEFAULT_SEGMENT_SIZE = 1024 * 1024L;
+
+    private static final String SEGMENTS_DIRECTORY_SUFFIX = ".segments";
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String CURSOR_FILE_NAME = "cursor";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int MAX_STREAM_NAME_LENGTH = 0xFFFF;
+    private static final int CRC_SIZE = 4;
+    /**
+     * Bytes of a record in addition to its stream name and data.
+     */
+    private static final int RECORD_OVERHEAD = 2 + 4 + CRC_SIZE;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final ReentrantLock accessLock = new ReentrantLock(true);
+    private final File segmentDirectory;
+    private final long maxStorageSize;
+    private final long segmentSize;
+
+    /** Ids of the segments on disk, oldest first. */
+    private final LinkedList<Long> segments = new LinkedList<Long>();
+    /** Total size in bytes of the segments on disk. */
+    private long totalSize;
+
+    /** Segment id of the persisted read cursor. */
+    private long readSegment;
+    /** Offset in the segment of the persisted read cursor. */
+    private long readOffset;
+
+    /** Id of the segment new records are appended to. */
+    private long writeSegment;
+    /** Size in bytes of the segment new records are appended to. */
+    private long writeSegmentSize;
+    /** Append stream of the write segment, opened on the first put. */
+    private OutputStream writer;
+
+    /**
+     * Creates the SegmentedRecordStore.
+     *
+     * @param workDirectory The directory (which the SegmentedRecordStore is
+     *            only used for the KinesisRecorder) to use to store requests in
+     * @param recordFileName Name of the record log
+     * @param maxStorageSize Maximum storage size in bytes
+     */
+    public SegmentedRecordStore(File workDirectory, String recordFileName, long maxStorageSize) {
+        this(workDirectory, recordFileName, maxStorageSize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates the SegmentedRecordStore.
+     *
+     * @param workDirectory The directory (which the SegmentedRecordStore is
+     *            only used for the KinesisRecorder) to use to store requests in
+     * @param recordFileName Name of the record log
+     * @param maxStorageSize Maximum storage size in bytes
+     * @param segmentSize Size in bytes after which a new segment is started
+     */
+    SegmentedRecordStore(File workDirectory, String recordFileName, long maxStorageSize,
+            long segmentSize) {
+        final FileManager fileManager = new FileManager(workDirectory);
+        this.segmentDirectory = fileManager.createDirectory(Constants.RECORDS_DIRECTORY
+                + File.separator + recordFileName + SEGMENTS_DIRECTORY_SUFFIX);
+        if (segmentDirectory == null) {
+            throw new AmazonClientException("Failed to create segment directory");
+        }
+        this.maxStorageSize = maxStorageSize;
+        this.segmentSize = segmentSize;
+        try {
+            load();
+        } catch (final IOException ioe) {
+            throw new AmazonClientException("Failed to open segmented record store", ioe);
+        }
+    }
+
+    /**
+     * Reads the segments and the persisted cursor from disk. Records are
+     * always appended to a new segment, so a record torn by a crash is only
+     * ever at the end of a segment that isn't written again.
+     */
+    private void load() throws IOException {
+        final List<Long> ids = new ArrayList<Long>();
+        final File[] files = segmentDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                if (!name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    ids.add(Long.parseLong(name.substring(0,
+                            name.length() - SEGMENT_FILE_SUFFIX.length())));
+                } catch (final NumberFormatException e) {
+                    LOGGER.warn("Unknown file in segment directory: " + name);
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        readCursor();
+        for (final Long id : ids) {
+            if (id < readSegment) {
+                // acknowledged before the segment could be deleted
+                deleteSegmentFile(id);
+            } else {
+                segments.add(id);
+                totalSize += segmentFile(id).length();
+            }
+        }
+        if (segments.isEmpty() || segments.getFirst() != readSegment) {
+            readSegment = segments.isEmpty() ? 1 : segments.getFirst();
+            readOffset = 0;
+        }
+        writeSegment = segments.isEmpty() ? readSegment : segments.getLast() + 1;
+        writeSegmentSize = 0;
+    }
+
+    private void readCursor() {
+        final File cursorFile = new File(segmentDirectory, CURSOR_FILE_NAME);
+        readSegment = 0;
+        readOffset = 0;
+        if (!cursorFile.isFile()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(cursorFile));
+            readSegment = in.readLong();
+            readOffset = in.readLong();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to read cursor. Reading from the oldest segment.", e);
+            readSegment = 0;
+            readOffset = 0;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void writeCursor(long segment, long offset) throws IOException {
+        final File tempFile = new File(segmentDirectory, CURSOR_FILE_NAME + TEMP_FILE_SUFFIX);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(tempFile));
+            out.writeLong(segment);
+            out.writeLong(offset);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        if (!tempFile.renameTo(new File(segmentDirectory, CURSOR_FILE_NAME))) {
+            throw new IOException("Failed to persist the read cursor");
+        }
+    }
+
+    @Override
+    public boolean put(String streamName, byte[] data) throws IOException {
+        final byte[] name = streamName.getBytes(StringUtils.UTF8);
+        if (name.length > MAX_STREAM_NAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid stream name: " + streamName);
+        }
+        final int recordSize = RECORD_OVERHEAD + name.length + data.length;
+
+        accessLock.lock();
+        try {
+            if (totalSize + recordSize > maxStorageSize) {
+                return false;
+            }
+            if (writer != null && writeSegmentSize > 0
+                    && writeSegmentSize + recordSize > segmentSize) {
+                // roll over to a new segment
+                writer.close();
+                writer = null;
+                writeSegment++;
+                writeSegmentSize = 0;
+            }
+            if (writer == null) {
+                writer = new FileOutputStream(segmentFile(writeSegment), true);
+                if (segments.isEmpty() || segments.getLast() != writeSegment) {
+                    segments.add(writeSegment);
+                }
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            buffer.putInt(data.length);
+            buffer.put(data);
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, recordSize - CRC_SIZE);
+            buffer.putInt((int) crc.getValue());
+            writer.write(buffer.array());
+
+            writeSegmentSize += recordSize;
+            totalSize += recordSize;
+            return true;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    @Override
+    public long getFileSize() {
+        accessLock.lock();
+        try {
+            return totalSize;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    @Override
+    public Cursor cursor() {
+        accessLock.lock();
+        try {
+            return new SegmentCursor(readSegment, readOffset);
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAllRecords() throws IOException {
+        accessLock.lock();
+        try {
+            closeWriter();
+            for (final Long id : segments) {
+                deleteSegmentFile(id);
+            }
+            segments.clear();
+            totalSize = 0;
+            readSegment = writeSegment + 1;
+            readOffset = 0;
+            writeSegment = readSegment;
+            writeSegmentSize = 0;
+            writeCursor(readSegment, readOffset);
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the records of a line based {@link FileRecordStore} into this
+     * store and removes them from the line based store. It's used to migrate
+     * records saved before the segmented store was selected.
+     *
+     * @param lineStore the line based record store
+     * @return number of records moved
+     * @throws IOException if the records can't be moved
+     */
+    int importRecords(FileRecordStore lineStore) throws IOException {
+        final RecordIterator iterator = lineStore.iterator();
+        final List<byte[]> data = new ArrayList<byte[]>();
+        int count = 0;
+        try {
+            String streamName;
+            while ((streamName = iterator.nextBatch(data, Integer.MAX_VALUE,
+                    Integer.MAX_VALUE)) != null) {
+                for (final byte[] bytes : data) {
+                    if (put(streamName, bytes)) {
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        lineStore.removeAllRecords();
+        return count;
+    }
+
+    /**
+     * Closes the append stream of the write segment.
+     */
+    void closeWriter() throws IOException {
+        accessLock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(segmentDirectory, String.format("%020d", id) + SEGMENT_FILE_SUFFIX);
+    }
+
+    private void deleteSegmentFile(long id) {
+        final File file = segmentFile(id);
+        if (file.exists() && !file.delete()) {
+            LOGGER.error("Failed to delete segment " + file.getName());
+        }
+    }
+
+    /**
+     * Deletes the segments before the given segment and persists the cursor.
+     * Once all records are acknowledged, all segments are deleted.
+     */
+    private void acknowledge(long segment, long offset) throws IOException {
+        if (!segments.isEmpty() && segment == segments.getLast()) {
+            final long length = segment == writeSegment ? writeSegmentSize
+                    : segmentFile(segment).length();
+            if (offset >= length) {
+                // every record is acknowledged, start over with a new segment
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                writeSegment = Math.max(writeSegment, segment + 1);
+                writeSegmentSize = 0;
+                segment = writeSegment;
+                offset = 0;
+            }
+        }
+        writeCursor(segment, offset);
+        readSegment = segment;
+        readOffset = offset;
+        final Iterator<Long> it = segments.iterator();
+        while (it.hasNext()) {
+            final long id = it.next();
+            if (id >= segment) {
+                break;
+            }
+            totalSize -= segmentFile(id).length();
+            deleteSegmentFile(id);
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the id of the segment following the given one, or -1 if there
+     * is none.
+     */
+    private long nextSegment(long id) {
+        for (final Long next : segments) {
+            if (next > id) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                LOGGER.error("failed to close stream", e);
+            }
+        }
+    }
+
+    /**
+     * A record read from a segment.
+     */
+    private static final class Record {
+        final String streamName;
+        final byte[] data;
+        /** Segment and offset where the record starts. */
+        final long segment;
+        final long offset;
+
+        Record(String streamName, byte[] data, long segment, long offset) {
+            this.streamName = streamName;
+            this.data = data;
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Reads records in order starting from a position in the log.
+     */
+    private final class SegmentCursor implements Cursor {
+        /** Position right after the last record read from the stream. */
+        private long segment;
+        private long offset;
+        private DataInputStream in;
+        /** Length of the segment when the stream was opened or last checked. */
+        private long segmentLength;
+        /** A record read but not yet added to a batch. */
+        private Record pending;
+
+        SegmentCursor(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            accessLock.lock();
+            try {
+                if (pending == null) {
+                    pending = readRecord();
+                }
+                return pending != null;
+            } catch (final IOException ioe) {
+                throw new AmazonClientException("IO Error", ioe);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public String nextBatch(List<byte[]> data, int maxCount, int maxSize) {
+            data.clear();
+
+            String lastStreamName = null;
+            int size = 0;
+            int count = 0;
+            accessLock.lock();
+            try {
+                while (count < maxCount && size < maxSize && hasNext()) {
+                    // check whether it belongs to previous batch
+                    if (lastStreamName == null || lastStreamName.equals(pending.streamName)) {
+                        data.add(pending.data);
+                        count++;
+                        size += pending.data.length;
+                        lastStreamName = pending.streamName;
+                        pending = null;
+                    } else {
+                        break;
+                    }
+                }
+            } finally {
+                accessLock.unlock();
+            }
+            return lastStreamName;
+        }
+
+        @Override
+        public Position position() {
+            accessLock.lock();
+            try {
+                if (pending != null) {
+                    return new Position(pending.segment, pending.offset);
+                }
+                return new Position(segment, offset);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeReadRecords() throws IOException {
+            removeRecordsBefore(position());
+        }
+
+        @Override
+        public void removeRecordsBefore(Position position) throws IOException {
+            accessLock.lock();
+            try {
+                if (position.segment > readSegment
+                        || (position.segment == readSegment && position.offset > readOffset)) {
+                    acknowledge(position.segment, position.offset);
+                }
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            accessLock.lock();
+            try {
+                closeStream();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        private void closeStream() {
+            closeQuietly(in);
+            in = null;
+        }
+
+        /**
+         * Moves to the start of the next segment if there is one.
+         *
+         * @return true if moved, false if this is the newest segment
+         */
+        private boolean moveToNextSegment() {
+            final long next = nextSegment(segment);
+            if (next < 0) {
+                return false;
+            }
+            closeStream();
+            segment = next;
+            offset = 0;
+            return true;
+        }
+
+        /**
+         * Reads the next valid record, skipping corrupted ones.
+         *
+         * @return the record, or null if all records have been read
+         */
+        private Record readRecord() throws IOException {
+            while (true) {
+                if (in == null) {
+                    if (!segments.contains(segment) && !moveToNextSegment()) {
+                        return null;
+                    }
+                    final File file = segmentFile(segment);
+                    if (!file.isFile()) {
+                        return null;
+                    }
+                    segmentLength = file.length();
+                    in = new DataInputStream(new BufferedInputStream(
+                            new FileInputStream(file), READ_BUFFER_SIZE));
+                    long skipped = 0;
+                    while (skipped < offset) {
+                        final long n = in.skip(offset - skipped);
+                        if (n <= 0) {
+                            break;
+                        }
+                        skipped += n;
+                    }
+                }
+
+                final long start = offset;
+                final byte[] record;
+                try {
+                    final int nameLength = in.readUnsignedShort();
+                    final byte[] name = new byte[nameLength];
+                    in.readFully(name);
+                    final int dataLength = in.readInt();
+                    if (dataLength > segmentLength) {
+                        // the newest segment may have grown since it was opened
+                        segmentLength = segmentFile(segment).length();
+                    }
+                    if (dataLength < 0 || dataLength > segmentLength) {
+                        throw new IOException("Invalid record length " + dataLength);
+                    }
+                    record = new byte[RECORD_OVERHEAD + nameLength + dataLength];
+                    final ByteBuffer buffer = ByteBuffer.wrap(record);
+                    buffer.putShort((short) nameLength);
+                    buffer.put(name);
+                    buffer.putInt(dataLength);
+                    in.readFully(record, buffer.position(), record.length - buffer.position());
+                } catch (final EOFException e) {
+                    if (start != offset || in.available() > 0) {
+                        LOGGER.warn("Incomplete record at the end of segment " + segment);
+                    }
+                    // end of this segment, the records continue in the next one
+                    if (moveToNextSegment()) {
+                        continue;
+                    }
+                    // the newest segment may still be appended to, read it
+                    // again from the current offset next time
+                    closeStream();
+                    return null;
+                } catch (final IOException e) {
+                    LOGGER.warn("Corrupted segment " + segment + ". Skip.", e);
+                    if (moveToNextSegment()) {
+                        continue;
+                    }
+                    closeStream();
+                    return null;
+                }
+
+                offset += record.length;
+                final CRC32 crc = new CRC32();
+                crc.update(record, 0, record.length - CRC_SIZE);
+                final int expected = ByteBuffer.wrap(record, record.length - CRC_SIZE, CRC_SIZE)
+                        .getInt();
+                if ((int) crc.getValue() != expected) {
+                    LOGGER.warn("Failed to read record. Skip.");
+                    continue;
+                }
+
+                final ByteBuffer buffer = ByteBuffer.wrap(record);
+                final int nameLength = buffer.getShort() & MAX_STREAM_NAME_LENGTH;
+                final String streamName = new String(record, 2, nameLength, StringUtils.UTF8);
+                final int dataLength = ByteBuffer.wrap(record, 2 + nameLength, 4).getInt();
+                final byte[] data = new byte[dataLength];
+                System.arraycopy(record, 2 + nameLength + 4, data, 0, dataLength);
+                return new Record(streamName, data, segment, start);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the batches a Kinesis recorder has submitted since it was
+ * created or the counters were reset. Counters are updated while records are
+ * submitted and can be read from any thread.
+ */
+public final class SubmitMetrics {
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong failedRecordCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong submitNanos = new AtomicLong();
+
+    SubmitMetrics() {
+    }
+
+    /**
+     * Counts a batch sent to the service.
+     *
+     * @param bytes size of the data in the batch
+     * @param latencyNanos time it took to send the batch
+     */
+    void recordBatch(long bytes, long latencyNanos) {
+        batchCount.incrementAndGet();
+        byteCount.addAndGet(bytes);
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Counts the records of a batch after the service responded.
+     *
+     * @param succeeded number of records accepted
+     * @param failed number of records rejected
+     */
+    void recordResult(int succeeded, int failed) {
+        recordCount.addAndGet(succeeded);
+        failedRecordCount.addAndGet(failed);
+    }
+
+    /**
+     * Counts the time spent in one call of submitAllRecords.
+     *
+     * @param nanos elapsed time
+     */
+    void recordSubmit(long nanos) {
+        submitNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return the number of batches sent.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return the number of bytes of record data sent.
+     */
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * @return the number of records accepted by the service.
+     */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * @return the number of records rejected by the service.
+     */
+    public long getFailedRecordCount() {
+        return failedRecordCount.get();
+    }
+
+    /**
+     * @return the average time in milliseconds it took to send a batch.
+     */
+    public long getAverageBatchLatencyMillis() {
+        final long batches = batchCount.get();
+        return batches == 0 ? 0
+                : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / batches);
+    }
+
+    /**
+     * @return the longest time in milliseconds it took to send a batch.
+     */
+    public long getMaxBatchLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    /**
+     * @return the bytes of record data sent per second while submitting
+     *         records.
+     */
+    public long getThroughputBytesPerSecond() {
+        final long nanos = submitNanos.get();
+        return nanos == 0 ? 0 : byteCount.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        batchCount.set(0);
+        byteCount.set(0);
+        recordCount.set(0);
+        failedRecordCount.set(0);
+        totalLatencyNanos.set(0);
+        maxLatencyNanos.set(0);
+        submitNanos.set(0);
+    }
+}
@@ -33,6 +33,8 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
@@ -42,6 +44,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -51,6 +54,7 @@ public class AbstractKinesisRecorderTest {
 
     private RecordSender sender;
     private AbstractKinesisRecorder recorder;
+    private FileRecordStore recordStore;
     private DeadLetterListener deadLetterListener;
 
     @Rule
@@ -59,7 +63,7 @@ public class AbstractKinesisRecorderTest {
     static class MockAbstractKinesisRecorder extends AbstractKinesisRecorder {
         private RecordSender sender;
 
-        protected MockAbstractKinesisRecorder(FileRecordStore recordStore,
+        protected MockAbstractKinesisRecorder(RecordStore recordStore,
                 KinesisRecorderConfig config) {
             super(recordStore, config);
         }
@@ -80,7 +84,7 @@ public class AbstractKinesisRecorderTest {
         deadLetterListener = Mockito.mock(DeadLetterListener.class);
         KinesisRecorderConfig config = new KinesisRecorderConfig()
                 .withDeadLetterListener(deadLetterListener);
-        FileRecordStore recordStore = new FileRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+        recordStore = new FileRecordStore(temp.newFolder(), RECORD_FILE_NAME,
                 config.getMaxStorageSize());
         MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(recordStore,
                 config);
@@ -115,18 +119,18 @@ public class AbstractKinesisRecorderTest {
         List<byte[]> data = new ArrayList<byte[]>();
         RecordIterator iterator;
 
-        iterator = recorder.recordStore.iterator();
+        iterator = recordStore.iterator();
         String streamName = recorder.nextBatch(iterator, data, 1, 5 * 1024);
         assertEquals("read 1 records", 1, data.size());
         assertEquals("stream name", STREAM_NAME, streamName);
         iterator.close();
 
-        iterator = recorder.recordStore.iterator();
+        iterator = recordStore.iterator();
         recorder.nextBatch(iterator, data, 10, 5 * 1024);
         assertEquals("read 5 records", 5, data.size());
         iterator.close();
 
-        iterator = recorder.recordStore.iterator();
+        iterator = recordStore.iterator();
         recorder.nextBatch(iterator, data, 10, 5 * 1024 - 10);
         // allows 1 record to bring the total size over the limit
         assertEquals("read 5 records", 5, data.size());
@@ -148,8 +152,8 @@ public class AbstractKinesisRecorderTest {
         List<byte[]> data = new ArrayList<byte[]>();
 
         // read all data
-        RecordIterator iterator = recorder.recordStore.iterator();
-        iterator = recorder.recordStore.iterator();
+        RecordIterator iterator = recordStore.iterator();
+        iterator = recordStore.iterator();
         String streamName = recorder.nextBatch(iterator, data, maxCount, maxSize);
         assertEquals("read 6 records", 6, data.size());
         assertEquals("stream name", STREAM_NAME, streamName);
@@ -187,8 +191,8 @@ public class AbstractKinesisRecorderTest {
         List<byte[]> data = new ArrayList<byte[]>();
 
         // read all data
-        RecordIterator iterator = recorder.recordStore.iterator();
-        iterator = recorder.recordStore.iterator();
+        RecordIterator iterator = recordStore.iterator();
+        iterator = recordStore.iterator();
         String streamName = recorder.nextBatch(iterator, data, maxCount, maxSize);
         assertEquals("read 10 records", 10, data.size());
         assertEquals("stream name", STREAM_NAME, streamName);
@@ -317,6 +321,92 @@ public class AbstractKinesisRecorderTest {
         assertTrue("records not removed", recorder.getDiskBytesUsed() > 0);
     }
 
+    private MockAbstractKinesisRecorder createConcurrentRecorder(RecordStoreType type)
+            throws IOException {
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withRecordStoreType(type)
+                .withSubmitConcurrency(4);
+        MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(
+                AbstractKinesisRecorder.createRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+                        config), config);
+        mockRecorder.setRecordSender(sender);
+        return mockRecorder;
+    }
+
+    private void testSubmitAllRecordsConcurrently(RecordStoreType type) throws IOException {
+        recorder = createConcurrentRecorder(type);
+        // 5 batches of at most 128 records
+        for (int i = 0; i < 600; i++) {
+            recorder.saveRecord(randomBytes(16), STREAM_NAME);
+        }
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation) throws Throwable {
+                        int current = inFlight.incrementAndGet();
+                        synchronized (maxInFlight) {
+                            maxInFlight.set(Math.max(maxInFlight.get(), current));
+                        }
+                        Thread.sleep(50);
+                        inFlight.decrementAndGet();
+                        return new ArrayList<byte[]>();
+                    }
+                });
+        recorder.submitAllRecords();
+        assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
+        assertTrue("batches sent concurrently", maxInFlight.get() > 1);
+        SubmitMetrics metrics = recorder.getSubmitMetrics();
+        assertEquals("batches", 5, metrics.getBatchCount());
+        assertEquals("records", 600, metrics.getRecordCount());
+        assertEquals("bytes", 600 * 16, metrics.getByteCount());
+        assertTrue("latency", metrics.getMaxBatchLatencyMillis() >= 50);
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrently() throws IOException {
+        testSubmitAllRecordsConcurrently(RecordStoreType.TEXT_FILE);
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyWithSegmentedLog() throws IOException {
+        testSubmitAllRecordsConcurrently(RecordStoreType.SEGMENTED_LOG);
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyKeepsRecordsAfterFailedBatch()
+            throws IOException {
+        recorder = createConcurrentRecorder(RecordStoreType.SEGMENTED_LOG);
+        for (int i = 0; i < 600; i++) {
+            recorder.saveRecord(randomBytes(16), STREAM_NAME);
+        }
+        long size = recorder.getDiskBytesUsed();
+        final AmazonServiceException ase = new AmazonServiceException("some failures");
+        final AtomicInteger calls = new AtomicInteger();
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation) throws Throwable {
+                        if (calls.incrementAndGet() == 1) {
+                            // the first batch fails after the later ones succeed
+                            Thread.sleep(100);
+                            throw ase;
+                        }
+                        return new ArrayList<byte[]>();
+                    }
+                });
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        assertEquals("cursor doesn't pass the failed batch", size, recorder.getDiskBytesUsed());
+    }
+
     private byte[] randomBytes(int length) {
         byte[] data = new byte[length];
         new Random().nextBytes(data);
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordStore.Cursor;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SegmentedRecordStoreTest {
+
+    private static final String RECORD_FILE_NAME = "segmented_records";
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final String STREAM_NAME = "stream";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static byte[] bytes(int i) {
+        return ("record " + i).getBytes(StringUtils.UTF8);
+    }
+
+    private File segmentDirectory(File directory) {
+        return new File(new File(directory, Constants.RECORDS_DIRECTORY), RECORD_FILE_NAME
+                + ".segments");
+    }
+
+    private List<File> segments(File directory) {
+        final List<File> segments = new ArrayList<File>();
+        for (final File file : segmentDirectory(directory).listFiles()) {
+            if (file.getName().endsWith(".seg")) {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    private List<byte[]> readAll(RecordStore store) throws IOException {
+        final List<byte[]> all = new ArrayList<byte[]>();
+        final List<byte[]> data = new ArrayList<byte[]>();
+        final Cursor cursor = store.cursor();
+        while (cursor.nextBatch(data, 100, Integer.MAX_VALUE) != null) {
+            all.addAll(data);
+        }
+        cursor.close();
+        return all;
+    }
+
+    @Test
+    public void testPutIterateAndRemove() throws IOException {
+        final SegmentedRecordStore store = new SegmentedRecordStore(temp.newFolder(),
+                RECORD_FILE_NAME, MAX_STORAGE_SIZE);
+        assertEquals("empty store", 0, store.getFileSize());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.put(STREAM_NAME, bytes(i)));
+        }
+        store.put("another_stream", bytes(10));
+        assertTrue(store.getFileSize() > 0);
+
+        final List<byte[]> data = new ArrayList<byte[]>();
+        final Cursor cursor = store.cursor();
+        assertTrue(cursor.hasNext());
+        assertEquals(STREAM_NAME, cursor.nextBatch(data, 4, Integer.MAX_VALUE));
+        assertEquals(4, data.size());
+        assertArrayEquals(bytes(0), data.get(0));
+        cursor.removeReadRecords();
+
+        assertEquals(STREAM_NAME, cursor.nextBatch(data, 100, Integer.MAX_VALUE));
+        assertEquals("batch ends at the next stream", 6, data.size());
+        assertArrayEquals(bytes(4), data.get(0));
+        assertEquals("another_stream", cursor.nextBatch(data, 100, Integer.MAX_VALUE));
+        assertEquals(1, data.size());
+        assertNull(cursor.nextBatch(data, 100, Integer.MAX_VALUE));
+        assertFalse(cursor.hasNext());
+        cursor.close();
+
+        // only the first four records are acknowledged
+        final List<byte[]> remaining = readAll(store);
+        assertEquals(7, remaining.size());
+        assertArrayEquals(bytes(4), remaining.get(0));
+
+        store.removeAllRecords();
+        assertEquals(0, store.getFileSize());
+        assertFalse(store.cursor().hasNext());
+    }
+
+    @Test
+    public void testCursorPersistsAcrossRestart() throws IOException {
+        final File directory = temp.newFolder();
+        SegmentedRecordStore store = new SegmentedRecordStore(directory, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        for (int i = 0; i < 10; i++) {
+            store.put(STREAM_NAME, bytes(i));
+        }
+        final List<byte[]> data = new ArrayList<byte[]>();
+        final Cursor cursor = store.cursor();
+        cursor.nextBatch(data, 3, Integer.MAX_VALUE);
+        cursor.removeReadRecords();
+        cursor.close();
+        store.closeWriter();
+
+        store = new SegmentedRecordStore(directory, RECORD_FILE_NAME, MAX_STORAGE_SIZE);
+        store.put(STREAM_NAME, bytes(10));
+        final List<byte[]> all = readAll(store);
+        assertEquals(8, all.size());
+        assertArrayEquals(bytes(3), all.get(0));
+        assertArrayEquals(bytes(10), all.get(7));
+        assertEquals("appends to a new segment after restart", 2, segments(directory).size());
+    }
+
+    @Test
+    public void testRollAndDeleteSegments() throws IOException {
+        final File directory = temp.newFolder();
+        final SegmentedRecordStore store = new SegmentedRecordStore(directory, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE, 64);
+        for (int i = 0; i < 20; i++) {
+            store.put(STREAM_NAME, bytes(i));
+        }
+        final int segmentCount = segments(directory).size();
+        assertTrue("rolled over segments", segmentCount > 2);
+
+        final List<byte[]> data = new ArrayList<byte[]>();
+        final Cursor cursor = store.cursor();
+        cursor.nextBatch(data, 10, Integer.MAX_VALUE);
+        final long size = store.getFileSize();
+        cursor.removeReadRecords();
+        assertTrue("deleted read segments", segments(directory).size() < segmentCount);
+        assertTrue(store.getFileSize() < size);
+
+        cursor.nextBatch(data, 100, Integer.MAX_VALUE);
+        assertEquals(10, data.size());
+        assertArrayEquals(bytes(19), data.get(9));
+        cursor.removeReadRecords();
+        cursor.close();
+        assertEquals("deleted all segments", 0, segments(directory).size());
+        assertEquals(0, store.getFileSize());
+    }
+
+    @Test
+    public void testMaxStorageSize() throws IOException {
+        final SegmentedRecordStore store = new SegmentedRecordStore(temp.newFolder(),
+                RECORD_FILE_NAME, 100);
+        int saved = 0;
+        for (int i = 0; i < 10; i++) {
+            if (store.put(STREAM_NAME, bytes(i))) {
+                saved++;
+            }
+        }
+        assertTrue(saved > 0 && saved < 10);
+        assertTrue(store.getFileSize() <= 100);
+        assertEquals(saved, readAll(store).size());
+    }
+
+    @Test
+    public void testSkipCorruptedAndTornRecords() throws IOException {
+        final File directory = temp.newFolder();
+        SegmentedRecordStore store = new SegmentedRecordStore(directory, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        for (int i = 0; i < 3; i++) {
+            store.put(STREAM_NAME, bytes(i));
+        }
+        store.closeWriter();
+
+        final File segment = segments(directory).get(0);
+        final RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            // flip the last byte of the first record's data
+            final int firstRecordSize = 2 + STREAM_NAME.length() + 4 + bytes(0).length + 4;
+            raf.seek(firstRecordSize - 5);
+            final int b = raf.read();
+            raf.seek(firstRecordSize - 5);
+            raf.write(b ^ 0xFF);
+            // append half a record as a crash would leave it
+            raf.seek(raf.length());
+            raf.write(new byte[] {
+                    0, 6, 's', 't'
+            });
+        } finally {
+            raf.close();
+        }
+
+        store = new SegmentedRecordStore(directory, RECORD_FILE_NAME, MAX_STORAGE_SIZE);
+        store.put(STREAM_NAME, bytes(3));
+        final List<byte[]> all = readAll(store);
+        assertEquals(3, all.size());
+        assertArrayEquals(bytes(1), all.get(0));
+        assertArrayEquals(bytes(3), all.get(2));
+    }
+
+    @Test
+    public void testMigrateLineRecordFile() throws IOException {
+        final File directory = temp.newFolder();
+        final FileRecordStore lineStore = new FileRecordStore(directory, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        for (int i = 0; i < 5; i++) {
+            lineStore.put(FileRecordParser.asString(STREAM_NAME, bytes(i)));
+        }
+
+        final RecordStore store = AbstractKinesisRecorder.createRecordStore(directory,
+                RECORD_FILE_NAME,
+                new KinesisRecorderConfig().withRecordStoreType(RecordStoreType.SEGMENTED_LOG));
+        assertTrue(store instanceof SegmentedRecordStore);
+        assertFalse("line file is removed",
+                new File(new File(directory, Constants.RECORDS_DIRECTORY), RECORD_FILE_NAME)
+                        .exists());
+        final List<byte[]> all = readAll(store);
+        assertEquals(5, all.size());
+        assertArrayEquals(bytes(0), all.get(0));
+        assertArrayEquals(bytes(4), all.get(4));
+    }
+}
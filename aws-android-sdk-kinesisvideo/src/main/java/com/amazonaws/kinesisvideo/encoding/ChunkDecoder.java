@@ -32,7 +32,6 @@ import java.util.Map;
 
 public final class ChunkDecoder {
     private static final int HEX_RADIX = 16;
-    private static final int MAX_BUFFER_BYTES = 128 * 128;
     private static final int BUFFER_SIZE = 4 * 1024;
     private static final String LINE_DELIMITER = "\r\n";
     private static final String PAYLOAD_DELIMITER = "\r\n\r\n";
@@ -102,15 +101,35 @@ public final class ChunkDecoder {
         return builder.toString();
     }
 
+    /**
+     * Reads up to and including the delimiter. The stream is read a byte at a
+     * time so that nothing past the delimiter is consumed, but only the bytes
+     * that could complete the delimiter are compared after each read.
+     */
     private static String readInputStream(final InputStream inputStream, final byte[] delimiter)
             throws IOException {
 
         final byte[] buffer = new byte[BUFFER_SIZE];
-        int result = 0, offset = 0;
+        int result, offset = 0;
         do {
-            result = inputStream.read(buffer, offset++, 1);
-        } while (result > -1 && arrayIndexOf(buffer, 0, offset, delimiter) == -1);
-        return new String(buffer, 0 , offset, StandardCharsets.UTF_8);
+            result = inputStream.read(buffer, offset, 1);
+            if (result > 0) {
+                offset++;
+            }
+        } while (result > -1 && offset < buffer.length && !endsWith(buffer, offset, delimiter));
+        return new String(buffer, 0, offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean endsWith(final byte[] buffer, final int length, final byte[] suffix) {
+        if (length < suffix.length) {
+            return false;
+        }
+        for (int i = 0, j = length - suffix.length; i < suffix.length; i++, j++) {
+            if (buffer[j] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static int arrayIndexOf(final byte[] haystack, final int tail, final int head, final byte[] needle) {
@@ -134,17 +153,31 @@ public final class ChunkDecoder {
     }
 
     public static int parseChunkSize(final byte[] buffer, final int tail, final int head) {
-        byte[] tmp;
-        if (tail < head) {
-            tmp = new byte[head - tail];
-            System.arraycopy(buffer, tail, tmp, 0, head - tail);
-        } else {
-            final int len = head + buffer.length - tail;
-            tmp = new byte[len];
-            System.arraycopy(buffer, tail, tmp, 0, buffer.length - tail);
-            System.arraycopy(buffer, 0, tmp, buffer.length - tail, head);
+        // Parse the hex digits in place, allowing whitespace around them.
+        int chunkSize = 0;
+        int digits = 0;
+        boolean trailingWhitespace = false;
+        final int length = tail < head ? head - tail : head + buffer.length - tail;
+        int index = tail;
+        for (int i = 0; i < length; i++) {
+            final int digit = Character.digit(buffer[index], HEX_RADIX);
+            if (digit >= 0 && !trailingWhitespace) {
+                if (chunkSize > (Integer.MAX_VALUE - digit) / HEX_RADIX) {
+                    throw new NumberFormatException("Chunk size is too large");
+                }
+                chunkSize = chunkSize * HEX_RADIX + digit;
+                digits++;
+            } else if (Character.isWhitespace(buffer[index])) {
+                trailingWhitespace = digits > 0;
+            } else {
+                throw new NumberFormatException("Invalid character in chunk size: " + (char) buffer[index]);
+            }
+            index = (index == buffer.length - 1) ? 0 : index + 1;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Chunk size is missing");
         }
-        return Integer.parseInt(new String(tmp, 0, tmp.length, StandardCharsets.UTF_8).trim(), HEX_RADIX);
+        return chunkSize;
     }
 
     public static Response parseStatusLineAndHeaders(final InputStream inputStream) {
@@ -181,103 +214,36 @@ public final class ChunkDecoder {
 
     public static Integer decodeAckInResponseBody(final InputStream inputStream,
                                                   final Consumer<String> ackTimestampConsumer) {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII));
-        String line;
-        int chunkSize;
-        int numBytesRead, offset, ackCount = 0;
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(inputStream);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int chunkSize, offset, numBytesRead, ackCount = 0;
 
         try {
-            skipResponseHeaders(reader);
-            line = skipEmptyLines(reader);
-
-            // Parse chunk data
-            LOG.debug("Chunk size: " + line);
-            do {
-                chunkSize = Integer.parseInt(line.trim(), HEX_RADIX);
-                if (chunkSize == 0) {
-                    break;
+            decoder.readStatusLine();
+            decoder.readHeaders();
+
+            while ((chunkSize = decoder.nextChunk()) > 0) {
+                LOG.debug("Chunk size: " + chunkSize);
+                if (chunk.length < chunkSize) {
+                    chunk = new byte[chunkSize];
                 }
 
-                final char[] buff = new char[MAX_BUFFER_BYTES];
                 offset = 0;
-                do {
-                    numBytesRead = reader.read(buff, offset, chunkSize + 2 - offset);
-                    if (numBytesRead < 0) {
-                        throw new RuntimeException("Unexpected end of stream while reading chunked data");
-                    }
-
+                while (offset < chunkSize
+                        && (numBytesRead = decoder.read(chunk, offset, chunkSize - offset)) > 0) {
                     offset += numBytesRead;
-                } while (offset < chunkSize + 2);
+                }
 
                 // send the ack string to ack consumer with the exact number of bytes
-                final String chunk = new String(buff, 0, chunkSize);
-                LOG.debug("Chunk: " + chunk);
-                ackTimestampConsumer.accept(chunk);
-
-                line = reader.readLine();
-                LOG.debug("Chunk size: " + line);
-            } while (line != null);
+                final String ack = new String(chunk, 0, offset, StandardCharsets.UTF_8);
+                LOG.debug("Chunk: " + ack);
+                ackTimestampConsumer.accept(ack);
+                ackCount++;
+            }
         } catch (final Throwable e) {
             throw new RuntimeException("Exception while decoding Ack in response ! ", e);
         }
 
         return ackCount;
     }
-
-    private static String skipEmptyLines(final BufferedReader reader) throws Throwable {
-        String line;
-
-        do {
-            line = reader.readLine();
-        }
-        while (line != null && line.isEmpty());
-
-        return line;
-    }
-
-    /**
-     * Read and throw aways all raw bytes for the response headers.
-     * <p>
-     * FIXME we could have a function to read and parse response instead
-     * The caller could just not throw away the return value. This will be
-     * useful for ChunkDecoder::decodeHeaders
-     *
-     * @param reader
-     * @return
-     * @throws Throwable
-     */
-    private static String skipResponseHeaders(final BufferedReader reader) throws Throwable {
-        String line;
-
-        line = skipEmptyLines(reader);
-        LOG.debug("Skip header: " + line);
-        if (isStatusLine(line)) {
-            do {
-                line = reader.readLine();
-                LOG.debug("Skip header: " + line);
-            }
-            while (isNotBlank(line));
-        }
-
-        return line;
-    }
-
-    private static boolean isNotBlank(final CharSequence cs) {
-        final int strLen = cs == null ? 0 : cs.length();
-        if (cs == null || strLen == 0) {
-            return false;
-        }
-        for (int i = 0; i < strLen; i++) {
-            if (!Character.isWhitespace(cs.charAt(i))) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean isStatusLine(final String line) {
-        // FIXME
-        return true;
-    }
-
 }
@@ -0,0 +1,379 @@
+/**
+ * Copyright 2019 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.encoding;
+
+import com.amazonaws.kinesisvideo.model.ResponseStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decodes an HTTP/1.1 response read straight from a socket: the status line,
+ * the headers and then the body one chunk at a time.
+ * <p>
+ * The stream is read in bulk into a single buffer and every byte is looked at
+ * once. Lines split across reads are carried over rather than rescanned, and
+ * chunk sizes are parsed from the bytes as they go by. The decoder owns the
+ * bytes it has read ahead, so once it is created the stream must only be read
+ * through it.
+ */
+public final class ChunkedResponseDecoder implements Closeable {
+    private static final int HEX_RADIX = 16;
+    private static final int BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+    private static final int MAX_CHUNK_SIZE_DIGITS = 7;
+    private static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    private static final String CHUNKED = "chunked";
+
+    private enum State {
+        STATUS_LINE,
+        HEADERS,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        IDENTITY_DATA,
+        DONE
+    }
+
+    private final InputStream inputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private State state = State.STATUS_LINE;
+    private int chunkRemaining;
+
+    /**
+     * Holds the start of a line that didn't fit in the rest of the buffer.
+     */
+    private byte[] lineBuffer = new byte[0];
+    private int lineLength;
+
+    public ChunkedResponseDecoder(final InputStream inputStream) {
+        if (inputStream == null) {
+            throw new NullPointerException("inputStream");
+        }
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Reads the status line, skipping any empty lines in front of it.
+     *
+     * @return the status of the response
+     * @throws IOException if the stream ends or the status line is malformed
+     */
+    public ResponseStatus readStatusLine() throws IOException {
+        checkState(State.STATUS_LINE);
+        String statusLine;
+        do {
+            statusLine = readLine();
+            if (statusLine == null) {
+                throw new ProtocolException("Stream ended before the status line");
+            }
+        } while (statusLine.isEmpty());
+
+        final int protocolEnd = statusLine.indexOf(' ');
+        if (protocolEnd < 0) {
+            throw new ProtocolException("Malformed status line: " + statusLine);
+        }
+        int statusCodeEnd = statusLine.indexOf(' ', protocolEnd + 1);
+        if (statusCodeEnd < 0) {
+            statusCodeEnd = statusLine.length();
+        }
+
+        final int statusCode;
+        try {
+            statusCode = Integer.parseInt(statusLine.substring(protocolEnd + 1, statusCodeEnd));
+        } catch (final NumberFormatException e) {
+            throw new ProtocolException("Malformed status line: " + statusLine);
+        }
+
+        state = State.HEADERS;
+        return ResponseStatus
+                .builder()
+                .protocol(statusLine.substring(0, protocolEnd))
+                .statusCode(statusCode)
+                .reason(statusCodeEnd < statusLine.length() ? statusLine.substring(statusCodeEnd + 1) : "")
+                .build();
+    }
+
+    /**
+     * Reads the headers up to the empty line that ends them. Has to be called
+     * after {@link #readStatusLine()}.
+     *
+     * @return the headers, keyed by their name as sent
+     * @throws IOException if the stream ends before the headers do
+     */
+    public Map<String, String> readHeaders() throws IOException {
+        checkState(State.HEADERS);
+        final Map<String, String> headers = new HashMap<String, String>();
+        boolean chunked = false;
+
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            final int separator = line.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            final String name = line.substring(0, separator).trim();
+            final String value = line.substring(separator + 1).trim();
+            headers.put(name, value);
+            if (TRANSFER_ENCODING.equalsIgnoreCase(name) && value.toLowerCase(Locale.US).endsWith(CHUNKED)) {
+                chunked = true;
+            }
+        }
+        if (line == null) {
+            throw new ProtocolException("Stream ended before the end of the headers");
+        }
+
+        state = chunked ? State.CHUNK_SIZE : State.IDENTITY_DATA;
+        return headers;
+    }
+
+    /**
+     * Moves to the next chunk of the body, skipping what is left of the
+     * current one. Has to be called after {@link #readHeaders()}.
+     * <p>
+     * A body that isn't chunked has no chunks of its own; each call then
+     * returns the bytes that one read of the stream gave.
+     *
+     * @return the size of the chunk, or -1 at the end of the body
+     * @throws IOException if reading fails or the chunk framing is malformed
+     */
+    public int nextChunk() throws IOException {
+        if (state == State.DONE) {
+            return -1;
+        }
+        if (state == State.IDENTITY_DATA) {
+            if (position == limit && !fill()) {
+                state = State.DONE;
+                return -1;
+            }
+            chunkRemaining = limit - position;
+            return chunkRemaining;
+        }
+        if (state == State.CHUNK_DATA) {
+            skipChunkRemaining();
+            readChunkDataEnd();
+        }
+        checkState(State.CHUNK_SIZE);
+
+        final int chunkSize = readChunkSize();
+        if (chunkSize == 0) {
+            skipTrailers();
+            state = State.DONE;
+            return -1;
+        }
+        chunkRemaining = chunkSize;
+        state = State.CHUNK_DATA;
+        return chunkSize;
+    }
+
+    /**
+     * Reads bytes of the current chunk.
+     *
+     * @return the number of bytes read, or -1 at the end of the chunk
+     * @throws IOException if the stream ends in the middle of the chunk
+     */
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (state != State.CHUNK_DATA && state != State.IDENTITY_DATA) {
+            return -1;
+        }
+        if (chunkRemaining == 0) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        final int toRead = Math.min(len, chunkRemaining);
+        int bytesRead;
+        if (position < limit) {
+            bytesRead = Math.min(toRead, limit - position);
+            System.arraycopy(buffer, position, b, off, bytesRead);
+            position += bytesRead;
+        } else if (toRead >= buffer.length) {
+            // Large reads go straight into the caller's buffer.
+            bytesRead = inputStream.read(b, off, toRead);
+        } else {
+            bytesRead = fill() ? Math.min(toRead, limit - position) : -1;
+            if (bytesRead > 0) {
+                System.arraycopy(buffer, position, b, off, bytesRead);
+                position += bytesRead;
+            }
+        }
+
+        if (bytesRead < 0) {
+            throw new ProtocolException("Stream ended in the middle of a chunk");
+        }
+        chunkRemaining -= bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        state = State.DONE;
+        inputStream.close();
+    }
+
+    private void checkState(final State expected) {
+        if (state != expected) {
+            throw new IllegalStateException("Expected to be reading " + expected + " but was reading " + state);
+        }
+    }
+
+    /**
+     * Refills the buffer once it has been consumed.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        final int bytesRead = inputStream.read(buffer, 0, buffer.length);
+        if (bytesRead <= 0) {
+            return false;
+        }
+        limit = bytesRead;
+        return true;
+    }
+
+    /**
+     * Reads a line ended by LF, dropping the CR in front of it.
+     *
+     * @return the line, or null if the stream ended first
+     */
+    private String readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                return null;
+            }
+
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+
+            if (end < limit) {
+                final String line;
+                if (lineLength == 0) {
+                    line = toLine(buffer, position, end - position);
+                } else {
+                    appendToLine(end - position);
+                    line = toLine(lineBuffer, 0, lineLength);
+                }
+                position = end + 1;
+                return line;
+            }
+
+            appendToLine(limit - position);
+            position = limit;
+        }
+    }
+
+    private void appendToLine(final int length) throws ProtocolException {
+        if (lineLength + length > MAX_LINE_LENGTH) {
+            throw new ProtocolException("Line is longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        if (lineBuffer.length < lineLength + length) {
+            final byte[] grown = new byte[Math.min(MAX_LINE_LENGTH, Math.max(lineBuffer.length * 2, lineLength + length))];
+            System.arraycopy(lineBuffer, 0, grown, 0, lineLength);
+            lineBuffer = grown;
+        }
+        System.arraycopy(buffer, position, lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private static String toLine(final byte[] bytes, final int offset, final int length) {
+        final int end = length > 0 && bytes[offset + length - 1] == '\r' ? length - 1 : length;
+        return new String(bytes, offset, end, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the hex size at the start of a chunk, ignoring any chunk
+     * extensions, up to and including the LF that ends the line.
+     */
+    private int readChunkSize() throws IOException {
+        int chunkSize = 0;
+        int digits = 0;
+        boolean inExtension = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                throw new ProtocolException("Stream ended in a chunk size");
+            }
+
+            final byte b = buffer[position++];
+            if (b == '\n') {
+                if (digits == 0) {
+                    throw new ProtocolException("Chunk size is missing");
+                }
+                return chunkSize;
+            }
+            if (inExtension || b == '\r' || b == ' ' || b == '\t') {
+                continue;
+            }
+            if (b == ';') {
+                inExtension = true;
+                continue;
+            }
+
+            final int digit = Character.digit(b, HEX_RADIX);
+            if (digit < 0) {
+                throw new ProtocolException("Invalid character in chunk size: " + (char) b);
+            }
+            if (++digits > MAX_CHUNK_SIZE_DIGITS) {
+                throw new ProtocolException("Chunk size is too large");
+            }
+            chunkSize = chunkSize * HEX_RADIX + digit;
+        }
+    }
+
+    /**
+     * Reads the CRLF that follows the data of a chunk.
+     */
+    private void readChunkDataEnd() throws IOException {
+        final String line = readLine();
+        if (line == null || !line.isEmpty()) {
+            throw new ProtocolException("Chunk data isn't followed by CRLF");
+        }
+        state = State.CHUNK_SIZE;
+    }
+
+    private void skipChunkRemaining() throws IOException {
+        while (chunkRemaining > 0) {
+            if (position == limit && !fill()) {
+                throw new ProtocolException("Stream ended in the middle of a chunk");
+            }
+            final int skipped = Math.min(chunkRemaining, limit - position);
+            position += skipped;
+            chunkRemaining -= skipped;
+        }
+    }
+
+    private void skipTrailers() throws IOException {
+        String line;
+        do {
+            line = readLine();
+        } while (line != null && !line.isEmpty());
+    }
+}
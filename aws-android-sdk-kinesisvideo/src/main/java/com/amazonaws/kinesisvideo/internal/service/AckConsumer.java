@@ -20,23 +20,22 @@ package com.amazonaws.kinesisvideo.internal.service;
 import com.amazonaws.kinesisvideo.common.function.Consumer;
 import com.amazonaws.kinesisvideo.common.logging.Log;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.encoding.ChunkedResponseDecoder;
 import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
 import com.amazonaws.kinesisvideo.producer.ProducerException;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
-class AckConsumer implements Consumer<InputStream> {
+class AckConsumer implements Consumer<ChunkedResponseDecoder> {
     private static final long STOPPED_TIMEOUT_IN_MILLISECONDS = 15000;
     private static final int FOUR_KB = 4096;
-    private static final String END_OF_STREAM_MSG = "0";
     private final KinesisVideoProducerStream stream;
-    private InputStream ackStream = null;
+    private ChunkedResponseDecoder ackDecoder = null;
     private final CountDownLatch stoppedLatch;
     private final Log log;
     private final long uploadHandle;
@@ -52,16 +51,16 @@ class AckConsumer implements Consumer<InputStream> {
     }
 
     @Override
-    public void accept(final @NonNull InputStream inputStream) {
-        ackStream = Preconditions.checkNotNull(inputStream);
+    public void accept(final @NonNull ChunkedResponseDecoder decoder) {
+        ackDecoder = Preconditions.checkNotNull(decoder);
 
         // Start a long running operation
         processAckInputStream();
     }
 
     @Nullable
-    public InputStream getAckStream() {
-        return ackStream;
+    public ChunkedResponseDecoder getAckDecoder() {
+        return ackDecoder;
     }
 
     private void processAckInputStream() {
@@ -72,23 +71,22 @@ class AckConsumer implements Consumer<InputStream> {
         log.info("Starting ACK processing");
         try {
             while (!closed) {
-                // This is a blocking operation
-                bytesRead = ackStream.read(buffer);
-
-                String bytesString = null;
-                if (bytesRead > 0) {
-                    bytesString = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
-                }
-
-                // Check for end-of-stream and 0 before processing
-                if (bytesRead == -1 || END_OF_STREAM_MSG.equals(bytesString)) {
+                // This is a blocking operation. Each chunk of the response
+                // body is an ACK, so the chunk framing is never passed on.
+                if (ackDecoder.nextChunk() == -1) {
                     // End-of-stream
                     log.debug("Received end-of-stream for ACKs.");
                     closed = true;
-                } else if (bytesRead != 0) {
-                    log.debug("Received ACK bits: " + bytesString);
+                    break;
+                }
+
+                // ACKs longer than the buffer are passed on in parts, which
+                // the parser allows
+                while ((bytesRead = ackDecoder.read(buffer, 0, buffer.length)) > 0) {
+                    final String ack = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
+                    log.debug("Received ACK bits: " + ack);
                     try {
-                        stream.parseFragmentAck(uploadHandle, bytesString);
+                        stream.parseFragmentAck(uploadHandle, ack);
                     } catch (final ProducerException e) {
                         // Log the exception
                         log.exception(e, "Processing ACK threw an exception. Logging and continuing. ");
@@ -111,8 +109,8 @@ class AckConsumer implements Consumer<InputStream> {
 
         // Close the stream
         try {
-            if (ackStream != null) {
-                ackStream.close();
+            if (ackDecoder != null) {
+                ackDecoder.close();
             }
         } catch (final IOException e) {
             throw new ProducerException(e);
@@ -20,7 +20,7 @@ package com.amazonaws.kinesisvideo.internal.service;
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.common.function.Consumer;
 import com.amazonaws.kinesisvideo.common.logging.Log;
-import com.amazonaws.kinesisvideo.encoding.ChunkDecoder;
+import com.amazonaws.kinesisvideo.encoding.ChunkedResponseDecoder;
 import com.amazonaws.kinesisvideo.model.ResponseStatus;
 import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
 import com.amazonaws.kinesisvideo.internal.service.exception.AccessDeniedException;
@@ -41,15 +41,15 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     private static final int HTTP_BAD_REQUEST = 400;
     private static final int HTTP_NOT_FOUND = 404;
     private static final int HTTP_ACCESS_DENIED = 403;
-    private final Consumer<InputStream> inputStreamConsumer;
+    private final Consumer<ChunkedResponseDecoder> ackDecoderConsumer;
     private final CountDownLatch responseLatch;
     private Exception storedException;
     private Log log;
     private KinesisVideoProducerStream kinesisVideoProducerStream;
 
-    public BlockingAckConsumer(@NonNull final Consumer<InputStream> inputStreamConsumer, Log log,
+    public BlockingAckConsumer(@NonNull final Consumer<ChunkedResponseDecoder> ackDecoderConsumer, Log log,
                                @NonNull final KinesisVideoProducerStream kinesisVideoProducerStream) {
-        this.inputStreamConsumer = checkNotNull(inputStreamConsumer);
+        this.ackDecoderConsumer = checkNotNull(ackDecoderConsumer);
         this.responseLatch = new CountDownLatch(1);
         this.log = log;
         this.kinesisVideoProducerStream = kinesisVideoProducerStream;
@@ -59,14 +59,17 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     public void accept(final @NonNull InputStream inputStream) {
         checkNotNull(inputStream);
 
+        // The decoder reads ahead, so the ACKs have to be read through it too
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(inputStream);
+
         // Await for the header
         try {
-            final ResponseStatus responseStatus = ChunkDecoder.readStatusLine(inputStream);
+            final ResponseStatus responseStatus = decoder.readStatusLine();
             final int responseCode = responseStatus.getStatusCode();
             switch (responseCode) {
                 case HTTP_OK:
                     log.debug(String.format("PutMedia call for stream %s return OK with request id %s",
-                            kinesisVideoProducerStream.getStreamName(), ChunkDecoder.decodeHeaders(inputStream)));
+                            kinesisVideoProducerStream.getStreamName(), decoder.readHeaders()));
                     break;
                 case HTTP_BAD_REQUEST:
                     throw new AmazonServiceException("PutMedia call returned bad request: "
@@ -89,7 +92,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
 
         // Forward to the origin if no exceptions have been thrown
         if (storedException == null) {
-            inputStreamConsumer.accept(inputStream);
+            ackDecoderConsumer.accept(decoder);
         }
     }
 
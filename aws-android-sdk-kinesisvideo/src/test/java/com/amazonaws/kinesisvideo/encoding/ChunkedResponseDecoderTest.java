@@ -0,0 +1,286 @@
+/**
+ * Copyright 2019 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.encoding;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.kinesisvideo.model.ResponseStatus;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ChunkedResponseDecoderTest {
+
+    private static final String HEADERS = "HTTP/1.1 200 OK\r\n"
+            + "x-amzn-RequestId: request\r\n"
+            + "Transfer-Encoding: chunked\r\n"
+            + "\r\n";
+
+    private static final String BODY = "5\r\nhello\r\n"
+            + "1a;name=value\r\nabcdefghijklmnopqrstuvwxyz\r\n"
+            + "0\r\n"
+            + "X-Trailer: trailer\r\n"
+            + "\r\n";
+
+    @Test
+    public void testDecodesResponseReadAtOnce() throws IOException {
+        final ChunkedResponseDecoder decoder = decoder(HEADERS + BODY);
+
+        final ResponseStatus status = decoder.readStatusLine();
+        assertEquals("HTTP/1.1", status.getProtocol());
+        assertEquals(200, status.getStatusCode());
+        assertEquals("OK", status.getReason());
+        final Map<String, String> headers = decoder.readHeaders();
+        assertEquals("request", headers.get("x-amzn-RequestId"));
+        assertEquals("chunked", headers.get("Transfer-Encoding"));
+
+        assertEquals(Arrays.asList("hello", "abcdefghijklmnopqrstuvwxyz"), readChunks(decoder, 64));
+        assertEquals(-1, decoder.nextChunk());
+    }
+
+    @Test
+    public void testDecodesResponseSplitAtEveryByte() throws IOException {
+        final byte[] response = bytes(HEADERS + BODY);
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(
+                new SegmentedInputStream(response, 1));
+
+        assertEquals(200, decoder.readStatusLine().getStatusCode());
+        assertEquals("request", decoder.readHeaders().get("x-amzn-RequestId"));
+        assertEquals(Arrays.asList("hello", "abcdefghijklmnopqrstuvwxyz"), readChunks(decoder, 3));
+    }
+
+    @Test
+    public void testDecodesResponseSplitAtAnyPoint() throws IOException {
+        final byte[] response = bytes(HEADERS + BODY);
+        for (int split = 1; split < response.length; split++) {
+            final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(
+                    new SegmentedInputStream(response, split, response.length));
+
+            assertEquals("split at " + split, 200, decoder.readStatusLine().getStatusCode());
+            decoder.readHeaders();
+            assertEquals("split at " + split,
+                    Arrays.asList("hello", "abcdefghijklmnopqrstuvwxyz"), readChunks(decoder, 64));
+        }
+    }
+
+    @Test
+    public void testChunkSizeLineSplitAcrossReads() throws IOException {
+        final String body = "1a;name=value\r\nabcdefghijklmnopqrstuvwxyz\r\n0\r\n\r\n";
+        final byte[] response = bytes(HEADERS + body);
+        // "1", "a;na", "me=value\r", "\n" and the rest
+        final int start = HEADERS.length();
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(new SegmentedInputStream(
+                response, start, start + 1, start + 5, start + 14, start + 15, response.length));
+
+        decoder.readStatusLine();
+        decoder.readHeaders();
+        assertEquals(26, decoder.nextChunk());
+        assertEquals("abcdefghijklmnopqrstuvwxyz", readChunk(decoder, 64));
+        assertEquals(-1, decoder.nextChunk());
+    }
+
+    @Test
+    public void testTrailersSplitAcrossReadsAreSkipped() throws IOException {
+        final String body = "3\r\nabc\r\n0\r\nX-First: one\r\nX-Second: two\r\n\r\n";
+        final byte[] response = bytes(HEADERS + body);
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(
+                new SegmentedInputStream(response, 2));
+
+        decoder.readStatusLine();
+        decoder.readHeaders();
+        assertEquals(Arrays.asList("abc"), readChunks(decoder, 64));
+        assertEquals(-1, decoder.nextChunk());
+        assertEquals(-1, decoder.read(new byte[8], 0, 8));
+    }
+
+    @Test
+    public void testChunksLargerThanTheBuffer() throws IOException {
+        final StringBuilder chunk = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            chunk.append((char) ('a' + i % 26));
+        }
+        final String body = Integer.toHexString(chunk.length()) + "\r\n" + chunk + "\r\n"
+                + Integer.toHexString(chunk.length()) + "\r\n" + chunk + "\r\n0\r\n\r\n";
+
+        // large reads go around the buffer, small ones through it
+        for (final int readSize : new int[] {16 * 1024, 100}) {
+            final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(
+                    new SegmentedInputStream(bytes(HEADERS + body), 1500));
+            decoder.readStatusLine();
+            decoder.readHeaders();
+            assertEquals(Arrays.asList(chunk.toString(), chunk.toString()),
+                    readChunks(decoder, readSize));
+        }
+    }
+
+    @Test
+    public void testNextChunkSkipsWhatIsLeftOfTheChunk() throws IOException {
+        final ChunkedResponseDecoder decoder = decoder(HEADERS + BODY);
+        decoder.readStatusLine();
+        decoder.readHeaders();
+
+        assertEquals(5, decoder.nextChunk());
+        assertEquals(2, decoder.read(new byte[2], 0, 2));
+        assertEquals(26, decoder.nextChunk());
+        assertEquals("abcdefghijklmnopqrstuvwxyz", readChunk(decoder, 64));
+    }
+
+    @Test
+    public void testBodyThatIsNotChunked() throws IOException {
+        final ChunkedResponseDecoder decoder = new ChunkedResponseDecoder(new SegmentedInputStream(
+                bytes("HTTP/1.1 400 Bad Request\r\nContent-Length: 11\r\n\r\nhello world"), 5));
+        final ResponseStatus status = decoder.readStatusLine();
+        assertEquals(400, status.getStatusCode());
+        assertEquals("Bad Request", status.getReason());
+        decoder.readHeaders();
+
+        final StringBuilder body = new StringBuilder();
+        for (final String chunk : readChunks(decoder, 64)) {
+            body.append(chunk);
+        }
+        assertEquals("hello world", body.toString());
+    }
+
+    @Test
+    public void testStatusLineAfterEmptyLines() throws IOException {
+        final ResponseStatus status = decoder("\r\n\r\nHTTP/1.1 204\r\n\r\n").readStatusLine();
+        assertEquals(204, status.getStatusCode());
+        assertEquals("", status.getReason());
+    }
+
+    @Test
+    public void testMalformedInput() throws IOException {
+        assertMalformed("HTTP/1.1\r\n\r\n");
+        assertMalformed("HTTP/1.1 abc OK\r\n\r\n");
+        assertMalformed(HEADERS + "xyz\r\n");
+        assertMalformed(HEADERS + "\r\n");
+        assertMalformed(HEADERS + "12345678\r\n");
+        assertMalformed(HEADERS + "5\r\nhelloX\r\n0\r\n\r\n");
+        assertMalformed(HEADERS + "5\r\nhel");
+        assertMalformed(HEADERS + "5");
+        assertMalformed("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n");
+    }
+
+    private static void assertMalformed(String response) throws IOException {
+        final ChunkedResponseDecoder decoder = decoder(response);
+        try {
+            decoder.readStatusLine();
+            decoder.readHeaders();
+            readChunks(decoder, 64);
+            fail("expected a ProtocolException for " + response);
+        } catch (final ProtocolException expected) {
+            // malformed
+        }
+    }
+
+    private static ChunkedResponseDecoder decoder(String response) {
+        return new ChunkedResponseDecoder(new ByteArrayInputStream(bytes(response)));
+    }
+
+    private static List<String> readChunks(ChunkedResponseDecoder decoder, int readSize)
+            throws IOException {
+        final List<String> chunks = new ArrayList<String>();
+        int chunkSize;
+        while ((chunkSize = decoder.nextChunk()) != -1) {
+            final String chunk = readChunk(decoder, readSize);
+            assertEquals(chunkSize, chunk.length());
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static String readChunk(ChunkedResponseDecoder decoder, int readSize)
+            throws IOException {
+        final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[readSize];
+        int bytesRead;
+        while ((bytesRead = decoder.read(buffer, 0, buffer.length)) != -1) {
+            chunk.write(buffer, 0, bytesRead);
+        }
+        return new String(chunk.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gives the bytes in pieces, as a socket might.
+     */
+    private static final class SegmentedInputStream extends InputStream {
+        private final byte[] bytes;
+        private final int[] ends;
+        private int position;
+        private int segment;
+
+        /**
+         * @param ends where each read stops
+         */
+        SegmentedInputStream(byte[] bytes, int... ends) {
+            this.bytes = bytes;
+            this.ends = ends;
+        }
+
+        /**
+         * Gives at most {@code segmentSize} bytes per read.
+         */
+        SegmentedInputStream(byte[] bytes, int segmentSize) {
+            this(bytes, evenEnds(bytes.length, segmentSize));
+        }
+
+        private static int[] evenEnds(int length, int segmentSize) {
+            final int[] ends = new int[(length + segmentSize - 1) / segmentSize];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = Math.min((i + 1) * segmentSize, length);
+            }
+            return ends;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position == bytes.length) {
+                return -1;
+            }
+            while (ends[segment] <= position) {
+                segment++;
+            }
+            final int count = Math.min(len, ends[segment] - position);
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
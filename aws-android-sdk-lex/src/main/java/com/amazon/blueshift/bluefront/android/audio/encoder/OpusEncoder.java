@@ -140,6 +140,18 @@ public class OpusEncoder implements AudioEncoder {
         return encodeOpus(mOpusEncoder, samples, mPacketSize);
     }
 
+    @Override
+    public int encode(final short[] samples, final int numSamples, final byte[] output,
+            final int outputOffset) throws AudioEncoderException {
+        Preconditions.checkNotNull(output, "Output buffer cannot be null");
+        // The native encoder always returns a new packet, so copy it over.
+        final byte[] packet = encode(samples, numSamples);
+        Preconditions.checkArgument(output.length - outputOffset >= packet.length,
+                "Output buffer is too small for the encoded samples");
+        System.arraycopy(packet, 0, output, outputOffset, packet.length);
+        return packet.length;
+    }
+
     @Override
     public MediaType getMediaType() {
         return mMediaType;
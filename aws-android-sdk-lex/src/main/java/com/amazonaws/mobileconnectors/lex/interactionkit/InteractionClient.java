@@ -350,6 +350,9 @@ public class InteractionClient {
                                     audioTimeouts(audioTimeouts).
                                     dnnVADConfig(vadConfig).
                                     build();
+                    // The recording task listener ignores the PCM callbacks,
+                    // so don't copy the samples for them.
+                    lexAudioRecorder.setBufferCallbacksEnabled(false);
 
                     // Calculate the maximum buffer size for pipes.
                     final int maxTotalAudioLengthInMills = audioTimeouts.getNoSpeechTimeout()
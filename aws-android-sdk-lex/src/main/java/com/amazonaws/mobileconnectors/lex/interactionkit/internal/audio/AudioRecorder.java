@@ -51,6 +51,12 @@ public class AudioRecorder implements AudioSource {
      */
     private final AtomicBoolean mIsCancelled;
 
+    /**
+     * Flag to indicate whether recorded samples are delivered to
+     * {@link AudioSourceListener#onBufferReceived(byte[])}.
+     */
+    private volatile boolean mBufferCallbacksEnabled = true;
+
     /**
      * Default value for how often the recorder position notification goes out.
      */
@@ -210,6 +216,16 @@ public class AudioRecorder implements AudioSource {
         return mListener;
     }
 
+    /**
+     * Set whether the PCM encoded samples are delivered to
+     * {@link AudioSourceListener#onBufferReceived(byte[])}. Each callback gets
+     * a copy of the samples, so turn them off when the listener ignores them.
+     * @param enabled whether to deliver the samples, true by default.
+     */
+    public void setBufferCallbacksEnabled(final boolean enabled) {
+        mBufferCallbacksEnabled = enabled;
+    }
+
     /**
      * Cancel an audio source.
      */
@@ -275,9 +291,12 @@ public class AudioRecorder implements AudioSource {
                 if (invalidOperation != numSamplesRead) {
                     setPostRecordingFields();
                     if (numSamplesRead > 0) {
-                        // Prepare samples for the callback.
-                        final byte[] callbackBuffer = pcmEncoder.encode(buffer, numSamplesRead);
-                        listener.onBufferReceived(callbackBuffer);
+                        // Prepare samples for the callback. The listener may
+                        // hold on to them, so they can't share a buffer.
+                        if (mBufferCallbacksEnabled) {
+                            final byte[] callbackBuffer = pcmEncoder.encode(buffer, numSamplesRead);
+                            listener.onBufferReceived(callbackBuffer);
+                        }
 
                         updateSumSamplesForRMSCalculations(numSamplesRead, buffer);
                     }
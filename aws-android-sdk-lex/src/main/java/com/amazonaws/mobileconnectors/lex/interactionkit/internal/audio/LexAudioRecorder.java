@@ -69,6 +69,11 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
      */
     private PipedOutputStream mProducerStream;
 
+    /**
+     * Reused buffer for the compressed audio written to the producer stream.
+     */
+    private byte[] mEncodedBuffer = new byte[0];
+
     /**
      * The state of the audio recorder before recording the next sample.
      */
@@ -257,11 +262,19 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
             // Process the samples through the VAD and get current VAD state.
             currentState = mVAD.processSamples(buffer, numSamplesRead);
 
-            // Encode audio for sending to service.
-            final byte[] compressedBuffer = mAudioEncoder.encode(buffer, numSamplesRead);
+            // Encode audio for sending to service. The encoder may hold back
+            // part of a frame from the previous read, so leave room for one
+            // more frame than the samples read.
+            final int maxEncodedLength = (numSamplesRead / mAudioEncoder.getFrameSize() + 1)
+                    * mAudioEncoder.getPacketSize();
+            if (mEncodedBuffer.length < maxEncodedLength) {
+                mEncodedBuffer = new byte[maxEncodedLength];
+            }
+            final int compressedLength = mAudioEncoder.encode(buffer, numSamplesRead,
+                    mEncodedBuffer, 0);
 
             try {
-                mProducerStream.write(compressedBuffer, 0, compressedBuffer.length);
+                mProducerStream.write(mEncodedBuffer, 0, compressedLength);
                 mProducerStream.flush();
             } catch (final IOException e) {
                 throw new AudioSourceException(
@@ -34,6 +34,23 @@ public interface AudioEncoder extends Closeable {
      */
     byte[] encode(short[] samples, int numSamples) throws AudioEncoderException;
 
+    /**
+     * Encode PCM samples to compressed audio bytes written into a buffer
+     * owned by the caller, so that the caller can reuse it across calls. The
+     * caller must leave room for at least {@link #getPacketSize()} bytes for
+     * every frame of samples that will be encoded.
+     *
+     * @param samples the samples to compress.
+     * @param numSamples the number of samples int the buffer to compress.
+     * @param output the buffer to write the compressed audio bytes to.
+     * @param outputOffset the position in the output buffer to start writing
+     *            at.
+     * @return the number of compressed audio bytes written.
+     * @throws AudioEncoderException when there's an error encoding the audio.
+     */
+    int encode(short[] samples, int numSamples, byte[] output, int outputOffset)
+            throws AudioEncoderException;
+
     /**
      * The MediaType of the compressed audio.
      *
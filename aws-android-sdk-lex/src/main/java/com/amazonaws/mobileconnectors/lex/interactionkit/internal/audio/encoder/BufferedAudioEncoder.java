@@ -19,8 +19,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.net.MediaType;
 
 import java.nio.ShortBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * A buffering audio encoder that buffers audio and only encodes full frames of
@@ -48,51 +46,45 @@ public class BufferedAudioEncoder implements AudioEncoder {
         Preconditions.checkArgument(samples.length >= numSamples,
                 "Number of samples cannot exceed buffer size");
 
+        // Size the result for every full frame, then trim it in case the
+        // encoder writes less than a packet per frame.
+        final int numFrames = (mSamplesBuffer.position() + numSamples) / mSamplesBuffer.capacity();
+        final byte[] encodedBytes = new byte[numFrames * mEncoder.getPacketSize()];
+        final int encodedLength = encode(samples, numSamples, encodedBytes, 0);
+        if (encodedLength == encodedBytes.length) {
+            return encodedBytes;
+        }
+        final byte[] trimmedBytes = new byte[encodedLength];
+        System.arraycopy(encodedBytes, 0, trimmedBytes, 0, encodedLength);
+        return trimmedBytes;
+    }
+
+    @Override
+    public int encode(final short[] samples, final int numSamples, final byte[] output,
+            final int outputOffset) throws AudioEncoderException {
+        Preconditions.checkArgument(samples.length >= numSamples,
+                "Number of samples cannot exceed buffer size");
+
         int samplesProcessed = 0;
         int toWrite = 0;
-
-        final List<byte[]> encodedBytesList = new ArrayList<byte[]>();
-        final short[] buffer = new short[mSamplesBuffer.capacity()];
+        int bytesWritten = 0;
 
         // Loop while there are enough samples to fill the buffer.
         while (mSamplesBuffer.remaining() <= numSamples - samplesProcessed) {
             // Copy samples into buffer.
             toWrite = mSamplesBuffer.remaining();
-            System.arraycopy(samples, samplesProcessed, buffer, 0, toWrite);
-
-            mSamplesBuffer.put(buffer, 0, toWrite);
+            mSamplesBuffer.put(samples, samplesProcessed, toWrite);
             samplesProcessed += toWrite;
 
             // Process samples.
-            encodedBytesList
-                    .add(mEncoder.encode(mSamplesBuffer.array(), mSamplesBuffer.capacity()));
+            bytesWritten += mEncoder.encode(mSamplesBuffer.array(), mSamplesBuffer.capacity(),
+                    output, outputOffset + bytesWritten);
             mSamplesBuffer.clear();
         }
 
         // If any samples remain, copy into buffer.
         mSamplesBuffer.put(samples, samplesProcessed, numSamples - samplesProcessed);
-        return concatenateBytes(encodedBytesList);
-    }
-
-    /**
-     * Concatenate a list of byte arrays into one array.
-     *
-     * @param byteList the list of byte arrays.
-     * @return the concatenated byte array.
-     */
-    private byte[] concatenateBytes(final List<byte[]> byteList) {
-        int size = 0;
-        for (final byte[] byteArray : byteList) {
-            size += byteArray.length;
-        }
-
-        final byte[] concatenatedByteArray = new byte[size];
-        int offset = 0;
-        for (final byte[] byteArray : byteList) {
-            System.arraycopy(byteArray, 0, concatenatedByteArray, offset, byteArray.length);
-            offset += byteArray.length;
-        }
-        return concatenatedByteArray;
+        return bytesWritten;
     }
 
     @Override
@@ -36,23 +36,40 @@ public class L16PcmEncoder implements AudioEncoder {
      */
     private static final MediaType MEDIA_TYPE = MediaType.parse("audio/x-l16");
 
+    /**
+     * Whether samples are stored little endian on this platform.
+     */
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
     @Override
     public byte[] encode(final short[] samples, final int numSamples)
             throws AudioEncoderException {
         Preconditions.checkArgument(samples.length >= numSamples,
                 "Sample buffer length must be at least as long as numSamples");
         final byte[] buffer = new byte[numSamples * 2];
+        encode(samples, numSamples, buffer, 0);
+        return buffer;
+    }
+
+    @Override
+    public int encode(final short[] samples, final int numSamples, final byte[] output,
+            final int outputOffset) throws AudioEncoderException {
+        Preconditions.checkArgument(samples.length >= numSamples,
+                "Sample buffer length must be at least as long as numSamples");
+        Preconditions.checkArgument(output.length - outputOffset >= numSamples * 2,
+                "Output buffer is too small for the encoded samples");
+        int position = outputOffset;
         for (int i = 0; i < numSamples; i++) {
             // One sample is two bytes.
-            if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
-                buffer[i * 2] = (byte) (samples[i] & 0xff);
-                buffer[i * 2 + 1] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
+            if (LITTLE_ENDIAN) {
+                output[position++] = (byte) (samples[i] & 0xff);
+                output[position++] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
             } else {
-                buffer[i * 2] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
-                buffer[i * 2 + 1] = (byte) (samples[i] & 0xff);
+                output[position++] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
+                output[position++] = (byte) (samples[i] & 0xff);
             }
         }
-        return buffer;
+        return numSamples * 2;
     }
 
     @Override
@@ -19,6 +19,7 @@ import static com.amazonaws.util.StringUtils.UTF8;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.internal.SdkInputStream;
+import com.amazonaws.internal.WritableContent;
 import com.amazonaws.util.BinaryUtils;
 
 import com.amazonaws.logging.Log;
@@ -26,11 +27,15 @@ import com.amazonaws.logging.LogFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
- * A wrapper class of InputStream that implements chunked-encoding.
+ * A wrapper class of InputStream that implements chunked-encoding. The data
+ * of each chunk is read into one buffer, reused from chunk to chunk, which is
+ * hashed and then read or written from in place.
  */
-public final class AwsChunkedEncodingInputStream extends SdkInputStream {
+public final class AwsChunkedEncodingInputStream extends SdkInputStream
+        implements WritableContent {
 
     protected static final String DEFAULT_ENCODING = "UTF-8";
     private static final int BIT_MASK = 0xFF;
@@ -43,6 +48,9 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
     private static final String CHUNK_SIGNATURE_HEADER = ";chunk-signature=";
     private static final int SIGNATURE_LENGTH = 64;
     private static final byte[] FINAL_CHUNK = new byte[0];
+    private static final byte[] CHUNK_TRAILER = {
+            '\r', '\n'
+    };
 
     private InputStream is = null;
     private final int maxBufferSize;
@@ -52,6 +60,8 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
     private final String headerSignature;
     private String priorChunkSignature;
     private final AWS4Signer aws4Signer;
+    /** Holds the data of the current chunk. */
+    private final byte[] chunkData;
 
     /** Iterator on the current chunk that has been signed. */
     private ChunkContentIterator currentChunkIterator;
@@ -121,9 +131,11 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
             maxBufferSize = Math.max(originalChunkedStream.maxBufferSize, maxBufferSize);
             is = originalChunkedStream.is;
             decodedStreamBuffer = originalChunkedStream.decodedStreamBuffer;
+            chunkData = originalChunkedStream.chunkData;
         } else {
             is = in;
             decodedStreamBuffer = null;
+            chunkData = new byte[DEFAULT_CHUNK_SIZE];
         }
 
         if (maxBufferSize < DEFAULT_CHUNK_SIZE) {
@@ -184,6 +196,26 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
         return count;
     }
 
+    /**
+     * Writes the remaining chunks to an output stream, straight from the
+     * buffer the data of each chunk is read into.
+     */
+    @Override
+    public void writeRemainingTo(OutputStream out) throws IOException {
+        while (true) {
+            abortIfNeeded();
+            if (null == currentChunkIterator
+                    || !currentChunkIterator.hasNext()) {
+                if (isTerminating) {
+                    return;
+                }
+                isTerminating = setUpNextChunk();
+            }
+            currentChunkIterator.writeRemainingTo(out);
+            isAtStart = false;
+        }
+    }
+
     @Override
     public long skip(long n) throws IOException {
         if (n <= 0) {
@@ -305,7 +337,6 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
      * @return Returns true if next chunk is the last empty chunk.
      */
     private boolean setUpNextChunk() throws IOException {
-        byte[] chunkData = new byte[DEFAULT_CHUNK_SIZE];
         int chunkSizeInBytes = 0;
         while (chunkSizeInBytes < DEFAULT_CHUNK_SIZE) {
             /** Read from the buffer of the decoded stream */
@@ -328,25 +359,18 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
             }
         }
         if (chunkSizeInBytes == 0) {
-            final byte[] signedFinalChunk = createSignedChunk(FINAL_CHUNK);
-            currentChunkIterator = new ChunkContentIterator(signedFinalChunk);
+            currentChunkIterator = createSignedChunk(FINAL_CHUNK, 0);
             return true;
         } else {
-            if (chunkSizeInBytes < chunkData.length) {
-                final byte[] temp = new byte[chunkSizeInBytes];
-                System.arraycopy(chunkData, 0, temp, 0, chunkSizeInBytes);
-                chunkData = temp;
-            }
-            final byte[] signedChunkContent = createSignedChunk(chunkData);
-            currentChunkIterator = new ChunkContentIterator(signedChunkContent);
+            currentChunkIterator = createSignedChunk(chunkData, chunkSizeInBytes);
             return false;
         }
     }
 
-    private byte[] createSignedChunk(byte[] chunkData) {
+    private ChunkContentIterator createSignedChunk(byte[] data, int length) {
         final StringBuilder chunkHeader = new StringBuilder();
         // chunk-size
-        chunkHeader.append(Integer.toHexString(chunkData.length));
+        chunkHeader.append(Integer.toHexString(length));
         // nonsig-extension
         final String nonsigExtension = "";
         // sig-extension
@@ -355,7 +379,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
                 keyPath + "\n" +
                 priorChunkSignature + "\n" +
                 BinaryUtils.toHex(aws4Signer.hash(nonsigExtension)) + "\n" +
-                BinaryUtils.toHex(aws4Signer.hash(chunkData));
+                BinaryUtils.toHex(aws4Signer.hash(data, 0, length));
         final String chunkSignature = BinaryUtils.toHex(aws4Signer.sign(chunkStringToSign, kSigning,
                 SigningAlgorithm.HmacSHA256));
         priorChunkSignature = chunkSignature;
@@ -364,14 +388,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
 
         try {
             final byte[] header = chunkHeader.toString().getBytes(UTF8);
-            final byte[] trailer = CLRF.getBytes(UTF8);
-            final byte[] signedChunk = new byte[header.length + chunkData.length + trailer.length];
-            System.arraycopy(header, 0, signedChunk, 0, header.length);
-            System.arraycopy(chunkData, 0, signedChunk, header.length, chunkData.length);
-            System.arraycopy(trailer, 0,
-                    signedChunk, header.length + chunkData.length,
-                    trailer.length);
-            return signedChunk;
+            return new ChunkContentIterator(header, data, length, CHUNK_TRAILER);
         } catch (final Exception e) {
             throw new AmazonClientException("Unable to sign the chunked data. " + e.getMessage(),
                     e);
@@ -15,17 +15,32 @@
 
 package com.amazonaws.auth;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Iterates over a signed chunk, made of its header, its data and its
+ * trailer. The data is not copied into the chunk.
+ */
 class ChunkContentIterator {
 
-    private final byte[] signedChunk;
+    private final byte[] header;
+    private final byte[] data;
+    private final int dataLength;
+    private final byte[] trailer;
+    private final int length;
     private int pos;
 
-    public ChunkContentIterator(byte[] signedChunk) {
-        this.signedChunk = signedChunk;
+    public ChunkContentIterator(byte[] header, byte[] data, int dataLength, byte[] trailer) {
+        this.header = header;
+        this.data = data;
+        this.dataLength = dataLength;
+        this.trailer = trailer;
+        this.length = header.length + dataLength + trailer.length;
     }
 
     public boolean hasNext() {
-        return pos < signedChunk.length;
+        return pos < length;
     }
 
     public int read(byte[] output, int offset, int length) {
@@ -33,10 +48,50 @@ class ChunkContentIterator {
             return 0;
         if (!hasNext())
             return -1;
-        int remaingBytesNum = signedChunk.length - pos;
-        int bytesToRead = Math.min(remaingBytesNum, length);
-        System.arraycopy(signedChunk, pos, output, offset, bytesToRead);
-        pos += bytesToRead;
-        return bytesToRead;
+        int count = 0;
+        while (count < length && hasNext()) {
+            final int bytesToRead = Math.min(remainingInPart(), length - count);
+            System.arraycopy(currentPart(), positionInPart(), output, offset + count,
+                    bytesToRead);
+            pos += bytesToRead;
+            count += bytesToRead;
+        }
+        return count;
+    }
+
+    /**
+     * Writes what is left of the chunk to an output stream.
+     */
+    public void writeRemainingTo(OutputStream out) throws IOException {
+        while (hasNext()) {
+            final int bytesToWrite = remainingInPart();
+            out.write(currentPart(), positionInPart(), bytesToWrite);
+            pos += bytesToWrite;
+        }
+    }
+
+    private byte[] currentPart() {
+        if (pos < header.length) {
+            return header;
+        }
+        return pos < header.length + dataLength ? data : trailer;
+    }
+
+    private int positionInPart() {
+        if (pos < header.length) {
+            return pos;
+        }
+        return pos < header.length + dataLength
+                ? pos - header.length
+                : pos - header.length - dataLength;
+    }
+
+    private int remainingInPart() {
+        if (pos < header.length) {
+            return header.length - pos;
+        }
+        return pos < header.length + dataLength
+                ? header.length + dataLength - pos
+                : length - pos;
     }
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.AbstractTransfer;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileTransfer;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferMonitor;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferStateChangeListener;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks a directory transfer whose files are transferred while the directory
+ * is still being listed. The lister calls {@link #acquire()} before starting
+ * each file transfer, which blocks while the window of transfers in progress
+ * is full, and {@link #listingFinished()} once everything is listed. Only the
+ * transfers in progress are kept as sub-transfers; each one is dropped when it
+ * finishes, along with its permit.
+ * <p>
+ * The directory transfer finishes when the listing has finished and no
+ * transfer is left in progress. It fails if the listing or any transfer
+ * failed, otherwise it's canceled if any transfer was canceled. Canceling
+ * its future stops the listing, aborts the transfers in progress and cancels
+ * the directory transfer right away.
+ */
+final class MultipleFileTransferPipeline<T extends AbstractTransfer> implements TransferMonitor {
+
+    private static final Log log = LogFactory.getLog(MultipleFileTransferPipeline.class);
+
+    /**
+     * Aborts a file transfer in progress when the directory transfer is
+     * canceled.
+     */
+    interface SubTransferAborter<T> {
+        void abort(T subTransfer) throws IOException;
+    }
+
+    private final MultipleFileTransfer<?> multipleFileTransfer;
+    private final Queue<T> subTransfers;
+    private final Semaphore window;
+    private final SubTransferAborter<T> aborter;
+    private volatile Thread lister;
+
+    /** Transfers started and not finished yet, including ones being started. */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean listingFinished;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final AtomicBoolean canceled = new AtomicBoolean();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private final AtomicReference<Throwable> listingFailure = new AtomicReference<Throwable>();
+    private final AtomicReference<T> failedTransfer = new AtomicReference<T>();
+    private final AtomicReference<T> canceledTransfer = new AtomicReference<T>();
+
+    private final Future<Object> future = new Future<Object>() {
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return MultipleFileTransferPipeline.this.cancel();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException,
+                ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return canceled.get() || multipleFileTransfer.getState() == TransferState.Canceled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return MultipleFileTransferPipeline.this.isDone();
+        }
+    };
+
+    /**
+     * @param multipleFileTransfer the directory transfer.
+     * @param subTransfers the sub-transfers of the directory transfer, a
+     *            concurrent queue to which this adds the file transfers in
+     *            progress.
+     * @param windowSize the maximum number of file transfers in progress.
+     * @param aborter aborts the file transfers in progress on cancel.
+     */
+    MultipleFileTransferPipeline(MultipleFileTransfer<?> multipleFileTransfer,
+            Queue<T> subTransfers, int windowSize, SubTransferAborter<T> aborter) {
+        this.multipleFileTransfer = multipleFileTransfer;
+        this.subTransfers = subTransfers;
+        this.window = new Semaphore(windowSize);
+        this.aborter = aborter;
+    }
+
+    /**
+     * Sets the thread that lists the directory, which is interrupted on
+     * cancel. Has to be called before the thread is started.
+     */
+    void setLister(Thread lister) {
+        this.lister = lister;
+    }
+
+    /**
+     * Waits for room in the window for another file transfer and returns the
+     * state change listener to give that transfer. Every call must be followed
+     * by {@link #started} or, if the transfer couldn't be created,
+     * {@link #startFailed}.
+     *
+     * @return the state change listener of the new transfer.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    TransferStateChangeListener acquire() throws InterruptedException {
+        window.acquire();
+        pending.incrementAndGet();
+        return new SubTransferListener();
+    }
+
+    /**
+     * Adds a file transfer started after {@link #acquire()}.
+     */
+    void started(T subTransfer) {
+        subTransfers.add(subTransfer);
+        if (subTransfer.isDone()) {
+            // it finished before it was added
+            subTransfers.remove(subTransfer);
+        } else if (canceled.get()) {
+            // started while the directory transfer was being canceled
+            abort(subTransfer);
+        }
+    }
+
+    /**
+     * Gives back the permit of a file transfer that couldn't be created.
+     */
+    void startFailed() {
+        window.release();
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Returns whether the lister should stop because a transfer was canceled.
+     */
+    boolean isCanceled() {
+        return canceled.get() || canceledTransfer.get() != null
+                || multipleFileTransfer.getState() == TransferState.Canceled;
+    }
+
+    /**
+     * Marks the listing as finished; the directory transfer finishes with the
+     * last file transfer.
+     */
+    void listingFinished() {
+        listingFinished = true;
+        if (pending.get() == 0) {
+            finish();
+        }
+    }
+
+    /**
+     * Marks the listing as failed; the directory transfer fails once the file
+     * transfers in progress finish.
+     */
+    void listingFailed(Throwable t) {
+        listingFailure.compareAndSet(null, t);
+        listingFinished();
+    }
+
+    @Override
+    public Future<?> getFuture() {
+        return future;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Stops the listing, aborts the file transfers in progress and cancels
+     * the directory transfer.
+     *
+     * @return false if the directory transfer had already finished.
+     */
+    private boolean cancel() {
+        if (isDone() || !canceled.compareAndSet(false, true)) {
+            return false;
+        }
+        final Thread listerThread = lister;
+        if (listerThread != null) {
+            listerThread.interrupt();
+        }
+        for (final T subTransfer : subTransfers) {
+            abort(subTransfer);
+        }
+        finish();
+        return true;
+    }
+
+    private void abort(T subTransfer) {
+        try {
+            aborter.abort(subTransfer);
+        } catch (final Exception e) {
+            log.warn("Failed to abort " + subTransfer.getDescription(), e);
+        }
+    }
+
+    private void subTransferFinished(T subTransfer, TransferState state) {
+        subTransfers.remove(subTransfer);
+        if (state == TransferState.Failed) {
+            failedTransfer.compareAndSet(null, subTransfer);
+        } else if (state == TransferState.Canceled) {
+            canceledTransfer.compareAndSet(null, subTransfer);
+        }
+        window.release();
+        if (pending.decrementAndGet() == 0 && listingFinished) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        final TransferState state;
+        if (canceled.get()) {
+            state = TransferState.Canceled;
+        } else if (listingFailure.get() != null || failedTransfer.get() != null) {
+            state = TransferState.Failed;
+        } else if (canceledTransfer.get() != null) {
+            state = TransferState.Canceled;
+        } else {
+            state = TransferState.Completed;
+        }
+        try {
+            synchronized (multipleFileTransfer) {
+                if (!multipleFileTransfer.isDone()) {
+                    multipleFileTransfer.setState(state);
+                }
+            }
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private Object result() throws InterruptedException, ExecutionException {
+        if (canceled.get()) {
+            throw new CancellationException();
+        }
+        final Throwable t = listingFailure.get();
+        if (t != null) {
+            throw new ExecutionException(t);
+        }
+        // rethrows the failure or cancellation of the first transfer that had one
+        T subTransfer = failedTransfer.get();
+        if (subTransfer == null) {
+            subTransfer = canceledTransfer.get();
+        }
+        if (subTransfer != null) {
+            return subTransfer.getMonitor().getFuture().get();
+        }
+        return Boolean.TRUE;
+    }
+
+    private final class SubTransferListener implements TransferStateChangeListener {
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void transferStateChanged(Transfer transfer, TransferState state) {
+            if (state == TransferState.InProgress) {
+                synchronized (multipleFileTransfer) {
+                    if (!multipleFileTransfer.isDone()
+                            && multipleFileTransfer.getState() != state) {
+                        multipleFileTransfer.setState(state);
+                    }
+                }
+            } else if ((state == TransferState.Completed || state == TransferState.Failed
+                    || state == TransferState.Canceled) && finished.compareAndSet(false, true)) {
+                subTransferFinished((T) transfer, state);
+            }
+        }
+    }
+}
@@ -70,13 +70,16 @@ import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Stack;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -598,6 +601,27 @@ public class TransferManager {
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
             final boolean resumeExistingDownload) {
+        final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
+                getObjectRequest.getBucketName(), getObjectRequest.getKey());
+
+        if (getObjectRequest.getSSECustomerKey() != null) {
+            getObjectMetadataRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
+        }
+        final ObjectMetadata objectMetadata = s3.getObjectMetadata(getObjectMetadataRequest);
+
+        return doDownload(getObjectRequest, file, stateListener, s3progressListener,
+                resumeExistingDownload, objectMetadata.getContentLength());
+    }
+
+    /**
+     * Same as {@link #doDownload(GetObjectRequest, File,
+     * TransferStateChangeListener, S3ProgressListener, boolean)} for an object
+     * whose length is already known, such as one from a listing.
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload, final long contentLength) {
 
         appendSingleObjectUserAgent(getObjectRequest);
 
@@ -636,13 +660,6 @@ public class TransferManager {
                 },
                 listenerChain);
         getObjectRequest.setGeneralProgressListener(listeners);
-        final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
-                getObjectRequest.getBucketName(), getObjectRequest.getKey());
-
-        if (getObjectRequest.getSSECustomerKey() != null) {
-            getObjectMetadataRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
-        }
-        final ObjectMetadata objectMetadata = s3.getObjectMetadata(getObjectMetadataRequest);
 
         // We still pass the unfiltered listener chain into DownloadImpl
         final DownloadImpl download = new DownloadImpl(description,
@@ -650,7 +667,7 @@ public class TransferManager {
                 getObjectRequest, file);
 
         long startingByte = 0;
-        long lastByte = objectMetadata.getContentLength() - 1;
+        long lastByte = contentLength - 1;
 
         if (getObjectRequest.getRange() != null
                 && getObjectRequest.getRange().length == 2) {
@@ -766,6 +783,10 @@ public class TransferManager {
             keyPrefix = "";
         }
 
+        if (configuration.getDirectoryTransferWindow() > 0) {
+            return downloadDirectoryPipelined(bucketName, keyPrefix, destinationDirectory);
+        }
+
         final List<S3ObjectSummary> objectSummaries = new LinkedList<S3ObjectSummary>();
         final Stack<String> commonPrefixes = new Stack<String>();
         commonPrefixes.add(keyPrefix);
@@ -865,6 +886,121 @@ public class TransferManager {
         return multipleFileDownload;
     }
 
+    /**
+     * Downloads a virtual directory while it is being listed. A lister thread
+     * starts a download for each object of each listing page, waiting whenever
+     * the window of downloads in progress is full.
+     */
+    private MultipleFileDownload downloadDirectoryPipelined(final String bucketName,
+            final String keyPrefix, final File destinationDirectory) {
+
+        /* This is the hook for adding additional progress listeners */
+        final ProgressListenerChain additionalListeners = new ProgressListenerChain();
+
+        final TransferProgress transferProgress = new TransferProgress();
+        transferProgress.setTotalBytesToTransfer(0);
+        final ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                transferProgress, additionalListeners);
+
+        final Queue<DownloadImpl> downloads = new ConcurrentLinkedQueue<DownloadImpl>();
+
+        final String description = "Downloading from " + bucketName + "/" + keyPrefix;
+        final MultipleFileDownloadImpl multipleFileDownload = new MultipleFileDownloadImpl(
+                description, transferProgress,
+                additionalListeners, keyPrefix, bucketName, downloads);
+        final MultipleFileTransferPipeline<DownloadImpl> pipeline = new MultipleFileTransferPipeline<DownloadImpl>(
+                multipleFileDownload, downloads, configuration.getDirectoryTransferWindow(),
+                new MultipleFileTransferPipeline.SubTransferAborter<DownloadImpl>() {
+                    @Override
+                    public void abort(DownloadImpl download) throws IOException {
+                        download.abort();
+                    }
+                });
+        multipleFileDownload.setMonitor(pipeline);
+
+        final Thread lister = directoryListerThreadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listAndDownload(bucketName, keyPrefix, destinationDirectory,
+                            transferProgress, listener, pipeline);
+                    pipeline.listingFinished();
+                } catch (final Throwable t) {
+                    if (!pipeline.isCanceled()) {
+                        log.error("Failed to list " + bucketName + "/" + keyPrefix, t);
+                    }
+                    pipeline.listingFailed(t);
+                }
+            }
+        });
+        pipeline.setLister(lister);
+        lister.start();
+
+        return multipleFileDownload;
+    }
+
+    private void listAndDownload(String bucketName, String keyPrefix,
+            File destinationDirectory, TransferProgress transferProgress,
+            ProgressListener listener, MultipleFileTransferPipeline<DownloadImpl> pipeline)
+            throws InterruptedException {
+        final Stack<String> commonPrefixes = new Stack<String>();
+        commonPrefixes.add(keyPrefix);
+        long totalSize = 0;
+
+        do {
+            final String prefix = commonPrefixes.pop();
+            ObjectListing listObjectsResponse = null;
+
+            do {
+                if (listObjectsResponse == null) {
+                    final ListObjectsRequest listObjectsRequest = new ListObjectsRequest()
+                            .withBucketName(bucketName)
+                            .withDelimiter(DEFAULT_DELIMITER).withPrefix(prefix);
+                    listObjectsResponse = s3.listObjects(listObjectsRequest);
+                } else {
+                    listObjectsResponse = s3.listNextBatchOfObjects(listObjectsResponse);
+                }
+
+                for (final S3ObjectSummary s : listObjectsResponse.getObjectSummaries()) {
+                    if (pipeline.isCanceled()) {
+                        return;
+                    }
+                    if (s.getKey().equals(prefix)
+                            || listObjectsResponse.getCommonPrefixes().contains(
+                                    s.getKey() + DEFAULT_DELIMITER)) {
+                        log.debug("Skipping download for object " + s.getKey()
+                                + " since it is also a virtual directory");
+                        continue;
+                    }
+
+                    final File f = new File(destinationDirectory, s.getKey());
+                    final File parentFile = f.getParentFile();
+                    if (!parentFile.exists() && !parentFile.mkdirs()) {
+                        throw new RuntimeException("Couldn't create parent directories for "
+                                + f.getAbsolutePath());
+                    }
+
+                    final TransferStateChangeListener stateListener = pipeline.acquire();
+                    totalSize += s.getSize();
+                    transferProgress.setTotalBytesToTransfer(totalSize);
+                    final DownloadImpl download;
+                    try {
+                        download = (DownloadImpl) doDownload(
+                                new GetObjectRequest(s.getBucketName(), s.getKey())
+                                        .withGeneralProgressListener(listener),
+                                f, stateListener, null, false, s.getSize());
+                    } catch (final RuntimeException e) {
+                        pipeline.startFailed();
+                        throw e;
+                    }
+                    pipeline.started(download);
+                }
+
+                commonPrefixes.addAll(listObjectsResponse.getCommonPrefixes());
+            } while (listObjectsResponse.isTruncated());
+        } while (!commonPrefixes.isEmpty());
+    }
+
     /**
      * Uploads all files in the directory given to the bucket named, optionally
      * recursing for all subdirectories.
@@ -912,6 +1048,12 @@ public class TransferManager {
             throw new IllegalArgumentException("Must provide a directory to upload");
         }
 
+        if (configuration.getDirectoryTransferWindow() > 0) {
+            return uploadDirectoryPipelined(bucketName,
+                    toDirectoryKeyPrefix(virtualDirectoryKeyPrefix), directory,
+                    includeSubdirectories, metadataProvider);
+        }
+
         final List<File> files = new LinkedList<File>();
         listFiles(directory, files, includeSubdirectories);
 
@@ -971,11 +1113,7 @@ public class TransferManager {
                     "Must provide a common base directory for uploaded files");
         }
 
-        if (virtualDirectoryKeyPrefix == null || virtualDirectoryKeyPrefix.length() == 0) {
-            virtualDirectoryKeyPrefix = "";
-        } else if (!virtualDirectoryKeyPrefix.endsWith("/")) {
-            virtualDirectoryKeyPrefix = virtualDirectoryKeyPrefix + "/";
-        }
+        virtualDirectoryKeyPrefix = toDirectoryKeyPrefix(virtualDirectoryKeyPrefix);
 
         /* This is the hook for adding additional progress listeners */
         final ProgressListenerChain additionalListeners = new ProgressListenerChain();
@@ -1002,17 +1140,7 @@ public class TransferManager {
             multipleFileUpload.setState(TransferState.Completed);
         } else {
 
-            /*
-             * If the absolute path for the common/base directory does NOT end
-             * in a separator (which is the case for anything but root
-             * directories), then we know there's still a separator between the
-             * base directory and the rest of the file's path, so we increment
-             * the starting position by one.
-             */
-            int startingPosition = directory.getAbsolutePath().length();
-            if (!(directory.getAbsolutePath().endsWith(File.separator))) {
-                startingPosition++;
-            }
+            final int startingPosition = relativePathStart(directory);
 
             long totalSize = 0;
             for (final File f : files) {
@@ -1054,6 +1182,146 @@ public class TransferManager {
         return multipleFileUpload;
     }
 
+    /**
+     * Uploads a directory while it is being listed. A lister thread starts an
+     * upload for each file of each directory it lists, waiting whenever the
+     * window of uploads in progress is full.
+     */
+    private MultipleFileUpload uploadDirectoryPipelined(final String bucketName,
+            final String virtualDirectoryKeyPrefix, final File directory,
+            final boolean includeSubdirectories, final ObjectMetadataProvider metadataProvider) {
+
+        /* This is the hook for adding additional progress listeners */
+        final ProgressListenerChain additionalListeners = new ProgressListenerChain();
+
+        final TransferProgress progress = new TransferProgress();
+        progress.setTotalBytesToTransfer(0);
+        final ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                progress, additionalListeners);
+
+        final Queue<UploadImpl> uploads = new ConcurrentLinkedQueue<UploadImpl>();
+        final MultipleFileUploadImpl multipleFileUpload = new MultipleFileUploadImpl(
+                "Uploading to " + bucketName + "/" + virtualDirectoryKeyPrefix, progress,
+                additionalListeners, virtualDirectoryKeyPrefix, bucketName, uploads);
+        final MultipleFileTransferPipeline<UploadImpl> pipeline = new MultipleFileTransferPipeline<UploadImpl>(
+                multipleFileUpload, uploads, configuration.getDirectoryTransferWindow(),
+                new MultipleFileTransferPipeline.SubTransferAborter<UploadImpl>() {
+                    @Override
+                    public void abort(UploadImpl upload) {
+                        upload.abort();
+                    }
+                });
+        multipleFileUpload.setMonitor(pipeline);
+
+        final Thread lister = directoryListerThreadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listAndUpload(bucketName, virtualDirectoryKeyPrefix, directory,
+                            includeSubdirectories, metadataProvider, progress, listener, pipeline);
+                    pipeline.listingFinished();
+                } catch (final Throwable t) {
+                    if (!pipeline.isCanceled()) {
+                        log.error("Failed to list " + directory, t);
+                    }
+                    pipeline.listingFailed(t);
+                }
+            }
+        });
+        pipeline.setLister(lister);
+        lister.start();
+
+        return multipleFileUpload;
+    }
+
+    private void listAndUpload(String bucketName, String virtualDirectoryKeyPrefix,
+            File directory, boolean includeSubdirectories,
+            ObjectMetadataProvider metadataProvider, TransferProgress progress,
+            ProgressListener listener, MultipleFileTransferPipeline<UploadImpl> pipeline)
+            throws InterruptedException {
+        final int startingPosition = relativePathStart(directory);
+        final Stack<File> directories = new Stack<File>();
+        directories.push(directory);
+        long totalSize = 0;
+
+        do {
+            final File[] found = directories.pop().listFiles();
+            if (found == null) {
+                continue;
+            }
+            for (final File f : found) {
+                if (pipeline.isCanceled()) {
+                    return;
+                }
+                if (f.isDirectory()) {
+                    if (includeSubdirectories) {
+                        directories.push(f);
+                    }
+                    continue;
+                }
+                // Check, if file, since only files can be uploaded.
+                if (!f.isFile()) {
+                    continue;
+                }
+
+                final String key = f.getAbsolutePath().substring(startingPosition)
+                        .replaceAll("\\\\", "/");
+                final ObjectMetadata metadata = new ObjectMetadata();
+                if (metadataProvider != null) {
+                    metadataProvider.provideObjectMetadata(f, metadata);
+                }
+
+                final TransferStateChangeListener stateListener = pipeline.acquire();
+                totalSize += f.length();
+                progress.setTotalBytesToTransfer(totalSize);
+                final UploadImpl upload;
+                try {
+                    upload = (UploadImpl) doUpload(
+                            (PutObjectRequest) new PutObjectRequest(bucketName,
+                                    virtualDirectoryKeyPrefix + key, f)
+                                    .withMetadata(metadata)
+                                    .withGeneralProgressListener(listener),
+                            stateListener, null, null);
+                } catch (final RuntimeException e) {
+                    pipeline.startFailed();
+                    throw e;
+                }
+                pipeline.started(upload);
+            }
+        } while (!directories.isEmpty());
+    }
+
+    /**
+     * Returns the key prefix given, ending with a slash unless it's empty.
+     */
+    private static String toDirectoryKeyPrefix(String virtualDirectoryKeyPrefix) {
+        if (virtualDirectoryKeyPrefix == null || virtualDirectoryKeyPrefix.length() == 0) {
+            return "";
+        } else if (!virtualDirectoryKeyPrefix.endsWith("/")) {
+            return virtualDirectoryKeyPrefix + "/";
+        }
+        return virtualDirectoryKeyPrefix;
+    }
+
+    /**
+     * Returns the position in the absolute path of a file in the directory
+     * given where its path relative to the directory starts.
+     */
+    private static int relativePathStart(File directory) {
+        /*
+         * If the absolute path for the common/base directory does NOT end in a
+         * separator (which is the case for anything but root directories), then
+         * we know there's still a separator between the base directory and the
+         * rest of the file's path, so we increment the starting position by
+         * one.
+         */
+        int startingPosition = directory.getAbsolutePath().length();
+        if (!(directory.getAbsolutePath().endsWith(File.separator))) {
+            startingPosition++;
+        }
+        return startingPosition;
+    }
+
     /**
      * Lists files in the directory given and adds them to the result list
      * passed in, optionally adding subdirectories recursively.
@@ -1195,6 +1463,24 @@ public class TransferManager {
         }
     };
 
+    /**
+     * Threads that list pipelined directory transfers, one per transfer, so
+     * that a listing waiting for room in its window doesn't hold a thread of
+     * the pool running the transfers. They are daemon threads, so a listing
+     * still waiting never keeps the JVM alive.
+     */
+    private static final ThreadFactory directoryListerThreadFactory = new ThreadFactory() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setName("S3TransferManagerDirectoryLister-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
     /**
      * <p>
      * Schedules a new transfer to copy data from one Amazon S3 location to
@@ -85,6 +85,14 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The maximum number of files of a directory upload or download
+     * transferring at a time when files are transferred while the directory is
+     * being listed. Zero lists the whole directory before transferring any
+     * file.
+     */
+    private int directoryTransferWindow = 0;
+
     /**
      * Returns the minimum part size for upload parts. Decreasing the minimum
      * part size causes multipart uploads to be split into a larger number of
@@ -192,4 +200,38 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
+
+    /**
+     * Returns the maximum number of files of a directory upload or download
+     * transferring at a time. When greater than zero, directory transfers start
+     * transferring files as soon as they're listed and only keep the files in
+     * progress, instead of listing the whole directory first; the total bytes
+     * to transfer grow as the listing goes. Zero, the default, lists the whole
+     * directory first.
+     *
+     * @return The maximum number of files of a directory transfer transferring
+     *         at a time, or zero if directory transfers aren't pipelined.
+     */
+    public int getDirectoryTransferWindow() {
+        return directoryTransferWindow;
+    }
+
+    /**
+     * Sets the maximum number of files of a directory upload or download
+     * transferring at a time. When greater than zero, directory transfers start
+     * transferring files as soon as they're listed and only keep the files in
+     * progress, instead of listing the whole directory first; the total bytes
+     * to transfer grow as the listing goes. Zero, the default, lists the whole
+     * directory first.
+     *
+     * @param directoryTransferWindow The maximum number of files of a directory
+     *            transfer transferring at a time, or zero to list the whole
+     *            directory first.
+     */
+    public void setDirectoryTransferWindow(int directoryTransferWindow) {
+        if (directoryTransferWindow < 0) {
+            throw new IllegalArgumentException("Directory transfer window must not be negative");
+        }
+        this.directoryTransferWindow = directoryTransferWindow;
+    }
 }
@@ -73,7 +73,9 @@ public class MultipleFileDownloadImpl extends MultipleFileTransfer<Download> imp
     @Override
     public void waitForCompletion()
             throws AmazonClientException, AmazonServiceException, InterruptedException {
-        if (subTransfers.isEmpty())
+        // a pipelined directory transfer has no sub-transfers while it lists
+        // and after it finishes
+        if (subTransfers.isEmpty() && getState() == TransferState.Completed)
             return;
         super.waitForCompletion();
     }
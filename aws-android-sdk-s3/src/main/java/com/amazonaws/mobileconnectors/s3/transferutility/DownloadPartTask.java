@@ -0,0 +1,197 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads one byte range of a parallel download and writes it into the
+ * file at the offset of the range using positional writes, so parts can be
+ * written concurrently into the same file.
+ */
+class DownloadPartTask implements Callable<Boolean> {
+    private static final Log LOGGER = LogFactory.getLog(DownloadPartTask.class);
+    private static final int SIXTEEN_KB = 1024 * 16;
+
+    private final DownloadTask.DownloadPartTaskMetadata downloadPartTaskMetadata;
+    private final DownloadTask.DownloadTaskProgressListener downloadTaskProgressListener;
+    private final TransferRecord part;
+    private final String eTag;
+    private final AmazonS3 s3;
+    private final TransferDBUtil dbUtil;
+
+    // bytes of the range that have been written to the file
+    private long bytesCurrent;
+
+    public DownloadPartTask(DownloadTask.DownloadPartTaskMetadata downloadPartTaskMetadata,
+                            DownloadTask.DownloadTaskProgressListener downloadTaskProgressListener,
+                            String eTag,
+                            AmazonS3 s3,
+                            TransferDBUtil dbUtil) {
+        this.downloadPartTaskMetadata = downloadPartTaskMetadata;
+        this.downloadTaskProgressListener = downloadTaskProgressListener;
+        this.part = downloadPartTaskMetadata.part;
+        this.eTag = eTag;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+        this.bytesCurrent = part.bytesCurrent;
+    }
+
+    /*
+     * Runs part download task and returns whether successfully downloaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        try {
+            downloadPartTaskMetadata.state = TransferState.IN_PROGRESS;
+            final GetObjectRequest getObjectRequest = new GetObjectRequest(part.bucketName, part.key);
+            TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectRequest);
+            getObjectRequest.setRange(part.rangeStart + bytesCurrent, part.rangeLast);
+            if (eTag != null) {
+                // fail rather than mix ranges of different versions of the object
+                getObjectRequest.setMatchingETagConstraints(Collections.singletonList(eTag));
+            }
+
+            final S3Object object = s3.getObject(getObjectRequest);
+            if (object == null) {
+                throw new AmazonClientException("Object " + part.key
+                        + " was modified while downloading part " + part.partNumber);
+            }
+            final Long[] contentRange = object.getObjectMetadata().getContentRange();
+            if (contentRange == null
+                    || contentRange[0].longValue() != part.rangeStart + bytesCurrent) {
+                // the server sent the whole object, which can't be written
+                // at the offset of the part without overwriting the others
+                object.getObjectContent().abort();
+                throw new RangeIgnoredException("Range of part " + part.partNumber
+                        + " of " + part.key + " was ignored");
+            }
+            writeToFile(new ThrottledInputStream(object.getObjectContent(), part.mainUploadId));
+            if (bytesCurrent != part.bytesTotal) {
+                throw new AmazonClientException("Part " + part.partNumber + " ended after "
+                        + bytesCurrent + " of " + part.bytesTotal + " bytes");
+            }
+
+            downloadPartTaskMetadata.state = TransferState.PART_COMPLETED;
+            dbUtil.updateState(part.id, TransferState.PART_COMPLETED);
+            return true;
+        } catch (final Exception e) {
+            LOGGER.error("Download part interrupted: " + e);
+
+            // Check if network is not connected, set the state to WAITING_FOR_NETWORK.
+            try {
+                if (TransferNetworkLossHandler.getInstance() != null &&
+                    !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                    LOGGER.info("Thread: [" + Thread.currentThread().getId() + "]: Network wasn't available.");
+                    /*
+                     * Network connection is being interrupted. Moving the TransferState
+                     * to WAITING_FOR_NETWORK till the network availability resumes.
+                     */
+                    downloadPartTaskMetadata.state = TransferState.WAITING_FOR_NETWORK;
+                    dbUtil.updateState(part.id, TransferState.WAITING_FOR_NETWORK);
+                    LOGGER.info("Network Connection Interrupted: " +
+                            "Moving the TransferState to WAITING_FOR_NETWORK");
+                    return false;
+                }
+            } catch (TransferUtilityException transferUtilityException) {
+                LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+            }
+
+            // In other cases, set the transfer state to FAILED.
+            downloadPartTaskMetadata.state = TransferState.FAILED;
+            dbUtil.updateState(part.id, TransferState.FAILED);
+            LOGGER.error("Encountered error downloading part ", e);
+            throw e;
+        } finally {
+            // Persist the bytes of the range that are on disk so a resumed
+            // download continues from here instead of the start of the part.
+            part.bytesCurrent = bytesCurrent;
+            dbUtil.updateBytesTransferred(part.id, bytesCurrent);
+        }
+    }
+
+    /**
+     * Writes the stream into the file at the offset of the part, following
+     * the bytes of the part already in the file.
+     *
+     * @param is input stream of the ranged object content
+     */
+    private void writeToFile(InputStream is) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(part.file, "rw");
+            final FileChannel channel = raf.getChannel();
+            final byte[] buffer = new byte[SIXTEEN_KB];
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            int bytesRead;
+            // never write past the range, even if the server sends more
+            while (bytesCurrent < part.bytesTotal
+                    && (bytesRead = is.read(buffer, 0,
+                            (int) Math.min(buffer.length, part.bytesTotal - bytesCurrent))) != -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(bytesRead);
+                long position = part.rangeStart + bytesCurrent;
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                bytesCurrent += bytesRead;
+                downloadTaskProgressListener.onProgressChanged(part.partNumber, bytesCurrent);
+            }
+        } catch (final IOException e) {
+            throw new AmazonClientException("Unable to store part " + part.partNumber
+                    + " contents to disk: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+            try {
+                is.close();
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+
+    /**
+     * Thrown when the response to a part isn't the range that was asked for,
+     * so the download has to go over a single connection instead.
+     */
+    static final class RangeIgnoredException extends AmazonClientException {
+        private static final long serialVersionUID = 1L;
+
+        RangeIgnoredException(String message) {
+            super(message);
+        }
+    }
+}
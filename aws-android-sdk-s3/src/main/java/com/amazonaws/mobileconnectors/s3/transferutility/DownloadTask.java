@@ -15,12 +15,16 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import android.content.ContentValues;
+
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 
 import com.amazonaws.logging.Log;
@@ -33,11 +37,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 
 /**
  * Performs download operation and returns a Boolean value indicating whether
  * the file has been downloaded successfully.
+ *
+ * When parallel downloads are enabled in {@link TransferUtilityOptions} and
+ * the object is larger than the part size, the object is split into byte
+ * ranges. A part record is persisted per range and a
+ * {@link DownloadPartTask} is submitted to the thread pool per range, so a
+ * resumed download only fetches the incomplete ranges.
  */
 class DownloadTask implements Callable<Boolean> {
 
@@ -46,20 +63,29 @@ class DownloadTask implements Callable<Boolean> {
 
     private final AmazonS3 s3;
     private final TransferRecord download;
+    private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
 
+    Map<Integer, DownloadPartTaskMetadata> downloadPartTasks;
+
     /**
      * Constructs a DownloadTask with the given download info and S3 client.
      *
      * @param download A TransferRecord object storing all the information of the
      *                 download
      * @param s3       Low-level S3 client
+     * @param dbUtil   database util
      * @param updater  status updater
      */
-    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferStatusUpdater updater) {
+    public DownloadTask(TransferRecord download,
+                        AmazonS3 s3,
+                        TransferDBUtil dbUtil,
+                        TransferStatusUpdater updater) {
         this.download = download;
         this.s3 = s3;
+        this.dbUtil = dbUtil;
         this.updater = updater;
+        this.downloadPartTasks = new HashMap<Integer, DownloadPartTaskMetadata>();
     }
 
     /**
@@ -79,7 +105,231 @@ class DownloadTask implements Callable<Boolean> {
         }
 
         updater.updateState(download.id, TransferState.IN_PROGRESS);
+        if (download.isMultipart == 1 && download.partNumber == 0) {
+            if (new File(download.file).exists()) {
+                /*
+                 * The part records of this download were created by a previous
+                 * run, only resume the parts that are not completed.
+                 */
+                return downloadMultipartAndWaitForCompletion();
+            }
+            // The partially downloaded file is gone, e.g. the download was
+            // canceled, so the progress of the parts is stale. Start over.
+            LOGGER.info("Restarting parallel download " + download.id + " from the beginning.");
+            dbUtil.deleteMultipartDownloadRecords(download.id);
+            download.isMultipart = 0;
+        }
+        if (shouldDownloadInMultipart()) {
+            try {
+                if (createMultipartDownloadRecords()) {
+                    return downloadMultipartAndWaitForCompletion();
+                }
+            } catch (final AmazonClientException ace) {
+                LOGGER.error("Error preparing parallel download: " + download.id
+                        + " due to " + ace.getMessage(), ace);
+                updater.throwError(download.id, ace);
+                updater.updateState(download.id, TransferState.FAILED);
+                return false;
+            }
+        }
+        return downloadSinglePartAndWaitForCompletion();
+    }
+
+    private boolean shouldDownloadInMultipart() {
+        return download.transferUtilityOptions != null
+                && download.transferUtilityOptions.getParallelDownloadPartSize() > 0
+                && new File(download.file).length() == 0;
+    }
+
+    /**
+     * Splits the object into byte ranges and persists a part record per
+     * range.
+     *
+     * @return true if the part records were created, false if the object
+     *         should be downloaded over a single connection
+     */
+    private boolean createMultipartDownloadRecords() {
+        final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
+                download.bucketName, download.key);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectMetadataRequest);
+        final ObjectMetadata metadata = s3.getObjectMetadata(getObjectMetadataRequest);
+        final long bytesTotal = metadata.getContentLength();
+        final long partSize = download.transferUtilityOptions.getParallelDownloadPartSize();
+        if (bytesTotal <= partSize) {
+            return false;
+        }
+
+        final long optimalPartSize = Math.max(partSize,
+                (long) Math.ceil((double) bytesTotal / (double) MAXIMUM_UPLOAD_PARTS));
+        final int partCount = (int) Math.ceil((double) bytesTotal / (double) optimalPartSize);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        long rangeStart = 0;
+        for (int i = 0; i < partCount; i++) {
+            final long rangeLast = Math.min(rangeStart + optimalPartSize, bytesTotal) - 1;
+            valuesArray[i] = dbUtil.generateContentValuesForMultiPartDownload(download, i + 1,
+                    rangeStart, rangeLast);
+            rangeStart = rangeLast + 1;
+        }
+        if (dbUtil.insertMultipartDownloadRecords(download.id, bytesTotal, metadata.getETag(),
+                valuesArray) != partCount) {
+            LOGGER.warn("Unable to persist parts of download " + download.id
+                    + ", downloading over a single connection.");
+            return false;
+        }
+
+        download.isMultipart = 1;
+        download.bytesTotal = bytesTotal;
+        download.eTag = metadata.getETag();
+        LOGGER.info("Parallel download " + download.id + " in " + partCount + " parts.");
+        return true;
+    }
+
+    private Boolean downloadMultipartAndWaitForCompletion() {
+        final List<TransferRecord> parts = dbUtil.getNonCompletedDownloadPartsFromDB(download.id);
+
+        // bytes of completed parts and of the completed portion of the others
+        long bytesAlreadyTransferred = download.bytesTotal;
+        for (final TransferRecord part : parts) {
+            bytesAlreadyTransferred -= part.bytesTotal - part.bytesCurrent;
+        }
+        if (bytesAlreadyTransferred > 0) {
+            LOGGER.info(String.format("Resume transfer %d from %d bytes",
+                    download.id, bytesAlreadyTransferred));
+        }
+        updater.updateProgress(download.id, bytesAlreadyTransferred, download.bytesTotal, false);
+
+        final File file = new File(download.file);
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            parentDirectory.mkdirs();
+        }
 
+        for (final TransferRecord part : parts) {
+            final DownloadPartTaskMetadata downloadPartTaskMetadata = new DownloadPartTaskMetadata();
+            downloadPartTaskMetadata.part = part;
+            downloadPartTaskMetadata.bytesTransferredSoFar = part.bytesCurrent;
+            downloadPartTaskMetadata.state = TransferState.WAITING;
+            downloadPartTasks.put(part.partNumber, downloadPartTaskMetadata);
+        }
+        final DownloadTaskProgressListener downloadTaskProgressListener =
+                new DownloadTaskProgressListener(bytesAlreadyTransferred);
+        for (final DownloadPartTaskMetadata downloadPartTaskMetadata : downloadPartTasks.values()) {
+            downloadPartTaskMetadata.downloadPartTask = TransferThreadPool.submitTask(
+                    new DownloadPartTask(downloadPartTaskMetadata, downloadTaskProgressListener,
+                            download.eTag, s3, dbUtil), download);
+        }
+
+        try {
+            boolean isSuccess = true;
+            /*
+             * Future.get() will block the current thread until the method
+             * returns.
+             */
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                // DownloadPartTask returns false when it's waiting for network
+                final boolean b = task.downloadPartTask.get();
+                isSuccess &= b;
+            }
+            if (!isSuccess) {
+                if (dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id)) {
+                    LOGGER.info("Network Connection Interrupted: Transfer " + download.id
+                            + " waits for network");
+                    updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                }
+                return false;
+            }
+        } catch (final Exception e) {
+            if (e.getCause() instanceof DownloadPartTask.RangeIgnoredException) {
+                return downloadOverSingleConnectionAfterRangeIgnored();
+            }
+            LOGGER.error("Download resulted in an exception. " + e);
+
+            /*
+             * Future.get() will catch InterruptedException, but it's not a
+             * failure, it may be caused by a pause operation from applications.
+             * Cancel all the on-going part tasks.
+             */
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                task.downloadPartTask.cancel(true);
+            }
+
+            // If the thread that is executing the transfer is interrupted
+            // because of a user initiated pause or cancel operation,
+            // do not throw exception or set the state to FAILED.
+            if (TransferState.CANCELED.equals(download.state) ||
+                TransferState.PAUSED.equals(download.state)) {
+                LOGGER.info("Transfer is " + download.state);
+                return false;
+            }
+
+            // interrupted due to network. Set the TransferState to
+            // WAITING_FOR_NETWORK if the individual parts were waiting for network
+            for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+                if (TransferState.WAITING_FOR_NETWORK.equals(task.state)) {
+                    LOGGER.info("Individual part is WAITING_FOR_NETWORK.");
+                    updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                    return false;
+                }
+            }
+
+            // interrupted due to reasons other than network.
+            if (RetryUtils.isInterrupted(e)) {
+                LOGGER.info("Transfer is interrupted. " + e);
+                return false;
+            }
+
+            // in other cases, set the transfer to failed.
+            LOGGER.error("Error encountered during parallel download: " + download.id
+                    + " due to " + e.getMessage(), e);
+            updater.throwError(download.id, e);
+            updater.updateState(download.id, TransferState.FAILED);
+            return false;
+        }
+
+        updater.updateProgress(download.id, download.bytesTotal, download.bytesTotal, true);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
+    }
+
+    /**
+     * Starts the download over on a single connection when the server ignored
+     * the range of a part. The other parts fail the same way before they
+     * write, so once they have stopped the partial file is dropped along with
+     * the part records.
+     */
+    private Boolean downloadOverSingleConnectionAfterRangeIgnored() {
+        for (final DownloadPartTaskMetadata task : downloadPartTasks.values()) {
+            try {
+                task.downloadPartTask.get();
+            } catch (final InterruptedException e) {
+                // paused or canceled
+                for (final DownloadPartTaskMetadata other : downloadPartTasks.values()) {
+                    other.downloadPartTask.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (final Exception e) {
+                // the part failed as well
+            }
+        }
+
+        LOGGER.warn("Ranges are ignored, downloading " + download.id
+                + " over a single connection.");
+        dbUtil.deleteMultipartDownloadRecords(download.id);
+        download.isMultipart = 0;
+        downloadPartTasks.clear();
+        final File file = new File(download.file);
+        if (file.exists() && !file.delete()) {
+            final AmazonClientException ace = new AmazonClientException(
+                    "Unable to delete partially downloaded file " + file);
+            updater.throwError(download.id, ace);
+            updater.updateState(download.id, TransferState.FAILED);
+            return false;
+        }
+        return downloadSinglePartAndWaitForCompletion();
+    }
+
+    private Boolean downloadSinglePartAndWaitForCompletion() {
         GetObjectRequest getObjectRequest;
         ProgressListener progressListener = updater.newProgressListener(download.id);
 
@@ -108,7 +358,7 @@ class DownloadTask implements Callable<Boolean> {
 
             final long bytesTotal = object.getObjectMetadata().getInstanceLength();
             updater.updateProgress(download.id, bytesCurrent, bytesTotal, true);
-            saveToFile(object.getObjectContent(), file);
+            saveToFile(new ThrottledInputStream(object.getObjectContent(), download.id), file);
             updater.updateProgress(download.id, bytesTotal, bytesTotal, true);
             updater.updateState(download.id, TransferState.COMPLETED);
             return true;
@@ -208,4 +458,51 @@ class DownloadTask implements Callable<Boolean> {
             }
         }
     }
+
+    /**
+     * Progress Listener for the main DownloadTask that aggregates the
+     * progress of all parts.
+     */
+    class DownloadTaskProgressListener {
+
+        // Sum of the bytes of the parts that are not downloaded by this run
+        // and bytesTransferredSoFar of the pending parts. Each part only has
+        // one writer, so its progress is added as the difference to the
+        // previous value instead of adding up all parts under a lock.
+        private final AtomicLong totalBytesTransferredOfAllParts;
+
+        DownloadTaskProgressListener(long bytesAlreadyTransferred) {
+            this.totalBytesTransferredOfAllParts = new AtomicLong(bytesAlreadyTransferred);
+        }
+
+        public void onProgressChanged(final int partNum,
+            final long bytesTransferredSoFarForPartNum) {
+            final DownloadPartTaskMetadata partNumTask = downloadPartTasks.get(partNum);
+            if (partNumTask == null) {
+                LOGGER.info("Update received for unknown part. Ignoring.");
+                return;
+            }
+
+            final long delta = bytesTransferredSoFarForPartNum - partNumTask.bytesTransferredSoFar;
+            partNumTask.bytesTransferredSoFar = bytesTransferredSoFarForPartNum;
+            updater.advanceProgress(DownloadTask.this.download.id,
+                totalBytesTransferredOfAllParts.addAndGet(delta),
+                DownloadTask.this.download.bytesTotal);
+        }
+    }
+
+    // This class represents the state being tracked per part
+    class DownloadPartTaskMetadata {
+        // Reference to the part record holding the byte range of the part
+        TransferRecord part;
+
+        // The future task that runs DownloadPartTask to download a part
+        Future<Boolean> downloadPartTask;
+
+        // number of bytes of the part in the file so far
+        long bytesTransferredSoFar;
+
+        // state of the transfer
+        TransferState state;
+    }
 }
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+import com.amazonaws.services.s3.model.InputStreamWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the bytes of a transfer within its bandwidth limits. Each read waits
+ * in {@link TransferThreadPool#acquire(int, long)} before it reads, on the
+ * thread that reads the stream, and gives back what it didn't use. Reads are
+ * capped so that the waits stay short.
+ */
+class ThrottledInputStream extends SdkFilterInputStream {
+
+    static final int MAX_READ_SIZE = 16 * 1024;
+
+    private final int transferId;
+
+    /**
+     * @param in the stream of the transfer
+     * @param transferId the id of the main transfer
+     */
+    ThrottledInputStream(InputStream in, int transferId) {
+        super(in);
+        this.transferId = transferId;
+    }
+
+    /**
+     * @param transferId the id of the main transfer
+     * @return a wrapper for the data of an upload request of the transfer
+     */
+    static InputStreamWrapper wrapper(final int transferId) {
+        return new InputStreamWrapper() {
+            @Override
+            public InputStream wrap(InputStream in) {
+                return new ThrottledInputStream(in, transferId);
+            }
+        };
+    }
+
+    @Override
+    public int read() throws IOException {
+        acquire(1);
+        int b = -1;
+        try {
+            b = super.read();
+        } finally {
+            TransferThreadPool.release(transferId, 1, b == -1 ? 0 : 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        final int toRead = Math.min(len, MAX_READ_SIZE);
+        acquire(toRead);
+        int bytesRead = -1;
+        try {
+            bytesRead = super.read(b, off, toRead);
+        } finally {
+            TransferThreadPool.release(transferId, toRead, Math.max(bytesRead, 0));
+        }
+        return bytesRead;
+    }
+
+    private void acquire(int bytes) {
+        try {
+            TransferThreadPool.acquire(transferId, bytes);
+        } catch (final InterruptedException e) {
+            // paused or canceled while waiting
+            TransferThreadPool.release(transferId, bytes, 0);
+            Thread.currentThread().interrupt();
+            abortIfNeeded();
+        }
+    }
+}
@@ -203,6 +203,39 @@ class TransferDBBase {
         return rowsUpdated;
     }
 
+    /**
+     * Updates a number of records in the table in one transaction.
+     *
+     * @param uri The Uri of a table.
+     * @param ids The ids of the records to update.
+     * @param valuesArray The values to update, one for each id.
+     * @return Number of rows updated.
+     */
+    public synchronized int bulkUpdate(Uri uri, int[] ids, ContentValues[] valuesArray) {
+        final int uriType = uriMatcher.match(uri);
+        int rowsUpdated = 0;
+        ensureDatabaseOpen();
+        switch (uriType) {
+            case TRANSFERS:
+                try {
+                    database.beginTransaction();
+                    for (int i = 0; i < ids.length; i++) {
+                        rowsUpdated += database.update(TransferTable.TABLE_TRANSFER,
+                                valuesArray[i], TransferTable.COLUMN_ID + "=" + ids[i], null);
+                    }
+                    database.setTransactionSuccessful();
+                } catch (final Exception e) {
+                    LOGGER.error("bulkUpdate error : ", e);
+                } finally {
+                    database.endTransaction();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        return rowsUpdated;
+    }
+
     /**
      * Deletes a record in the table.
      *
@@ -269,6 +302,40 @@ class TransferDBBase {
         return mainUploadId;
     }
 
+    /**
+     * Inserts part records of an existing transfer record in one transaction.
+     *
+     * @param uri The Uri of a table.
+     * @param mainTransferId The id of the transfer record the parts belong to.
+     * @param valuesArray A array of part values to insert.
+     * @return Number of part records inserted
+     */
+    public int bulkInsertParts(Uri uri, int mainTransferId, ContentValues[] valuesArray) {
+        final int uriType = uriMatcher.match(uri);
+        int inserted = 0;
+        ensureDatabaseOpen();
+        switch (uriType) {
+            case TRANSFERS:
+                try {
+                    database.beginTransaction();
+                    for (final ContentValues values : valuesArray) {
+                        values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainTransferId);
+                        database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, values);
+                    }
+                    database.setTransactionSuccessful();
+                    inserted = valuesArray.length;
+                } catch (final Exception e) {
+                    LOGGER.error("bulkInsertParts error : ", e);
+                } finally {
+                    database.endTransaction();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        return inserted;
+    }
+
     private void ensureDatabaseOpen() {
         // close and reopen database.
         synchronized (LOCK) {
@@ -34,6 +34,7 @@ import com.google.gson.Gson;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides methods to conveniently perform database operations.
@@ -197,6 +198,26 @@ class TransferDBUtil {
         return transferDBBase.update(getRecordUri(id), values, null, null);
     }
 
+    /**
+     * Updates the bytes transferred of a number of records in one
+     * transaction.
+     *
+     * @param bytesTransferred The bytes currently transferred, by transfer id
+     * @return Number of rows updated.
+     */
+    public int updateBytesTransferred(Map<Integer, Long> bytesTransferred) {
+        final int[] ids = new int[bytesTransferred.size()];
+        final ContentValues[] valuesArray = new ContentValues[ids.length];
+        int i = 0;
+        for (final Map.Entry<Integer, Long> entry : bytesTransferred.entrySet()) {
+            ids[i] = entry.getKey();
+            valuesArray[i] = new ContentValues();
+            valuesArray[i].put(TransferTable.COLUMN_BYTES_CURRENT, entry.getValue());
+            i++;
+        }
+        return transferDBBase.bulkUpdate(transferDBBase.getContentUri(), ids, valuesArray);
+    }
+
     /**
      * Updates the total bytes of a download record.
      *
@@ -638,6 +659,82 @@ class TransferDBUtil {
         return list;
     }
 
+    /**
+     * Queries uncompleted part records of a parallel download. Each returned
+     * record carries the byte range of the part and the bytes of the range
+     * already written to the file. It's used when resuming a parallel
+     * download so only incomplete ranges are fetched again.
+     *
+     * @param mainDownloadId The id of the main record of the download
+     * @return A list of TransferRecord, one per uncompleted part
+     */
+    public List<TransferRecord> getNonCompletedDownloadPartsFromDB(int mainDownloadId) {
+        final List<TransferRecord> list = new ArrayList<TransferRecord>();
+        Cursor c = null;
+        try {
+            c = transferDBBase.query(getPartUri(mainDownloadId), null, null, null, null);
+            while (c.moveToNext()) {
+                if (TransferState.PART_COMPLETED.equals(TransferState.getState(c.getString(c
+                        .getColumnIndexOrThrow(TransferTable.COLUMN_STATE))))) {
+                    continue;
+                }
+                final TransferRecord part = new TransferRecord(
+                        c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_ID)));
+                part.updateFromDB(c);
+                list.add(part);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Inserts the part records of a parallel download and marks the main
+     * record as a multipart transfer of the given size and ETag.
+     *
+     * @param mainDownloadId The id of the main record of the download
+     * @param bytesTotal The size of the object being downloaded
+     * @param eTag The ETag of the object, used to detect changes on resume
+     * @param valuesArray The part records to insert
+     * @return Number of part records inserted
+     */
+    public int insertMultipartDownloadRecords(int mainDownloadId, long bytesTotal, String eTag,
+            ContentValues[] valuesArray) {
+        final int inserted = transferDBBase.bulkInsertParts(transferDBBase.getContentUri(),
+                mainDownloadId, valuesArray);
+        if (inserted == valuesArray.length) {
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+            values.put(TransferTable.COLUMN_BYTES_TOTAL, bytesTotal);
+            values.put(TransferTable.COLUMN_ETAG, eTag);
+            transferDBBase.update(getRecordUri(mainDownloadId), values, null, null);
+        }
+        return inserted;
+    }
+
+    /**
+     * Deletes the part records of a parallel download and marks the main
+     * record as a single part download again. It's used when the partially
+     * downloaded file no longer exists, e.g. after the download is canceled.
+     *
+     * @param mainDownloadId The id of the main record of the download
+     * @return Number of part records deleted
+     */
+    public int deleteMultipartDownloadRecords(int mainDownloadId) {
+        final int deleted = transferDBBase.delete(transferDBBase.getContentUri(),
+                TransferTable.COLUMN_MAIN_UPLOAD_ID + "=?", new String[] {
+                    String.valueOf(mainDownloadId)
+                });
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 0);
+        values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+        transferDBBase.update(getRecordUri(mainDownloadId), values, null, null);
+        return deleted;
+    }
+
     /**
      * Queries waiting for network partUpload tasks of a multipart upload and returns
      * true if one such partUpload tasks
@@ -735,6 +832,37 @@ class TransferDBUtil {
         return values;
     }
 
+    /**
+     * Generates a ContentValues object to insert into the database for a part
+     * of a parallel download covering the inclusive byte range
+     * [rangeStart, rangeLast] of the object.
+     *
+     * @param download The main record of the download
+     * @param partNumber The part number of this part.
+     * @param rangeStart The first byte of the range.
+     * @param rangeLast The last byte of the range.
+     * @return The ContentValues object generated.
+     */
+    public ContentValues generateContentValuesForMultiPartDownload(TransferRecord download,
+            int partNumber, long rangeStart, long rangeLast) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_TYPE, TransferType.DOWNLOAD.toString());
+        values.put(TransferTable.COLUMN_STATE, TransferState.WAITING.toString());
+        values.put(TransferTable.COLUMN_BUCKET_NAME, download.bucketName);
+        values.put(TransferTable.COLUMN_KEY, download.key);
+        values.put(TransferTable.COLUMN_FILE, download.file);
+        values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, rangeLast - rangeStart + 1);
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_PART_NUM, partNumber);
+        values.put(TransferTable.COLUMN_FILE_OFFSET, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_START, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_LAST, rangeLast);
+        values.put(TransferTable.COLUMN_IS_ENCRYPTED, 0);
+        values.putAll(generateContentValuesForObjectMetadata(new ObjectMetadata()));
+        return values;
+    }
+
     /**
      * Adds mappings to a ContentValues object for the data in the passed in
      * ObjectMetadata
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+/**
+ * The order in which waiting transfers are started. Transfers of a higher
+ * priority are started, and get their parts transferred, before transfers of a
+ * lower priority. Transfers of the same priority share the threads part by
+ * part.
+ */
+public enum TransferPriority {
+    /**
+     * Transfers that can wait for the others, such as prefetching.
+     */
+    LOW,
+
+    /**
+     * The default priority.
+     */
+    NORMAL,
+
+    /**
+     * Transfers the user is waiting for.
+     */
+    HIGH
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that limits the bytes per second of the transfers that
+ * acquire from it. The bucket holds up to one second of bytes, so a transfer
+ * that was idle can burst for that long. A caller that takes more than the
+ * bucket holds goes into debt and sleeps it off, and the callers after it
+ * wait for the debt too, so the callers are served in order. Callers take
+ * bytes before they read them and give back what they didn't read.
+ */
+class TransferRateLimiter {
+
+    private static final long NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long bytesPerSecond;
+    private double availableBytes;
+    private long lastRefillNanos;
+
+    /**
+     * @param bytesPerSecond the limit, zero or less for no limit
+     */
+    TransferRateLimiter(long bytesPerSecond) {
+        setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * Changes the limit. Bytes acquired before are still accounted for.
+     *
+     * @param bytesPerSecond the limit, zero or less for no limit
+     */
+    synchronized void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.availableBytes = Math.max(bytesPerSecond, 0);
+        this.lastRefillNanos = nanoTime();
+    }
+
+    synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Takes bytes from the bucket, sleeping until the limit allows them.
+     *
+     * @param bytes the bytes transferred
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void acquire(long bytes) throws InterruptedException {
+        final long waitNanos;
+        synchronized (this) {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            final long now = nanoTime();
+            availableBytes = Math.min(bytesPerSecond,
+                    availableBytes + (double) (now - lastRefillNanos) * bytesPerSecond / NANOS_IN_SECOND);
+            lastRefillNanos = now;
+            availableBytes -= bytes;
+            if (availableBytes >= 0) {
+                return;
+            }
+            waitNanos = (long) (-availableBytes * NANOS_IN_SECOND / bytesPerSecond);
+        }
+        sleep(waitNanos);
+    }
+
+    /**
+     * Gives back bytes that were taken but not transferred.
+     *
+     * @param bytes the bytes to give back
+     */
+    synchronized void release(long bytes) {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+        availableBytes = Math.min(bytesPerSecond, availableBytes + bytes);
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    void sleep(long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+}
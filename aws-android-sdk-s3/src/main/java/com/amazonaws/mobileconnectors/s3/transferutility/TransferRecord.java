@@ -181,10 +181,10 @@ class TransferRecord {
             checkPreferredNetworkAvailability(updater, connManager)) {
             if (type.equals(TransferType.DOWNLOAD)) {
                 submittedTask = TransferThreadPool
-                        .submitTask(new DownloadTask(this, s3, updater));
+                        .submitTask(new DownloadTask(this, s3, dbUtil, updater), this);
             } else {
                 submittedTask = TransferThreadPool
-                        .submitTask(new UploadTask(this, s3, dbUtil, updater));
+                        .submitTask(new UploadTask(this, s3, dbUtil, updater), this);
             }
             return true;
         }
@@ -25,17 +25,36 @@ import com.amazonaws.event.ProgressListener;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class that tracks active transfers. It has a static map that holds weak
  * references of {@link TransferListener}.
+ * <p>
+ * Progress is kept in atomic counters per transfer. Changes are written to
+ * the database in one transaction for all transfers, and reported to the
+ * listeners, within the flush interval of each transfer (see
+ * {@link TransferUtilityOptions#setTransferProgressFlushInterval(long)}).
+ * The interval comes from the options the transfer was created with, so
+ * transfers of different {@link TransferUtility} instances keep their own.
+ * State changes are written and reported right away, after the pending
+ * progress of the transfer.
  */
 class TransferStatusUpdater {
     private static final Log LOGGER = LogFactory.getLog(TransferStatusUpdater.class);
@@ -51,22 +70,42 @@ class TransferStatusUpdater {
     /**
      * A map of listeners.
      */
-    static final Map<Integer, List<TransferListener>> LISTENERS = new HashMap<Integer, List<TransferListener>>();
+    static final ConcurrentMap<Integer, CopyOnWriteArrayList<TransferListener>> LISTENERS =
+            new ConcurrentHashMap<Integer, CopyOnWriteArrayList<TransferListener>>();
 
     /**
      * A map of active transfers.
      */
     private final Map<Integer, TransferRecord> transfers;
 
+    /**
+     * Progress of the transfers, by id.
+     */
+    private final ConcurrentMap<Integer, TransferProgress> progress =
+            new ConcurrentHashMap<Integer, TransferProgress>();
+
+    /**
+     * Runs the flushes of the progress.
+     */
+    private final ScheduledExecutorService flushExecutor;
+
+    /**
+     * When the next scheduled flush of the progress runs, in nanoseconds of
+     * {@link System#nanoTime()}, or {@link #NO_FLUSH_SCHEDULED}.
+     */
+    private final AtomicLong nextFlushTime = new AtomicLong(NO_FLUSH_SCHEDULED);
+
+    private static final long NO_FLUSH_SCHEDULED = Long.MAX_VALUE;
+
     /**
      * Database util to update transfer status.
      */
     private static TransferDBUtil dbUtil;
     
     /**
-     * The handler of main thread that runs callbacks.
+     * Runs the callbacks on the main thread.
      */
-    private final Handler mainHandler;
+    private final Executor mainThreadExecutor;
 
     /**
      * The Singleton instance.
@@ -79,9 +118,32 @@ class TransferStatusUpdater {
      * the object of the updater.
      */
     TransferStatusUpdater(TransferDBUtil dbUtilInstance) {
+        this(dbUtilInstance, new Executor() {
+            private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable command) {
+                mainHandler.post(command);
+            }
+        });
+    }
+
+    /**
+     * @param dbUtilInstance the database util
+     * @param mainThreadExecutor runs the callbacks of the listeners
+     */
+    TransferStatusUpdater(TransferDBUtil dbUtilInstance, Executor mainThreadExecutor) {
         dbUtil = dbUtilInstance;
-        mainHandler = new Handler(Looper.getMainLooper());
-        transfers = new HashMap<Integer, TransferRecord>();
+        this.mainThreadExecutor = mainThreadExecutor;
+        transfers = new ConcurrentHashMap<Integer, TransferRecord>();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "TransferStatusUpdater");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -103,7 +165,7 @@ class TransferStatusUpdater {
      *
      * @return an unmodifiable map of transfers
      */
-    synchronized Map<Integer, TransferRecord> getTransfers() {
+    Map<Integer, TransferRecord> getTransfers() {
         return Collections.unmodifiableMap(transfers);
     }
 
@@ -112,7 +174,7 @@ class TransferStatusUpdater {
      *
      * @param transfer a transfer object
      */
-    synchronized void addTransfer(TransferRecord transfer) {
+    void addTransfer(TransferRecord transfer) {
         transfers.put(transfer.id, transfer);
     }
 
@@ -122,7 +184,7 @@ class TransferStatusUpdater {
      * @param id id of the transfer
      * @return transfer if exists, null otherwise
      */
-    synchronized TransferRecord getTransfer(int id) {
+    TransferRecord getTransfer(int id) {
         return transfers.get(id);
     }
 
@@ -132,10 +194,9 @@ class TransferStatusUpdater {
      * @param id id of the transfer to remove
      */
     synchronized void removeTransfer(int id) {
-        synchronized (LISTENERS) {
-            LISTENERS.remove(id);
-        }
+        LISTENERS.remove(id);
         transfers.remove(id);
+        progress.remove(id);
     }
     
     /**
@@ -165,6 +226,9 @@ class TransferStatusUpdater {
      * @param newState new state
      */
     synchronized void updateState(final int id, final TransferState newState) {
+        // the progress so far comes first
+        flushProgress(id);
+
         boolean shouldNotNotify = STATES_NOT_TO_NOTIFY.contains(newState);
         final TransferRecord transfer = transfers.get(id);
         if (transfer == null) {
@@ -191,70 +255,197 @@ class TransferStatusUpdater {
             removeTransferRecordFromDB(id);
         }
 
-        synchronized (LISTENERS) {
-            final List<TransferListener> list = LISTENERS.get(id);
-            if (list == null || list.isEmpty()) {
-                return;
-            }
+        final List<TransferListener> list = LISTENERS.get(id);
+        if (list == null || list.isEmpty()) {
+            return;
+        }
 
-            // invoke TransferListener callback on main thread
-            for (final TransferListener l : list) {
-                mainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onStateChanged(id, newState);
-                    }
-                });
-            }
+        // invoke TransferListener callback on main thread
+        for (final TransferListener l : list) {
+            mainThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    l.onStateChanged(id, newState);
+                }
+            });
+        }
 
-            // remove all LISTENERS when the transfer is in a final state so
-            // as to release resources ASAP.
-            if (TransferState.COMPLETED.equals(newState) ||
-                TransferState.FAILED.equals(newState) ||
-                TransferState.CANCELED.equals(newState)) {
-                list.clear();
-            }
+        // remove all LISTENERS when the transfer is in a final state so
+        // as to release resources ASAP.
+        if (TransferState.COMPLETED.equals(newState) ||
+            TransferState.FAILED.equals(newState) ||
+            TransferState.CANCELED.equals(newState)) {
+            list.clear();
         }
     }
 
     /**
-     * Updates the transfer progress of a transfer. It will trigger
-     * {@link TransferListener#onProgressChanged(int, long, long)} of associated
-     * LISTENERS if the update exceeds either time threshold.
+     * Updates the transfer progress of a transfer. The progress is written
+     * into database, and {@link TransferListener#onProgressChanged(int, long, long)}
+     * of associated LISTENERS is triggered, at the next flush.
      *
      * @param id id of the transfer
      * @param bytesCurrent current transferred bytes
      * @param bytesTotal total bytes
+     * @param notifyListener whether to notify the listeners
      */
-    synchronized void updateProgress(final int id, 
-        final long bytesCurrent, 
-        final long bytesTotal, 
+    void updateProgress(final int id,
+        final long bytesCurrent,
+        final long bytesTotal,
         final boolean notifyListener) {
+        final TransferProgress transferProgress = getProgress(id);
+        transferProgress.bytesCurrent.set(bytesCurrent);
+        transferProgress.bytesTotal = bytesTotal;
+        progressChanged(transferProgress, notifyListener);
+    }
 
-        final TransferRecord transfer = transfers.get(id);
+    /**
+     * Updates the transfer progress of a running transfer if more bytes have
+     * been transferred than recorded so far, and notifies the listeners at
+     * the next flush.
+     *
+     * @param id id of the transfer
+     * @param bytesCurrent current transferred bytes
+     * @param bytesTotal total bytes
+     */
+    void advanceProgress(final int id, final long bytesCurrent, final long bytesTotal) {
+        final TransferProgress transferProgress = getProgress(id);
+        long current;
+        do {
+            current = transferProgress.bytesCurrent.get();
+            if (bytesCurrent <= current) {
+                return;
+            }
+        } while (!transferProgress.bytesCurrent.compareAndSet(current, bytesCurrent));
+        transferProgress.bytesTotal = bytesTotal;
+        progressChanged(transferProgress, true);
+    }
+
+    private TransferProgress getProgress(int id) {
+        TransferProgress transferProgress = progress.get(id);
+        if (transferProgress == null) {
+            final TransferRecord transfer = transfers.get(id);
+            transferProgress = transfer == null
+                    ? new TransferProgress(id, 0, 0)
+                    : new TransferProgress(id, transfer.bytesCurrent, transfer.bytesTotal);
+            final TransferProgress existing = progress.putIfAbsent(id, transferProgress);
+            if (existing != null) {
+                transferProgress = existing;
+            }
+        }
+        return transferProgress;
+    }
+
+    private void progressChanged(TransferProgress transferProgress, boolean notifyListener) {
+        final TransferRecord transfer = transfers.get(transferProgress.id);
         if (transfer != null) {
-            transfer.bytesCurrent = bytesCurrent;
-            transfer.bytesTotal = bytesTotal;
+            transfer.bytesCurrent = transferProgress.bytesCurrent.get();
+            transfer.bytesTotal = transferProgress.bytesTotal;
+        }
+        if (notifyListener) {
+            transferProgress.notifyListener.set(true);
         }
+        transferProgress.changed.set(true);
 
-        // update bytes transferred so that the transfer observer may pick it
-        // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+        final long interval = getFlushInterval(transfer);
+        if (interval <= 0) {
+            flushProgress(transferProgress.id);
+        } else {
+            scheduleFlush(interval);
+        }
+    }
 
-        if (!notifyListener) {
+    private static long getFlushInterval(TransferRecord transfer) {
+        if (transfer == null || transfer.transferUtilityOptions == null) {
+            return TransferUtilityOptions.getDefaultTransferProgressFlushInterval();
+        }
+        return transfer.transferUtilityOptions.getTransferProgressFlushInterval();
+    }
+
+    /**
+     * Schedules a flush of all transfers within the interval, unless one is
+     * already scheduled to run by then.
+     */
+    private void scheduleFlush(long interval) {
+        final long flushTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interval);
+        long scheduled;
+        do {
+            scheduled = nextFlushTime.get();
+            if (scheduled != NO_FLUSH_SCHEDULED && scheduled - flushTime <= 0) {
+                return;
+            }
+        } while (!nextFlushTime.compareAndSet(scheduled, flushTime));
+
+        flushExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // a later change may schedule again, an earlier flush may have replaced this one
+                nextFlushTime.compareAndSet(flushTime, NO_FLUSH_SCHEDULED);
+                try {
+                    flushProgress();
+                } catch (final RuntimeException e) {
+                    LOGGER.error("Failed to save the progress of transfers", e);
+                }
+            }
+        }, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the changed progress of all transfers into database in one
+     * transaction, then notifies the listeners.
+     */
+    synchronized void flushProgress() {
+        final Map<Integer, Long> bytesTransferred = new HashMap<Integer, Long>();
+        final List<TransferProgress> toNotify = new ArrayList<TransferProgress>();
+        for (final TransferProgress transferProgress : progress.values()) {
+            collect(transferProgress, bytesTransferred, toNotify);
+        }
+        if (!bytesTransferred.isEmpty()) {
+            dbUtil.updateBytesTransferred(bytesTransferred);
+        }
+        notifyProgress(toNotify);
+    }
+
+    private synchronized void flushProgress(int id) {
+        final TransferProgress transferProgress = progress.get(id);
+        if (transferProgress == null) {
             return;
         }
+        final Map<Integer, Long> bytesTransferred = new HashMap<Integer, Long>();
+        final List<TransferProgress> toNotify = new ArrayList<TransferProgress>();
+        collect(transferProgress, bytesTransferred, toNotify);
+        if (!bytesTransferred.isEmpty()) {
+            dbUtil.updateBytesTransferred(transferProgress.id,
+                    bytesTransferred.get(transferProgress.id));
+        }
+        notifyProgress(toNotify);
+    }
 
-        // invoke LISTENERS
-        synchronized (LISTENERS) {
-            final List<TransferListener> list = LISTENERS.get(id);
+    private void collect(TransferProgress transferProgress, Map<Integer, Long> bytesTransferred,
+            List<TransferProgress> toNotify) {
+        if (!transferProgress.changed.getAndSet(false)) {
+            return;
+        }
+        final long bytesCurrent = transferProgress.bytesCurrent.get();
+        bytesTransferred.put(transferProgress.id, bytesCurrent);
+        if (transferProgress.notifyListener.getAndSet(false)) {
+            toNotify.add(transferProgress);
+        }
+    }
+
+    private void notifyProgress(List<TransferProgress> toNotify) {
+        for (final TransferProgress transferProgress : toNotify) {
+            final List<TransferListener> list = LISTENERS.get(transferProgress.id);
             if (list == null || list.isEmpty()) {
-                return;
+                continue;
             }
 
+            final int id = transferProgress.id;
+            final long bytesCurrent = transferProgress.bytesCurrent.get();
+            final long bytesTotal = transferProgress.bytesTotal;
             for (final TransferListener l : list) {
                 // invoke on main thread
-                mainHandler.post(new Runnable() {
+                mainThreadExecutor.execute(new Runnable() {
                     @Override
                     public void run() {
                         l.onProgressChanged(id, bytesCurrent, bytesTotal);
@@ -273,21 +464,19 @@ class TransferStatusUpdater {
      */
     void throwError(final int id, final Exception e) {
         // invoke LISTENERS
-        synchronized (LISTENERS) {
-            final List<TransferListener> list = LISTENERS.get(id);
-            if (list == null || list.isEmpty()) {
-                return;
-            }
+        final List<TransferListener> list = LISTENERS.get(id);
+        if (list == null || list.isEmpty()) {
+            return;
+        }
 
-            for (final TransferListener l : list) {
-                // invoke on main thread
-                mainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onError(id, e);
-                    }
-                });
-            }
+        for (final TransferListener l : list) {
+            // invoke on main thread
+            mainThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    l.onError(id, e);
+                }
+            });
         }
     }
 
@@ -295,10 +484,9 @@ class TransferStatusUpdater {
      * Clears all transfers, LISTENERS, etc.
      */
     synchronized void clear() {
-        synchronized (LISTENERS) {
-            LISTENERS.clear();
-        }
+        LISTENERS.clear();
         transfers.clear();
+        progress.clear();
     }
 
     /**
@@ -311,19 +499,16 @@ class TransferStatusUpdater {
         if (listener == null) {
             throw new IllegalArgumentException("Listener can't be null");
         }
-        synchronized (LISTENERS) {
-            List<TransferListener> list = LISTENERS.get(id);
-            if (list == null) {
-                list = new CopyOnWriteArrayList<TransferListener>();
-                list.add(listener);
-                LISTENERS.put(id, list);
-            } else {
-                // don't add the same listener more than once
-                if (!list.contains(listener)) {
-                    list.add(listener);
-                }
+        CopyOnWriteArrayList<TransferListener> list = LISTENERS.get(id);
+        if (list == null) {
+            list = new CopyOnWriteArrayList<TransferListener>();
+            final CopyOnWriteArrayList<TransferListener> existing = LISTENERS.putIfAbsent(id, list);
+            if (existing != null) {
+                list = existing;
             }
         }
+        // don't add the same listener more than once
+        list.addIfAbsent(listener);
     }
 
     /**
@@ -336,13 +521,11 @@ class TransferStatusUpdater {
         if (listener == null) {
             throw new IllegalArgumentException("Listener can't be null");
         }
-        synchronized (LISTENERS) {
-            final List<TransferListener> list = LISTENERS.get(id);
-            if (list == null || list.isEmpty()) {
-                return;
-            }
-            list.remove(listener);
+        final List<TransferListener> list = LISTENERS.get(id);
+        if (list == null || list.isEmpty()) {
+            return;
         }
+        list.remove(listener);
     }
 
     /**
@@ -356,28 +539,26 @@ class TransferStatusUpdater {
          * Current transfer progress per task. The purpose is to reset the progress upon a
          * reset event.
          */
-        private long bytesTransferredSoFar;
+        private final AtomicLong bytesTransferredSoFar = new AtomicLong();
 
         public TransferProgressListener(TransferRecord transfer) {
             this.transfer = transfer;
         }
 
         @Override
-        public synchronized void progressChanged(ProgressEvent progressEvent) {
+        public void progressChanged(ProgressEvent progressEvent) {
             if (ProgressEvent.RESET_EVENT_CODE == progressEvent.getEventCode()) {
                 // Reset will discard what's been transferred
                 LOGGER.info("Reset Event triggerred. Resetting the bytesCurrent to 0.");
                 // Reset the local counter to 0.
-                bytesTransferredSoFar = 0;
+                bytesTransferredSoFar.set(0);
             } else {
-                bytesTransferredSoFar += progressEvent.getBytesTransferred();
-                // Update the transfer.bytesCurrent and notify the callback
-                // when the accumulated bytesCurrent exceeds the previously
-                // reported transfer.bytesCurrent.
-                if (bytesTransferredSoFar > transfer.bytesCurrent) {
-                    transfer.bytesCurrent = bytesTransferredSoFar;
-                    updateProgress(transfer.id, transfer.bytesCurrent, transfer.bytesTotal, true);
-                }
+                // Update the progress and notify the callback when the
+                // accumulated bytesCurrent exceeds the previously reported
+                // progress.
+                advanceProgress(transfer.id,
+                        bytesTransferredSoFar.addAndGet(progressEvent.getBytesTransferred()),
+                        transfer.bytesTotal);
             }
         }
     }
@@ -392,7 +573,7 @@ class TransferStatusUpdater {
      * @param id id of the transfer
      * @return a progress listener
      */
-    synchronized ProgressListener newProgressListener(int id) {
+    ProgressListener newProgressListener(int id) {
         final TransferRecord transfer = getTransfer(id);
         if (transfer == null) {
             LOGGER.info("TransferStatusUpdater doesn't track the transfer: " + id);
@@ -401,4 +582,23 @@ class TransferStatusUpdater {
         LOGGER.info("Creating a new progress listener for transfer: " + id);
         return new TransferProgressListener(transfer);
     }
+
+    /**
+     * The progress of a transfer that is flushed periodically.
+     */
+    private static final class TransferProgress {
+        private final int id;
+        private final AtomicLong bytesCurrent;
+        private volatile long bytesTotal;
+        /** Whether the progress changed since the last flush. */
+        private final AtomicBoolean changed = new AtomicBoolean();
+        /** Whether the listeners are to be notified at the next flush. */
+        private final AtomicBoolean notifyListener = new AtomicBoolean();
+
+        TransferProgress(int id, long bytesCurrent, long bytesTotal) {
+            this.id = id;
+            this.bytesCurrent = new AtomicLong(bytesCurrent);
+            this.bytesTotal = bytesTotal;
+        }
+    }
 }
@@ -30,8 +30,8 @@ class TransferTable {
     public static final String COLUMN_ID = "_id";
 
     /**
-     * For upload part record only, the transfer id of the main record of the
-     * part record.
+     * For part records of a multipart upload or a parallel download only, the
+     * transfer id of the main record of the part record.
      */
     public static final String COLUMN_MAIN_UPLOAD_ID = "main_upload_id";
 
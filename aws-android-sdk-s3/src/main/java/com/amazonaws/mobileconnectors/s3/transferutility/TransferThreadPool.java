@@ -16,21 +16,58 @@
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+/**
+ * Schedules the transfers. Main tasks and part tasks run in separate pools
+ * so a main task waiting for its parts never holds the thread a part needs.
+ * In each pool, tasks of a higher {@link TransferPriority} run first, and the
+ * parts of transfers of the same priority are taken in turns, so a small
+ * transfer doesn't wait behind all parts of a large one.
+ * <p>
+ * The transfers read their bytes through {@link ThrottledInputStream}, which
+ * takes them from the bandwidth limit of the transfer and the total limit of
+ * all transfers before reading, and measures the throughput the size of the
+ * part pool is tuned with when dynamic concurrency is enabled. The main pool
+ * keeps its size, as its tasks mostly wait for their parts.
+ * <p>
+ * Like the pools, the total limit and the tuning are shared by all
+ * TransferUtility instances of the process.
+ */
 class TransferThreadPool {
     
     private static final Log LOGGER = LogFactory.getLog(TransferService.class);
 
-    private static ExecutorService executorMainTask;
-    private static ExecutorService executorPartTask;
+    private static ThreadPoolExecutor executorMainTask;
+    private static ThreadPoolExecutor executorPartTask;
+
+    /** Orders the tasks of the same priority and turn by submission. */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /** Number of parts submitted so far, by transfer id. */
+    private static final ConcurrentMap<Integer, AtomicInteger> PART_TURNS =
+            new ConcurrentHashMap<Integer, AtomicInteger>();
+
+    /** Bandwidth limits of the transfers that have one, by transfer id. */
+    private static final ConcurrentMap<Integer, TransferRateLimiter> TRANSFER_LIMITERS =
+            new ConcurrentHashMap<Integer, TransferRateLimiter>();
+
+    /** Bandwidth limit of all transfers. */
+    private static final TransferRateLimiter TOTAL_LIMITER = new TransferRateLimiter(0);
+
+    private static final ConcurrencyController CONCURRENCY = new ConcurrencyController();
 
     static synchronized void init(final int transferThreadPoolSize) {
         LOGGER.debug("Initializing the thread pool of size: " + transferThreadPoolSize);
@@ -42,15 +79,120 @@ class TransferThreadPool {
         }
         if (executorPartTask == null) {
             executorPartTask = buildExecutor(poolSize);
+            CONCURRENCY.setMaxPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * Applies the options that are shared by all transfers: the total
+     * bandwidth limit and dynamic concurrency.
+     *
+     * @param options the options of the TransferUtility
+     */
+    static synchronized void configure(final TransferUtilityOptions options) {
+        TOTAL_LIMITER.setBytesPerSecond(options.getTotalBandwidthLimit());
+        final int poolSize = CONCURRENCY.setEnabled(options.isDynamicConcurrencyEnabled());
+        if (poolSize > 0) {
+            setPoolSize(poolSize);
         }
     }
 
-    public static <T> Future<T> submitTask(Callable<T> c) {
+    /**
+     * Submits a main or part task of a transfer.
+     *
+     * @param c the task
+     * @param transfer the record of the main transfer
+     * @return the future of the task
+     */
+    public static <T> Future<T> submitTask(Callable<T> c, TransferRecord transfer) {
         init(TransferUtilityOptions.getDefaultThreadPoolSize());
-        if (c instanceof UploadPartTask) {
-            return executorPartTask.submit(c);
+        final TransferUtilityOptions options = transfer.transferUtilityOptions;
+        final TransferPriority priority = options == null || options.getTransferPriority() == null
+                ? TransferPriority.NORMAL
+                : options.getTransferPriority();
+        if (c instanceof UploadPartTask || c instanceof DownloadPartTask) {
+            final PrioritizedTask<T> task = new PrioritizedTask<T>(c, transfer.id, false, priority,
+                    nextPartTurn(transfer.id));
+            executorPartTask.execute(task);
+            return task;
         } else {
-            return executorMainTask.submit(c);
+            if (options != null && options.getTransferBandwidthLimit() > 0) {
+                TRANSFER_LIMITERS.put(transfer.id,
+                        new TransferRateLimiter(options.getTransferBandwidthLimit()));
+            }
+            final PrioritizedTask<T> task = new PrioritizedTask<T>(c, transfer.id, true, priority, 0);
+            executorMainTask.execute(task);
+            return task;
+        }
+    }
+
+    /**
+     * Takes bytes a transfer is about to send or receive from its bandwidth
+     * limits, waiting as long as they require.
+     *
+     * @param transferId the id of the main transfer
+     * @param bytes the bytes about to be transferred
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    static void acquire(final int transferId, final long bytes) throws InterruptedException {
+        final TransferRateLimiter limiter = TRANSFER_LIMITERS.get(transferId);
+        if (limiter != null) {
+            limiter.acquire(bytes);
+        }
+        TOTAL_LIMITER.acquire(bytes);
+    }
+
+    /**
+     * Accounts for the bytes a transfer acquired: gives back those it didn't
+     * transfer and records the others for the throughput.
+     *
+     * @param transferId the id of the main transfer
+     * @param acquired the bytes acquired
+     * @param transferred the bytes actually transferred
+     */
+    static void release(final int transferId, final long acquired, final long transferred) {
+        if (acquired > transferred) {
+            final TransferRateLimiter limiter = TRANSFER_LIMITERS.get(transferId);
+            if (limiter != null) {
+                limiter.release(acquired - transferred);
+            }
+            TOTAL_LIMITER.release(acquired - transferred);
+        }
+        final int poolSize = CONCURRENCY.record(transferred);
+        if (poolSize > 0) {
+            setPoolSize(poolSize);
+        }
+    }
+
+    private static int nextPartTurn(int transferId) {
+        AtomicInteger turns = PART_TURNS.get(transferId);
+        if (turns == null) {
+            turns = new AtomicInteger();
+            final AtomicInteger existing = PART_TURNS.putIfAbsent(transferId, turns);
+            if (existing != null) {
+                turns = existing;
+            }
+        }
+        return turns.getAndIncrement();
+    }
+
+    /**
+     * Resizes the part pool. The main pool keeps the configured size, so
+     * that as many transfers as before run at once.
+     */
+    private static synchronized void setPoolSize(int poolSize) {
+        final ThreadPoolExecutor executor = executorPartTask;
+        if (executor == null) {
+            return;
+        }
+        LOGGER.debug("Resizing the part thread pool to " + poolSize);
+        // keep core <= max while moving both
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
         }
     }
 
@@ -85,14 +227,16 @@ class TransferThreadPool {
         }
     }
 
-    private static ExecutorService buildExecutor(int maxThreadsAllowed) {
+    private static ThreadPoolExecutor buildExecutor(int maxThreadsAllowed) {
         /*
          * Create a bounded thread pool for executing transfers; it creates
          * threads as needed (up to maximum) and reclaims them when finished.
+         * The queue hands out the waiting tasks in the order of
+         * PrioritizedTask.
          */
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreadsAllowed,
                 maxThreadsAllowed, 10, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>());
+                new PriorityBlockingQueue<Runnable>());
         /*
          * It's safe to discard tasks, as they are saved in database and will be
          * recovered on next database scan.
@@ -101,4 +245,134 @@ class TransferThreadPool {
         executor.allowCoreThreadTimeOut(true);
         return executor;
     }
+
+    /**
+     * A task in the queue of a pool. Tasks are ordered by priority, then by
+     * turn, which is the number of parts of the same transfer submitted
+     * before, then by submission.
+     */
+    static final class PrioritizedTask<T> extends FutureTask<T>
+            implements Comparable<PrioritizedTask<?>> {
+        private final int transferId;
+        private final boolean isMainTask;
+        private final TransferPriority priority;
+        private final int turn;
+        private final long sequence;
+
+        PrioritizedTask(Callable<T> callable, int transferId, boolean isMainTask,
+                TransferPriority priority, int turn) {
+            super(callable);
+            this.transferId = transferId;
+            this.isMainTask = isMainTask;
+            this.priority = priority;
+            this.turn = turn;
+            this.sequence = SEQUENCE.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            if (priority != other.priority) {
+                return other.priority.ordinal() - priority.ordinal();
+            }
+            if (turn != other.turn) {
+                return turn < other.turn ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+
+        @Override
+        protected void done() {
+            if (isMainTask) {
+                // the parts of the transfer are done before the main task
+                TRANSFER_LIMITERS.remove(transferId);
+                PART_TURNS.remove(transferId);
+            }
+        }
+    }
+
+    /**
+     * Tunes the size of the part pool to the throughput of the transfers by
+     * hill climbing: every sample period it moves the size one thread in the
+     * current direction while the throughput improves, turns back when it
+     * drops, and stays when it doesn't change much.
+     */
+    private static final class ConcurrencyController {
+        private static final long SAMPLE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(2);
+        private static final double TOLERANCE = 0.05;
+
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile boolean enabled;
+        private int maxPoolSize = 1;
+        private int poolSize = 1;
+        private int direction = 1;
+        private double lastThroughput;
+        /** Written under the lock, read without it by {@link #record(long)}. */
+        private volatile long sampleStartNanos = System.nanoTime();
+
+        synchronized void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+            this.poolSize = Math.min(poolSize, maxPoolSize);
+        }
+
+        /**
+         * Enables or disables the tuning.
+         *
+         * @return the new pool size if it changed, zero otherwise
+         */
+        synchronized int setEnabled(boolean enabled) {
+            if (this.enabled == enabled) {
+                return 0;
+            }
+            this.enabled = enabled;
+            // start in the middle when enabled, go back to all threads when
+            // disabled
+            poolSize = enabled ? Math.max(maxPoolSize / 2, 1) : maxPoolSize;
+            direction = 1;
+            lastThroughput = 0;
+            bytes.set(0);
+            sampleStartNanos = System.nanoTime();
+            return poolSize;
+        }
+
+        /**
+         * Records transferred bytes.
+         *
+         * @return the new pool size if it changed, zero otherwise
+         */
+        int record(long transferred) {
+            if (!enabled) {
+                return 0;
+            }
+            bytes.addAndGet(transferred);
+            if (System.nanoTime() - sampleStartNanos < SAMPLE_PERIOD_NANOS) {
+                return 0;
+            }
+            return sample();
+        }
+
+        private synchronized int sample() {
+            final long now = System.nanoTime();
+            final long elapsed = now - sampleStartNanos;
+            if (!enabled || elapsed < SAMPLE_PERIOD_NANOS) {
+                return 0;
+            }
+            final double throughput = (double) bytes.getAndSet(0) / elapsed;
+            sampleStartNanos = now;
+
+            if (throughput < lastThroughput * (1 - TOLERANCE)) {
+                direction = -direction;
+            } else if (throughput <= lastThroughput * (1 + TOLERANCE)) {
+                lastThroughput = throughput;
+                return 0;
+            }
+            lastThroughput = throughput;
+            final int newPoolSize = Math.min(Math.max(poolSize + direction, 1), maxPoolSize);
+            if (newPoolSize == poolSize) {
+                direction = -direction;
+                return 0;
+            }
+            poolSize = newPoolSize;
+            return poolSize;
+        }
+    }
 }
@@ -304,6 +304,7 @@ public class TransferUtility {
         this.dbUtil = new TransferDBUtil(context.getApplicationContext());
         this.updater = TransferStatusUpdater.getInstance(context.getApplicationContext());
         TransferThreadPool.init(this.transferUtilityOptions.getTransferThreadPoolSize());
+        TransferThreadPool.configure(this.transferUtilityOptions);
         this.connManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
 
@@ -325,6 +326,7 @@ public class TransferUtility {
         this.dbUtil = new TransferDBUtil(context.getApplicationContext());
         this.updater = TransferStatusUpdater.getInstance(context.getApplicationContext());
         TransferThreadPool.init(this.transferUtilityOptions.getTransferThreadPoolSize());
+        TransferThreadPool.configure(this.transferUtilityOptions);
         this.connManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
 
@@ -68,6 +68,40 @@ public class TransferUtilityOptions implements Serializable {
      * Type of connection to use for transfers.
      */
     private TransferNetworkConnectionType transferNetworkConnectionType;
+
+    /**
+     * Size in bytes of each byte-range part of a parallel download. Objects
+     * larger than this are downloaded in concurrent ranged requests; zero
+     * disables parallel downloads.
+     */
+    private long parallelDownloadPartSize;
+
+    /**
+     * Interval in milliseconds at which the progress of the transfers is
+     * written to the database and reported to the listeners.
+     */
+    private long transferProgressFlushInterval;
+
+    /**
+     * Priority of the transfers.
+     */
+    private TransferPriority transferPriority;
+
+    /**
+     * Limit in bytes per second of each transfer; zero means no limit.
+     */
+    private long transferBandwidthLimit;
+
+    /**
+     * Limit in bytes per second of all transfers together; zero means no
+     * limit.
+     */
+    private long totalBandwidthLimit;
+
+    /**
+     * Whether the number of threads is tuned to the measured throughput.
+     */
+    private boolean dynamicConcurrencyEnabled;
     
     /**
      * Constructor that sets the options to the
@@ -78,6 +112,8 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = getDefaultThreadPoolSize();
         this.transferNetworkConnectionType = getDefaultTransferNetworkConnectionType();
+        this.transferProgressFlushInterval = getDefaultTransferProgressFlushInterval();
+        this.transferPriority = getDefaultTransferPriority();
     }
 
     /**
@@ -93,6 +129,8 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = transferThreadPoolSize;
         this.transferNetworkConnectionType = transferNetworkConnectionType;
+        this.transferProgressFlushInterval = getDefaultTransferProgressFlushInterval();
+        this.transferPriority = getDefaultTransferPriority();
     }
 
     /**
@@ -183,4 +221,160 @@ public class TransferUtilityOptions implements Serializable {
     static TransferNetworkConnectionType getDefaultTransferNetworkConnectionType() {
         return TransferNetworkConnectionType.ANY;
     }
+
+    /**
+     * Return the default progress flush interval.
+     *
+     * @return The default progress flush interval in milliseconds.
+     */
+    static long getDefaultTransferProgressFlushInterval() {
+        return 500L;
+    }
+
+    /**
+     * Return the default transfer priority.
+     *
+     * @return The default transfer priority.
+     */
+    static TransferPriority getDefaultTransferPriority() {
+        return TransferPriority.NORMAL;
+    }
+
+    /**
+     * Retrieve the part size used for parallel downloads.
+     *
+     * @return the parallelDownloadPartSize in bytes, zero if parallel
+     *         downloads are disabled
+     */
+    public long getParallelDownloadPartSize() {
+        return parallelDownloadPartSize;
+    }
+
+    /**
+     * Set the part size used for parallel downloads. A download of an object
+     * larger than the part size is split into byte ranges that are fetched
+     * concurrently and written into the file at their offsets. If it's zero
+     * or negative, objects are downloaded over a single connection.
+     *
+     * @param parallelDownloadPartSize the parallelDownloadPartSize in bytes
+     */
+    public void setParallelDownloadPartSize(final long parallelDownloadPartSize) {
+        this.parallelDownloadPartSize = Math.max(parallelDownloadPartSize, 0L);
+    }
+
+    /**
+     * Retrieve the interval at which the progress of the transfers is saved
+     * and reported.
+     *
+     * @return the transferProgressFlushInterval in milliseconds
+     */
+    public long getTransferProgressFlushInterval() {
+        return transferProgressFlushInterval;
+    }
+
+    /**
+     * Set the interval at which the progress of the transfers is saved and
+     * reported. The progress made within an interval is written to the
+     * database in one transaction for all transfers, and
+     * {@link TransferListener#onProgressChanged(int, long, long)} is called at
+     * most once per interval for each transfer. If it's zero or negative,
+     * every change of the progress is saved and reported right away. The
+     * interval applies to the transfers started with these options; those of
+     * other {@link TransferUtility} instances keep their own.
+     *
+     * @param transferProgressFlushInterval the transferProgressFlushInterval
+     *            in milliseconds
+     */
+    public void setTransferProgressFlushInterval(final long transferProgressFlushInterval) {
+        this.transferProgressFlushInterval = transferProgressFlushInterval;
+    }
+
+    /**
+     * Retrieve the priority of the transfers.
+     *
+     * @return the TransferPriority
+     */
+    public TransferPriority getTransferPriority() {
+        return transferPriority;
+    }
+
+    /**
+     * Set the priority of the transfers started with these options. Waiting
+     * transfers and parts of a higher priority run before those of a lower
+     * one; transfers of the same priority take turns part by part. If it's
+     * null, set the default value.
+     *
+     * @param transferPriority the transferPriority to set
+     */
+    public void setTransferPriority(final TransferPriority transferPriority) {
+        this.transferPriority = transferPriority == null
+                ? getDefaultTransferPriority()
+                : transferPriority;
+    }
+
+    /**
+     * Retrieve the bandwidth limit of each transfer.
+     *
+     * @return the transferBandwidthLimit in bytes per second, zero if there
+     *         is no limit
+     */
+    public long getTransferBandwidthLimit() {
+        return transferBandwidthLimit;
+    }
+
+    /**
+     * Set the bandwidth limit of each transfer started with these options,
+     * covering all parts of the transfer. If it's zero or negative, the
+     * transfers are not limited.
+     *
+     * @param transferBandwidthLimit the transferBandwidthLimit in bytes per
+     *            second
+     */
+    public void setTransferBandwidthLimit(final long transferBandwidthLimit) {
+        this.transferBandwidthLimit = Math.max(transferBandwidthLimit, 0L);
+    }
+
+    /**
+     * Retrieve the bandwidth limit of all transfers together.
+     *
+     * @return the totalBandwidthLimit in bytes per second, zero if there is
+     *         no limit
+     */
+    public long getTotalBandwidthLimit() {
+        return totalBandwidthLimit;
+    }
+
+    /**
+     * Set the bandwidth limit of all transfers of the application together.
+     * The transfers share one thread pool, so the limit of the most recently
+     * created TransferUtility applies. If it's zero or negative, the
+     * transfers are not limited.
+     *
+     * @param totalBandwidthLimit the totalBandwidthLimit in bytes per second
+     */
+    public void setTotalBandwidthLimit(final long totalBandwidthLimit) {
+        this.totalBandwidthLimit = Math.max(totalBandwidthLimit, 0L);
+    }
+
+    /**
+     * Retrieve whether the number of threads is tuned to the throughput.
+     *
+     * @return true if dynamic concurrency is enabled
+     */
+    public boolean isDynamicConcurrencyEnabled() {
+        return dynamicConcurrencyEnabled;
+    }
+
+    /**
+     * Set whether the number of threads running the parts of transfers
+     * grows and shrinks with the measured throughput, between one and the
+     * number of part threads of the thread pool. The number of transfers
+     * running at once doesn't change. The transfers share one thread pool,
+     * so the setting of the most recently created TransferUtility applies.
+     *
+     * @param dynamicConcurrencyEnabled true to tune the number of threads
+     */
+    public void setDynamicConcurrencyEnabled(final boolean dynamicConcurrencyEnabled) {
+        this.dynamicConcurrencyEnabled = dynamicConcurrencyEnabled;
+    }
 }
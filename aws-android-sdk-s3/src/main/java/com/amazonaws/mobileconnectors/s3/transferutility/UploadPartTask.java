@@ -57,6 +57,9 @@ class UploadPartTask implements Callable<Boolean> {
         try {
             uploadPartTaskMetadata.state = TransferState.IN_PROGRESS;
             uploadPartRequest.setGeneralProgressListener(new UploadPartTaskProgressListener(uploadTaskProgressListener));
+            // read the part within the bandwidth limits of the transfer
+            uploadPartRequest.setInputStreamWrapper(
+                    ThrottledInputStream.wrapper(uploadPartRequest.getMainUploadId()));
             final UploadPartResult putPartResult = s3.uploadPart(uploadPartRequest);
             uploadPartTaskMetadata.state = TransferState.PART_COMPLETED;
             dbUtil.updateState(uploadPartRequest.getId(), TransferState.PART_COMPLETED);
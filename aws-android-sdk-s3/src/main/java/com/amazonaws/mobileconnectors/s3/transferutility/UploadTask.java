@@ -46,6 +46,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * When an upload transfer is requested through TransferUtility,
@@ -146,7 +147,7 @@ class UploadTask implements Callable<Boolean> {
                         upload.id, bytesAlreadyTransferred));
             }
         }
-        UploadTaskProgressListener uploadTaskProgressListener = new UploadTaskProgressListener(upload);
+        UploadTaskProgressListener uploadTaskProgressListener = new UploadTaskProgressListener();
         updater.updateProgress(upload.id, bytesAlreadyTransferred, upload.bytesTotal, false);
 
         requestList = dbUtil.getNonCompletedPartRequestsFromDB(upload.id,
@@ -161,7 +162,8 @@ class UploadTask implements Callable<Boolean> {
             uploadPartTaskMetadata.state = TransferState.WAITING;
             uploadPartTasks.put(request.getPartNumber(), uploadPartTaskMetadata);
             uploadPartTaskMetadata.uploadPartTask = TransferThreadPool.submitTask(
-                    new UploadPartTask(uploadPartTaskMetadata, uploadTaskProgressListener, request, s3, dbUtil));
+                    new UploadPartTask(uploadPartTaskMetadata, uploadTaskProgressListener, request, s3, dbUtil),
+                    upload);
         }
 
         try {
@@ -255,6 +257,9 @@ class UploadTask implements Callable<Boolean> {
         TransferUtility.appendTransferServiceUserAgentString(putObjectRequest);
         putObjectRequest.setGeneralProgressListener(progressListener);
 
+        // read the file within the bandwidth limits of the transfer
+        putObjectRequest.setInputStreamWrapper(ThrottledInputStream.wrapper(upload.id));
+
         try {
             PutObjectResult putObjectResult = s3.putObject(putObjectRequest);
             updater.updateProgress(upload.id, length, length, true);
@@ -450,19 +455,17 @@ class UploadTask implements Callable<Boolean> {
      */
     class UploadTaskProgressListener implements ProgressListener {
 
-        // This variable tracks the previously reported total bytes transferred.
-        private long prevTotalBytesTransferredOfAllParts;
-
-        UploadTaskProgressListener(TransferRecord upload) {
-            this.prevTotalBytesTransferredOfAllParts = upload.bytesCurrent;
-        }
+        // Sum of bytesTransferredSoFar of all parts. Each part only has one
+        // writer, so its progress is added as the difference to the previous
+        // value instead of adding up all parts under a lock.
+        private final AtomicLong totalBytesTransferredOfAllParts = new AtomicLong();
 
         @Override
         public void progressChanged(final ProgressEvent progressEvent) {
             // No-op
         }
 
-        public synchronized void onProgressChanged(final int partNum,
+        public void onProgressChanged(final int partNum,
             final long bytesTransferredSoFarForPartNum) {
             UploadPartTaskMetadata partNumTask = uploadPartTasks.get(partNum);
             if (partNumTask == null) {
@@ -470,25 +473,16 @@ class UploadTask implements Callable<Boolean> {
                 return;
             }
 
+            final long delta = bytesTransferredSoFarForPartNum - partNumTask.bytesTransferredSoFar;
             partNumTask.bytesTransferredSoFar = bytesTransferredSoFarForPartNum;
-
-            // Compute the sum of bytesTransferredSoFar for all parts
-            long totalBytesTransferredOfAllParts = 0;
-            for (Map.Entry<Integer, UploadPartTaskMetadata> part : uploadPartTasks.entrySet()) {
-                totalBytesTransferredOfAllParts += part.getValue().bytesTransferredSoFar;
-            }
+            final long total = totalBytesTransferredOfAllParts.addAndGet(delta);
 
             // Update the transfer record and the transfer listener
-            // when the accumulated total bytesTransferred (totalBytesTransferredOfAllParts) 
-            // exceeds the previously reported toal bytesTransferred 
-            // (prevTotalBytesTransferredOfAllParts).
-            if (totalBytesTransferredOfAllParts > prevTotalBytesTransferredOfAllParts) {
-                updater.updateProgress(UploadTask.this.upload.id,
-                    totalBytesTransferredOfAllParts,
-                    UploadTask.this.upload.bytesTotal,
-                    true);
-                prevTotalBytesTransferredOfAllParts = totalBytesTransferredOfAllParts;
-            }
+            // when the accumulated total bytesTransferred exceeds the
+            // previously reported total bytesTransferred.
+            updater.advanceProgress(UploadTask.this.upload.id,
+                total,
+                UploadTask.this.upload.bytesTotal);
         }
     }
 
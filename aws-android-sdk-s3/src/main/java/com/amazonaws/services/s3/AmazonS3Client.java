@@ -63,11 +63,10 @@ import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectTaggingHeaderHandler;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.DigestValidationInputStream;
+import com.amazonaws.services.s3.internal.FileRegionInputStream;
 import com.amazonaws.services.s3.internal.GetObjectTaggingResponseHeaderHandler;
-import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.MD5DigestCalculatingInputStream;
 import com.amazonaws.services.s3.internal.ObjectExpirationHeaderHandler;
-import com.amazonaws.services.s3.internal.RepeatableFileInputStream;
 import com.amazonaws.services.s3.internal.ResponseHeaderHandlerChain;
 import com.amazonaws.services.s3.internal.S3ErrorResponseHandler;
 import com.amazonaws.services.s3.internal.S3ExecutionContext;
@@ -1817,7 +1816,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         if (putObjectRequest.getFile() != null) {
             final File file = putObjectRequest.getFile();
             // Always set the content length, even if it's already set
-            metadata.setContentLength(file.length());
+            final long fileLength = file.length();
+            metadata.setContentLength(fileLength);
 
             final boolean calculateMD5 = metadata.getContentMD5() == null;
 
@@ -1826,6 +1826,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
+            // Sent as Content-MD5 so that Amazon S3 checks the data it
+            // receives. That has to be known before the data is sent.
             if (calculateMD5 && !skipContentMd5Check) {
                 try {
                     final String contentMd5_b64 = Md5Utils.md5AsBase64(file);
@@ -1837,11 +1839,14 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             }
 
             try {
-                input = new RepeatableFileInputStream(file);
+                input = new FileRegionInputStream(file, 0, fileLength);
             } catch (final FileNotFoundException fnfe) {
                 throw new AmazonClientException("Unable to find file to upload", fnfe);
             }
         }
+        if (input != null && putObjectRequest.getInputStreamWrapper() != null) {
+            input = putObjectRequest.getInputStreamWrapper().wrap(input);
+        }
 
         final Request<PutObjectRequest> request = createRequest(bucketName, key, putObjectRequest,
                 HttpMethodName.PUT);
@@ -1974,7 +1979,12 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             contentMd5 = BinaryUtils.toBase64(md5DigestStream.getMd5Digest());
         }
 
-        if (returnedMetadata != null && contentMd5 != null && !skipContentMd5Check) {
+        // The ETag is no MD5 of the data for objects encrypted with SSE-KMS
+        // or SSE-C, nor for multipart ETags.
+        if (returnedMetadata != null && contentMd5 != null && !skipContentMd5Check
+                && !ServiceUtils.skipMd5CheckPerResponse(returnedMetadata)
+                && returnedMetadata.getETag() != null
+                && !ServiceUtils.isMultipartUploadETag(returnedMetadata.getETag())) {
             final byte[] clientSideHash = BinaryUtils.fromBase64(contentMd5);
             final byte[] serverSideHash = BinaryUtils.fromHex(returnedMetadata.getETag());
 
@@ -3841,9 +3851,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             inputStream = uploadPartRequest.getInputStream();
         } else if (uploadPartRequest.getFile() != null) {
             try {
-                inputStream = new InputSubstream(new RepeatableFileInputStream(
-                        uploadPartRequest.getFile()),
-                        uploadPartRequest.getFileOffset(), partSize, true);
+                inputStream = new FileRegionInputStream(uploadPartRequest.getFile(),
+                        uploadPartRequest.getFileOffset(), partSize);
             } catch (final FileNotFoundException e) {
                 throw new IllegalArgumentException("The specified file doesn't exist", e);
             }
@@ -3851,6 +3860,9 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             throw new IllegalArgumentException(
                     "A File or InputStream must be specified when uploading part");
         }
+        if (uploadPartRequest.getInputStreamWrapper() != null) {
+            inputStream = uploadPartRequest.getInputStreamWrapper().wrap(inputStream);
+        }
 
         MD5DigestCalculatingInputStream md5DigestStream = null;
         if (uploadPartRequest.getMd5Digest() == null
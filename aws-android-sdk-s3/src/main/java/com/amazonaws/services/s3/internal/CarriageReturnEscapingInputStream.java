@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Replaces each carriage return (\r) of a UTF-8 XML document with the
+ * character entity {@code &#013;} as the document is read, so the SAX parser
+ * doesn't normalize it to a line feed. In UTF-8 the byte 0x0D only ever
+ * encodes a carriage return, so the replacement works on bytes and the
+ * document is never decoded or held in memory.
+ */
+public class CarriageReturnEscapingInputStream extends SdkFilterInputStream {
+
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] ESCAPED_CARRIAGE_RETURN = {
+            '&', '#', '0', '1', '3', ';'
+    };
+
+    /** Position in ESCAPED_CARRIAGE_RETURN of the next byte to return. */
+    private int escapePosition = ESCAPED_CARRIAGE_RETURN.length;
+
+    /**
+     * Bytes read from the wrapped stream after a carriage return that didn't
+     * fit in the caller's buffer, from pendingPosition to pendingEnd.
+     */
+    private byte[] pending;
+    private int pendingPosition;
+    private int pendingEnd;
+    private boolean lastReadWasPending;
+
+    /**
+     * @param in the UTF-8 XML document
+     */
+    public CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        abortIfNeeded();
+        if (escapePosition < ESCAPED_CARRIAGE_RETURN.length) {
+            return ESCAPED_CARRIAGE_RETURN[escapePosition++];
+        }
+        final int b = pendingPosition < pendingEnd ? pending[pendingPosition++] & 0xFF : in.read();
+        if (b == CARRIAGE_RETURN) {
+            escapePosition = 1;
+            return ESCAPED_CARRIAGE_RETURN[0];
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (len == 0) {
+            return 0;
+        }
+        final int escaped = drainEscape(b, off, len);
+        if (escaped == len || escaped > 0 && pendingPosition == pendingEnd) {
+            // don't block on the wrapped stream when there's something to return
+            return escaped;
+        }
+
+        final int start = off + escaped;
+        final int bytesRead = readRaw(b, start, len - escaped);
+        if (bytesRead == -1) {
+            return escaped == 0 ? -1 : escaped;
+        }
+        final int end = start + bytesRead;
+        for (int i = start; i < end; i++) {
+            if (b[i] == CARRIAGE_RETURN) {
+                // return the escape in place of the carriage return; what
+                // follows is returned by the next reads
+                unread(b, i + 1, end - i - 1);
+                escapePosition = 0;
+                return i - off + drainEscape(b, i, off + len - i);
+            }
+        }
+        return escaped + bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        final byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 512)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int bytesRead = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (bytesRead == -1) {
+                break;
+            }
+            skipped += bytesRead;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return ESCAPED_CARRIAGE_RETURN.length - escapePosition + pendingEnd - pendingPosition
+                + in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        // mark isn't supported
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private int drainEscape(byte[] b, int off, int len) {
+        final int count = Math.min(ESCAPED_CARRIAGE_RETURN.length - escapePosition, len);
+        System.arraycopy(ESCAPED_CARRIAGE_RETURN, escapePosition, b, off, count);
+        escapePosition += count;
+        return count;
+    }
+
+    private int readRaw(byte[] b, int off, int len) throws IOException {
+        lastReadWasPending = pendingPosition < pendingEnd;
+        if (lastReadWasPending) {
+            final int count = Math.min(pendingEnd - pendingPosition, len);
+            System.arraycopy(pending, pendingPosition, b, off, count);
+            pendingPosition += count;
+            return count;
+        }
+        return in.read(b, off, len);
+    }
+
+    /**
+     * Puts back the last bytes returned by {@link #readRaw}.
+     */
+    private void unread(byte[] b, int off, int len) {
+        if (lastReadWasPending) {
+            // they are still in the pending buffer
+            pendingPosition -= len;
+            return;
+        }
+        if (pending == null || pending.length < len) {
+            pending = new byte[len];
+        }
+        System.arraycopy(b, off, pending, 0, len);
+        pendingPosition = 0;
+        pendingEnd = len;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.internal.SdkInputStream;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A repeatable input stream over a region of a file. Reads go straight from
+ * the file channel at absolute positions into the caller's buffer, so mark and
+ * reset only move a position, where a {@link RepeatableFileInputStream} inside
+ * an {@link InputSubstream} reopens the file and skips to the offset again.
+ */
+public class FileRegionInputStream extends SdkInputStream {
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+    private long markPosition;
+    /** The buffer of {@link #read()}, reused for every byte. */
+    private final byte[] singleByte = new byte[1];
+
+    /**
+     * Creates an input stream over part of a file.
+     *
+     * @param file the file.
+     * @param offset the position in the file of the first byte of the region.
+     * @param length the length of the region.
+     * @throws FileNotFoundException if the file doesn't exist or can't be
+     *             opened.
+     */
+    public FileRegionInputStream(File file, long offset, long length)
+            throws FileNotFoundException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+        this.channel = randomAccessFile.getChannel();
+        this.position = offset;
+        this.markPosition = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Returns the File this stream is reading data from.
+     *
+     * @return the File this stream is reading data from.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int bytesRead = read(singleByte, 0, 1);
+        return bytesRead == -1 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (position >= end) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final int toRead = (int) Math.min(len, end - position);
+        final int bytesRead = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+        if (bytesRead == -1) {
+            throw new IOException("File " + file + " ended at " + position
+                    + " before the end of the region at " + end);
+        }
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, end - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return (int) Math.min(end - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        markPosition = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        position = markPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+        abortIfNeeded();
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Iterates the objects of an {@link S3Objects} by listing partitions of its
+ * key space concurrently on its executor. Each partition is listed a page at a
+ * time, up to {@link #PREFETCH_PAGES} pages ahead of the iteration, and at most
+ * {@link S3Objects#getParallelism()} partitions are listed at once.
+ * <p>
+ * The partitions either come from the split points, each one being the last
+ * key of a partition, or are discovered by listing the prefix with the
+ * partition delimiter: each common prefix becomes a partition, and the objects
+ * between common prefixes are returned from that listing. Partitions are kept
+ * in key order, so returning the objects partition by partition returns them
+ * in key order, as {@link S3Objects} does.
+ */
+final class ParallelS3ObjectIterator implements Iterator<S3ObjectSummary> {
+
+    /** The number of pages of a partition listed ahead of the iteration. */
+    static final int PREFETCH_PAGES = 2;
+
+    /** Orders keys like Amazon S3 does, by the code points of their UTF-8 bytes. */
+    static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length() && j < b.length()) {
+                final int ca = a.codePointAt(i);
+                final int cb = b.codePointAt(j);
+                if (ca != cb) {
+                    return ca < cb ? -1 : 1;
+                }
+                i += Character.charCount(ca);
+                j += Character.charCount(cb);
+            }
+            return (i < a.length() ? 1 : 0) - (j < b.length() ? 1 : 0);
+        }
+    };
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final String prefix;
+    private final Integer batchSize;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final boolean ordered;
+    private final String partitionDelimiter;
+
+    /** The partitions not iterated yet, in key order. */
+    private final LinkedList<Partition> partitions = new LinkedList<Partition>();
+
+    /** Whether the partitions are still being discovered. */
+    private boolean discovering;
+    private boolean discoveryFetching;
+    private ObjectListing discoveryListing;
+
+    private RuntimeException failure;
+    private Iterator<S3ObjectSummary> current;
+
+    ParallelS3ObjectIterator(S3Objects objects) {
+        this.s3 = objects.getS3();
+        this.bucketName = objects.getBucketName();
+        this.prefix = objects.getPrefix();
+        this.batchSize = objects.getBatchSize();
+        this.executor = objects.getExecutor();
+        this.parallelism = objects.getParallelism();
+        this.ordered = objects.isOrderedResults();
+        this.partitionDelimiter = objects.getPartitionDelimiter();
+
+        if (partitionDelimiter != null) {
+            discovering = true;
+        } else {
+            final List<String> splitPoints = new ArrayList<String>(objects.getSplitPoints());
+            Collections.sort(splitPoints, KEY_ORDER);
+            String marker = null;
+            for (final String splitPoint : splitPoints) {
+                if (marker == null || !marker.equals(splitPoint)) {
+                    partitions.add(new Partition(prefix, marker, splitPoint));
+                    marker = splitPoint;
+                }
+            }
+            partitions.add(new Partition(prefix, marker, null));
+        }
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        while (true) {
+            if (current != null && current.hasNext()) {
+                return true;
+            }
+            current = null;
+            if (failure != null) {
+                throw failure;
+            }
+
+            for (final Iterator<Partition> i = partitions.iterator(); i.hasNext();) {
+                if (i.next().isExhausted()) {
+                    i.remove();
+                }
+            }
+            final Partition next = nextPartitionWithPage();
+            if (next != null) {
+                current = next.pages.removeFirst().iterator();
+                schedule();
+                continue;
+            }
+            if (partitions.isEmpty() && !discovering) {
+                return false;
+            }
+
+            schedule();
+            if (failure != null) {
+                continue;
+            }
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while listing objects", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the partition whose next page should be iterated, or null if
+     * that page hasn't been listed yet.
+     */
+    private Partition nextPartitionWithPage() {
+        if (ordered) {
+            return !partitions.isEmpty() && !partitions.getFirst().pages.isEmpty()
+                    ? partitions.getFirst() : null;
+        }
+        for (final Partition partition : partitions) {
+            if (!partition.pages.isEmpty()) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts listing the next pages of the first partitions, and discovering
+     * more partitions when few are left.
+     */
+    private void schedule() {
+        if (failure != null) {
+            return;
+        }
+        int listing = 0;
+        for (final Partition partition : partitions) {
+            if (listing == parallelism) {
+                break;
+            }
+            if (partition.done) {
+                continue;
+            }
+            listing++;
+            if (!partition.fetching && partition.pages.size() < PREFETCH_PAGES) {
+                fetch(partition);
+            }
+        }
+        if (discovering && !discoveryFetching && partitions.size() <= parallelism) {
+            discover();
+        }
+    }
+
+    private void fetch(final Partition partition) {
+        partition.fetching = true;
+        final ObjectListing previous = partition.listing;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                final ObjectListing listing;
+                try {
+                    listing = previous == null
+                            ? s3.listObjects(new ListObjectsRequest(bucketName, partition.prefix,
+                                    partition.marker, null, batchSize))
+                            : s3.listNextBatchOfObjects(previous);
+                } catch (final RuntimeException e) {
+                    failed(e);
+                    return;
+                }
+                listed(partition, listing);
+            }
+        });
+    }
+
+    private synchronized void listed(Partition partition, ObjectListing listing) {
+        partition.fetching = false;
+        partition.listing = listing;
+        List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+        if (partition.lastKey != null) {
+            int end = 0;
+            while (end < summaries.size()
+                    && KEY_ORDER.compare(summaries.get(end).getKey(), partition.lastKey) <= 0) {
+                end++;
+            }
+            if (end < summaries.size()) {
+                summaries = summaries.subList(0, end);
+                partition.done = true;
+            }
+        }
+        if (!listing.isTruncated()) {
+            partition.done = true;
+        }
+        if (!summaries.isEmpty()) {
+            partition.pages.add(summaries);
+        }
+        schedule();
+        notifyAll();
+    }
+
+    private void discover() {
+        discoveryFetching = true;
+        final ObjectListing previous = discoveryListing;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                final ObjectListing listing;
+                try {
+                    listing = previous == null
+                            ? s3.listObjects(new ListObjectsRequest(bucketName, prefix, null,
+                                    partitionDelimiter, batchSize))
+                            : s3.listNextBatchOfObjects(previous);
+                } catch (final RuntimeException e) {
+                    failed(e);
+                    return;
+                }
+                discovered(listing);
+            }
+        });
+    }
+
+    /**
+     * Adds the partitions of a page of the discovery listing: a partition for
+     * each common prefix, and a listed partition for each run of objects
+     * between them.
+     */
+    private synchronized void discovered(ObjectListing listing) {
+        discoveryFetching = false;
+        discoveryListing = listing;
+        if (!listing.isTruncated()) {
+            discovering = false;
+        }
+
+        final List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+        final List<String> commonPrefixes = listing.getCommonPrefixes();
+        List<S3ObjectSummary> run = null;
+        int i = 0;
+        int j = 0;
+        while (i < summaries.size() || j < commonPrefixes.size()) {
+            if (j == commonPrefixes.size() || i < summaries.size()
+                    && KEY_ORDER.compare(summaries.get(i).getKey(), commonPrefixes.get(j)) < 0) {
+                if (run == null) {
+                    run = new ArrayList<S3ObjectSummary>();
+                }
+                run.add(summaries.get(i++));
+            } else {
+                if (run != null) {
+                    partitions.add(new Partition(run));
+                    run = null;
+                }
+                partitions.add(new Partition(commonPrefixes.get(j++), null, null));
+            }
+        }
+        if (run != null) {
+            partitions.add(new Partition(run));
+        }
+        schedule();
+        notifyAll();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            failure = new AmazonClientException("Unable to list objects", e);
+        }
+    }
+
+    private synchronized void failed(RuntimeException e) {
+        if (failure == null) {
+            failure = e instanceof AmazonClientException ? e
+                    : new AmazonClientException("Unable to list objects", e);
+        }
+        notifyAll();
+    }
+
+    /**
+     * A range of keys listed separately: the keys with a prefix that are after
+     * a marker, up to and including a last key.
+     */
+    private static final class Partition {
+        final String prefix;
+        final String marker;
+        final String lastKey;
+
+        /** Pages listed and not iterated yet. */
+        final LinkedList<List<S3ObjectSummary>> pages = new LinkedList<List<S3ObjectSummary>>();
+        ObjectListing listing;
+        boolean fetching;
+        boolean done;
+
+        Partition(String prefix, String marker, String lastKey) {
+            this.prefix = prefix;
+            this.marker = marker;
+            this.lastKey = lastKey;
+        }
+
+        /**
+         * Creates a partition of objects already listed.
+         */
+        Partition(List<S3ObjectSummary> summaries) {
+            this(null, null, null);
+            pages.add(summaries);
+            done = true;
+        }
+
+        boolean isExhausted() {
+            return done && pages.isEmpty();
+        }
+    }
+}
@@ -20,7 +20,11 @@ import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Provides an easy way to iterate Amazon S3 objects in a "foreach" statement.
@@ -35,6 +39,17 @@ import java.util.Iterator;
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
  * {@link S3Objects#withBatchSize(int)} method.
+ * <p>
+ * Given an executor, the objects are listed in parallel instead: the key space
+ * is split into partitions, either at the split points given or at the common
+ * prefixes found with a delimiter, and the partitions are listed concurrently,
+ * each a few pages ahead of the iteration. For example:
+ *
+ * <pre class="brush: java">
+ * S3Objects objects = S3Objects.inBucket(s3, &quot;my-bucket&quot;)
+ *         .withExecutor(executor)
+ *         .withPartitionDelimiter(&quot;/&quot;);
+ * </pre>
  */
 public final class S3Objects implements Iterable<S3ObjectSummary> {
 
@@ -42,6 +57,14 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
     private String prefix = null;
     private String bucketName;
     private Integer batchSize = null;
+    private ExecutorService executor = null;
+    private List<String> splitPoints = Collections.emptyList();
+    private String partitionDelimiter = null;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private boolean orderedResults = true;
+
+    /** The default number of partitions listed at once. */
+    private static final int DEFAULT_PARALLELISM = 4;
 
     private S3Objects(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -92,6 +115,100 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
         return batchSize;
     }
 
+    /**
+     * Sets the executor on which to list the objects in parallel. Without an
+     * executor, the objects are listed a page at a time as they are needed.
+     *
+     * @param executor The executor listing the partitions of the objects.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the keys at which to split the objects into partitions listed in
+     * parallel. Each split point is the last key of a partition, whether or not
+     * an object has that key. Replaces any partition delimiter.
+     *
+     * @param splitPoints The last keys of the partitions.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withSplitPoints(String... splitPoints) {
+        this.splitPoints = Collections.unmodifiableList(Arrays.asList(splitPoints.clone()));
+        this.partitionDelimiter = null;
+        return this;
+    }
+
+    public List<String> getSplitPoints() {
+        return splitPoints;
+    }
+
+    /**
+     * Sets the delimiter with which to find the partitions listed in parallel.
+     * The prefix is first listed with the delimiter, and each common prefix
+     * found becomes a partition. Replaces any split points.
+     *
+     * @param partitionDelimiter The delimiter, such as "/".
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withPartitionDelimiter(String partitionDelimiter) {
+        this.partitionDelimiter = partitionDelimiter;
+        this.splitPoints = Collections.emptyList();
+        return this;
+    }
+
+    public String getPartitionDelimiter() {
+        return partitionDelimiter;
+    }
+
+    /**
+     * Sets how many partitions are listed at once when listing in parallel.
+     * Defaults to 4.
+     *
+     * @param parallelism The number of partitions listed at once.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets whether objects listed in parallel are returned in key order, as
+     * when they're listed sequentially. Otherwise they are returned a page at a
+     * time as soon as any partition lists one, which keeps a partition slow to
+     * list from holding back the others. Defaults to true.
+     *
+     * @param orderedResults Whether to return the objects in key order.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withOrderedResults(boolean orderedResults) {
+        this.orderedResults = orderedResults;
+        return this;
+    }
+
+    public boolean isOrderedResults() {
+        return orderedResults;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -149,6 +266,9 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
 
     @Override
     public Iterator<S3ObjectSummary> iterator() {
+        if (executor != null) {
+            return new ParallelS3ObjectIterator(this);
+        }
         return new S3ObjectIterator();
     }
 
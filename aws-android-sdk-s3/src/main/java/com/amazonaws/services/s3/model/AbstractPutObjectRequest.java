@@ -53,6 +53,11 @@ public abstract class AbstractPutObjectRequest extends AmazonWebServiceRequest i
      */
     private transient InputStream inputStream;
 
+    /**
+     * Optionally wraps the stream the data is read through.
+     */
+    private transient InputStreamWrapper inputStreamWrapper;
+
     /**
      * Optional metadata instructing Amazon S3 how to handle the uploaded data
      * (e.g. custom user metadata, hooks for specifying content type, etc.). If
@@ -632,6 +637,44 @@ public abstract class AbstractPutObjectRequest extends AmazonWebServiceRequest i
         return t;
     }
 
+    /**
+     * Gets the optional wrapper of the stream the data is read through.
+     *
+     * @return The wrapper, or null if the data is read as is.
+     * @see AbstractPutObjectRequest#setInputStreamWrapper(InputStreamWrapper)
+     */
+    public InputStreamWrapper getInputStreamWrapper() {
+        return inputStreamWrapper;
+    }
+
+    /**
+     * Sets the optional wrapper of the stream the data is read through, the
+     * file or the input stream. It applies to either, so the client still
+     * handles a file as a file.
+     *
+     * @param inputStreamWrapper The wrapper, or null to read the data as is.
+     */
+    public void setInputStreamWrapper(InputStreamWrapper inputStreamWrapper) {
+        this.inputStreamWrapper = inputStreamWrapper;
+    }
+
+    /**
+     * Sets the optional wrapper of the stream the data is read through.
+     * Returns this {@link AbstractPutObjectRequest}, enabling additional
+     * method calls to be chained together.
+     *
+     * @param inputStreamWrapper The wrapper, or null to read the data as is.
+     * @return This PutObjectRequest, so that additional method calls can be
+     *         chained together.
+     */
+    public <T extends AbstractPutObjectRequest> T withInputStreamWrapper(
+            InputStreamWrapper inputStreamWrapper) {
+        setInputStreamWrapper(inputStreamWrapper);
+        @SuppressWarnings("unchecked")
+        final T t = (T) this;
+        return t;
+    }
+
     /**
      * Sets the optional redirect location for the new object.
      *
@@ -816,6 +859,7 @@ public abstract class AbstractPutObjectRequest extends AmazonWebServiceRequest i
         return target.withAccessControlList(getAccessControlList())
                 .withCannedAcl(getCannedAcl())
                 .withInputStream(getInputStream())
+                .withInputStreamWrapper(getInputStreamWrapper())
                 .withMetadata(metadata == null ? null : metadata.clone())
                 .withRedirectLocation(getRedirectLocation())
                 .withStorageClass(getStorageClass())
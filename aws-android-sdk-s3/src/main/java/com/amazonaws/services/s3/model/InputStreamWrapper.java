@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model;
+
+import java.io.InputStream;
+
+/**
+ * Wraps the stream of data that an upload reads, e.g. to limit how fast it is
+ * read. The client calls it with the stream it reads the file or the input
+ * stream of the request through, before it adds its own length and MD5
+ * checks, so the request keeps its file-based handling of Content-MD5,
+ * content length and retries.
+ * <p>
+ * The stream returned has to support mark and reset whenever the stream
+ * passed in does, so that the upload can be retried.
+ */
+public interface InputStreamWrapper {
+
+    /**
+     * @param in the data of the upload
+     * @return the stream to read the data through
+     */
+    InputStream wrap(InputStream in);
+}
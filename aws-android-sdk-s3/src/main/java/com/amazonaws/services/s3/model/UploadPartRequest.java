@@ -94,6 +94,11 @@ public class UploadPartRequest extends AmazonWebServiceRequest implements
      */
     private transient InputStream inputStream;
 
+    /**
+     * Optionally wraps the stream the data of the part is read through.
+     */
+    private transient InputStreamWrapper inputStreamWrapper;
+
     /**
      * The file containing the data to upload. Exactly one File or InputStream
      * must be specified as the input to this operation.
@@ -205,6 +210,39 @@ public class UploadPartRequest extends AmazonWebServiceRequest implements
         return this;
     }
 
+    /**
+     * Sets the optional wrapper of the stream the data of the part is read
+     * through, from the file or the input stream.
+     *
+     * @param inputStreamWrapper the wrapper, or null to read the data as is.
+     */
+    public void setInputStreamWrapper(InputStreamWrapper inputStreamWrapper) {
+        this.inputStreamWrapper = inputStreamWrapper;
+    }
+
+    /**
+     * Returns the optional wrapper of the stream the data of the part is read
+     * through.
+     *
+     * @return the wrapper, or null if the data is read as is.
+     */
+    public InputStreamWrapper getInputStreamWrapper() {
+        return inputStreamWrapper;
+    }
+
+    /**
+     * Sets the optional wrapper of the stream the data of the part is read
+     * through, and returns this updated object so that additional method
+     * calls can be chained together.
+     *
+     * @param inputStreamWrapper the wrapper, or null to read the data as is.
+     * @return The updated UploadPartRequest object.
+     */
+    public UploadPartRequest withInputStreamWrapper(InputStreamWrapper inputStreamWrapper) {
+        setInputStreamWrapper(inputStreamWrapper);
+        return this;
+    }
+
     /**
      * Returns the name of the bucket containing the existing, initiated
      * multipart upload, with which this new part will be associated.
@@ -16,6 +16,7 @@
 package com.amazonaws.auth;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.services.s3.internal.AWSS3V4Signer;
@@ -98,6 +99,33 @@ public class AwsChunkedEncodingInputStreamTest {
         assertArrayEquals(getExpectedOutput(), baos.toByteArray());
     }
 
+    @Test
+    public void testWriteRemainingTo() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        aceis.writeRemainingTo(baos);
+        assertEquals(-1, aceis.read());
+        aceis.close();
+
+        assertArrayEquals(getExpectedOutput(), baos.toByteArray());
+    }
+
+    @Test
+    public void testWriteRemainingToAfterReadAndReset() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        aceis.mark(100);
+        byte[] buf = new byte[2048];
+        aceis.read(buf);
+        aceis.reset();
+
+        // Read part of the first chunk, then write the rest
+        int read = aceis.read(buf);
+        baos.write(buf, 0, read);
+        aceis.writeRemainingTo(baos);
+        aceis.close();
+
+        assertArrayEquals(getExpectedOutput(), baos.toByteArray());
+    }
+
     @Test
     public void testSkip() throws IOException {
         // Get the output created
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transfermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.mobileconnectors.s3.transfermanager.Transfer.TransferState;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadImpl;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.DownloadMonitor;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.MultipleFileDownloadImpl;
+import com.amazonaws.mobileconnectors.s3.transfermanager.internal.TransferStateChangeListener;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+public class MultipleFileTransferPipelineTest {
+
+    private Queue<DownloadImpl> downloads;
+    private MultipleFileDownloadImpl multipleFileDownload;
+    private MultipleFileTransferPipeline<DownloadImpl> pipeline;
+
+    @Before
+    public void setUp() {
+        downloads = new ConcurrentLinkedQueue<DownloadImpl>();
+        multipleFileDownload = new MultipleFileDownloadImpl("download", new TransferProgress(),
+                new ProgressListenerChain(), "prefix", "bucket", downloads);
+        pipeline = new MultipleFileTransferPipeline<DownloadImpl>(multipleFileDownload,
+                downloads, 2, new MultipleFileTransferPipeline.SubTransferAborter<DownloadImpl>() {
+                    @Override
+                    public void abort(DownloadImpl download) throws IOException {
+                        download.abort();
+                    }
+                });
+        multipleFileDownload.setMonitor(pipeline);
+    }
+
+    @Test
+    public void testWindowLimitsTransfersInProgress() throws Exception {
+        final DownloadImpl first = start(pipeline.acquire(), null);
+        final DownloadImpl second = start(pipeline.acquire(), null);
+        first.setState(TransferState.InProgress);
+        assertEquals(TransferState.InProgress, multipleFileDownload.getState());
+        assertEquals(2, downloads.size());
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pipeline.acquire();
+                    acquired.countDown();
+                } catch (final InterruptedException e) {
+                    // the test fails
+                }
+            }
+        }).start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        first.setState(TransferState.Completed);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, downloads.size());
+        assertFalse(pipeline.isDone());
+    }
+
+    @Test
+    public void testCompletesAfterListingAndTransfers() throws Exception {
+        final DownloadImpl download = start(pipeline.acquire(), null);
+        download.setState(TransferState.Completed);
+        assertFalse(pipeline.isDone());
+
+        pipeline.listingFinished();
+        assertTrue(pipeline.isDone());
+        assertTrue(downloads.isEmpty());
+        assertEquals(TransferState.Completed, multipleFileDownload.getState());
+        multipleFileDownload.waitForCompletion();
+    }
+
+    @Test
+    public void testEmptyListingCompletes() throws Exception {
+        pipeline.listingFinished();
+        assertEquals(TransferState.Completed, multipleFileDownload.getState());
+        multipleFileDownload.waitForCompletion();
+    }
+
+    @Test
+    public void testTransferFinishedBeforeStarted() throws Exception {
+        final TransferStateChangeListener listener = pipeline.acquire();
+        final DownloadImpl download = newDownload(listener, null);
+        download.setState(TransferState.Completed);
+        pipeline.started(download);
+        assertTrue(downloads.isEmpty());
+
+        pipeline.listingFinished();
+        assertEquals(TransferState.Completed, multipleFileDownload.getState());
+    }
+
+    @Test
+    public void testFailedTransferFailsDirectoryTransfer() throws Exception {
+        final AmazonClientException failure = new AmazonClientException("failed");
+        final FutureTask<Object> future = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw failure;
+            }
+        });
+        future.run();
+        final DownloadImpl failed = start(pipeline.acquire(), future);
+        final DownloadImpl completed = start(pipeline.acquire(), null);
+        failed.setState(TransferState.Failed);
+        completed.setState(TransferState.Completed);
+        pipeline.listingFinished();
+
+        assertEquals(TransferState.Failed, multipleFileDownload.getState());
+        assertEquals(failure, multipleFileDownload.waitForException());
+    }
+
+    @Test
+    public void testListingFailureFailsDirectoryTransfer() throws Exception {
+        final DownloadImpl download = start(pipeline.acquire(), null);
+        final AmazonClientException failure = new AmazonClientException("failed");
+        pipeline.listingFailed(failure);
+        assertFalse(pipeline.isDone());
+
+        download.setState(TransferState.Completed);
+        assertEquals(TransferState.Failed, multipleFileDownload.getState());
+        assertEquals(failure, multipleFileDownload.waitForException());
+    }
+
+    @Test
+    public void testStartFailedReleasesPermit() throws Exception {
+        pipeline.acquire();
+        pipeline.startFailed();
+        pipeline.listingFinished();
+        assertTrue(pipeline.isDone());
+    }
+
+    @Test
+    public void testCancelAbortsTransfersAndStopsListing() throws Exception {
+        final DownloadImpl first = start(pipeline.acquire(), pendingFuture());
+        final DownloadImpl second = start(pipeline.acquire(), pendingFuture());
+
+        // a lister waiting for room in the window
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Thread lister = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pipeline.acquire();
+                } catch (final InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        pipeline.setLister(lister);
+        lister.start();
+
+        assertTrue(pipeline.getFuture().cancel(false));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.isCanceled());
+        assertEquals(TransferState.Canceled, first.getState());
+        assertEquals(TransferState.Canceled, second.getState());
+        assertTrue(first.getMonitor().getFuture().isCancelled());
+
+        assertTrue(pipeline.isDone());
+        assertTrue(pipeline.getFuture().isCancelled());
+        assertEquals(TransferState.Canceled, multipleFileDownload.getState());
+        try {
+            pipeline.getFuture().get();
+            fail("expected the directory transfer to be canceled");
+        } catch (final CancellationException expected) {
+            // canceled
+        }
+    }
+
+    @Test
+    public void testTransferStartedWhileCancelingIsAborted() throws Exception {
+        final TransferStateChangeListener listener = pipeline.acquire();
+        assertTrue(pipeline.getFuture().cancel(true));
+
+        final DownloadImpl download = start(listener, pendingFuture());
+        assertEquals(TransferState.Canceled, download.getState());
+        assertTrue(download.getMonitor().getFuture().isCancelled());
+    }
+
+    @Test
+    public void testCancelAfterCompletion() throws Exception {
+        pipeline.listingFinished();
+        assertFalse(pipeline.getFuture().cancel(true));
+        assertFalse(pipeline.getFuture().isCancelled());
+        assertEquals(TransferState.Completed, multipleFileDownload.getState());
+    }
+
+    private static FutureTask<Object> pendingFuture() {
+        return new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return null;
+            }
+        });
+    }
+
+    private DownloadImpl start(TransferStateChangeListener listener, FutureTask<Object> future) {
+        final DownloadImpl download = newDownload(listener, future);
+        pipeline.started(download);
+        return download;
+    }
+
+    private static DownloadImpl newDownload(TransferStateChangeListener listener,
+            FutureTask<Object> future) {
+        final DownloadImpl download = new DownloadImpl("download", new TransferProgress(),
+                new ProgressListenerChain(), null, listener,
+                new GetObjectRequest("bucket", "key"), new File("key"));
+        download.setMonitor(new DownloadMonitor(download, future));
+        return download;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentValues;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DownloadTaskTest {
+
+    private static final int DOWNLOAD_ID = 7;
+    private static final String ETAG = "etag";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] data = new byte[25];
+    private final List<long[]> requestedRanges =
+            Collections.synchronizedList(new ArrayList<long[]>());
+    private final List<long[]> partRanges = new ArrayList<long[]>();
+    /** Bytes of each part on disk, by part number; absent once completed. */
+    private final Map<Integer, Long> partProgress = new HashMap<Integer, Long>();
+    private volatile boolean ignoreRange;
+
+    private AmazonS3 s3;
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+    private TransferRecord download;
+    private File file;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i);
+        }
+        file = new File(folder.getRoot(), "object");
+
+        s3 = mock(AmazonS3.class);
+        when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenAnswer(
+                new Answer<ObjectMetadata>() {
+                    @Override
+                    public ObjectMetadata answer(InvocationOnMock invocation) {
+                        final ObjectMetadata metadata = new ObjectMetadata();
+                        metadata.setContentLength(data.length);
+                        metadata.setHeader(Headers.ETAG, ETAG);
+                        return metadata;
+                    }
+                });
+        when(s3.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+            @Override
+            public S3Object answer(InvocationOnMock invocation) {
+                return getObject((GetObjectRequest) invocation.getArguments()[0]);
+            }
+        });
+
+        dbUtil = mock(TransferDBUtil.class);
+        when(dbUtil.generateContentValuesForMultiPartDownload(any(TransferRecord.class),
+                anyInt(), anyLong(), anyLong())).thenAnswer(new Answer<ContentValues>() {
+                    @Override
+                    public ContentValues answer(InvocationOnMock invocation) {
+                        final Object[] args = invocation.getArguments();
+                        partRanges.add(new long[] {
+                                (Long) args[2], (Long) args[3]
+                        });
+                        partProgress.put((Integer) args[1], 0L);
+                        return null;
+                    }
+                });
+        when(dbUtil.insertMultipartDownloadRecords(anyInt(), anyLong(), anyString(),
+                any(ContentValues[].class))).thenAnswer(new Answer<Integer>() {
+                    @Override
+                    public Integer answer(InvocationOnMock invocation) {
+                        return ((Object[]) invocation.getArguments()[3]).length;
+                    }
+                });
+        when(dbUtil.getNonCompletedDownloadPartsFromDB(DOWNLOAD_ID)).thenAnswer(
+                new Answer<List<TransferRecord>>() {
+                    @Override
+                    public List<TransferRecord> answer(InvocationOnMock invocation) {
+                        return nonCompletedParts();
+                    }
+                });
+
+        updater = mock(TransferStatusUpdater.class);
+
+        download = new TransferRecord(DOWNLOAD_ID);
+        download.bucketName = "bucket";
+        download.key = "key";
+        download.file = file.getAbsolutePath();
+        download.state = TransferState.WAITING;
+        download.transferUtilityOptions = new TransferUtilityOptions();
+        download.transferUtilityOptions.setParallelDownloadPartSize(10);
+    }
+
+    @Test
+    public void testSplitsObjectIntoRanges() throws IOException {
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater).call());
+
+        assertEquals(3, partRanges.size());
+        assertArrayEquals(new long[] {0, 9}, partRanges.get(0));
+        assertArrayEquals(new long[] {10, 19}, partRanges.get(1));
+        assertArrayEquals(new long[] {20, 24}, partRanges.get(2));
+        verify(dbUtil).insertMultipartDownloadRecords(eq(DOWNLOAD_ID), eq(25L), eq(ETAG),
+                any(ContentValues[].class));
+
+        // each part wrote its range at its offset
+        assertEquals(3, requestedRanges.size());
+        assertArrayEquals(data, readFile());
+        verify(updater).updateState(DOWNLOAD_ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testSmallObjectIsDownloadedOverOneConnection() throws IOException {
+        download.transferUtilityOptions.setParallelDownloadPartSize(data.length);
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater).call());
+
+        assertTrue(partRanges.isEmpty());
+        assertEquals(1, requestedRanges.size());
+        assertNull(requestedRanges.get(0));
+        assertArrayEquals(data, readFile());
+    }
+
+    @Test
+    public void testResumeFetchesOnlyIncompleteRanges() throws IOException {
+        // part 1 is complete and part 2 has 3 of its bytes on disk
+        partRanges.add(new long[] {0, 9});
+        partRanges.add(new long[] {10, 19});
+        partRanges.add(new long[] {20, 24});
+        partProgress.put(2, 3L);
+        partProgress.put(3, 0L);
+        final byte[] partial = new byte[13];
+        System.arraycopy(data, 0, partial, 0, partial.length);
+        writeFile(partial);
+
+        download.isMultipart = 1;
+        download.bytesTotal = data.length;
+        download.eTag = ETAG;
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater).call());
+
+        assertEquals(2, requestedRanges.size());
+        final List<Long> starts = new ArrayList<Long>();
+        for (final long[] range : requestedRanges) {
+            starts.add(range[0]);
+        }
+        Collections.sort(starts);
+        assertEquals(Arrays.asList(13L, 20L), starts);
+        assertArrayEquals(data, readFile());
+        verify(updater).updateProgress(DOWNLOAD_ID, 13L, 25L, false);
+        verify(dbUtil, never()).insertMultipartDownloadRecords(anyInt(), anyLong(),
+                anyString(), any(ContentValues[].class));
+    }
+
+    @Test
+    public void testFallsBackToOneConnectionWhenRangeIsIgnored() throws IOException {
+        ignoreRange = true;
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater).call());
+
+        verify(dbUtil).deleteMultipartDownloadRecords(DOWNLOAD_ID);
+        // the last request is the whole object, written from the start
+        assertNull(requestedRanges.get(requestedRanges.size() - 1));
+        assertArrayEquals(data, readFile());
+        verify(updater).updateState(DOWNLOAD_ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testPartNeverWritesPastItsRange() throws Exception {
+        partRanges.add(new long[] {10, 19});
+        final TransferRecord part = nonCompletedParts().get(0);
+        part.partNumber = 2;
+        writeFile(new byte[data.length]);
+
+        // the server sends the rest of the object with the range of the part
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader(Headers.CONTENT_RANGE, "bytes 10-19/25");
+        final S3Object object = new S3Object();
+        object.setObjectMetadata(metadata);
+        object.setObjectContent(new ByteArrayInputStream(data, 10, 15));
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+        final DownloadTask task = new DownloadTask(download, s3, dbUtil, updater);
+        final DownloadTask.DownloadPartTaskMetadata metadataOfPart =
+                task.new DownloadPartTaskMetadata();
+        metadataOfPart.part = part;
+        task.downloadPartTasks.put(part.partNumber, metadataOfPart);
+        assertTrue(new DownloadPartTask(metadataOfPart, task.new DownloadTaskProgressListener(0),
+                ETAG, s3, dbUtil).call());
+
+        final byte[] expected = new byte[data.length];
+        System.arraycopy(data, 10, expected, 10, 10);
+        assertArrayEquals(expected, readFile());
+        verify(dbUtil).updateState(part.id, TransferState.PART_COMPLETED);
+    }
+
+    @Test
+    public void testPartFailsWhenRangeIsIgnored() throws Exception {
+        partRanges.add(new long[] {10, 19});
+        final TransferRecord part = nonCompletedParts().get(0);
+        ignoreRange = true;
+
+        final DownloadTask task = new DownloadTask(download, s3, dbUtil, updater);
+        final DownloadTask.DownloadPartTaskMetadata metadataOfPart =
+                task.new DownloadPartTaskMetadata();
+        metadataOfPart.part = part;
+        try {
+            new DownloadPartTask(metadataOfPart, task.new DownloadTaskProgressListener(0),
+                    ETAG, s3, dbUtil).call();
+            fail("expected the part to fail");
+        } catch (final DownloadPartTask.RangeIgnoredException expected) {
+            // nothing was written
+        }
+        assertTrue(!file.exists() || file.length() == 0);
+    }
+
+    private S3Object getObject(GetObjectRequest request) {
+        final long[] range = request.getRange();
+        requestedRanges.add(range == null ? null : range.clone());
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader(Headers.ETAG, ETAG);
+        final S3Object object = new S3Object();
+        object.setObjectMetadata(metadata);
+        if (range == null || ignoreRange) {
+            metadata.setContentLength(data.length);
+            object.setObjectContent(new ByteArrayInputStream(data));
+        } else {
+            final long last = range[1] < 0 ? data.length - 1 : range[1];
+            metadata.setHeader(Headers.CONTENT_RANGE,
+                    "bytes " + range[0] + "-" + last + "/" + data.length);
+            metadata.setContentLength(last - range[0] + 1);
+            object.setObjectContent(new ByteArrayInputStream(data, (int) range[0],
+                    (int) (last - range[0] + 1)));
+        }
+        return object;
+    }
+
+    private List<TransferRecord> nonCompletedParts() {
+        final List<TransferRecord> parts = new ArrayList<TransferRecord>();
+        for (int i = 0; i < partRanges.size(); i++) {
+            final Long bytesCurrent = partProgress.get(i + 1);
+            if (bytesCurrent == null && !partProgress.isEmpty()) {
+                continue;
+            }
+            final TransferRecord part = new TransferRecord(100 + i);
+            part.mainUploadId = DOWNLOAD_ID;
+            part.partNumber = i + 1;
+            part.bucketName = download.bucketName;
+            part.key = download.key;
+            part.file = download.file;
+            part.rangeStart = partRanges.get(i)[0];
+            part.rangeLast = partRanges.get(i)[1];
+            part.bytesTotal = part.rangeLast - part.rangeStart + 1;
+            part.bytesCurrent = bytesCurrent == null ? 0 : bytesCurrent;
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private byte[] readFile() throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
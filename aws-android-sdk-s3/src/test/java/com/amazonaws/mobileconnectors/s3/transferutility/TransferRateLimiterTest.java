@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TransferRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testNoLimitNeverWaits() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(0);
+        limiter.acquire(Long.MAX_VALUE / 2);
+        limiter.acquire(1024);
+        assertTrue(limiter.sleeps.isEmpty());
+    }
+
+    @Test
+    public void testBurstsOneSecondThenWaits() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(1000);
+        limiter.acquire(1000);
+        assertTrue(limiter.sleeps.isEmpty());
+
+        limiter.acquire(500);
+        assertEquals(1, limiter.sleeps.size());
+        assertEquals(SECOND / 2, (long) limiter.sleeps.get(0));
+    }
+
+    @Test
+    public void testRefillsWithTimeUpToOneSecond() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(1000);
+        limiter.acquire(1000);
+        limiter.now += SECOND / 4;
+        limiter.acquire(250);
+        assertTrue(limiter.sleeps.isEmpty());
+
+        // an idle limiter doesn't save up more than a second
+        limiter.now += 10 * SECOND;
+        limiter.acquire(1500);
+        assertEquals(1, limiter.sleeps.size());
+        assertEquals(SECOND / 2, (long) limiter.sleeps.get(0));
+    }
+
+    @Test
+    public void testDebtDelaysTheNextCaller() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(1000);
+        limiter.acquire(1500);
+        // the second caller waits for the debt of the first and its own bytes
+        limiter.acquire(100);
+        assertEquals(2, limiter.sleeps.size());
+        assertEquals(SECOND / 2, (long) limiter.sleeps.get(0));
+        assertEquals(SECOND / 10, (long) limiter.sleeps.get(1));
+    }
+
+    @Test
+    public void testReleaseGivesBackUnusedBytes() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(1000);
+        limiter.acquire(1000);
+        limiter.release(400);
+        limiter.acquire(400);
+        assertTrue(limiter.sleeps.isEmpty());
+
+        // never more than a second of bytes
+        limiter.release(5000);
+        limiter.acquire(1200);
+        assertEquals(SECOND / 5, (long) limiter.sleeps.get(0));
+    }
+
+    @Test
+    public void testChangingTheLimit() throws InterruptedException {
+        final FakeClockRateLimiter limiter = new FakeClockRateLimiter(1000);
+        limiter.setBytesPerSecond(0);
+        limiter.acquire(100000);
+        assertTrue(limiter.sleeps.isEmpty());
+
+        limiter.setBytesPerSecond(2000);
+        assertEquals(2000, limiter.getBytesPerSecond());
+        limiter.acquire(3000);
+        assertEquals(SECOND / 2, (long) limiter.sleeps.get(0));
+    }
+
+    /**
+     * Records the sleeps and moves its clock past them.
+     */
+    private static final class FakeClockRateLimiter extends TransferRateLimiter {
+        private long now;
+        private final List<Long> sleeps = new ArrayList<Long>();
+
+        FakeClockRateLimiter(long bytesPerSecond) {
+            super(bytesPerSecond);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+
+        @Override
+        void sleep(long nanos) {
+            sleeps.add(nanos);
+            now += nanos;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class TransferStatusUpdaterTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+
+    @Before
+    public void setUp() {
+        dbUtil = mock(TransferDBUtil.class);
+        when(dbUtil.updateTransferRecord(any(TransferRecord.class))).thenReturn(1);
+
+        // runs the callbacks right away instead of on the main thread
+        updater = new TransferStatusUpdater(dbUtil, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        updater.clear();
+    }
+
+    @Test
+    public void testZeroIntervalSavesAndReportsEveryChange() {
+        final TransferListener listener = addTransfer(1, 0);
+
+        updater.updateProgress(1, 10, 100, true);
+        verify(dbUtil).updateBytesTransferred(1, 10L);
+        verify(listener).onProgressChanged(1, 10, 100);
+
+        updater.advanceProgress(1, 20, 100);
+        verify(dbUtil).updateBytesTransferred(1, 20L);
+        verify(listener).onProgressChanged(1, 20, 100);
+    }
+
+    @Test
+    public void testAdvanceProgressNeverGoesBack() {
+        final TransferListener listener = addTransfer(1, 0);
+
+        updater.advanceProgress(1, 20, 100);
+        updater.advanceProgress(1, 10, 100);
+        updater.advanceProgress(1, 20, 100);
+
+        verify(dbUtil).updateBytesTransferred(1, 20L);
+        verify(dbUtil, never()).updateBytesTransferred(1, 10L);
+        verify(listener).onProgressChanged(1, 20, 100);
+        verify(listener, never()).onProgressChanged(1, 10, 100);
+        assertEquals(20, updater.getTransfer(1).bytesCurrent);
+    }
+
+    @Test
+    public void testConcurrentAdvancesKeepTheLargest() throws InterruptedException {
+        addTransfer(1, HOUR);
+        final int threads = 8;
+        final int advances = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < advances; i++) {
+                            updater.advanceProgress(1, (long) i * threads + offset,
+                                    (long) advances * threads);
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        updater.flushProgress();
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(1, (long) advances * threads - 1);
+        verify(dbUtil).updateBytesTransferred(expected);
+    }
+
+    @Test
+    public void testProgressIsFlushedInOneBatch() {
+        final TransferListener first = addTransfer(1, 50);
+        final TransferListener second = addTransfer(2, 50);
+
+        updater.advanceProgress(1, 10, 100);
+        updater.advanceProgress(1, 30, 100);
+        updater.advanceProgress(2, 40, 100);
+        verify(dbUtil, never()).updateBytesTransferred(anyInt(), anyLong());
+
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(1, 30L);
+        expected.put(2, 40L);
+        verify(dbUtil, timeout(5000)).updateBytesTransferred(expected);
+        verify(first).onProgressChanged(1, 30, 100);
+        verify(first, never()).onProgressChanged(1, 10, 100);
+        verify(second).onProgressChanged(2, 40, 100);
+    }
+
+    @Test
+    public void testStateChangeFlushesPendingProgressFirst() {
+        final TransferListener listener = addTransfer(1, HOUR);
+
+        updater.advanceProgress(1, 100, 100);
+        verify(dbUtil, never()).updateBytesTransferred(anyInt(), anyLong());
+        verify(dbUtil, never()).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+
+        updater.updateState(1, TransferState.COMPLETED);
+        final InOrder inOrder = inOrder(dbUtil, listener);
+        inOrder.verify(dbUtil).updateBytesTransferred(1, 100L);
+        inOrder.verify(listener).onProgressChanged(1, 100, 100);
+        inOrder.verify(dbUtil).updateTransferRecord(updater.getTransfer(1));
+        inOrder.verify(listener).onStateChanged(1, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testIntervalComesFromTheOptionsOfTheTransfer() {
+        addTransfer(1, 0);
+        addTransfer(2, HOUR);
+
+        updater.advanceProgress(1, 10, 100);
+        updater.advanceProgress(2, 10, 100);
+
+        verify(dbUtil).updateBytesTransferred(1, 10L);
+        verify(dbUtil, never()).updateBytesTransferred(2, 10L);
+        verify(dbUtil, never()).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+    }
+
+    private TransferListener addTransfer(int id, long flushInterval) {
+        final TransferRecord transfer = new TransferRecord(id);
+        transfer.bytesTotal = 100;
+        transfer.state = TransferState.IN_PROGRESS;
+        transfer.transferUtilityOptions = new TransferUtilityOptions();
+        transfer.transferUtilityOptions.setTransferProgressFlushInterval(flushInterval);
+        updater.addTransfer(transfer);
+
+        final TransferListener listener = mock(TransferListener.class);
+        TransferStatusUpdater.registerListener(id, listener);
+        return listener;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.mobileconnectors.s3.transferutility.TransferThreadPool.PrioritizedTask;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+
+public class TransferThreadPoolTest {
+
+    @Test
+    public void testHigherPriorityRunsFirst() throws Exception {
+        final PriorityBlockingQueue<PrioritizedTask<String>> queue =
+                new PriorityBlockingQueue<PrioritizedTask<String>>();
+        queue.add(task("low", 1, TransferPriority.LOW, 0));
+        queue.add(task("normal", 2, TransferPriority.NORMAL, 0));
+        queue.add(task("high", 3, TransferPriority.HIGH, 5));
+
+        assertEquals("[high, normal, low]", drain(queue).toString());
+    }
+
+    @Test
+    public void testTransfersOfTheSamePriorityTakeTurns() throws Exception {
+        final PriorityBlockingQueue<PrioritizedTask<String>> queue =
+                new PriorityBlockingQueue<PrioritizedTask<String>>();
+        // all parts of a large transfer, then those of a small one
+        for (int turn = 0; turn < 3; turn++) {
+            queue.add(task("a" + turn, 1, TransferPriority.NORMAL, turn));
+        }
+        for (int turn = 0; turn < 2; turn++) {
+            queue.add(task("b" + turn, 2, TransferPriority.NORMAL, turn));
+        }
+
+        assertEquals("[a0, b0, a1, b1, a2]", drain(queue).toString());
+    }
+
+    @Test
+    public void testSubmissionOrderBreaksTies() throws Exception {
+        final PriorityBlockingQueue<PrioritizedTask<String>> queue =
+                new PriorityBlockingQueue<PrioritizedTask<String>>();
+        for (int i = 0; i < 5; i++) {
+            queue.add(task("t" + i, i, TransferPriority.NORMAL, 0));
+        }
+
+        assertEquals("[t0, t1, t2, t3, t4]", drain(queue).toString());
+    }
+
+    @Test
+    public void testThrottledReadsAreCapped() throws IOException {
+        final byte[] data = new byte[3 * ThrottledInputStream.MAX_READ_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final ThrottledInputStream in = new ThrottledInputStream(
+                new ByteArrayInputStream(data), 1);
+
+        final byte[] read = new byte[data.length];
+        int total = 0;
+        int bytesRead;
+        while ((bytesRead = in.read(read, total, read.length - total)) > 0) {
+            assertTrue(bytesRead <= ThrottledInputStream.MAX_READ_SIZE);
+            total += bytesRead;
+        }
+        assertEquals(-1, in.read());
+        assertArrayEquals(data, read);
+        in.close();
+    }
+
+    @Test
+    public void testInterruptedReadAborts() throws IOException {
+        final ThrottledInputStream in = new ThrottledInputStream(
+                new ByteArrayInputStream(new byte[16]), 1);
+        Thread.currentThread().interrupt();
+        try {
+            in.read(new byte[16], 0, 16);
+            fail("expected the read to abort");
+        } catch (final AbortedException expected) {
+            // the request is aborted, as on pause or cancel
+        } finally {
+            Thread.interrupted();
+        }
+        in.close();
+    }
+
+    private static PrioritizedTask<String> task(final String name, int transferId,
+            TransferPriority priority, int turn) {
+        return new PrioritizedTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                return name;
+            }
+        }, transferId, false, priority, turn);
+    }
+
+    private static List<String> drain(PriorityBlockingQueue<PrioritizedTask<String>> queue)
+            throws Exception {
+        final List<String> order = new ArrayList<String>();
+        PrioritizedTask<String> task;
+        while ((task = queue.poll()) != null) {
+            task.run();
+            order.add(task.get());
+        }
+        return order;
+    }
+}
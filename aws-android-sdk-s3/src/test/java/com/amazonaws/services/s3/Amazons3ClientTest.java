@@ -20,30 +20,47 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.auth.Signer;
+import com.amazonaws.http.HttpClient;
 import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.internal.AWSS3V4Signer;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InputStreamWrapper;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class Amazons3ClientTest {
     private AmazonS3Client s3;
     private AWSCredentials creds;
     private S3ClientOptions accelerateOption;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         creds = new BasicAWSCredentials("accessKey", "secretKey");
@@ -220,5 +237,110 @@ public class Amazons3ClientTest {
     public void testSetNotificationThreshold() {
         s3.setNotificationThreshold(8 * 1024);
     }
-}
 
+    @Test
+    public void testPutObjectFromFileSendsContentMd5() throws Exception {
+        final File file = writeFile("content");
+        final RecordingHttpClient httpClient = new RecordingHttpClient(
+                BinaryUtils.toHex(Md5Utils.computeMD5Hash("content".getBytes("UTF-8"))), null);
+        s3 = new AmazonS3Client(new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                httpClient);
+
+        s3.putObject(new PutObjectRequest("bucket", "key", file));
+        assertEquals(Md5Utils.md5AsBase64(file), httpClient.contentMd5);
+    }
+
+    @Test
+    public void testPutObjectFromFileWrapsTheContent() throws Exception {
+        final File file = writeFile("content");
+        final RecordingHttpClient httpClient = new RecordingHttpClient(
+                BinaryUtils.toHex(Md5Utils.computeMD5Hash("content".getBytes("UTF-8"))), null);
+        s3 = new AmazonS3Client(new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                httpClient);
+        final int[] wrapped = new int[1];
+        final PutObjectRequest request = new PutObjectRequest("bucket", "key", file);
+        request.setInputStreamWrapper(new InputStreamWrapper() {
+            @Override
+            public InputStream wrap(InputStream in) {
+                wrapped[0]++;
+                return in;
+            }
+        });
+
+        s3.putObject(request);
+        assertEquals(1, wrapped[0]);
+        assertEquals(Md5Utils.md5AsBase64(file), httpClient.contentMd5);
+    }
+
+    @Test(expected = AmazonClientException.class)
+    public void testPutObjectFailsOnMismatchingETag() throws Exception {
+        s3 = new AmazonS3Client(new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                new RecordingHttpClient("0123456789abcdef0123456789abcdef", null));
+        s3.putObject(new PutObjectRequest("bucket", "key", writeFile("content")));
+    }
+
+    @Test
+    public void testPutObjectSkipsETagCheckForSseKms() throws Exception {
+        s3 = new AmazonS3Client(new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                new RecordingHttpClient("0123456789abcdef0123456789abcdef", "aws:kms"));
+        s3.putObject(new PutObjectRequest("bucket", "key", writeFile("content")));
+    }
+
+    @Test
+    public void testPutObjectSkipsETagCheckForMultipartETag() throws Exception {
+        s3 = new AmazonS3Client(new StaticCredentialsProvider(creds), new ClientConfiguration(),
+                new RecordingHttpClient("0123456789abcdef0123456789abcdef-2", null));
+        s3.putObject(new PutObjectRequest("bucket", "key", writeFile("content")));
+    }
+
+    private File writeFile(String content) throws IOException {
+        final File file = temporaryFolder.newFile();
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Accepts every upload, answering with the given ETag and server side
+     * encryption, and records the Content-MD5 it was sent.
+     */
+    private static final class RecordingHttpClient implements HttpClient {
+        private final String eTag;
+        private final String sseAlgorithm;
+        private String contentMd5;
+
+        RecordingHttpClient(String eTag, String sseAlgorithm) {
+            this.eTag = eTag;
+            this.sseAlgorithm = sseAlgorithm;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            final InputStream content = request.getContent();
+            if (content != null) {
+                contentMd5 = request.getHeaders().get(Headers.CONTENT_MD5);
+                final byte[] buffer = new byte[1024];
+                while (content.read(buffer) != -1) {
+                    // drain the upload
+                }
+            }
+            final HttpResponse.Builder builder = HttpResponse.builder()
+                    .statusCode(200)
+                    .statusText("OK")
+                    .header(Headers.ETAG, "\"" + eTag + "\"")
+                    .content(new ByteArrayInputStream(new byte[0]));
+            if (sseAlgorithm != null) {
+                builder.header(Headers.SERVER_SIDE_ENCRYPTION, sseAlgorithm);
+            }
+            return builder.build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
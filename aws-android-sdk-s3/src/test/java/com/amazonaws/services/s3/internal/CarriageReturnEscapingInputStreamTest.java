@@ -0,0 +1,209 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+public class CarriageReturnEscapingInputStreamTest {
+
+    @Test
+    public void testEscapesCarriageReturns() throws IOException {
+        assertEquals("a&#013;b&#013;&#013;c\n&#013;", escape("a\rb\r\rc\n\r", 8192));
+        assertEquals("", escape("", 8192));
+        assertEquals("no carriage return", escape("no carriage return", 8192));
+        assertEquals("ü&#013;€", escape("ü\r€", 8192));
+    }
+
+    @Test
+    public void testSmallBuffers() throws IOException {
+        final String document = "<Key>a\rb\r\r</Key>\r";
+        final String expected = document.replace("\r", "&#013;");
+        for (int bufferSize = 1; bufferSize < 10; bufferSize++) {
+            assertEquals(expected, escape(document, bufferSize));
+        }
+    }
+
+    @Test
+    public void testSingleByteReads() throws IOException {
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream("x\r\ry".getBytes(StringUtils.UTF8)));
+        final StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            sb.append((char) b);
+        }
+        assertEquals("x&#013;&#013;y", sb.toString());
+    }
+
+    @Test
+    public void testMixedReadsMatchReplaceAll() throws IOException {
+        final Random random = new Random(42);
+        final char[] alphabet = {
+                'a', 'b', '\r', '\n', '<', '>', '&'
+        };
+        for (int i = 0; i < 100; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = random.nextInt(200);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            final String document = sb.toString();
+            final InputStream in = new CarriageReturnEscapingInputStream(
+                    new ByteArrayInputStream(document.getBytes(StringUtils.UTF8)));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[16];
+            while (true) {
+                if (random.nextBoolean()) {
+                    final int b = in.read();
+                    if (b == -1) {
+                        break;
+                    }
+                    out.write(b);
+                } else {
+                    final int bytesRead = in.read(buffer, 0, 1 + random.nextInt(buffer.length));
+                    if (bytesRead == -1) {
+                        break;
+                    }
+                    out.write(buffer, 0, bytesRead);
+                }
+            }
+            assertEquals(document.replaceAll("\r", "&#013;"),
+                    new String(out.toByteArray(), StringUtils.UTF8));
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream("a\rb".getBytes(StringUtils.UTF8)));
+        assertEquals(3, in.skip(3));
+        assertEquals("013;b", IOUtils.toString(in));
+    }
+
+    @Test
+    public void testParsesKeysWithCarriageReturns() throws IOException {
+        final ObjectListing listing = new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(new ByteArrayInputStream(
+                        listBucketResponse(2, "key\r").getBytes(StringUtils.UTF8)), false)
+                .getObjectListing();
+        assertEquals(2, listing.getObjectSummaries().size());
+        assertEquals("key\r0", listing.getObjectSummaries().get(0).getKey());
+        assertEquals("key\r1", listing.getObjectSummaries().get(1).getKey());
+    }
+
+    /**
+     * Compares the memory allocated to parse list responses when the whole
+     * document is buffered and escaped as a string with what the escaping
+     * stream allocates. The number of pages parsed can be set with the
+     * s3.listing.benchmark.pages system property.
+     */
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmarkListingParse() throws IOException {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        final int pages = Integer.getInteger("s3.listing.benchmark.pages", 20);
+        final byte[] page = listBucketResponse(1000, "photos/2019/IMG_").getBytes(StringUtils.UTF8);
+        final XmlResponsesSaxParser parser = new XmlResponsesSaxParser();
+
+        // warm up
+        for (int i = 0; i < 5; i++) {
+            parser.parseListBucketObjectsResponse(buffered(page), false);
+            parser.parseListBucketObjectsResponse(new ByteArrayInputStream(page), false);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        long start = allocations.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            // the parser still escapes the buffered copy, as it did before
+            parser.parseListBucketObjectsResponse(buffered(page), false);
+        }
+        final long bufferedBytes = allocations.getThreadAllocatedBytes(threadId) - start;
+        final long bufferedTime = System.nanoTime() - startTime;
+
+        start = allocations.getThreadAllocatedBytes(threadId);
+        startTime = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            parser.parseListBucketObjectsResponse(new ByteArrayInputStream(page), false);
+        }
+        final long streamingBytes = allocations.getThreadAllocatedBytes(threadId) - start;
+        final long streamingTime = System.nanoTime() - startTime;
+
+        System.out.println(String.format(
+                "Parsed %d pages of %d bytes: buffered %d KB/page in %d ms, streaming %d KB/page in %d ms",
+                pages, page.length, bufferedBytes / pages / 1024, bufferedTime / 1000000,
+                streamingBytes / pages / 1024, streamingTime / 1000000));
+    }
+
+    private static String escape(String document, int bufferSize) throws IOException {
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream(document.getBytes(StringUtils.UTF8)));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[bufferSize];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+        }
+        in.close();
+        return new String(out.toByteArray(), StringUtils.UTF8);
+    }
+
+    /**
+     * Sanitizes a document the way the parser used to, by reading it into a
+     * string and replacing the carriage returns.
+     */
+    private static InputStream buffered(byte[] document) throws IOException {
+        final String text = IOUtils.toString(new ByteArrayInputStream(document));
+        return new ByteArrayInputStream(text.replaceAll("\r", "&#013;").getBytes(StringUtils.UTF8));
+    }
+
+    private static String listBucketResponse(int keys, String keyPrefix) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>bucket</Name><Prefix></Prefix><Marker></Marker>")
+                .append("<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+        for (int i = 0; i < keys; i++) {
+            sb.append("<Contents><Key>").append(keyPrefix).append(i).append("</Key>")
+                    .append("<LastModified>2019-01-01T00:00:00.000Z</LastModified>")
+                    .append("<ETag>&quot;d41d8cd98f00b204e9800998ecf8427e&quot;</ETag>")
+                    .append("<Size>").append(i).append("</Size>")
+                    .append("<Owner><ID>owner</ID><DisplayName>name</DisplayName></Owner>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        return sb.append("</ListBucketResult>").toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class FileRegionInputStreamTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("FileRegionInputStreamTest", null);
+        final FileWriter writer = new FileWriter(file);
+        writer.write("0123456789");
+        writer.close();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadsRegion() throws IOException {
+        final FileRegionInputStream in = new FileRegionInputStream(file, 2, 5);
+        try {
+            assertEquals(5, in.available());
+            assertEquals('2', in.read());
+            assertEquals("3456", IOUtils.toString(in));
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testMarkAndReset() throws IOException {
+        final FileRegionInputStream in = new FileRegionInputStream(file, 0, 10);
+        try {
+            assertEquals(3, in.skip(3));
+            in.mark(100);
+            assertEquals("3456789", IOUtils.toString(in));
+            in.reset();
+            assertEquals('3', in.read());
+            assertEquals(6, in.skip(100));
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        final FileRegionInputStream in = new FileRegionInputStream(file, 5, 10);
+        try {
+            assertEquals("56789", new String(readFully(in, 5)));
+            in.read();
+            fail("expected an IOException");
+        } catch (final IOException expected) {
+            // the file is shorter than the region
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readFully(FileRegionInputStream in, int length) throws IOException {
+        final byte[] b = new byte[length];
+        int read = 0;
+        while (read < length) {
+            read += in.read(b, read, length - read);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class S3ObjectsParallelTest {
+
+    private static final List<String> KEYS = Arrays.asList(
+            "a", "b/1", "b/2", "b/3", "b/c/1", "b0", "c", "d/1", "d/2", "e/1", "e/2", "e/3",
+            "e/4", "e/5", "f");
+
+    private AmazonS3 s3;
+    private ExecutorService executor;
+    private String failingPrefix;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        s3 = mock(AmazonS3.class);
+        when(s3.listObjects(any(ListObjectsRequest.class))).thenAnswer(
+                new Answer<ObjectListing>() {
+                    @Override
+                    public ObjectListing answer(InvocationOnMock invocation) {
+                        return list((ListObjectsRequest) invocation.getArguments()[0]);
+                    }
+                });
+        when(s3.listNextBatchOfObjects(any(ObjectListing.class))).thenAnswer(
+                new Answer<ObjectListing>() {
+                    @Override
+                    public ObjectListing answer(InvocationOnMock invocation) {
+                        final ObjectListing previous = (ObjectListing) invocation.getArguments()[0];
+                        return list(new ListObjectsRequest(previous.getBucketName(),
+                                previous.getPrefix(), previous.getNextMarker(),
+                                previous.getDelimiter(), previous.getMaxKeys()));
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSequentialWithoutExecutor() {
+        assertEquals(KEYS, keys(S3Objects.inBucket(s3, "bucket").withBatchSize(2)));
+    }
+
+    @Test
+    public void testSplitPointsInOrder() {
+        assertEquals(KEYS, keys(S3Objects.inBucket(s3, "bucket").withBatchSize(2)
+                .withExecutor(executor).withSplitPoints("e", "b/2", "c", "c")));
+    }
+
+    @Test
+    public void testPartitionDelimiterInOrder() {
+        assertEquals(KEYS, keys(S3Objects.inBucket(s3, "bucket").withBatchSize(2)
+                .withExecutor(executor).withPartitionDelimiter("/").withParallelism(2)));
+    }
+
+    @Test
+    public void testPartitionDelimiterWithPrefix() {
+        assertEquals(Arrays.asList("b/1", "b/2", "b/3", "b/c/1"),
+                keys(S3Objects.withPrefix(s3, "bucket", "b/").withBatchSize(1)
+                        .withExecutor(executor).withPartitionDelimiter("/")));
+    }
+
+    @Test
+    public void testUnordered() {
+        final List<String> keys = keys(S3Objects.inBucket(s3, "bucket").withBatchSize(3)
+                .withExecutor(executor).withPartitionDelimiter("/")
+                .withOrderedResults(false));
+        Collections.sort(keys);
+        assertEquals(KEYS, keys);
+    }
+
+    @Test
+    public void testFailure() {
+        failingPrefix = "d/";
+        try {
+            keys(S3Objects.inBucket(s3, "bucket").withExecutor(executor)
+                    .withPartitionDelimiter("/"));
+            fail("expected an AmazonServiceException");
+        } catch (final AmazonServiceException expected) {
+            assertEquals("failed", expected.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testRejectedExecution() {
+        executor.shutdown();
+        try {
+            S3Objects.inBucket(s3, "bucket").withExecutor(executor).iterator().hasNext();
+            fail("expected an AmazonClientException");
+        } catch (final AmazonClientException expected) {
+            // the executor is shut down
+        }
+    }
+
+    @Test
+    public void testKeyOrder() {
+        assertEquals(-1, ParallelS3ObjectIterator.KEY_ORDER.compare("a", "ab"));
+        assertEquals(1, ParallelS3ObjectIterator.KEY_ORDER.compare("b", "ab"));
+        assertEquals(0, ParallelS3ObjectIterator.KEY_ORDER.compare("ab", "ab"));
+        // UTF-8 order, where U+10000 follows U+FFFD, unlike in UTF-16
+        assertEquals(-1, ParallelS3ObjectIterator.KEY_ORDER.compare("�", "𐀀"));
+    }
+
+    private static List<String> keys(S3Objects objects) {
+        final List<String> keys = new ArrayList<String>();
+        for (final S3ObjectSummary summary : objects) {
+            keys.add(summary.getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * Lists KEYS like Amazon S3 does.
+     */
+    private ObjectListing list(ListObjectsRequest request) {
+        final String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        if (prefix.equals(failingPrefix)) {
+            throw new AmazonServiceException("failed");
+        }
+        final String delimiter = request.getDelimiter();
+        final int maxKeys = request.getMaxKeys() == null ? 1000 : request.getMaxKeys();
+
+        final ObjectListing listing = new ObjectListing();
+        listing.setBucketName(request.getBucketName());
+        listing.setPrefix(request.getPrefix());
+        listing.setMarker(request.getMarker());
+        listing.setDelimiter(delimiter);
+        listing.setMaxKeys(maxKeys);
+
+        final TreeSet<String> commonPrefixes = new TreeSet<String>();
+        final List<String> entries = new ArrayList<String>();
+        for (final String key : KEYS) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            final int end = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            final String entry = end == -1 ? key : key.substring(0, end + delimiter.length());
+            // a common prefix given as the marker skips all of its keys
+            if (request.getMarker() != null && entry.compareTo(request.getMarker()) <= 0) {
+                continue;
+            }
+            if (!entries.contains(entry)) {
+                entries.add(entry);
+            }
+        }
+        final Iterator<String> i = entries.iterator();
+        int count = 0;
+        String last = null;
+        while (i.hasNext() && count < maxKeys) {
+            last = i.next();
+            if (delimiter != null && last.endsWith(delimiter)) {
+                commonPrefixes.add(last);
+            } else {
+                final S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setBucketName(request.getBucketName());
+                summary.setKey(last);
+                listing.getObjectSummaries().add(summary);
+            }
+            count++;
+        }
+        listing.setCommonPrefixes(new ArrayList<String>(commonPrefixes));
+        listing.setTruncated(i.hasNext());
+        if (i.hasNext()) {
+            listing.setNextMarker(last);
+        }
+        return listing;
+    }
+}
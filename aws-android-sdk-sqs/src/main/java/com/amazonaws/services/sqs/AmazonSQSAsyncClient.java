@@ -27,6 +27,7 @@ import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.http.RetrySchedulingExecutorService;
 
 import com.amazonaws.services.sqs.model.*;
 
@@ -212,7 +213,9 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      * @param awsCredentials The AWS credentials (access key ID and secret key)
      *            to use when authenticating with AWS services.
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonSQSAsyncClient(AWSCredentials awsCredentials, ExecutorService executorService) {
         super(awsCredentials);
@@ -233,7 +236,9 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      * @param clientConfiguration Client configuration options (ex: max retry
      *            limit, proxy settings, etc).
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonSQSAsyncClient(AWSCredentials awsCredentials,
             ClientConfiguration clientConfiguration, ExecutorService executorService) {
@@ -272,7 +277,9 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      *            provide credentials to authenticate requests with AWS
      *            services.
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonSQSAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
             ExecutorService executorService) {
@@ -315,7 +322,9 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      * @param clientConfiguration Client configuration options (ex: max retry
      *            limit, proxy settings, etc).
      * @param executorService The executor service by which all asynchronous
-     *            requests will be executed.
+     *            requests will be executed. Pass a
+     *            {@link RetrySchedulingExecutorService} to have requests give
+     *            their thread back while they wait to be retried.
      */
     public AmazonSQSAsyncClient(AWSCredentialsProvider awsCredentialsProvider,
             ClientConfiguration clientConfiguration, ExecutorService executorService) {
@@ -399,12 +408,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> addPermissionAsync(final AddPermissionRequest addPermissionRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                addPermissionRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 addPermission(addPermissionRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -460,7 +470,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> addPermissionAsync(final AddPermissionRequest addPermissionRequest,
             final AsyncHandler<AddPermissionRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                addPermissionRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -472,7 +483,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(addPermissionRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -541,12 +552,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> changeMessageVisibilityAsync(
             final ChangeMessageVisibilityRequest changeMessageVisibilityRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                changeMessageVisibilityRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 changeMessageVisibility(changeMessageVisibilityRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -616,7 +628,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ChangeMessageVisibilityRequest changeMessageVisibilityRequest,
             final AsyncHandler<ChangeMessageVisibilityRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                changeMessageVisibilityRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -628,7 +641,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(changeMessageVisibilityRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -679,11 +692,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ChangeMessageVisibilityBatchResult> changeMessageVisibilityBatchAsync(
             final ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ChangeMessageVisibilityBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                changeMessageVisibilityBatchRequest, new Callable<ChangeMessageVisibilityBatchResult>() {
             public ChangeMessageVisibilityBatchResult call() throws Exception {
                 return changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -735,7 +749,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest,
             final AsyncHandler<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ChangeMessageVisibilityBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                changeMessageVisibilityBatchRequest, new Callable<ChangeMessageVisibilityBatchResult>() {
             public ChangeMessageVisibilityBatchResult call() throws Exception {
                 ChangeMessageVisibilityBatchResult result = null;
                 try {
@@ -747,7 +762,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(changeMessageVisibilityBatchRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -839,11 +854,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<CreateQueueResult> createQueueAsync(final CreateQueueRequest createQueueRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateQueueResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createQueueRequest, new Callable<CreateQueueResult>() {
             public CreateQueueResult call() throws Exception {
                 return createQueue(createQueueRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -936,7 +952,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<CreateQueueResult> createQueueAsync(final CreateQueueRequest createQueueRequest,
             final AsyncHandler<CreateQueueRequest, CreateQueueResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<CreateQueueResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                createQueueRequest, new Callable<CreateQueueResult>() {
             public CreateQueueResult call() throws Exception {
                 CreateQueueResult result = null;
                 try {
@@ -948,7 +965,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(createQueueRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -997,12 +1014,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> deleteMessageAsync(final DeleteMessageRequest deleteMessageRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteMessageRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 deleteMessage(deleteMessageRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -1052,7 +1070,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> deleteMessageAsync(final DeleteMessageRequest deleteMessageRequest,
             final AsyncHandler<DeleteMessageRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteMessageRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -1064,7 +1083,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(deleteMessageRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1112,11 +1131,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<DeleteMessageBatchResult> deleteMessageBatchAsync(
             final DeleteMessageBatchRequest deleteMessageBatchRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteMessageBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteMessageBatchRequest, new Callable<DeleteMessageBatchResult>() {
             public DeleteMessageBatchResult call() throws Exception {
                 return deleteMessageBatch(deleteMessageBatchRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1165,7 +1185,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final DeleteMessageBatchRequest deleteMessageBatchRequest,
             final AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<DeleteMessageBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteMessageBatchRequest, new Callable<DeleteMessageBatchResult>() {
             public DeleteMessageBatchResult call() throws Exception {
                 DeleteMessageBatchResult result = null;
                 try {
@@ -1177,7 +1198,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(deleteMessageBatchRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1220,12 +1241,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> deleteQueueAsync(final DeleteQueueRequest deleteQueueRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteQueueRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 deleteQueue(deleteQueueRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -1269,7 +1291,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> deleteQueueAsync(final DeleteQueueRequest deleteQueueRequest,
             final AsyncHandler<DeleteQueueRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                deleteQueueRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -1281,7 +1304,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(deleteQueueRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1318,11 +1341,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<GetQueueAttributesResult> getQueueAttributesAsync(
             final GetQueueAttributesRequest getQueueAttributesRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetQueueAttributesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getQueueAttributesRequest, new Callable<GetQueueAttributesResult>() {
             public GetQueueAttributesResult call() throws Exception {
                 return getQueueAttributes(getQueueAttributesRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1360,7 +1384,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final GetQueueAttributesRequest getQueueAttributesRequest,
             final AsyncHandler<GetQueueAttributesRequest, GetQueueAttributesResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetQueueAttributesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getQueueAttributesRequest, new Callable<GetQueueAttributesResult>() {
             public GetQueueAttributesResult call() throws Exception {
                 GetQueueAttributesResult result = null;
                 try {
@@ -1372,7 +1397,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(getQueueAttributesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1404,11 +1429,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<GetQueueUrlResult> getQueueUrlAsync(final GetQueueUrlRequest getQueueUrlRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetQueueUrlResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getQueueUrlRequest, new Callable<GetQueueUrlResult>() {
             public GetQueueUrlResult call() throws Exception {
                 return getQueueUrl(getQueueUrlRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1441,7 +1467,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<GetQueueUrlResult> getQueueUrlAsync(final GetQueueUrlRequest getQueueUrlRequest,
             final AsyncHandler<GetQueueUrlRequest, GetQueueUrlResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<GetQueueUrlResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                getQueueUrlRequest, new Callable<GetQueueUrlResult>() {
             public GetQueueUrlResult call() throws Exception {
                 GetQueueUrlResult result = null;
                 try {
@@ -1453,7 +1480,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(getQueueUrlRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1484,11 +1511,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ListDeadLetterSourceQueuesResult> listDeadLetterSourceQueuesAsync(
             final ListDeadLetterSourceQueuesRequest listDeadLetterSourceQueuesRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListDeadLetterSourceQueuesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listDeadLetterSourceQueuesRequest, new Callable<ListDeadLetterSourceQueuesResult>() {
             public ListDeadLetterSourceQueuesResult call() throws Exception {
                 return listDeadLetterSourceQueues(listDeadLetterSourceQueuesRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1520,7 +1548,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ListDeadLetterSourceQueuesRequest listDeadLetterSourceQueuesRequest,
             final AsyncHandler<ListDeadLetterSourceQueuesRequest, ListDeadLetterSourceQueuesResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListDeadLetterSourceQueuesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listDeadLetterSourceQueuesRequest, new Callable<ListDeadLetterSourceQueuesResult>() {
             public ListDeadLetterSourceQueuesResult call() throws Exception {
                 ListDeadLetterSourceQueuesResult result = null;
                 try {
@@ -1532,7 +1561,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(listDeadLetterSourceQueuesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1556,11 +1585,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<ListQueuesResult> listQueuesAsync(final ListQueuesRequest listQueuesRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListQueuesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listQueuesRequest, new Callable<ListQueuesResult>() {
             public ListQueuesResult call() throws Exception {
                 return listQueues(listQueuesRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1585,7 +1615,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ListQueuesResult> listQueuesAsync(final ListQueuesRequest listQueuesRequest,
             final AsyncHandler<ListQueuesRequest, ListQueuesResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ListQueuesResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                listQueuesRequest, new Callable<ListQueuesResult>() {
             public ListQueuesResult call() throws Exception {
                 ListQueuesResult result = null;
                 try {
@@ -1597,7 +1628,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(listQueuesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1634,12 +1665,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> purgeQueueAsync(final PurgeQueueRequest purgeQueueRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                purgeQueueRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 purgeQueue(purgeQueueRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -1677,7 +1709,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> purgeQueueAsync(final PurgeQueueRequest purgeQueueRequest,
             final AsyncHandler<PurgeQueueRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                purgeQueueRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -1689,7 +1722,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(purgeQueueRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1793,11 +1826,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<ReceiveMessageResult> receiveMessageAsync(
             final ReceiveMessageRequest receiveMessageRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<ReceiveMessageResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                receiveMessageRequest, new Callable<ReceiveMessageResult>() {
             public ReceiveMessageResult call() throws Exception {
                 return receiveMessage(receiveMessageRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -1902,7 +1936,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final ReceiveMessageRequest receiveMessageRequest,
             final AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<ReceiveMessageResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                receiveMessageRequest, new Callable<ReceiveMessageResult>() {
             public ReceiveMessageResult call() throws Exception {
                 ReceiveMessageResult result = null;
                 try {
@@ -1914,7 +1949,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(receiveMessageRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -1937,12 +1972,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<Void> removePermissionAsync(final RemovePermissionRequest removePermissionRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                removePermissionRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 removePermission(removePermissionRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -1967,7 +2003,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final RemovePermissionRequest removePermissionRequest,
             final AsyncHandler<RemovePermissionRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                removePermissionRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -1979,7 +2016,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(removePermissionRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2019,11 +2056,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
      */
     public Future<SendMessageResult> sendMessageAsync(final SendMessageRequest sendMessageRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<SendMessageResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                sendMessageRequest, new Callable<SendMessageResult>() {
             public SendMessageResult call() throws Exception {
                 return sendMessage(sendMessageRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2064,7 +2102,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<SendMessageResult> sendMessageAsync(final SendMessageRequest sendMessageRequest,
             final AsyncHandler<SendMessageRequest, SendMessageResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<SendMessageResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                sendMessageRequest, new Callable<SendMessageResult>() {
             public SendMessageResult call() throws Exception {
                 SendMessageResult result = null;
                 try {
@@ -2076,7 +2115,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(sendMessageRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2152,11 +2191,12 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<SendMessageBatchResult> sendMessageBatchAsync(
             final SendMessageBatchRequest sendMessageBatchRequest) throws AmazonServiceException,
             AmazonClientException {
-        return executorService.submit(new Callable<SendMessageBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                sendMessageBatchRequest, new Callable<SendMessageBatchResult>() {
             public SendMessageBatchResult call() throws Exception {
                 return sendMessageBatch(sendMessageBatchRequest);
             }
-        });
+        }));
     }
 
     /**
@@ -2233,7 +2273,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final SendMessageBatchRequest sendMessageBatchRequest,
             final AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<SendMessageBatchResult>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                sendMessageBatchRequest, new Callable<SendMessageBatchResult>() {
             public SendMessageBatchResult call() throws Exception {
                 SendMessageBatchResult result = null;
                 try {
@@ -2245,7 +2286,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(sendMessageBatchRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
     /**
@@ -2278,12 +2319,13 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public Future<Void> setQueueAttributesAsync(
             final SetQueueAttributesRequest setQueueAttributesRequest)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                setQueueAttributesRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 setQueueAttributes(setQueueAttributesRequest);
                 return null;
             }
-        });
+        }));
     }
 
     /**
@@ -2317,7 +2359,8 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
             final SetQueueAttributesRequest setQueueAttributesRequest,
             final AsyncHandler<SetQueueAttributesRequest, Void> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
-        return executorService.submit(new Callable<Void>() {
+        return executorService.submit(RetrySchedulingExecutorService.forRequest(
+                setQueueAttributesRequest, new Callable<Void>() {
             public Void call() throws Exception {
                 Void result = null;
                 try {
@@ -2329,7 +2372,7 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
                 asyncHandler.onSuccess(setQueueAttributesRequest, result);
                 return result;
             }
-        });
+        }));
     }
 
 }